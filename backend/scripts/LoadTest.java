@@ -0,0 +1,227 @@
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Closed-loop load test: for each concurrency level, that many virtual-thread clients call one endpoint
+ * back to back for a fixed time. Prints goodput (2xx per second), shed requests (503) and success latency,
+ * so the behaviour of the adaptive concurrency limiter past saturation can be compared run to run.
+ *
+ *   java scripts/LoadTest.java [base-url] [path] [levels] [seconds-per-level]
+ *   java scripts/LoadTest.java http://localhost:8080 /api/transactions/history 8,32,128,512 10
+ *
+ * Registers (if needed) and logs in the user LOADTEST_USER / LOADTEST_PASSWORD (default loadtest / loadtest).
+ * With LOADTEST_BODY set, the endpoint is POSTed that JSON instead of fetched. With LOADTEST_CHAT_FLOOD=n,
+ * n more clients keep POSTing to /api/chat throughout, to check that a saturated chat pool leaves the
+ * measured endpoint's latency alone. Each of their questions is different and goes to Gemini.
+ *
+ * With LOADTEST_METRICS set to the app's actuator base (e.g. http://localhost:8080), the server's live
+ * threads and busy / waited-for JDBC (Hikari) and R2DBC connections are sampled during each level and
+ * their peaks printed, to compare the blocking endpoints with the reactive ones on port 8081:
+ *
+ *   LOADTEST_METRICS=http://localhost:8080 LOADTEST_LOGIN=http://localhost:8080 \
+ *       java scripts/LoadTest.java http://localhost:8081 /api/transactions/history
+ */
+public class LoadTest {
+
+    // Sampled server gauges: column label and actuator metric name
+    private static final String[][] GAUGES = {
+            {"threads", "jvm.threads.live"},
+            {"jdbc", "hikaricp.connections.active"},
+            {"jdbc-wait", "hikaricp.connections.pending"},
+            {"r2dbc", "r2dbc.pool.acquired"},
+            {"r2dbc-wait", "r2dbc.pool.pending"},
+    };
+    private static final Pattern METRIC_VALUE = Pattern.compile("\"value\"\\s*:\\s*([-0-9.Ee]+)");
+
+    public static void main(String[] args) throws Exception {
+        String base = args.length > 0 ? args[0] : "http://localhost:8080";
+        String path = args.length > 1 ? args[1] : "/api/transactions/history";
+        int[] levels = Arrays.stream((args.length > 2 ? args[2] : "8,32,128,512").split(","))
+                .mapToInt(level -> Integer.parseInt(level.trim())).toArray();
+        int seconds = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+
+        HttpClient client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+        // The reactive port has no login endpoint: LOADTEST_LOGIN names the app that issues the token
+        String token = login(client, System.getenv().getOrDefault("LOADTEST_LOGIN", base));
+        String body = System.getenv("LOADTEST_BODY");
+        int chatFlood = Integer.parseInt(System.getenv().getOrDefault("LOADTEST_CHAT_FLOOD", "0"));
+        String metrics = System.getenv("LOADTEST_METRICS");
+
+        ExecutorService flood = Executors.newVirtualThreadPerTaskExecutor();
+        AtomicLong chatAnswered = new AtomicLong();
+        AtomicLong chatRefused = new AtomicLong();
+        for (int i = 0; i < chatFlood; i++) {
+            int chatClient = i;
+            flood.submit(() -> {
+                long asked = 0;
+                while (!Thread.currentThread().isInterrupted()) {
+                    // "Explain" sends it past the fast path to Gemini; the ticket number (four digits or
+                    // more) keeps the answer out of the cache, and no two requests coalesce
+                    HttpRequest chat = post(base + "/api/chat", String.format(
+                            "{\"message\":\"Explain how fixed deposit interest is calculated (ticket %04d-%d)\"}",
+                            chatClient, asked++));
+                    try {
+                        int status = client.send(chat, HttpResponse.BodyHandlers.discarding()).statusCode();
+                        (status / 100 == 2 ? chatAnswered : chatRefused).incrementAndGet();
+                        if (status == 503) {
+                            // Like a real chat client, wait out Retry-After before asking again
+                            Thread.sleep(5000);
+                        }
+                    } catch (InterruptedException e) {
+                        return null;
+                    } catch (Exception e) {
+                        chatRefused.incrementAndGet();
+                    }
+                }
+                return null;
+            });
+        }
+
+        System.out.printf("%-8s %10s %10s %10s %10s %10s", "clients", "ok/s", "503/s", "other/s", "p50 ms", "p99 ms");
+        if (metrics != null) {
+            for (String[] gauge : GAUGES) {
+                System.out.printf(" %10s", gauge[0]);
+            }
+        }
+        System.out.println();
+        for (int level : levels) {
+            run(client, base + path, body, token, level, seconds, metrics);
+        }
+        if (chatFlood > 0) {
+            flood.shutdownNow();
+            System.out.printf("chat flood: %d answered, %d refused or timed out%n", chatAnswered.get(), chatRefused.get());
+        }
+    }
+
+    private static void run(HttpClient client, String url, String body, String token, int clients, int seconds,
+                            String metrics) throws Exception {
+        AtomicLong shed = new AtomicLong();
+        AtomicLong other = new AtomicLong();
+        List<long[]> latencies = new ArrayList<>();
+        long end = System.nanoTime() + Duration.ofSeconds(seconds).toNanos();
+        // Peak of each gauge over the level; -1 when the server does not have it
+        double[] peaks = new double[GAUGES.length];
+        Arrays.fill(peaks, -1);
+        Thread sampler = metrics == null ? null : Thread.ofVirtual().start(() -> {
+            while (System.nanoTime() < end) {
+                for (int i = 0; i < GAUGES.length; i++) {
+                    peaks[i] = Math.max(peaks[i], gauge(client, metrics, GAUGES[i][1]));
+                }
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        });
+
+        try (ExecutorService pool = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < clients; i++) {
+                long[] samples = new long[1 << 16];
+                latencies.add(samples);
+                pool.submit(() -> {
+                    HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(url))
+                            .header("Authorization", "Bearer " + token)
+                            .timeout(Duration.ofSeconds(30));
+                    HttpRequest request = body == null ? builder.GET().build() : builder
+                            .header("Content-Type", "application/json")
+                            .POST(HttpRequest.BodyPublishers.ofString(body)).build();
+                    int count = 0;
+                    while (System.nanoTime() < end) {
+                        long start = System.nanoTime();
+                        try {
+                            int status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                            if (status / 100 == 2) {
+                                if (count + 1 < samples.length) {
+                                    samples[++count] = System.nanoTime() - start;
+                                }
+                            } else if (status == 503) {
+                                shed.incrementAndGet();
+                                // Honour Retry-After loosely: back off briefly instead of hammering
+                                Thread.sleep(50);
+                            } else {
+                                other.incrementAndGet();
+                            }
+                        } catch (Exception e) {
+                            other.incrementAndGet();
+                        }
+                    }
+                    samples[0] = count;
+                    return null;
+                });
+            }
+        }
+
+        long ok = latencies.stream().mapToLong(samples -> samples[0]).sum();
+        long[] all = new long[(int) ok];
+        int at = 0;
+        for (long[] samples : latencies) {
+            System.arraycopy(samples, 1, all, at, (int) samples[0]);
+            at += (int) samples[0];
+        }
+        Arrays.sort(all);
+        System.out.printf("%-8d %10.1f %10.1f %10.1f %10.1f %10.1f", clients,
+                (double) ok / seconds, (double) shed.get() / seconds, (double) other.get() / seconds,
+                percentile(all, 0.50), percentile(all, 0.99));
+        if (sampler != null) {
+            sampler.join();
+            for (double peak : peaks) {
+                System.out.printf(" %10s", peak < 0 ? "-" : String.valueOf((long) peak));
+            }
+        }
+        System.out.println();
+    }
+
+    private static double gauge(HttpClient client, String metrics, String name) {
+        try {
+            HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(metrics + "/actuator/metrics/" + name))
+                    .timeout(Duration.ofSeconds(5)).build(), HttpResponse.BodyHandlers.ofString());
+            Matcher value = METRIC_VALUE.matcher(response.body());
+            return response.statusCode() == 200 && value.find() ? Double.parseDouble(value.group(1)) : -1;
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        return sorted.length == 0 ? 0 : sorted[(int) Math.min(sorted.length - 1, sorted.length * p)] / 1e6;
+    }
+
+    private static String login(HttpClient client, String base) throws Exception {
+        String user = System.getenv().getOrDefault("LOADTEST_USER", "loadtest");
+        String password = System.getenv().getOrDefault("LOADTEST_PASSWORD", "loadtest");
+        String credentials = "{\"username\":\"" + user + "\",\"password\":\"" + password + "\"}";
+        String registration = "{\"username\":\"" + user + "\",\"password\":\"" + password
+                + "\",\"role\":\"ROLE_USER\",\"email\":\"" + user + "@example.com\"}";
+
+        // Already registered is fine
+        client.send(post(base + "/auth/register", registration), HttpResponse.BodyHandlers.discarding());
+        String body = client.send(post(base + "/auth/login", credentials), HttpResponse.BodyHandlers.ofString()).body();
+        Matcher token = Pattern.compile("\"token\"\\s*:\\s*\"([^\"]+)\"").matcher(body);
+        if (!token.find()) {
+            throw new IllegalStateException("Login failed: " + body);
+        }
+        return token.group(1);
+    }
+
+    private static HttpRequest post(String url, String json) {
+        return HttpRequest.newBuilder(URI.create(url))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build();
+    }
+}
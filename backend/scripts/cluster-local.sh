@@ -0,0 +1,20 @@
+#!/usr/bin/env bash
+# Starts a three-node cluster on loopback (8081-8083) sharing the database in SPRING_DATASOURCE_URL/USERNAME/PASSWORD.
+# Stop with Ctrl-C. Usage:
+#   mvn -q package -DskipTests && scripts/cluster-local.sh [target/x.jar]
+set -euo pipefail
+
+JAR="${1:-$(ls target/*.jar | grep -v original | head -n1)}"
+TOKEN="${CLUSTER_TOKEN:-local-$(date +%s)}"
+NODES="n1=http://127.0.0.1:8081,n2=http://127.0.0.1:8082,n3=http://127.0.0.1:8083"
+PIDS=()
+trap 'kill "${PIDS[@]}" 2>/dev/null || true' EXIT
+
+for i in 1 2 3; do
+  java -jar "$JAR" --server.port=808$i \
+    --cluster.enabled=true --cluster.self=n$i --cluster.nodes="$NODES" --cluster.token="$TOKEN" \
+    --gemini.api.key="${GEMINI_API_KEY:-local}" > "node-n$i.log" 2>&1 &
+  PIDS+=($!)
+  echo "n$i: http://127.0.0.1:808$i (log: node-n$i.log)"
+done
+wait
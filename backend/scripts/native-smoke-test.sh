@@ -0,0 +1,50 @@
+#!/usr/bin/env bash
+# Smoke test for the native executable: register, login, create two accounts and transfer between them.
+# Needs SPRING_DATASOURCE_URL/USERNAME/PASSWORD for a reachable MySQL. Usage:
+#   scripts/native-smoke-test.sh target/banking-system
+set -euo pipefail
+
+BINARY="${1:-target/banking-system}"
+PORT="${SMOKE_PORT:-18080}"
+BASE="http://127.0.0.1:$PORT"
+USERNAME="smoke_$(date +%s)"
+LOG="$(mktemp)"
+
+"$BINARY" --server.port="$PORT" --spring.profiles.active=fast-startup \
+  --gemini.api.key="${GEMINI_API_KEY:-smoke}" > "$LOG" 2>&1 &
+PID=$!
+trap 'kill $PID 2>/dev/null || true; rm -f "$LOG"' EXIT
+
+for _ in $(seq 100); do
+  curl -s -o /dev/null "$BASE/" && break
+  sleep 0.1
+done
+grep -E "Started|Startup phases" "$LOG" || true
+
+# POSTs JSON and fails the test unless the status is 2xx; prints the body
+post() {
+  local path="$1" body="$2" auth="${3:-}"
+  local out status
+  out=$(curl -s -w '\n%{http_code}' -X POST "$BASE$path" -H 'Content-Type: application/json' \
+    ${auth:+-H "Authorization: Bearer $auth"} -d "$body")
+  status=$(tail -n1 <<< "$out")
+  if [[ "$status" != 2* ]]; then
+    echo "FAIL $path -> $status: $(head -n -1 <<< "$out")" >&2
+    exit 1
+  fi
+  echo "ok   $path -> $status" >&2
+  head -n -1 <<< "$out"
+}
+
+# Extracts a top-level scalar JSON field without requiring jq
+field() {
+  sed -n "s/.*\"$1\":\"\{0,1\}\([^\",}]*\).*/\1/p" | head -n1
+}
+
+post /auth/register "{\"username\":\"$USERNAME\",\"password\":\"Smoke-pass-1\"}" > /dev/null
+TOKEN=$(post /auth/login "{\"username\":\"$USERNAME\",\"password\":\"Smoke-pass-1\"}" | field token)
+FROM=$(post /api/accounts/create '{"accountType":"SAVINGS","initialDeposit":100.00}' "$TOKEN" | field accountId)
+TO=$(post /api/accounts/create '{"accountType":"CURRENT","initialDeposit":0}' "$TOKEN" | field accountId)
+post /api/transactions/transfer "{\"fromAccount\":\"$FROM\",\"toAccount\":\"$TO\",\"amount\":25.50}" "$TOKEN" > /dev/null
+
+echo "Native smoke test passed"
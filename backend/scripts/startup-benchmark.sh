@@ -0,0 +1,62 @@
+#!/usr/bin/env bash
+# Startup benchmark: time-to-context-refresh of the plain fat jar vs. the CDS (and AOT) layout.
+# Run by `mvn -Pfast-startup verify` (skip with -Dstartup.benchmark.skip=true), or by hand:
+#   JAVA_BIN=java FAT_JAR=target/x.jar CDS_JAR=target/cds/x-cds.jar CDS_ARCHIVE=target/cds/app.jsa scripts/startup-benchmark.sh
+#
+# Without a database the context exits right after refresh, with Flyway off and Hibernate skipping
+# JDBC metadata. The AOT variants bake in the Flyway bean, which connects on creation, so they only
+# run when SPRING_DATASOURCE_URL/USERNAME/PASSWORD point at a reachable MySQL.
+set -euo pipefail
+
+JAVA_BIN="${JAVA_BIN:-java}"
+RUNS="${STARTUP_BENCHMARK_RUNS:-5}"
+
+COMMON_OPTS=(
+  -Dspring.context.exit=onRefresh
+  -Dspring.profiles.active=fast-startup
+  -Dgemini.api.key=bench
+  -Dlogging.level.root=WARN
+)
+NO_DB_OPTS=(
+  -Dspring.aot.enabled=false
+  -Dspring.flyway.enabled=false
+  -Dspring.datasource.url=jdbc:mysql://localhost:3306/startup_benchmark
+  -Dspring.datasource.username=bench
+  -Dspring.datasource.password=bench
+)
+
+# Prints the wall-clock milliseconds of one JVM run
+time_run() {
+  local start end
+  start=$(date +%s%N)
+  if ! "$JAVA_BIN" "$@" > /dev/null 2>&1; then
+    echo "startup failed: $JAVA_BIN $*" >&2
+    exit 1
+  fi
+  end=$(date +%s%N)
+  echo $(( (end - start) / 1000000 ))
+}
+
+# Runs a variant RUNS times and prints "name: min / median" in milliseconds
+bench() {
+  local name="$1"; shift
+  local samples=()
+  for _ in $(seq "$RUNS"); do
+    samples+=("$(time_run "$@")")
+  done
+  local sorted
+  sorted=$(printf '%s\n' "${samples[@]}" | sort -n)
+  printf '%-24s min %6sms   median %6sms\n' "$name" \
+    "$(echo "$sorted" | head -n1)" "$(echo "$sorted" | sed -n "$(( (RUNS + 1) / 2 ))p")"
+}
+
+echo "Startup benchmark ($RUNS runs each, time to context refresh)"
+bench "fat jar" "${COMMON_OPTS[@]}" "${NO_DB_OPTS[@]}" -jar "$FAT_JAR"
+bench "CDS" "${COMMON_OPTS[@]}" "${NO_DB_OPTS[@]}" -XX:SharedArchiveFile="$CDS_ARCHIVE" -jar "$CDS_JAR"
+
+if [[ -n "${SPRING_DATASOURCE_URL:-}" ]]; then
+  bench "AOT" "${COMMON_OPTS[@]}" -Dspring.aot.enabled=true -jar "$CDS_JAR"
+  bench "AOT + CDS" "${COMMON_OPTS[@]}" -Dspring.aot.enabled=true -XX:SharedArchiveFile="$CDS_ARCHIVE" -jar "$CDS_JAR"
+else
+  echo "(AOT variants skipped: set SPRING_DATASOURCE_URL to include them)"
+fi
@@ -0,0 +1,73 @@
+package bench;
+
+import entities.Money;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.math.BigDecimal;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The arithmetic of one transfer (parse amount, balance check, debit, credit, two ledger amounts)
+ * on the previous BigDecimal path versus {@link Money}. Run with {@code -prof gc} to see allocation rates:
+ * <pre>mvn -Pjmh package exec:exec@jmh -Djmh.args="MoneyPostingBenchmark -prof gc"</pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoneyPostingBenchmark {
+
+    private static final int AMOUNTS = 1024;
+
+    private final double[] requestDoubles = new double[AMOUNTS];
+    private final String[] requestTexts = new String[AMOUNTS];
+    private int next;
+
+    private BigDecimal fromDecimal;
+    private BigDecimal toDecimal;
+    private Money fromMoney;
+    private Money toMoney;
+
+    @Setup
+    public void setup() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < AMOUNTS; i++) {
+            long cents = random.nextLong(1, 100_000);
+            requestDoubles[i] = cents / 100.0;
+            requestTexts[i] = Money.ofMinor(cents).toString();
+        }
+        fromDecimal = new BigDecimal("1000000000.00");
+        toDecimal = new BigDecimal("0.00");
+        fromMoney = Money.parse("1000000000.00");
+        toMoney = Money.ZERO;
+    }
+
+    @Benchmark
+    public void bigDecimalPath(Blackhole bh) {
+        // Controller cast to double, service rebuilt amounts with BigDecimal.valueOf(amount.doubleValue())
+        BigDecimal amount = BigDecimal.valueOf(requestDoubles[next++ & (AMOUNTS - 1)]);
+        if (fromDecimal.compareTo(amount) < 0) {
+            fromDecimal = new BigDecimal("1000000000.00");
+        }
+        fromDecimal = fromDecimal.subtract(amount);
+        toDecimal = toDecimal.add(amount);
+        bh.consume(BigDecimal.valueOf(amount.doubleValue()));
+        bh.consume(BigDecimal.valueOf(amount.doubleValue()));
+    }
+
+    @Benchmark
+    public void moneyPath(Blackhole bh) {
+        Money amount = Money.parse(requestTexts[next++ & (AMOUNTS - 1)]);
+        if (fromMoney.isLessThan(amount)) {
+            fromMoney = Money.parse("1000000000.00");
+        }
+        fromMoney = fromMoney.minus(amount);
+        toMoney = toMoney.plus(amount);
+        bh.consume(amount);
+        bh.consume(amount);
+    }
+}
@@ -2,17 +2,24 @@ package api;
 
 import entities.Account;
 import entities.Customer;
-import entities.User;
+import entities.Money;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import repository.AccountRepository;
 import repository.CustomerRepository;
-import service.AuthService;
+import service.AccountService;
+import service.ChangeVersionService;
+import service.IdempotencyService;
+import util.BankPrincipal;
 
-import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/accounts")
@@ -25,44 +32,119 @@ public class AccountController {
     private CustomerRepository customerRepository;
 
     @Autowired
-    private AuthService authService;
+    private AccountService accountService;
 
-    // ✅ CREATE ACCOUNT (fixed to use Authentication instead of Principal)
+    @Autowired
+    private ChangeVersionService changeVersionService;
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    // ✅ LIST MY ACCOUNTS (304 when the If-None-Match ETag is still current)
+    @GetMapping
+    public ResponseEntity<?> getAccounts(BankPrincipal principal, WebRequest webRequest) {
+        if (principal == null) {
+            return unauthorized();
+        }
+        Long customerId = principal.customerId();
+        if (customerId == null) {
+            return ResponseEntity.ok(List.of());
+        }
+        if (webRequest.checkNotModified(changeVersionService.etag("accounts", customerId))) {
+            return null;
+        }
+
+        List<Map<String, Object>> accounts = accountRepository.findByCustomer_CustomerId(customerId).stream()
+                .map(AccountController::toView)
+                .toList();
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache().cachePrivate()).body(accounts);
+    }
+
+    // ✅ SINGLE ACCOUNT (shares the customer's version, so any change invalidates it)
+    @GetMapping("/{id}")
+    public ResponseEntity<?> getAccount(@PathVariable Long id, BankPrincipal principal, WebRequest webRequest) {
+        if (principal == null) {
+            return unauthorized();
+        }
+        // Ownership comes from the cached owner map, so a matching ETag costs no account read
+        Long customerId = principal.customerId();
+        if (customerId == null || !accountService.isOwnedBy(id, principal.username())) {
+            return accountNotFound(id);
+        }
+        if (webRequest.checkNotModified(changeVersionService.etag("account-" + id, customerId))) {
+            return null;
+        }
+        Account account = accountRepository.findById(id).orElse(null);
+        if (account == null) {
+            return accountNotFound(id);
+        }
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache().cachePrivate()).body(toView(account));
+    }
+
+    // ✅ CREATE ACCOUNT (caller and customer come from the token's claims, no lookups)
     @PostMapping("/create")
-    public ResponseEntity<?> createAccount(@RequestBody AccountRequest request, Authentication authentication) {
+    public ResponseEntity<?> createAccount(@RequestBody AccountRequest request, BankPrincipal principal,
+                                           @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
+                                           HttpServletRequest httpRequest) {
         // Step 1: Check if authentication exists
-        if (authentication == null || !authentication.isAuthenticated()) {
+        if (principal == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                     .body("Unauthorized: Please log in before creating an account.");
         }
 
-        // Step 2: Extract username from JWT-authenticated user
-        String username = authentication.getName();
+        // A retried create with the same Idempotency-Key returns the first account instead of opening another
+        return idempotencyService.execute(principal.username(), idempotencyKey,
+                httpRequest.getMethod(), httpRequest.getRequestURI(), request,
+                () -> openAccount(request, principal));
+    }
 
-        // Step 3: Find user
-        User user = authService.findByUsername(username)
-                .orElseThrow(() -> new RuntimeException("User not found: " + username));
+    private ResponseEntity<?> openAccount(AccountRequest request, BankPrincipal principal) {
+        if (request.getInitialDeposit() != null && request.getInitialDeposit().isNegative()) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body("Initial deposit cannot be negative.");
+        }
 
-        // Step 4: Find associated customer
-        Customer customer = customerRepository.findByUser(user)
-                .orElseThrow(() -> new RuntimeException("Customer not found for user: " + username));
+        // Step 2: The customer id is a signed claim, so a reference is enough
+        if (principal.customerId() == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body("Customer not found for user: " + principal.username());
+        }
+        Customer customer = customerRepository.getReferenceById(principal.customerId());
 
-        // Step 5: Create and save new account
+        // Step 3: Create and save new account
         Account account = new Account();
         account.setCustomer(customer);
         account.setAccountType(request.getAccountType());
-        account.setBalance(BigDecimal.valueOf(request.getInitialDeposit()));
+        account.setBalance(request.getInitialDeposit() != null ? request.getInitialDeposit() : Money.ZERO);
 
-        accountRepository.save(account);
+        accountService.open(account);
+
+        // Step 4: Return success response (a view, not the entity, which would expose the user)
+        return ResponseEntity.ok(toView(account));
+    }
+
+    private static ResponseEntity<?> accountNotFound(Long id) {
+        return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                .body(Map.of("success", false, "error", "Account not found: " + id));
+    }
+
+    private static ResponseEntity<?> unauthorized() {
+        return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                .body(Map.of("success", false, "error", "Unauthorized: Please log in first."));
+    }
 
-        // Step 6: Return success response
-        return ResponseEntity.ok(account);
+    private static Map<String, Object> toView(Account account) {
+        Map<String, Object> view = new LinkedHashMap<>();
+        view.put("accountId", account.getAccountId());
+        view.put("accountType", account.getAccountType());
+        view.put("balance", account.getBalance());
+        return view;
     }
 
     // ✅ DTO for request body
     public static class AccountRequest {
         private String accountType;
-        private double initialDeposit;
+        private Money initialDeposit;
 
         public String getAccountType() {
             return accountType;
@@ -72,11 +154,11 @@ public class AccountController {
             this.accountType = accountType;
         }
 
-        public double getInitialDeposit() {
+        public Money getInitialDeposit() {
             return initialDeposit;
         }
 
-        public void setInitialDeposit(double initialDeposit) {
+        public void setInitialDeposit(Money initialDeposit) {
             this.initialDeposit = initialDeposit;
         }
     }
@@ -0,0 +1,48 @@
+package api;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import service.CustomerSearchService;
+import util.SearchIndex;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin/customers")
+public class AdminCustomerController {
+
+    @Autowired
+    private CustomerSearchService customerSearchService;
+
+    // ✅ Partial name, username, e-mail or phone; typos in names are tolerated. Served from memory.
+    @GetMapping("/search")
+    public ResponseEntity<?> search(@RequestParam String q,
+                                    @RequestParam(defaultValue = "0") int page,
+                                    @RequestParam(defaultValue = "20") int size) {
+        if (page < 0 || size < 1 || size > 100 || (long) page * size > SearchIndex.MAX_OFFSET) {
+            return ResponseEntity.badRequest().body(Map.of("success", false,
+                    "error", "page >= 0, size 1..100 and page * size <= " + SearchIndex.MAX_OFFSET));
+        }
+        SearchIndex.Page<CustomerSearchService.CustomerDocument> results = customerSearchService.search(q, page, size);
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("total", results.total());
+        body.put("page", page);
+        body.put("size", size);
+        // False until the first load finishes after startup
+        body.put("complete", customerSearchService.isReady());
+        body.put("results", results.hits().stream().map(hit -> {
+            CustomerSearchService.CustomerDocument customer = hit.document();
+            Map<String, Object> view = new LinkedHashMap<>();
+            view.put("customerId", customer.customerId());
+            view.put("name", customer.name());
+            view.put("username", customer.username());
+            view.put("email", customer.email());
+            view.put("phone", customer.phone());
+            view.put("score", hit.score());
+            return view;
+        }).toList());
+        return ResponseEntity.ok(body);
+    }
+}
@@ -0,0 +1,109 @@
+package api;
+
+import entities.ImportJob;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import service.BulkImportService;
+import util.ImportFileReader;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin/imports")
+public class AdminImportController {
+
+    @Autowired
+    private BulkImportService bulkImportService;
+
+    // ✅ Upload a CSV or NDJSON file as the raw request body; the import runs in the background
+    // (form content types are refused: the container would consume the body as parameters)
+    @PostMapping(consumes = {"text/csv", "application/x-ndjson", "application/ndjson",
+            MediaType.TEXT_PLAIN_VALUE, MediaType.APPLICATION_OCTET_STREAM_VALUE})
+    public ResponseEntity<?> start(@RequestParam(required = false) String format,
+                                   @RequestParam(defaultValue = "upload") String name,
+                                   HttpServletRequest request) throws IOException {
+        String resolved = format != null ? format.toLowerCase(Locale.ROOT) : formatOf(request.getContentType());
+        if (resolved == null) {
+            return ResponseEntity.badRequest().body(Map.of("success", false,
+                    "error", "Send text/csv or application/x-ndjson, or pass ?format=csv|ndjson"));
+        }
+        try {
+            ImportJob job = bulkImportService.start(name, resolved, request.getInputStream());
+            return ResponseEntity.accepted()
+                    .location(URI.create("/api/admin/imports/" + job.getId()))
+                    .body(view(job));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("success", false, "error", e.getMessage()));
+        }
+    }
+
+    // ✅ Most recent imports first
+    @GetMapping
+    public ResponseEntity<?> recent() {
+        return ResponseEntity.ok(bulkImportService.recent().stream().map(AdminImportController::view).toList());
+    }
+
+    // ✅ Progress of one import
+    @GetMapping("/{id}")
+    public ResponseEntity<?> get(@PathVariable String id) {
+        return bulkImportService.find(id)
+                .<ResponseEntity<?>>map(job -> ResponseEntity.ok(view(job)))
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(Map.of("success", false, "error", "Import not found")));
+    }
+
+    // ✅ Continue a failed import from its last completed chunk
+    @PostMapping("/{id}/resume")
+    public ResponseEntity<?> resume(@PathVariable String id) {
+        try {
+            return bulkImportService.resume(id)
+                    .<ResponseEntity<?>>map(job -> ResponseEntity.accepted().body(view(job)))
+                    .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND)
+                            .body(Map.of("success", false, "error", "Import not found")));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("success", false, "error", e.getMessage()));
+        }
+    }
+
+    private static String formatOf(String contentType) {
+        if (contentType == null) {
+            return null;
+        }
+        String type = contentType.toLowerCase(Locale.ROOT);
+        if (type.startsWith("text/csv")) {
+            return ImportFileReader.CSV;
+        }
+        if (type.startsWith("application/x-ndjson") || type.startsWith("application/ndjson")) {
+            return ImportFileReader.NDJSON;
+        }
+        return null;
+    }
+
+    private static Map<String, Object> view(ImportJob job) {
+        Map<String, Object> view = new LinkedHashMap<>();
+        view.put("id", job.getId());
+        view.put("fileName", job.getFileName());
+        view.put("format", job.getFormat());
+        view.put("status", job.getStatus());
+        view.put("totalLines", job.getTotalLines());
+        view.put("linesDone", job.getLinesDone());
+        view.put("percent", job.getTotalLines() == 0 ? 100
+                : Math.round(1000.0 * job.getLinesDone() / job.getTotalLines()) / 10.0);
+        view.put("imported", job.getImported());
+        view.put("skipped", job.getSkipped());
+        view.put("failed", job.getFailed());
+        view.put("lastError", job.getLastError());
+        view.put("node", job.getNode());
+        view.put("createdAt", job.getCreatedAt());
+        view.put("updatedAt", job.getUpdatedAt());
+        return view;
+    }
+}
@@ -0,0 +1,37 @@
+package api;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import service.QueryProfiler;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin/queries")
+public class AdminQueryController {
+
+    @Autowired
+    private QueryProfiler queryProfiler;
+
+    // ✅ Statements with the most total time, with latency histograms
+    @GetMapping
+    public ResponseEntity<?> topQueries(@RequestParam(defaultValue = "50") int limit) {
+        return ResponseEntity.ok(queryProfiler.topQueries(limit));
+    }
+
+    // ✅ Recent slow statements and N+1 suspects
+    @GetMapping("/incidents")
+    public ResponseEntity<?> incidents() {
+        return ResponseEntity.ok(Map.of(
+                "slowQueries", queryProfiler.recentSlowQueries(),
+                "nPlusOne", queryProfiler.recentNPlusOneIncidents()
+        ));
+    }
+
+    @DeleteMapping
+    public ResponseEntity<?> reset() {
+        queryProfiler.reset();
+        return ResponseEntity.ok(Map.of("success", true, "message", "Query statistics reset"));
+    }
+}
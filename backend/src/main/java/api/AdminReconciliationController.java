@@ -0,0 +1,63 @@
+package api;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import service.LedgerReconciliationService;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin/reconciliation")
+public class AdminReconciliationController {
+
+    @Autowired
+    private LedgerReconciliationService reconciliationService;
+
+    // ✅ Last run on this instance, and the accounts currently out of balance (all shards)
+    @GetMapping
+    public ResponseEntity<?> report(@RequestParam(defaultValue = "100") int limit) {
+        if (limit < 1 || limit > 1000) {
+            return ResponseEntity.badRequest().body(Map.of("success", false, "error", "limit must be 1..1000"));
+        }
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("lastRun", reconciliationService.lastRun().map(AdminReconciliationController::view).orElse(null));
+        body.put("mismatches", reconciliationService.mismatches(limit).stream().map(mismatch -> {
+            Map<String, Object> view = new LinkedHashMap<>();
+            view.put("accountId", mismatch.accountId());
+            view.put("balance", mismatch.balance());
+            view.put("ledgerBalance", mismatch.ledgerBalance());
+            view.put("difference", mismatch.difference());
+            view.put("checkedAt", mismatch.checkedAt());
+            return view;
+        }).toList());
+        return ResponseEntity.ok(body);
+    }
+
+    // ✅ Start a run now; ?full=true re-sums every transaction instead of continuing from the watermarks
+    @PostMapping("/runs")
+    public ResponseEntity<?> run(@RequestParam(defaultValue = "false") boolean full) {
+        return reconciliationService.start(full)
+                .<ResponseEntity<?>>map(run -> ResponseEntity.accepted().body(view(run)))
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.CONFLICT)
+                        .body(Map.of("success", false, "error", "A reconciliation run is already in progress")));
+    }
+
+    private static Map<String, Object> view(LedgerReconciliationService.Run run) {
+        Map<String, Object> view = new LinkedHashMap<>();
+        view.put("full", run.isFull());
+        view.put("status", run.getStatus());
+        view.put("startedAt", run.getStartedAt());
+        view.put("finishedAt", run.getFinishedAt());
+        view.put("ranges", run.getRanges());
+        view.put("rangesDone", run.getRangesDone());
+        view.put("rangesFailed", run.getRangesFailed());
+        view.put("accounts", run.getAccounts());
+        view.put("transactions", run.getTransactions());
+        view.put("mismatches", run.getMismatches());
+        view.put("lastError", run.getLastError());
+        return view;
+    }
+}
@@ -0,0 +1,71 @@
+package api;
+
+import entities.Money;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import service.SpendingAnalyticsService;
+import util.BankPrincipal;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api")
+public class AnalyticsController {
+
+    @Autowired
+    private SpendingAnalyticsService spendingAnalyticsService;
+
+    // ✅ My spending per month and transaction type, current month last. Served from memory.
+    @GetMapping("/analytics/spending")
+    public ResponseEntity<?> mySpending(BankPrincipal principal, @RequestParam(defaultValue = "6") int months) {
+        if (principal == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body(Map.of("success", false, "error", "Unauthorized: Please log in first."));
+        }
+        if (principal.customerId() == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(Map.of("success", false, "error", "No customer profile"));
+        }
+        return report(principal.customerId(), months);
+    }
+
+    // ✅ The same across every customer (admin only)
+    @GetMapping("/admin/analytics/spending")
+    public ResponseEntity<?> bankSpending(@RequestParam(defaultValue = "12") int months) {
+        return report(null, months);
+    }
+
+    private ResponseEntity<?> report(Long customerId, int months) {
+        int window = spendingAnalyticsService.getWindowMonths();
+        if (months < 1 || months > window) {
+            return ResponseEntity.badRequest().body(Map.of("success", false, "error", "months must be 1.." + window));
+        }
+        List<SpendingAnalyticsService.Month> monthly = spendingAnalyticsService.monthly(customerId, months);
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        // False until the first load finishes after startup
+        body.put("complete", spendingAnalyticsService.isReady());
+        body.put("spent", Money.ofMinor(monthly.stream().mapToLong(SpendingAnalyticsService.Month::spentMinor).sum()));
+        body.put("received", Money.ofMinor(monthly.stream().mapToLong(SpendingAnalyticsService.Month::receivedMinor).sum()));
+        body.put("months", monthly.stream().map(month -> {
+            Map<String, Object> view = new LinkedHashMap<>();
+            view.put("month", month.month().toString());
+            view.put("spent", Money.ofMinor(month.spentMinor()));
+            view.put("received", Money.ofMinor(month.receivedMinor()));
+            Map<String, Object> byType = new LinkedHashMap<>();
+            month.byType().forEach((type, total) -> {
+                Map<String, Object> totals = new LinkedHashMap<>();
+                totals.put("count", total.count());
+                totals.put("total", Money.ofMinor(total.totalMinor()));
+                byType.put(type, totals);
+            });
+            view.put("byType", byType);
+            return view;
+        }).toList());
+        return ResponseEntity.ok(body);
+    }
+}
@@ -1,6 +1,8 @@
 package api;
 
 import entities.User;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.*;
 import org.springframework.security.authentication.*;
@@ -10,6 +12,8 @@ import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
 import service.AuthService;
 import service.CustomerService;
+import service.TokenRevocationService;
+import util.BankPrincipal;
 import util.JwtUtil;
 
 import jakarta.servlet.http.HttpServletRequest;
@@ -31,6 +35,9 @@ public class AuthApiController {
     @Autowired
     private JwtUtil jwtUtil;
 
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+
     // ✅ LOGIN
     @PostMapping("/login")
     public ResponseEntity<?> login(@RequestBody Map<String, String> loginData) {
@@ -45,7 +52,10 @@ public class AuthApiController {
             SecurityContextHolder.getContext().setAuthentication(authentication);
             UserDetails userDetails = (UserDetails) authentication.getPrincipal();
 
-            String token = jwtUtil.generateToken(userDetails.getUsername());
+            // ✅ Identity, customer and roles go into signed claims so later requests skip the lookups
+            BankPrincipal principal = authService.loadPrincipal(userDetails.getUsername())
+                    .orElseThrow(() -> new BadCredentialsException("User not found"));
+            String token = jwtUtil.generateToken(principal);
 
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
@@ -99,10 +109,15 @@ public class AuthApiController {
         String token = authHeader.substring(7);
 
         try {
-            String username = jwtUtil.extractUsername(token);
+            Claims claims = jwtUtil.parseClaims(token);
+            // ✅ A logged-out token is no longer valid, as in JwtAuthFilter
+            if (tokenRevocationService.isRevoked(claims.getId())) {
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                        .body(Map.of("success", false, "error", "Token has been revoked"));
+            }
             return ResponseEntity.ok(Map.of(
                     "success", true,
-                    "user", Map.of("username", username)
+                    "user", Map.of("username", claims.getSubject())
             ));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
@@ -113,7 +128,19 @@ public class AuthApiController {
     // ✅ LOGOUT
     @PostMapping("/logout")
     public ResponseEntity<?> logout(HttpServletRequest request) {
-        request.getSession().invalidate();
+        // ✅ Stateless: revoke the presented token instead of touching an HTTP session
+        String authHeader = request.getHeader("Authorization");
+        if (authHeader != null && authHeader.startsWith("Bearer ")) {
+            String jwt = authHeader.substring(7);
+            try {
+                String tokenId = jwtUtil.extractTokenId(jwt);
+                if (tokenId != null) {
+                    tokenRevocationService.revoke(tokenId, jwtUtil.extractExpiration(jwt));
+                }
+            } catch (JwtException | IllegalArgumentException e) {
+                // Invalid or expired token: nothing left to revoke
+            }
+        }
         SecurityContextHolder.clearContext();
         return ResponseEntity.ok(Map.of("success", true, "message", "Logout successful"));
     }
@@ -0,0 +1,115 @@
+package api;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import service.BalanceHistoryService;
+import util.BankPrincipal;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api")
+public class BalanceHistoryController {
+
+    @Autowired
+    private BalanceHistoryService balanceHistoryService;
+
+    // ✅ Balance of my account as of a date (end of that day) or date-time: ?at=2024-01-31 or ?at=2024-01-31T12:00
+    @GetMapping("/accounts/{id}/balance")
+    public ResponseEntity<?> myBalanceAt(@PathVariable Long id, @RequestParam String at, BankPrincipal principal) {
+        ResponseEntity<?> denied = checkOwner(id, principal);
+        return denied != null ? denied : balanceAt(id, at);
+    }
+
+    // ✅ Closing balance of each day of my account: ?from=2024-01-01&to=2024-01-31
+    @GetMapping("/accounts/{id}/balance-history")
+    public ResponseEntity<?> myBalanceHistory(@PathVariable Long id, @RequestParam String from,
+                                              @RequestParam String to, BankPrincipal principal) {
+        ResponseEntity<?> denied = checkOwner(id, principal);
+        return denied != null ? denied : history(id, from, to);
+    }
+
+    // ✅ The same for any account (admin / audit)
+    @GetMapping("/admin/accounts/{id}/balance")
+    public ResponseEntity<?> balanceAtForAudit(@PathVariable Long id, @RequestParam String at) {
+        if (balanceHistoryService.ownerOf(id).isEmpty()) {
+            return notFound(id);
+        }
+        return balanceAt(id, at);
+    }
+
+    @GetMapping("/admin/accounts/{id}/balance-history")
+    public ResponseEntity<?> balanceHistoryForAudit(@PathVariable Long id, @RequestParam String from,
+                                                    @RequestParam String to) {
+        if (balanceHistoryService.ownerOf(id).isEmpty()) {
+            return notFound(id);
+        }
+        return history(id, from, to);
+    }
+
+    private ResponseEntity<?> balanceAt(Long id, String at) {
+        LocalDateTime time;
+        try {
+            time = at.contains("T") ? LocalDateTime.parse(at) : LocalDate.parse(at).atTime(LocalTime.MAX);
+        } catch (DateTimeParseException e) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("success", false, "error", "at must look like 2024-01-31 or 2024-01-31T12:00"));
+        }
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("accountId", id);
+        body.put("at", time.toString());
+        body.put("balance", balanceHistoryService.balanceAt(id, time));
+        return ResponseEntity.ok(body);
+    }
+
+    private ResponseEntity<?> history(Long id, String from, String to) {
+        LocalDate first;
+        LocalDate last;
+        try {
+            first = LocalDate.parse(from);
+            last = LocalDate.parse(to);
+        } catch (DateTimeParseException e) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("success", false, "error", "from and to must look like 2024-01-31"));
+        }
+        try {
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("accountId", id);
+            body.put("from", first.toString());
+            body.put("to", last.toString());
+            body.put("days", balanceHistoryService.dailyBalances(id, first, last).stream().map(point -> {
+                Map<String, Object> view = new LinkedHashMap<>();
+                view.put("date", point.date().toString());
+                view.put("balance", point.balance());
+                return view;
+            }).toList());
+            return ResponseEntity.ok(body);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("success", false, "error", e.getMessage()));
+        }
+    }
+
+    private ResponseEntity<?> checkOwner(Long id, BankPrincipal principal) {
+        if (principal == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body(Map.of("success", false, "error", "Unauthorized: Please log in first."));
+        }
+        Long owner = balanceHistoryService.ownerOf(id).orElse(null);
+        if (owner == null || !owner.equals(principal.customerId())) {
+            return notFound(id);
+        }
+        return null;
+    }
+
+    private static ResponseEntity<?> notFound(Long id) {
+        return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                .body(Map.of("success", false, "error", "Account not found: " + id));
+    }
+}
@@ -1,9 +1,20 @@
 package api;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import service.ChatbotService;
 import dto.ChatRequest;
+import util.BankPrincipal;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 @RestController
 @RequestMapping("/api/chat")
@@ -13,8 +24,31 @@ public class ChatbotController {
     @Autowired
     private ChatbotService chatbotService;
 
+    @Value("${chat.timeout-ms:25000}")
+    private long timeoutMs;
+
+    // ✅ Async: the Tomcat thread is released while the chat pool talks to Gemini
+    // (balance, recent transactions and transfer help are answered directly for the logged-in customer)
     @PostMapping
-    public String chat(@RequestBody ChatRequest request) {
-        return chatbotService.getResponse(request.getMessage());
+    public CompletableFuture<ResponseEntity<String>> chat(@RequestBody ChatRequest request, BankPrincipal principal) {
+        return chatbotService.ask(request.getMessage(), principal)
+                .orTimeout(timeoutMs, TimeUnit.MILLISECONDS)
+                .thenApply(ResponseEntity::ok)
+                .exceptionally(ChatbotController::failure);
+    }
+
+    private static ResponseEntity<String> failure(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause instanceof RejectedExecutionException) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "5")
+                    .body("The assistant is busy right now, please try again in a moment.");
+        }
+        if (cause instanceof TimeoutException) {
+            return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT)
+                    .body("The assistant took too long to answer, please try again.");
+        }
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body("Error from the assistant: " + cause.getMessage());
     }
 }
@@ -0,0 +1,75 @@
+package api;
+
+import dto.ClusterCreditRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import service.AccountEventStream;
+import service.ClusterService;
+import service.TransactionPostedEvent;
+import service.TransferSagaService;
+
+import java.util.Map;
+
+/**
+ * Node-to-node endpoints of cluster mode. Not for clients: every call must carry the shared
+ * {@code X-Cluster-Token}, and the whole path is 404 while clustering is off.
+ */
+@RestController
+@RequestMapping("/internal/cluster")
+public class ClusterInternalController {
+
+    @Autowired
+    private ClusterService clusterService;
+
+    @Autowired
+    private TransferSagaService transferSagaService;
+
+    @Autowired
+    private AccountEventStream accountEventStream;
+
+
+    // ✅ Membership as this node sees it
+    @GetMapping
+    public ResponseEntity<?> describe(@RequestHeader(value = ClusterService.TOKEN_HEADER, required = false) String token) {
+        ResponseEntity<?> denied = checkCaller(token);
+        return denied != null ? denied : ResponseEntity.ok(clusterService.describe());
+    }
+
+    // ✅ Second phase of a cross-node transfer; applied at most once per saga id
+    @PostMapping("/credit")
+    public ResponseEntity<?> credit(@RequestBody ClusterCreditRequest body,
+                                    @RequestHeader(value = ClusterService.TOKEN_HEADER, required = false) String token) {
+        ResponseEntity<?> denied = checkCaller(token);
+        if (denied != null) {
+            return denied;
+        }
+        if (body.getSagaId() == null || body.getToAccountId() == null || body.getAmount() == null) {
+            return ResponseEntity.badRequest().body(Map.of("success", false, "error", "sagaId, toAccountId and amount are required"));
+        }
+        return transferSagaService.applyCredit(body);
+    }
+
+    // ✅ A posting committed on a peer, for live-stream subscribers connected here
+    @PostMapping("/events")
+    public ResponseEntity<?> event(@RequestBody TransactionPostedEvent event,
+                                   @RequestHeader(value = ClusterService.TOKEN_HEADER, required = false) String token) {
+        ResponseEntity<?> denied = checkCaller(token);
+        if (denied != null) {
+            return denied;
+        }
+        accountEventStream.publishPosted(event);
+        return ResponseEntity.accepted().build();
+    }
+
+    private ResponseEntity<?> checkCaller(String token) {
+        if (!clusterService.isEnabled()) {
+            return ResponseEntity.notFound().build();
+        }
+        if (!clusterService.isValidToken(token)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("success", false, "error", "Invalid cluster token"));
+        }
+        return null;
+    }
+}
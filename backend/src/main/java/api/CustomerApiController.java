@@ -1,22 +1,42 @@
 package api;
+import entities.Customer;
 import service.CustomerService;
+import service.ShardService;
 
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 @RestController
 @RequestMapping("/api/customers")
 @CrossOrigin(origins = "http://localhost:5173", allowCredentials = "true")
 public class CustomerApiController {
 
     private final CustomerService customerService;
+    private final ShardService shardService;
 
-    public CustomerApiController(CustomerService customerService) {
+    public CustomerApiController(CustomerService customerService, ShardService shardService) {
         this.customerService = customerService;
+        this.shardService = shardService;
     }
 
+    // ✅ All shards queried in parallel; mapped to views while each shard's session is open
     @GetMapping
     public ResponseEntity<?> getCustomers() {
-        return ResponseEntity.ok(customerService.findAll());
+        return ResponseEntity.ok(shardService.scatterGather(() -> customerService.findAll().stream()
+                .map(CustomerApiController::toView)
+                .toList()));
+    }
+
+    private static Map<String, Object> toView(Customer customer) {
+        Map<String, Object> view = new LinkedHashMap<>();
+        view.put("customerId", customer.getCustomerId());
+        view.put("name", customer.getName());
+        view.put("email", customer.getEmail());
+        view.put("phone", customer.getPhone());
+        view.put("address", customer.getAddress());
+        return view;
     }
 }
@@ -1,23 +1,81 @@
 package api;
 
+import entities.Account;
+import entities.Money;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.WebRequest;
+import service.AccountService;
+import service.ChangeVersionService;
+import service.TransactionService;
+import util.BankPrincipal;
 
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 @RestController
 @RequestMapping("/api/dashboard")
 public class DashboardApiController {
 
+    // "recentTransactions" counts postings since the start of this many days ago
+    public static final int RECENT_DAYS = 30;
+
+    @Autowired
+    private AccountService accountService;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private ChangeVersionService changeVersionService;
+
+    // ✅ Balances per account type and the number of recent postings; 304 when the ETag is still current
     @GetMapping("/summary")
-    public ResponseEntity<?> getSummary() {
-        // Example summary
-        Map<String, Object> summary = Map.of(
-                "totalBalance", 25000,
-                "recentTransactions", 5,
-                "savingsAccount", 15000,
-                "currentAccount", 10000
-        );
-        return ResponseEntity.ok(summary);
+    public ResponseEntity<?> getSummary(BankPrincipal principal, WebRequest webRequest) {
+        if (principal == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body(Map.of("success", false, "error", "Unauthorized: Please log in first."));
+        }
+        Long customerId = principal.customerId();
+        if (customerId == null) {
+            return ResponseEntity.ok(summary(Money.ZERO, Money.ZERO, Money.ZERO, 0, 0));
+        }
+        // The recent window moves daily, so the day is part of the ETag
+        LocalDate today = LocalDate.now();
+        if (webRequest.checkNotModified(changeVersionService.etag("summary-" + today, customerId))) {
+            return null;
+        }
+
+        List<Account> accounts = accountService.findByCustomerId(customerId);
+        Money total = Money.ZERO;
+        Money savings = Money.ZERO;
+        Money current = Money.ZERO;
+        for (Account account : accounts) {
+            total = total.plus(account.getBalance());
+            if ("SAVINGS".equalsIgnoreCase(account.getAccountType())) {
+                savings = savings.plus(account.getBalance());
+            } else if ("CURRENT".equalsIgnoreCase(account.getAccountType())) {
+                current = current.plus(account.getBalance());
+            }
+        }
+        long recent = transactionService.countSinceByCustomerId(customerId,
+                today.minusDays(RECENT_DAYS).atStartOfDay());
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache().cachePrivate())
+                .body(summary(total, savings, current, accounts.size(), recent));
+    }
+
+    public static Map<String, Object> summary(Money total, Money savings, Money current, int accounts, long recent) {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("totalBalance", total);
+        summary.put("savingsAccount", savings);
+        summary.put("currentAccount", current);
+        summary.put("accounts", accounts);
+        summary.put("recentTransactions", recent);
+        return summary;
     }
 }
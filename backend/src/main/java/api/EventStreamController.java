@@ -0,0 +1,43 @@
+package api;
+
+import config.JwtAuthFilter;
+import io.jsonwebtoken.Claims;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestAttribute;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import service.AccountEventStream;
+import util.BankPrincipal;
+
+@RestController
+@RequestMapping("/api/stream")
+public class EventStreamController {
+
+    @Autowired
+    private AccountEventStream accountEventStream;
+
+    // ✅ Live balance/transaction events; EventSource cannot set headers, so the JWT may come as ?access_token=
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream(BankPrincipal principal,
+                             @RequestAttribute(name = JwtAuthFilter.CLAIMS_ATTRIBUTE, required = false) Claims claims) {
+        // The emitter return type is what switches MVC to streaming, so failures are thrown, not returned
+        if (principal == null || claims == null) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Unauthorized: Please log in first.");
+        }
+        Long customerId = principal.customerId();
+        if (customerId == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "No customer profile for this user");
+        }
+        try {
+            // ✅ The stream ends when the token expires or is revoked; the client reconnects with a fresh one
+            return accountEventStream.subscribe(customerId, claims.getId(), claims.getExpiration());
+        } catch (IllegalStateException e) {
+            throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS, e.getMessage());
+        }
+    }
+}
@@ -2,11 +2,16 @@ package api;
 
 import entities.User;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import service.ChangeVersionService;
 import service.UserServiceImpl;
+import util.BankPrincipal;
 
+import java.util.HashMap;
 import java.util.Map;
 
 @RestController
@@ -14,33 +19,41 @@ import java.util.Map;
 public class ProfileApiController {
 
     private final UserServiceImpl userService;
+    private final ChangeVersionService changeVersionService;
 
     @Autowired
-    public ProfileApiController(UserServiceImpl userService) {
+    public ProfileApiController(UserServiceImpl userService, ChangeVersionService changeVersionService) {
         this.userService = userService;
+        this.changeVersionService = changeVersionService;
     }
 
     /**
-     * Get the currently authenticated user's profile
+     * Get the currently authenticated user's profile.
+     * Answers 304 from the customer's change counter when the client's ETag is current.
      */
     @GetMapping
-    public ResponseEntity<?> getProfile(Authentication authentication) {
-        String username = authentication.getName();
+    public ResponseEntity<?> getProfile(BankPrincipal principal, WebRequest webRequest) {
+        String username = principal.username();
+        Long customerId = principal.customerId();
+        if (customerId != null && webRequest.checkNotModified(changeVersionService.etag("profile", customerId))) {
+            return null;
+        }
+
         User user = userService.findByUsername(username)
                 .orElseThrow(() -> new RuntimeException("User not found"));
 
-        Map<String, Object> profile = Map.of(
-                "id", user.getId(),
-                "username", user.getUsername(),
-                "firstName", user.getFirstName(),
-                "lastName", user.getLastName(),
-                "email", user.getEmail(),
-                "phone", user.getPhone(),
-                "address", user.getAddress(),
-                "role", user.getRole()
-        );
+        // HashMap: profile fields are optional and Map.of rejects nulls
+        Map<String, Object> profile = new HashMap<>();
+        profile.put("id", user.getId());
+        profile.put("username", user.getUsername());
+        profile.put("firstName", user.getFirstName());
+        profile.put("lastName", user.getLastName());
+        profile.put("email", user.getEmail());
+        profile.put("phone", user.getPhone());
+        profile.put("address", user.getAddress());
+        profile.put("role", user.getRole());
 
-        return ResponseEntity.ok(profile);
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache().cachePrivate()).body(profile);
     }
 
     /**
@@ -55,15 +68,16 @@ public class ProfileApiController {
         updatedUser.setId(existingUser.getId()); // ensure same user
         User savedUser = userService.updateUserProfile(existingUser.getId(), updatedUser);
 
+        Map<String, Object> user = new HashMap<>();
+        user.put("firstName", savedUser.getFirstName());
+        user.put("lastName", savedUser.getLastName());
+        user.put("email", savedUser.getEmail());
+        user.put("phone", savedUser.getPhone());
+        user.put("address", savedUser.getAddress());
+
         Map<String, Object> response = Map.of(
                 "message", "Profile updated successfully",
-                "user", Map.of(
-                        "firstName", savedUser.getFirstName(),
-                        "lastName", savedUser.getLastName(),
-                        "email", savedUser.getEmail(),
-                        "phone", savedUser.getPhone(),
-                        "address", savedUser.getAddress()
-                )
+                "user", user
         );
 
         return ResponseEntity.ok(response);
@@ -0,0 +1,91 @@
+package api;
+
+import entities.StatementRun;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import service.StatementService;
+import util.BankPrincipal;
+
+import java.nio.charset.StandardCharsets;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api")
+public class StatementController {
+
+    @Autowired
+    private StatementService statementService;
+
+    // ✅ My statement for a month (yyyy-MM) as plain text, once that month's run has written it
+    @GetMapping("/statements/{month}")
+    public ResponseEntity<?> myStatement(@PathVariable String month, BankPrincipal principal) {
+        if (principal == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body(Map.of("success", false, "error", "Unauthorized: Please log in first."));
+        }
+        YearMonth period = parse(month);
+        if (period == null) {
+            return ResponseEntity.badRequest().body(Map.of("success", false, "error", "Month must look like 2024-01"));
+        }
+        if (principal.customerId() == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("success", false, "error", "No customer profile"));
+        }
+        return statementService.statementFile(period, principal.customerId())
+                .<ResponseEntity<?>>map(file -> ResponseEntity.ok()
+                        .contentType(new MediaType(MediaType.TEXT_PLAIN, StandardCharsets.UTF_8))
+                        .body(new FileSystemResource(file)))
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(Map.of("success", false, "error", "No statement for " + period)));
+    }
+
+    // ✅ Generate every customer's statement for a past month in the background (admin only)
+    @PostMapping("/admin/statements")
+    public ResponseEntity<?> start(@RequestParam String month) {
+        YearMonth period = parse(month);
+        if (period == null) {
+            return ResponseEntity.badRequest().body(Map.of("success", false, "error", "Month must look like 2024-01"));
+        }
+        try {
+            return ResponseEntity.accepted().body(view(statementService.start(period)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("success", false, "error", e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("success", false, "error", e.getMessage()));
+        }
+    }
+
+    // ✅ Recent runs, newest month first
+    @GetMapping("/admin/statements")
+    public ResponseEntity<?> runs() {
+        return ResponseEntity.ok(statementService.recent().stream().map(StatementController::view).toList());
+    }
+
+    private static YearMonth parse(String month) {
+        try {
+            return YearMonth.parse(month);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private static Map<String, Object> view(StatementRun run) {
+        Map<String, Object> view = new LinkedHashMap<>();
+        view.put("month", run.getPeriod());
+        view.put("status", run.getStatus());
+        view.put("statements", run.getStatements());
+        view.put("transactions", run.getTransactions());
+        view.put("lastCustomerId", run.getLastCustomerId());
+        view.put("lastError", run.getLastError());
+        view.put("node", run.getNode());
+        view.put("createdAt", run.getCreatedAt());
+        view.put("updatedAt", run.getUpdatedAt());
+        return view;
+    }
+}
@@ -1,41 +1,259 @@
 package api;
 
+import dto.TransactionRequest;
+import entities.Transaction;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.context.request.async.DeferredResult;
+import repository.CustomerRepository;
+import service.AccountService;
+import service.ChangeVersionService;
+import service.ClusterService;
+import service.IdempotencyService;
+import service.PostingCommand;
+import service.PostingCommandQueue;
+import service.TransactionService;
+import service.TransferSagaService;
+import util.BankPrincipal;
 
+import java.net.URI;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.function.Function;
 
 @RestController
 @RequestMapping("/api/transactions")
 public class TransactionApiController {
 
+    @Autowired
+    private AccountService accountService;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private ChangeVersionService changeVersionService;
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private PostingCommandQueue postingCommandQueue;
+
+    @Autowired
+    private TransferSagaService transferSagaService;
+
+    @Autowired
+    private ClusterService clusterService;
+
+    private static final long MAX_WAIT_MS = 30_000;
+
     @PostMapping("/deposit")
-    public ResponseEntity<?> deposit(@RequestBody Map<String, Object> body) {
-        double amount = (double) body.get("amount");
-        return ResponseEntity.ok(Map.of("message", "Deposited " + amount));
+    public ResponseEntity<?> deposit(@RequestBody TransactionRequest body, Authentication authentication,
+                                     @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
+                                     HttpServletRequest request) {
+        return post(authentication, idempotencyKey, request, body, () -> {
+            Long accountId = ownedAccount(body.getAccountNumber(), authentication);
+            return PostingCommand.deposit(accountId, body.getAmount());
+        });
     }
 
     @PostMapping("/withdraw")
-    public ResponseEntity<?> withdraw(@RequestBody Map<String, Object> body) {
-        double amount = (double) body.get("amount");
-        return ResponseEntity.ok(Map.of("message", "Withdrew " + amount));
+    public ResponseEntity<?> withdraw(@RequestBody TransactionRequest body, Authentication authentication,
+                                      @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
+                                      HttpServletRequest request) {
+        return post(authentication, idempotencyKey, request, body, () -> {
+            Long accountId = ownedAccount(body.getAccountNumber(), authentication);
+            return PostingCommand.withdraw(accountId, body.getAmount());
+        });
     }
 
     @PostMapping("/transfer")
-    public ResponseEntity<?> transfer(@RequestBody Map<String, Object> body) {
-        String toAccount = (String) body.get("toAccount");
-        double amount = (double) body.get("amount");
-        return ResponseEntity.ok(Map.of("message", "Transferred " + amount + " to " + toAccount));
+    public ResponseEntity<?> transfer(@RequestBody TransactionRequest body, Authentication authentication,
+                                      @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
+                                      HttpServletRequest request) {
+        return post(authentication, idempotencyKey, request, body, () -> {
+            Long fromAccountId = ownedAccount(body.getFromAccount(), authentication);
+            return PostingCommand.transfer(fromAccountId, parseAccountId(body.getToAccount()), body.getAmount());
+        });
     }
 
+    // ✅ Newest first; 304 when the If-None-Match ETag is still current
     @GetMapping("/history")
-    public ResponseEntity<?> history() {
-        List<Map<String, Object>> history = List.of(
-                Map.of("id", 1, "type", "Deposit", "amount", 5000),
-                Map.of("id", 2, "type", "Withdraw", "amount", 2000),
-                Map.of("id", 3, "type", "Transfer", "amount", 1000)
-        );
-        return ResponseEntity.ok(history);
+    public ResponseEntity<?> history(BankPrincipal principal, WebRequest webRequest) {
+        if (principal == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body(Map.of("success", false, "error", "Unauthorized: Please log in first."));
+        }
+        Long customerId = principal.customerId();
+        if (customerId == null) {
+            return ResponseEntity.ok(List.of());
+        }
+        if (webRequest.checkNotModified(changeVersionService.etag("history", customerId))) {
+            return null;
+        }
+
+        List<Map<String, Object>> history = transactionService
+                .findByCustomer(customerRepository.getReferenceById(customerId)).stream()
+                .map(TransactionApiController::toView)
+                .toList();
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache().cachePrivate()).body(history);
+    }
+
+    private static Map<String, Object> toView(Transaction transaction) {
+        Map<String, Object> view = new LinkedHashMap<>();
+        view.put("id", transaction.getTransactionId());
+        view.put("type", transaction.getTransactionType());
+        view.put("amount", transaction.getAmount());
+        view.put("status", transaction.getStatus());
+        view.put("timestamp", transaction.getTimestamp());
+        view.put("accountId", transaction.getAccount().getAccountId());
+        return view;
+    }
+
+    // ✅ Status of an async posting; ?waitMs= long-polls until it completes (up to 30s)
+    @GetMapping("/commands/{id}")
+    public DeferredResult<ResponseEntity<?>> command(@PathVariable String id,
+                                                     @RequestParam(defaultValue = "0") long waitMs,
+                                                     Authentication authentication,
+                                                     HttpServletRequest request) {
+        long timeout = Math.min(Math.max(waitMs, 0), MAX_WAIT_MS);
+        PostingCommand command = authentication == null ? null
+                : postingCommandQueue.find(id, authentication.getName()).orElse(null);
+        DeferredResult<ResponseEntity<?>> result = new DeferredResult<>(timeout > 0 ? timeout : null);
+        ClusterService.Node holder = command == null ? commandHolder(id, request) : null;
+        if (holder != null) {
+            result.setResult(clusterService.forward(holder, request, null));
+        } else if (command == null) {
+            result.setResult(ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(Map.of("success", false, "error", "Unknown command: " + id)));
+        } else if (command.isDone() || timeout == 0) {
+            result.setResult(ResponseEntity.ok(command.toView()));
+        } else {
+            // Timing out is not an error: answer with the current (still queued) status
+            result.onTimeout(() -> result.setResult(ResponseEntity.ok(command.toView())));
+            command.getCompletion().thenAccept(done -> result.setResult(ResponseEntity.ok(done.toView())));
+        }
+        return result;
+    }
+
+    // ✅ Runs a posting at most once per Idempotency-Key and maps failures to the usual {success:false, error} body.
+    // With "Prefer: respond-async" the validated command is queued and acknowledged with 202 instead.
+    private ResponseEntity<?> post(Authentication authentication, String idempotencyKey, HttpServletRequest request,
+                                   TransactionRequest body, PostingAction action) {
+        if (authentication == null || !authentication.isAuthenticated()) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body(Map.of("success", false, "error", "Unauthorized: Please log in first."));
+        }
+        ClusterService.Node owner = owningNode(body, request);
+        if (owner != null) {
+            return clusterService.forward(owner, request, body);
+        }
+        boolean async = respondAsync(request);
+        String sagaKey = idempotencyKey == null ? null
+                : TransferSagaService.idempotencyKey(authentication.getName(), idempotencyKey);
+        return idempotencyService.execute(authentication.getName(), idempotencyKey,
+                request.getMethod(), request.getRequestURI(), body,
+                () -> run(action, sagaKey, async ? command -> enqueue(command, authentication) : this::apply));
+    }
+
+    private ResponseEntity<?> run(PostingAction action, String sagaKey,
+                                  Function<PostingCommand, ResponseEntity<?>> handler) {
+        try {
+            return handler.apply(action.validate().withIdempotencyKey(sagaKey));
+        } catch (AccessDeniedAccountException e) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                    .body(Map.of("success", false, "error", e.getMessage()));
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("success", false, "error", String.valueOf(e.getMessage())));
+        }
+    }
+
+    private ResponseEntity<?> apply(PostingCommand command) {
+        return ResponseEntity.ok(Map.of("success", true, "message", command.apply(accountService, transferSagaService)));
+    }
+
+    // ✅ Cluster mode: the node owning the account to debit, when that is another node
+    private ClusterService.Node owningNode(TransactionRequest body, HttpServletRequest request) {
+        if (!clusterService.isEnabled() || ClusterService.isForwarded(request)) {
+            return null;
+        }
+        String accountNumber = body.getAccountNumber() != null ? body.getAccountNumber() : body.getFromAccount();
+        try {
+            return clusterService.remoteOwner(parseAccountId(accountNumber)).orElse(null);
+        } catch (IllegalArgumentException e) {
+            return null;   // rejected locally with the usual 400
+        }
+    }
+
+    // Command ids start with the name of the node that queued them
+    private ClusterService.Node commandHolder(String commandId, HttpServletRequest request) {
+        int dot = commandId.indexOf('.');
+        if (!clusterService.isEnabled() || ClusterService.isForwarded(request) || dot < 0) {
+            return null;
+        }
+        return clusterService.node(commandId.substring(0, dot))
+                .filter(node -> node != clusterService.self())
+                .orElse(null);
+    }
+
+    private ResponseEntity<?> enqueue(PostingCommand command, Authentication authentication) {
+        if (!postingCommandQueue.submit(command, authentication.getName())) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body(Map.of("success", false, "error", "Too many pending transactions, retry shortly"));
+        }
+        Map<String, Object> accepted = new LinkedHashMap<>(command.toView());
+        accepted.put("success", true);
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/transactions/commands/" + command.getId()))
+                .header("Preference-Applied", "respond-async")
+                .body(accepted);
+    }
+
+    private static boolean respondAsync(HttpServletRequest request) {
+        String prefer = request.getHeader("Prefer");
+        return prefer != null && prefer.toLowerCase(Locale.ROOT).contains("respond-async");
+    }
+
+    private Long ownedAccount(String accountNumber, Authentication authentication) {
+        Long accountId = parseAccountId(accountNumber);
+        if (!accountService.isOwnedBy(accountId, authentication.getName())) {
+            throw new AccessDeniedAccountException("Account " + accountId + " does not belong to you");
+        }
+        return accountId;
+    }
+
+    private static Long parseAccountId(String accountNumber) {
+        try {
+            return Long.valueOf(accountNumber.trim());
+        } catch (NullPointerException | NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid account number: " + accountNumber);
+        }
+    }
+
+    // Parses and checks a request on the HTTP thread; throws on invalid input
+    @FunctionalInterface
+    private interface PostingAction {
+        PostingCommand validate();
+    }
+
+    private static class AccessDeniedAccountException extends RuntimeException {
+        AccessDeniedAccountException(String message) {
+            super(message);
+        }
     }
 }
@@ -0,0 +1,172 @@
+package config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import util.GradientLimiter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Sheds load before it queues: each route group (auth, postings, reads, chat) has an adaptive limit
+ * on requests in flight, and a request over it gets 503 + Retry-After at once instead of waiting
+ * for a Tomcat thread or a JDBC connection. Limits follow each group's own latency
+ * ({@link GradientLimiter}) and are published as {@code concurrency.limit}.
+ * <p>
+ * Runs just before the security chain so rejected requests cost no JWT parsing. Streams, internal
+ * cluster calls and actuator endpoints are not limited. A request that goes async (chat) keeps its
+ * slot until the async request completes, times out or fails, and only a completion counts as a
+ * latency sample.
+ */
+@Component
+@Order(SecurityProperties.DEFAULT_FILTER_ORDER - 1)
+@ConditionalOnProperty(name = "concurrency.enabled", havingValue = "true", matchIfMissing = true)
+public class AdaptiveConcurrencyFilter extends OncePerRequestFilter {
+
+    enum Group { AUTH, POSTINGS, READS, CHAT }
+
+    private static final byte[] OVERLOADED_BODY =
+            "{\"success\":false,\"error\":\"Server is busy, please retry shortly\"}".getBytes(StandardCharsets.UTF_8);
+
+    private final Map<Group, GradientLimiter> limiters = new EnumMap<>(Group.class);
+    private final Map<Group, Counter> rejections = new EnumMap<>(Group.class);
+
+    public AdaptiveConcurrencyFilter(MeterRegistry meterRegistry,
+                                     @Value("${concurrency.initial-limit:20}") int initialLimit,
+                                     @Value("${concurrency.min-limit:4}") int minLimit,
+                                     @Value("${concurrency.max-limit:200}") int maxLimit,
+                                     @Value("${concurrency.tolerance:1.5}") double tolerance,
+                                     @Value("${concurrency.smoothing:0.2}") double smoothing,
+                                     @Value("${concurrency.window-ms:1000}") long windowMs,
+                                     @Value("${concurrency.min-window-samples:10}") int minWindowSamples) {
+        for (Group group : Group.values()) {
+            GradientLimiter limiter = new GradientLimiter(initialLimit, minLimit, maxLimit, tolerance, smoothing,
+                    windowMs, minWindowSamples);
+            limiters.put(group, limiter);
+            String tag = group.name().toLowerCase();
+            Gauge.builder("concurrency.limit", limiter, GradientLimiter::getLimit)
+                    .tag("group", tag)
+                    .description("Adaptive limit on requests in flight")
+                    .register(meterRegistry);
+            Gauge.builder("concurrency.in-flight", limiter, GradientLimiter::getInFlight)
+                    .tag("group", tag)
+                    .register(meterRegistry);
+            rejections.put(group, meterRegistry.counter("concurrency.rejected", "group", tag));
+        }
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain)
+            throws ServletException, IOException {
+
+        Group group = groupOf(request);
+        if (group == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        GradientLimiter limiter = limiters.get(group);
+        if (!limiter.tryAcquire()) {
+            rejections.get(group).increment();
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.getOutputStream().write(OVERLOADED_BODY);
+            return;
+        }
+
+        long start = System.nanoTime();
+        boolean async = false;
+        long latency = -1;
+        try {
+            filterChain.doFilter(request, response);
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new ReleaseOnFinish(limiter, start));
+                async = true;
+            } else {
+                latency = System.nanoTime() - start;
+            }
+        } finally {
+            if (!async) {
+                limiter.release(latency);
+            }
+        }
+    }
+
+    // Releases once: the container calls onComplete after onTimeout and onError as well
+    private static final class ReleaseOnFinish implements AsyncListener {
+        private final GradientLimiter limiter;
+        private final long start;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        ReleaseOnFinish(GradientLimiter limiter, long start) {
+            this.limiter = limiter;
+            this.start = start;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            release(System.nanoTime() - start);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            release(-1);
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            release(-1);
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            event.getAsyncContext().addListener(this);
+        }
+
+        private void release(long latencyNanos) {
+            if (released.compareAndSet(false, true)) {
+                limiter.release(latencyNanos);
+            }
+        }
+    }
+
+    static Group groupOf(HttpServletRequest request) {
+        String path = request.getServletPath();
+        String method = request.getMethod();
+        if (method.equalsIgnoreCase("OPTIONS")) {
+            return null;
+        }
+        if (path.startsWith("/auth")) {
+            return Group.AUTH;
+        }
+        if (!path.startsWith("/api/") || path.startsWith("/api/stream")) {
+            return null;
+        }
+        if (path.startsWith("/api/chat")) {
+            return Group.CHAT;
+        }
+        return method.equalsIgnoreCase("GET") || method.equalsIgnoreCase("HEAD") ? Group.READS : Group.POSTINGS;
+    }
+}
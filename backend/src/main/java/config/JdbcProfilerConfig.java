@@ -0,0 +1,156 @@
+package config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.web.filter.OncePerRequestFilter;
+import service.QueryProfiler;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+
+/**
+ * Wraps every {@link DataSource} bean in a thin JDBC proxy that times statement executions
+ * for {@link QueryProfiler}, and scopes statement counts to HTTP requests.
+ * Replaces {@code spring.jpa.show-sql}; disable with {@code jdbc.profiler.enabled=false}.
+ */
+@Configuration
+@ConditionalOnProperty(name = "jdbc.profiler.enabled", havingValue = "true", matchIfMissing = true)
+public class JdbcProfilerConfig {
+
+    @Bean
+    public static BeanPostProcessor profilingDataSourcePostProcessor(ObjectProvider<QueryProfiler> profiler) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !Proxy.isProxyClass(bean.getClass())) {
+                    return wrapDataSource(dataSource, profiler);
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    public FilterRegistrationBean<OncePerRequestFilter> queryProfilingFilter(QueryProfiler profiler) {
+        OncePerRequestFilter filter = new OncePerRequestFilter() {
+            @Override
+            protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                            FilterChain filterChain) throws ServletException, IOException {
+                profiler.beginRequest();
+                try {
+                    filterChain.doFilter(request, response);
+                } finally {
+                    profiler.endRequest(request.getMethod(), request.getRequestURI());
+                }
+            }
+        };
+        FilterRegistrationBean<OncePerRequestFilter> registration = new FilterRegistrationBean<>(filter);
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 10);
+        return registration;
+    }
+
+    // -----------------------------
+    // JDBC proxies
+    // -----------------------------
+    private static DataSource wrapDataSource(DataSource target, ObjectProvider<QueryProfiler> profiler) {
+        // Keep Closeable so Spring still closes the pool on shutdown. A DisposableBean target (the shard
+        // router, which owns the shard pools) gets close() too, mapped to destroy()
+        Class<?>[] interfaces = target instanceof Closeable || target instanceof DisposableBean
+                ? new Class<?>[]{DataSource.class, Closeable.class}
+                : new Class<?>[]{DataSource.class};
+        return (DataSource) Proxy.newProxyInstance(JdbcProfilerConfig.class.getClassLoader(), interfaces,
+                (proxy, method, args) -> {
+                    if (method.getDeclaringClass() == Closeable.class && !(target instanceof Closeable)
+                            && target instanceof DisposableBean disposable) {
+                        disposable.destroy();
+                        return null;
+                    }
+                    Object result = invoke(target, method, args);
+                    if (result instanceof Connection connection) {
+                        return wrapConnection(connection, profiler.getObject());
+                    }
+                    return result;
+                });
+    }
+
+    private static Connection wrapConnection(Connection target, QueryProfiler profiler) {
+        return (Connection) Proxy.newProxyInstance(JdbcProfilerConfig.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    Object result = invoke(target, method, args);
+                    if (result instanceof Statement statement) {
+                        String sql = args != null && args.length > 0 && args[0] instanceof String s ? s : null;
+                        return wrapStatement(statement, sql, profiler);
+                    }
+                    return result;
+                });
+    }
+
+    private static Statement wrapStatement(Statement target, String preparedSql, QueryProfiler profiler) {
+        Class<?> type = target instanceof CallableStatement ? CallableStatement.class
+                : target instanceof PreparedStatement ? PreparedStatement.class
+                : Statement.class;
+        return (Statement) Proxy.newProxyInstance(JdbcProfilerConfig.class.getClassLoader(),
+                new Class<?>[]{type}, new StatementHandler(target, preparedSql, profiler));
+    }
+
+    private static class StatementHandler implements InvocationHandler {
+        private final Statement target;
+        private final String preparedSql;
+        private final QueryProfiler profiler;
+        private String batchSql;
+
+        StatementHandler(Statement target, String preparedSql, QueryProfiler profiler) {
+            this.target = target;
+            this.preparedSql = preparedSql;
+            this.profiler = profiler;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.equals("addBatch") && args != null && args.length == 1 && batchSql == null) {
+                batchSql = (String) args[0];
+            }
+            if (!name.startsWith("execute")) {
+                return JdbcProfilerConfig.invoke(target, method, args);
+            }
+
+            String sql = args != null && args.length > 0 && args[0] instanceof String s ? s
+                    : preparedSql != null ? preparedSql : batchSql;
+            long start = System.nanoTime();
+            try {
+                return JdbcProfilerConfig.invoke(target, method, args);
+            } finally {
+                profiler.record(sql, System.nanoTime() - start);
+            }
+        }
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+}
@@ -1,30 +1,42 @@
 package config;
 
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 import service.AuthService;
+import service.TokenRevocationService;
+import util.BankPrincipal;
 import util.JwtUtil;
 
 import java.io.IOException;
+import java.util.List;
 
 @Component
 public class JwtAuthFilter extends OncePerRequestFilter {
 
+    // Carries a re-signed token when the presented one had stale claims; clients should switch to it
+    public static final String REFRESHED_TOKEN_HEADER = "X-Refreshed-Token";
+    // Request attribute with the authenticated token's claims (jti, exp), for streams that outlive the request
+    public static final String CLAIMS_ATTRIBUTE = "bank.jwtClaims";
+
     @Autowired
     private JwtUtil jwtUtil;
 
     @Autowired
     private AuthService authService;
 
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+
     @Override
     protected void doFilterInternal(HttpServletRequest request,
                                     HttpServletResponse response,
@@ -37,7 +49,6 @@ public class JwtAuthFilter extends OncePerRequestFilter {
         // ✅ Skip JWT for public endpoints or preflight OPTIONS
         if (method.equalsIgnoreCase("OPTIONS") ||
             path.startsWith("/api/auth") ||
-            path.startsWith("/api/chat") ||
             path.startsWith("/public") ||
             path.equals("/") ||
             path.startsWith("/actuator")) {
@@ -45,39 +56,66 @@ public class JwtAuthFilter extends OncePerRequestFilter {
             return;
         }
 
-        final String authHeader = request.getHeader("Authorization");
+        String jwt = resolveToken(request, path);
 
-        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
+        if (jwt == null) {
             // ⚠️ Missing or malformed token
             filterChain.doFilter(request, response);
             return;
         }
 
-        String jwt = authHeader.substring(7);
-        String username;
+        Claims claims;
 
         try {
-            username = jwtUtil.extractUsername(jwt);
+            claims = jwtUtil.parseClaims(jwt);
         } catch (Exception e) {
             logger.warn("⚠️ Invalid JWT: " + e.getMessage());
             filterChain.doFilter(request, response);
             return;
         }
 
-        if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            UserDetails userDetails = authService.loadUserByUsername(username);
-
-            if (jwtUtil.validateToken(jwt, userDetails)) {
-                UsernamePasswordAuthenticationToken authToken =
-                        new UsernamePasswordAuthenticationToken(
-                                userDetails, null, userDetails.getAuthorities());
-                authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                SecurityContextHolder.getContext().setAuthentication(authToken);
-            } else {
-                logger.warn("⚠️ Token validation failed for user: " + username);
+        // ✅ Logged out: continue unauthenticated (Bloom filter first, no DB access on a miss)
+        if (tokenRevocationService.isRevoked(claims.getId())) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        if (claims.getSubject() != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+            // ✅ Signed claims identify the caller; the DB is only read when they are missing or stale
+            BankPrincipal principal = jwtUtil.principalFrom(claims);
+            if (principal == null || jwtUtil.isStale(claims)) {
+                principal = authService.loadPrincipal(claims.getSubject()).orElse(null);
+                if (principal == null) {
+                    logger.warn("⚠️ Token validation failed for user: " + claims.getSubject());
+                    filterChain.doFilter(request, response);
+                    return;
+                }
+                response.setHeader(REFRESHED_TOKEN_HEADER, jwtUtil.refreshToken(principal, claims));
             }
+
+            List<SimpleGrantedAuthority> authorities = principal.roles().stream()
+                    .map(SimpleGrantedAuthority::new)
+                    .toList();
+            UsernamePasswordAuthenticationToken authToken =
+                    new UsernamePasswordAuthenticationToken(principal, null, authorities);
+            authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+            SecurityContextHolder.getContext().setAuthentication(authToken);
+            request.setAttribute(CLAIMS_ATTRIBUTE, claims);
         }
 
         filterChain.doFilter(request, response);
     }
+
+    // ✅ Bearer header, or ?access_token= for the event stream (browsers' EventSource cannot send headers)
+    private static String resolveToken(HttpServletRequest request, String path) {
+        String authHeader = request.getHeader("Authorization");
+        if (authHeader != null && authHeader.startsWith("Bearer ")) {
+            return authHeader.substring(7);
+        }
+        if (path.startsWith("/api/stream")) {
+            String token = request.getParameter("access_token");
+            return token != null && !token.isBlank() ? token : null;
+        }
+        return null;
+    }
 }
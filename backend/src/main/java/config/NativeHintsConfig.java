@@ -0,0 +1,96 @@
+package config;
+
+import api.AccountController;
+import dto.ChatRequest;
+import dto.TransactionRequest;
+import entities.Account;
+import entities.AppliedCredit;
+import entities.BalanceCheckpoint;
+import entities.BalanceCheckpointProgress;
+import entities.Customer;
+import entities.IdempotencyKey;
+import entities.ImportJob;
+import entities.LedgerWatermark;
+import entities.Money;
+import entities.OutboxEvent;
+import entities.PostingCommandRecord;
+import entities.RevokedToken;
+import entities.StatementRun;
+import entities.Transaction;
+import entities.TransferSaga;
+import entities.User;
+import entities.UserShard;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.aot.hint.TypeReference;
+import org.springframework.aot.hint.annotation.RegisterReflectionForBinding;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.ImportRuntimeHints;
+
+/**
+ * Reachability metadata for the GraalVM native image ({@code mvn -Pnative native:compile}).
+ * Spring AOT covers beans and repositories; this adds what it cannot infer: JSON-bound
+ * request/response types, the JPA entities, and JJWT's reflectively loaded implementation.
+ */
+@Configuration
+@ImportRuntimeHints(NativeHintsConfig.BankingRuntimeHints.class)
+@RegisterReflectionForBinding({
+        AccountController.AccountRequest.class,
+        ChatRequest.class,
+        TransactionRequest.class,
+        Money.class,
+        User.class,
+        Customer.class,
+        Account.class,
+        Transaction.class
+})
+public class NativeHintsConfig {
+
+    // jjwt-api instantiates these by name (Classes.newInstance) and finds its JSON/compression
+    // services through ServiceLoader
+    private static final String[] JJWT_IMPL_TYPES = {
+            "io.jsonwebtoken.impl.DefaultJwtBuilder",
+            "io.jsonwebtoken.impl.DefaultJwtParser",
+            "io.jsonwebtoken.impl.DefaultJwtParserBuilder",
+            "io.jsonwebtoken.impl.DefaultClaims",
+            "io.jsonwebtoken.impl.DefaultHeader",
+            "io.jsonwebtoken.impl.DefaultJwsHeader",
+            "io.jsonwebtoken.impl.crypto.MacProvider",
+            "io.jsonwebtoken.impl.compression.DefaultCompressionCodecResolver",
+            "io.jsonwebtoken.impl.compression.DeflateCompressionCodec",
+            "io.jsonwebtoken.impl.compression.GzipCompressionCodec",
+            "io.jsonwebtoken.jackson.io.JacksonSerializer",
+            "io.jsonwebtoken.jackson.io.JacksonDeserializer"
+    };
+
+    static class BankingRuntimeHints implements RuntimeHintsRegistrar {
+
+        @Override
+        public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+            for (Class<?> entity : new Class<?>[]{User.class, Customer.class, Account.class, Transaction.class,
+                    OutboxEvent.class, IdempotencyKey.class, TransferSaga.class, AppliedCredit.class,
+                    UserShard.class, RevokedToken.class, ImportJob.class, LedgerWatermark.class,
+                    StatementRun.class, BalanceCheckpoint.class, BalanceCheckpoint.Key.class,
+                    BalanceCheckpointProgress.class, PostingCommandRecord.class}) {
+                hints.reflection().registerType(entity,
+                        MemberCategory.DECLARED_FIELDS,
+                        MemberCategory.INVOKE_DECLARED_CONSTRUCTORS,
+                        MemberCategory.INVOKE_PUBLIC_METHODS);
+            }
+
+            // Jackson instantiates the (de)serializers named in Money's annotations
+            hints.reflection().registerType(Money.Serializer.class, MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS);
+            hints.reflection().registerType(Money.Deserializer.class, MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS);
+
+            for (String type : JJWT_IMPL_TYPES) {
+                hints.reflection().registerType(TypeReference.of(type),
+                        MemberCategory.INVOKE_DECLARED_CONSTRUCTORS,
+                        MemberCategory.INVOKE_PUBLIC_METHODS);
+            }
+
+            hints.resources().registerPattern("META-INF/services/io.jsonwebtoken.*");
+            hints.resources().registerPattern("static/*");
+        }
+    }
+}
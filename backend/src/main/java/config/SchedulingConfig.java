@@ -0,0 +1,12 @@
+package config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Enables {@code @Scheduled} background jobs (event-stream heartbeats and the like).
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -1,6 +1,7 @@
 package config;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
@@ -51,15 +52,25 @@ public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Excepti
         .csrf(csrf -> csrf.disable())
         .sessionManagement(sm -> sm.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
         .authorizeHttpRequests(auth -> auth
+            .requestMatchers("/api/admin/**").hasAuthority("ROLE_ADMIN")
             .anyRequest().permitAll() // 🚨 allow absolutely everything
         )
         .formLogin(form -> form.disable())
-        .httpBasic(basic -> basic.disable());
+        .httpBasic(basic -> basic.disable())
+        .addFilterBefore(jwtAuthFilter, UsernamePasswordAuthenticationFilter.class);
 
     return http.build();
 }
 
 
+    // JwtAuthFilter runs inside the security chain only, not a second time as a servlet filter
+    @Bean
+    public FilterRegistrationBean<JwtAuthFilter> jwtAuthFilterRegistration(JwtAuthFilter filter) {
+        FilterRegistrationBean<JwtAuthFilter> registration = new FilterRegistrationBean<>(filter);
+        registration.setEnabled(false);
+        return registration;
+    }
+
     @Bean
     public CorsConfigurationSource corsConfigurationSource() {
         CorsConfiguration config = new CorsConfiguration();
@@ -71,7 +82,8 @@ public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Excepti
         ));
         config.setAllowedMethods(List.of("GET", "POST", "PUT", "DELETE", "OPTIONS"));
         config.setAllowedHeaders(List.of("*"));
-        config.setExposedHeaders(List.of("Authorization", "Content-Type"));
+        config.setExposedHeaders(List.of("Authorization", "Content-Type", "ETag", "Idempotent-Replayed",
+                JwtAuthFilter.REFRESHED_TOKEN_HEADER));
         config.setAllowCredentials(true);
         config.setMaxAge(3600L);
 
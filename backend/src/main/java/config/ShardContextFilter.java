@@ -0,0 +1,52 @@
+package config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import service.ShardService;
+import util.BankPrincipal;
+import util.ShardContext;
+
+import java.io.IOException;
+
+/**
+ * Points an authenticated request's database work at the caller's shard. Registered after the
+ * security chain (default filter order), so the JWT has already been checked.
+ */
+@Component
+public class ShardContextFilter extends OncePerRequestFilter {
+
+    @Autowired
+    private ShardService shardService;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain)
+            throws ServletException, IOException {
+
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (!shardService.isEnabled() || authentication == null || !authentication.isAuthenticated()
+                || authentication instanceof AnonymousAuthenticationToken) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        // The customer id in the token's claims names the shard without a directory lookup
+        ShardContext.set(authentication.getPrincipal() instanceof BankPrincipal principal && principal.customerId() != null
+                ? Integer.valueOf(shardService.shardOf(principal.customerId()))
+                : shardService.shardOfUser(authentication.getName()).orElse(null));
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            ShardContext.clear();
+        }
+    }
+}
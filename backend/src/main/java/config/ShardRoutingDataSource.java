@@ -0,0 +1,37 @@
+package config;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import util.ShardContext;
+
+import javax.sql.DataSource;
+
+/**
+ * Hands out connections of the shard named by {@link ShardContext}, shard 0 when none is set.
+ */
+public class ShardRoutingDataSource extends AbstractRoutingDataSource implements DisposableBean {
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        Integer shard = ShardContext.current();
+        return shard != null ? shard : 0;
+    }
+
+    public DataSource shard(int shard) {
+        return getResolvedDataSources().get(shard);
+    }
+
+    public int shardCount() {
+        return getResolvedDataSources().size();
+    }
+
+    // The shard pools are not beans themselves, so nobody else closes them
+    @Override
+    public void destroy() throws Exception {
+        for (DataSource shard : getResolvedDataSources().values()) {
+            if (shard instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+    }
+}
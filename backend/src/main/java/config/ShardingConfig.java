@@ -0,0 +1,108 @@
+package config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.flywaydb.core.Flyway;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import service.ShardService;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Customer-keyed sharding ({@code sharding.enabled}): one connection pool per URL in
+ * {@code sharding.urls} behind a {@link ShardRoutingDataSource}. spring.datasource.* supplies the
+ * driver and credentials for all of them.
+ * <p>
+ * Every shard gets the Flyway migrations when the DataSource is created (set
+ * {@code spring.flyway.enabled=false} and {@code spring.jpa.hibernate.ddl-auto=none}, which would
+ * only see shard 0), and its identity columns are moved to the shard's id range so ids stay unique
+ * and name their shard.
+ */
+@Configuration
+@ConditionalOnProperty(name = "sharding.enabled", havingValue = "true")
+public class ShardingConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(ShardingConfig.class);
+
+    // Tables whose ids are handed to clients or referenced across tables
+    private static final Map<String, String> ID_COLUMNS = Map.of(
+            "users", "id",
+            "customers", "customer_id",
+            "accounts", "account_id",
+            "transactions", "transaction_id");
+
+    @Bean
+    @Primary
+    public ShardRoutingDataSource dataSource(DataSourceProperties properties,
+                                             @Value("${sharding.urls}") String[] urls,
+                                             @Value("${sharding.pool-size:10}") int poolSize,
+                                             @Value("${spring.flyway.locations:classpath:db/migration}") String[] locations) {
+        Map<Object, Object> shards = new HashMap<>();
+        for (int i = 0; i < urls.length; i++) {
+            HikariDataSource shard = properties.initializeDataSourceBuilder()
+                    .type(HikariDataSource.class)
+                    .url(urls[i].trim())
+                    .build();
+            shard.setPoolName("shard-" + i);
+            shard.setMaximumPoolSize(poolSize);
+            shards.put(i, shard);
+        }
+        ShardRoutingDataSource routing = new ShardRoutingDataSource();
+        routing.setTargetDataSources(shards);
+        routing.setDefaultTargetDataSource(shards.get(0));
+        routing.setLenientFallback(false);
+        routing.afterPropertiesSet();
+
+        // Here rather than in a bean of its own: whatever uses the DataSource (JPA first) gets migrated shards
+        migrate(routing, locations);
+        return routing;
+    }
+
+    private static void migrate(ShardRoutingDataSource dataSource, String[] locations) {
+        for (int i = 0; i < dataSource.shardCount(); i++) {
+            DataSource shard = dataSource.shard(i);
+            Flyway.configure()
+                    .dataSource(shard)
+                    .locations(locations)
+                    .baselineOnMigrate(true)
+                    .load()
+                    .migrate();
+            if (i > 0) {
+                reserveIdRange(shard, ShardService.firstId(i));
+            }
+        }
+        log.info("Migrated {} shards", dataSource.shardCount());
+    }
+
+    private static void reserveIdRange(DataSource shard, long firstId) {
+        try (Connection connection = shard.getConnection(); Statement statement = connection.createStatement()) {
+            boolean mysql = connection.getMetaData().getDatabaseProductName().toLowerCase().contains("mysql");
+            for (Map.Entry<String, String> column : ID_COLUMNS.entrySet()) {
+                String table = column.getKey();
+                try (ResultSet max = statement.executeQuery("select max(" + column.getValue() + ") from " + table)) {
+                    max.next();
+                    if (max.getLong(1) >= firstId) {
+                        continue;   // already in range
+                    }
+                }
+                statement.execute(mysql
+                        ? "alter table " + table + " auto_increment = " + firstId
+                        : "alter table " + table + " alter column " + column.getValue() + " restart with " + firstId);
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not reserve id range " + firstId + " on shard", e);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
+import org.springframework.boot.context.metrics.buffering.StartupTimeline;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.metrics.ApplicationStartup;
+import org.springframework.core.metrics.StartupStep;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Logs how long each startup phase took: JVM boot up to {@code main}, context refresh,
+ * and runners up to "ready". When the application was started with {@link #applicationStartup()}
+ * buffering (STARTUP_REPORT=true), the slowest startup steps and bean instantiations are listed too.
+ */
+@Component
+public class StartupPhaseReporter {
+
+    private static final Logger log = LoggerFactory.getLogger(StartupPhaseReporter.class);
+
+    private static final int TOP_ENTRIES = 10;
+
+    private static volatile long jvmToMainMillis = -1;
+
+    private long startedMillis;
+
+    // Called first thing in main(), before Spring loads anything
+    public static void markMainEntered() {
+        jvmToMainMillis = ManagementFactory.getRuntimeMXBean().getUptime();
+    }
+
+    // Buffers startup steps only when asked to, since recording them costs a little time itself
+    public static ApplicationStartup applicationStartup() {
+        String flag = System.getProperty("startup.report", System.getenv("STARTUP_REPORT"));
+        return Boolean.parseBoolean(flag) ? new BufferingApplicationStartup(10_000) : ApplicationStartup.DEFAULT;
+    }
+
+    @EventListener
+    public void onStarted(ApplicationStartedEvent event) {
+        startedMillis = millis(event.getTimeTaken());
+    }
+
+    @EventListener
+    public void onReady(ApplicationReadyEvent event) {
+        long readyMillis = millis(event.getTimeTaken());
+
+        log.info("Startup phases: jvm-to-main={}ms, context-refresh={}ms, runners={}ms, total-jvm-uptime={}ms",
+                jvmToMainMillis, startedMillis, readyMillis - startedMillis,
+                ManagementFactory.getRuntimeMXBean().getUptime());
+
+        if (event.getApplicationContext().getApplicationStartup() instanceof BufferingApplicationStartup buffering) {
+            logTimeline(buffering.drainBufferedTimeline());
+        }
+    }
+
+    private void logTimeline(StartupTimeline timeline) {
+        Map<String, Long> byStep = new HashMap<>();
+        Map<String, Long> byBean = new HashMap<>();
+
+        for (StartupTimeline.TimelineEvent event : timeline.getEvents()) {
+            long nanos = event.getDuration().toNanos();
+            StartupStep step = event.getStartupStep();
+            byStep.merge(step.getName(), nanos, Long::sum);
+
+            if ("spring.beans.instantiate".equals(step.getName())) {
+                for (StartupStep.Tag tag : step.getTags()) {
+                    if ("beanName".equals(tag.getKey())) {
+                        byBean.merge(tag.getValue(), nanos, Long::sum);
+                    }
+                }
+            }
+        }
+
+        log.info("Slowest startup steps (inclusive of nested steps):");
+        top(byStep).forEach(e -> log.info("  {} {}ms", e.getKey(), e.getValue() / 1_000_000));
+        log.info("Slowest bean instantiations:");
+        top(byBean).forEach(e -> log.info("  {} {}ms", e.getKey(), e.getValue() / 1_000_000));
+    }
+
+    private static List<Map.Entry<String, Long>> top(Map<String, Long> totals) {
+        return totals.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue(Comparator.reverseOrder()))
+                .limit(TOP_ENTRIES)
+                .toList();
+    }
+
+    private static long millis(Duration duration) {
+        return duration == null ? -1 : duration.toMillis();
+    }
+}
@@ -0,0 +1,25 @@
+package config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+/**
+ * Controller argument resolvers.
+ */
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    private final BankPrincipalArgumentResolver bankPrincipalArgumentResolver;
+
+    public WebConfig(BankPrincipalArgumentResolver bankPrincipalArgumentResolver) {
+        this.bankPrincipalArgumentResolver = bankPrincipalArgumentResolver;
+    }
+
+    @Override
+    public void addArgumentResolvers(List<HandlerMethodArgumentResolver> resolvers) {
+        resolvers.add(bankPrincipalArgumentResolver);
+    }
+}
@@ -0,0 +1,56 @@
+package dto;
+
+import entities.Money;
+
+/**
+ * Body of /internal/cluster/credit: the second phase of a cross-node transfer, sent by the
+ * sender's node to the receiver's. {@code sagaId} makes retries safe.
+ */
+public class ClusterCreditRequest {
+    private String sagaId;
+    private Long fromAccountId;
+    private Long toAccountId;
+    private Money amount;
+
+    public ClusterCreditRequest() {
+    }
+
+    public ClusterCreditRequest(String sagaId, Long fromAccountId, Long toAccountId, Money amount) {
+        this.sagaId = sagaId;
+        this.fromAccountId = fromAccountId;
+        this.toAccountId = toAccountId;
+        this.amount = amount;
+    }
+
+    public String getSagaId() {
+        return sagaId;
+    }
+
+    public void setSagaId(String sagaId) {
+        this.sagaId = sagaId;
+    }
+
+    public Long getFromAccountId() {
+        return fromAccountId;
+    }
+
+    public void setFromAccountId(Long fromAccountId) {
+        this.fromAccountId = fromAccountId;
+    }
+
+    public Long getToAccountId() {
+        return toAccountId;
+    }
+
+    public void setToAccountId(Long toAccountId) {
+        this.toAccountId = toAccountId;
+    }
+
+    public Money getAmount() {
+        return amount;
+    }
+
+    public void setAmount(Money amount) {
+        this.amount = amount;
+    }
+}
@@ -0,0 +1,46 @@
+package dto;
+
+import entities.Money;
+
+/**
+ * Body of /api/transactions/deposit, /withdraw and /transfer. Account references are the
+ * account ids as sent by the frontend; {@code amount} binds straight to {@link Money}.
+ */
+public class TransactionRequest {
+    private String accountNumber;
+    private String fromAccount;
+    private String toAccount;
+    private Money amount;
+
+    public String getAccountNumber() {
+        return accountNumber;
+    }
+
+    public void setAccountNumber(String accountNumber) {
+        this.accountNumber = accountNumber;
+    }
+
+    public String getFromAccount() {
+        return fromAccount;
+    }
+
+    public void setFromAccount(String fromAccount) {
+        this.fromAccount = fromAccount;
+    }
+
+    public String getToAccount() {
+        return toAccount;
+    }
+
+    public void setToAccount(String toAccount) {
+        this.toAccount = toAccount;
+    }
+
+    public Money getAmount() {
+        return amount;
+    }
+
+    public void setAmount(Money amount) {
+        this.amount = amount;
+    }
+}
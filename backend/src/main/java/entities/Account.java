@@ -1,7 +1,6 @@
 package entities;
 
 import jakarta.persistence.*;
-import java.math.BigDecimal;
 
 @Entity
 @Table(name = "accounts")
@@ -19,12 +18,12 @@ public class Account {
     private String accountType;
 
     @Column(nullable = false)
-    private BigDecimal balance;
+    private Money balance;
 
     // --- Constructors ---
     public Account() {}
 
-    public Account(Long accountId, Customer customer, String accountType, BigDecimal balance) {
+    public Account(Long accountId, Customer customer, String accountType, Money balance) {
         this.accountId = accountId;
         this.customer = customer;
         this.accountType = accountType;
@@ -41,6 +40,6 @@ public class Account {
     public String getAccountType() { return accountType; }
     public void setAccountType(String accountType) { this.accountType = accountType; }
 
-    public BigDecimal getBalance() { return balance; }
-    public void setBalance(BigDecimal balance) { this.balance = balance; }
+    public Money getBalance() { return balance; }
+    public void setBalance(Money balance) { this.balance = balance; }
 }
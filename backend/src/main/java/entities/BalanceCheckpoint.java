@@ -0,0 +1,54 @@
+package entities;
+
+import jakarta.persistence.*;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * An account's balance at the end of {@code balanceDate}, after all its successful transactions of
+ * that day (service.BalanceHistoryService). Written only for days with postings.
+ */
+@Entity
+@Table(name = "balance_checkpoints")
+@IdClass(BalanceCheckpoint.Key.class)
+public class BalanceCheckpoint {
+
+    @Id
+    @Column(name = "account_id")
+    private Long accountId;
+
+    @Id
+    @Column(name = "balance_date")
+    private LocalDate balanceDate;
+
+    @Column(nullable = false)
+    private Money balance;
+
+    public static class Key implements Serializable {
+        private Long accountId;
+        private LocalDate balanceDate;
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Key key && Objects.equals(accountId, key.accountId)
+                    && Objects.equals(balanceDate, key.balanceDate);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(accountId, balanceDate);
+        }
+    }
+
+    // Getters and setters
+    public Long getAccountId() { return accountId; }
+    public void setAccountId(Long accountId) { this.accountId = accountId; }
+
+    public LocalDate getBalanceDate() { return balanceDate; }
+    public void setBalanceDate(LocalDate balanceDate) { this.balanceDate = balanceDate; }
+
+    public Money getBalance() { return balance; }
+    public void setBalance(Money balance) { this.balance = balance; }
+}
@@ -0,0 +1,36 @@
+package entities;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Single row per shard: every day up to {@code checkpointedThrough} has its balance checkpoints
+ * written (service.BalanceHistoryService).
+ */
+@Entity
+@Table(name = "balance_checkpoint_progress")
+public class BalanceCheckpointProgress {
+
+    public static final int ID = 1;
+
+    @Id
+    private Integer id;
+
+    @Column(name = "checkpointed_through", nullable = false)
+    private LocalDate checkpointedThrough;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    // Getters and setters
+    public Integer getId() { return id; }
+    public void setId(Integer id) { this.id = id; }
+
+    public LocalDate getCheckpointedThrough() { return checkpointedThrough; }
+    public void setCheckpointedThrough(LocalDate checkpointedThrough) { this.checkpointedThrough = checkpointedThrough; }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+}
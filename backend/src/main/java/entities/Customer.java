@@ -1,6 +1,8 @@
 package entities;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
+import org.hibernate.annotations.ColumnDefault;
 
 @Entity
 @Table(name = "customers")
@@ -23,6 +25,12 @@ public class Customer {
     @JoinColumn(name = "user_id", nullable = false, unique = true)
     private User user;
 
+    // Bumped on every change to the customer's profile, accounts or transactions; drives ETags
+    @JsonIgnore
+    @ColumnDefault("0")
+    @Column(name = "data_version", nullable = false)
+    private long dataVersion;
+
     // Getters and setters (manual, to bypass Lombok issue)
     public Long getCustomerId() { return customerId; }
     public void setCustomerId(Long customerId) { this.customerId = customerId; }
@@ -41,4 +49,7 @@ public class Customer {
 
     public User getUser() { return user; }
     public void setUser(User user) { this.user = user; }
+
+    public long getDataVersion() { return dataVersion; }
+    public void setDataVersion(long dataVersion) { this.dataVersion = dataVersion; }
 }
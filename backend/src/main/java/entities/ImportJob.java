@@ -0,0 +1,99 @@
+package entities;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * A bulk customer import (service.BulkImportService). {@code linesDone} is the number of data lines
+ * fully handled, committed after each chunk, so an interrupted job resumes from there.
+ */
+@Entity
+@Table(name = "import_jobs")
+public class ImportJob {
+
+    public static final String RUNNING = "RUNNING";
+    public static final String COMPLETED = "COMPLETED";
+    public static final String FAILED = "FAILED";
+
+    @Id
+    @Column(length = 36)
+    private String id;
+
+    @Column(name = "file_name", nullable = false)
+    private String fileName;
+
+    @Column(nullable = false, length = 16)
+    private String format;
+
+    @Column(nullable = false, length = 16)
+    private String status;
+
+    // Node running the job; after a restart each node resumes only its own
+    @Column(nullable = false, length = 64)
+    private String node;
+
+    @Column(name = "total_lines", nullable = false)
+    private long totalLines;
+
+    @Column(name = "lines_done", nullable = false)
+    private long linesDone;
+
+    @Column(nullable = false)
+    private long imported;
+
+    @Column(nullable = false)
+    private long skipped;
+
+    @Column(nullable = false)
+    private long failed;
+
+    @Column(name = "last_error", length = 512)
+    private String lastError;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    // Getters and setters
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public String getFileName() { return fileName; }
+    public void setFileName(String fileName) { this.fileName = fileName; }
+
+    public String getFormat() { return format; }
+    public void setFormat(String format) { this.format = format; }
+
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+
+    public String getNode() { return node; }
+    public void setNode(String node) { this.node = node; }
+
+    public long getTotalLines() { return totalLines; }
+    public void setTotalLines(long totalLines) { this.totalLines = totalLines; }
+
+    public long getLinesDone() { return linesDone; }
+    public void setLinesDone(long linesDone) { this.linesDone = linesDone; }
+
+    public long getImported() { return imported; }
+    public void setImported(long imported) { this.imported = imported; }
+
+    public long getSkipped() { return skipped; }
+    public void setSkipped(long skipped) { this.skipped = skipped; }
+
+    public long getFailed() { return failed; }
+    public void setFailed(long failed) { this.failed = failed; }
+
+    public String getLastError() { return lastError; }
+    public void setLastError(String lastError) { this.lastError = lastError; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+}
@@ -0,0 +1,48 @@
+package entities;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * How far ledger reconciliation (service.LedgerReconciliationService) has got for one account:
+ * {@code ledgerBalance} is the signed sum of its successful transactions up to {@code lastTransactionId},
+ * and {@code difference} the stored balance minus that sum at {@code checkedAt} (zero when they agree).
+ */
+@Entity
+@Table(name = "ledger_watermarks",
+        indexes = @Index(name = "idx_ledger_watermarks_difference", columnList = "difference"))
+public class LedgerWatermark {
+
+    @Id
+    @Column(name = "account_id")
+    private Long accountId;
+
+    @Column(name = "last_transaction_id", nullable = false)
+    private long lastTransactionId;
+
+    @Column(name = "ledger_balance", nullable = false)
+    private Money ledgerBalance;
+
+    @Column(nullable = false)
+    private Money difference;
+
+    @Column(name = "checked_at", nullable = false)
+    private LocalDateTime checkedAt;
+
+    // Getters and setters
+    public Long getAccountId() { return accountId; }
+    public void setAccountId(Long accountId) { this.accountId = accountId; }
+
+    public long getLastTransactionId() { return lastTransactionId; }
+    public void setLastTransactionId(long lastTransactionId) { this.lastTransactionId = lastTransactionId; }
+
+    public Money getLedgerBalance() { return ledgerBalance; }
+    public void setLedgerBalance(Money ledgerBalance) { this.ledgerBalance = ledgerBalance; }
+
+    public Money getDifference() { return difference; }
+    public void setDifference(Money difference) { this.difference = difference; }
+
+    public LocalDateTime getCheckedAt() { return checkedAt; }
+    public void setCheckedAt(LocalDateTime checkedAt) { this.checkedAt = checkedAt; }
+}
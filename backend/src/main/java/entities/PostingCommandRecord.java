@@ -0,0 +1,92 @@
+package entities;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Stored copy of an async posting (service.PostingCommandQueue), on the shard of the debited account.
+ * Inserted in the request's transaction together with its Idempotency-Key, and completed in the
+ * posting's own transaction, so a queued command is run again after a restart but never twice.
+ */
+@Entity
+@Table(name = "posting_commands",
+        indexes = @Index(name = "idx_posting_commands_status_node", columnList = "status, node, created_at"))
+public class PostingCommandRecord {
+
+    @Id
+    @Column(length = 101)
+    private String id;
+
+    // The node that queued it and recovers it
+    @Column(nullable = false, length = 64)
+    private String node;
+
+    @Column(nullable = false)
+    private String username;
+
+    @Column(name = "command_type", nullable = false, length = 16)
+    private String type;
+
+    @Column(name = "account_id", nullable = false)
+    private Long accountId;
+
+    @Column(name = "to_account_id")
+    private Long toAccountId;
+
+    @Column(nullable = false)
+    private Money amount;
+
+    // Saga key of a split transfer (service.TransferSagaService#idempotencyKey)
+    @Column(name = "idempotency_key", nullable = false, length = 64)
+    private String idempotencyKey;
+
+    @Column(nullable = false, length = 16)
+    private String status;
+
+    @Column(length = 512)
+    private String message;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+
+    // Getters and setters
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public String getNode() { return node; }
+    public void setNode(String node) { this.node = node; }
+
+    public String getUsername() { return username; }
+    public void setUsername(String username) { this.username = username; }
+
+    public String getType() { return type; }
+    public void setType(String type) { this.type = type; }
+
+    public Long getAccountId() { return accountId; }
+    public void setAccountId(Long accountId) { this.accountId = accountId; }
+
+    public Long getToAccountId() { return toAccountId; }
+    public void setToAccountId(Long toAccountId) { this.toAccountId = toAccountId; }
+
+    public Money getAmount() { return amount; }
+    public void setAmount(Money amount) { this.amount = amount; }
+
+    public String getIdempotencyKey() { return idempotencyKey; }
+    public void setIdempotencyKey(String idempotencyKey) { this.idempotencyKey = idempotencyKey; }
+
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+
+    public String getMessage() { return message; }
+    public void setMessage(String message) { this.message = message; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+
+    public LocalDateTime getCompletedAt() { return completedAt; }
+    public void setCompletedAt(LocalDateTime completedAt) { this.completedAt = completedAt; }
+}
@@ -0,0 +1,77 @@
+package entities;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Month-end statement generation for one {@code period} (service.StatementService).
+ * Every customer up to {@code lastCustomerId} has its statement written, committed as the run
+ * goes, so an interrupted run resumes after it.
+ */
+@Entity
+@Table(name = "statement_runs")
+public class StatementRun {
+
+    public static final String RUNNING = "RUNNING";
+    public static final String COMPLETED = "COMPLETED";
+    public static final String FAILED = "FAILED";
+
+    // yyyy-MM
+    @Id
+    @Column(length = 7)
+    private String period;
+
+    @Column(nullable = false, length = 16)
+    private String status;
+
+    // Node running the job; after a restart each node resumes only its own
+    @Column(nullable = false, length = 64)
+    private String node;
+
+    @Column(name = "last_customer_id", nullable = false)
+    private long lastCustomerId;
+
+    @Column(nullable = false)
+    private long statements;
+
+    @Column(nullable = false)
+    private long transactions;
+
+    @Column(name = "last_error", length = 512)
+    private String lastError;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    // Getters and setters
+    public String getPeriod() { return period; }
+    public void setPeriod(String period) { this.period = period; }
+
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+
+    public String getNode() { return node; }
+    public void setNode(String node) { this.node = node; }
+
+    public long getLastCustomerId() { return lastCustomerId; }
+    public void setLastCustomerId(long lastCustomerId) { this.lastCustomerId = lastCustomerId; }
+
+    public long getStatements() { return statements; }
+    public void setStatements(long statements) { this.statements = statements; }
+
+    public long getTransactions() { return transactions; }
+    public void setTransactions(long transactions) { this.transactions = transactions; }
+
+    public String getLastError() { return lastError; }
+    public void setLastError(String lastError) { this.lastError = lastError; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+}
@@ -1,11 +1,15 @@
 package entities;
 import entities.Account;
 import jakarta.persistence.*;
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "transactions")
+// Per-account history and point-in-time balances read ranges of this index
+@Table(name = "transactions",
+        indexes = {
+                @Index(name = "idx_transactions_account_timestamp", columnList = "account_id, timestamp"),
+                @Index(name = "idx_transactions_timestamp", columnList = "timestamp")
+        })
 public class Transaction {
 
     @Id
@@ -31,7 +35,7 @@ public class Transaction {
     private String transactionType;  // deposit, withdraw, transfer
 
     @Column(nullable = false)
-    private BigDecimal amount;
+    private Money amount;
 
     @Column(nullable = false)
     private LocalDateTime timestamp;
@@ -48,7 +52,7 @@ public class Transaction {
     }
 
     public Transaction(Long transactionId, Account account, Account sourceAccount, Account destinationAccount,
-                       String transactionType, BigDecimal amount, LocalDateTime timestamp, String status) {
+                       String transactionType, Money amount, LocalDateTime timestamp, String status) {
         this.transactionId = transactionId;
         this.account = account;
         this.sourceAccount = sourceAccount;
@@ -103,11 +107,11 @@ public class Transaction {
         this.transactionType = transactionType;
     }
 
-    public BigDecimal getAmount() {
+    public Money getAmount() {
         return amount;
     }
 
-    public void setAmount(BigDecimal amount) {
+    public void setAmount(Money amount) {
         this.amount = amount;
     }
 
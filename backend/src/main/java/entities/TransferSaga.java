@@ -0,0 +1,96 @@
+package entities;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Log of a transfer between accounts owned by different cluster nodes: the sender's node debits
+ * (DEBITED), asks the receiver's node to credit, then records COMPLETED, or COMPENSATED after
+ * refunding the sender when the credit is rejected.
+ */
+@Entity
+@Table(name = "transfer_sagas",
+        indexes = @Index(name = "idx_transfer_sagas_origin_state", columnList = "origin_node, state, updated_at"),
+        uniqueConstraints = @UniqueConstraint(name = "uk_transfer_sagas_idempotency_key", columnNames = "idempotency_key"))
+public class TransferSaga {
+
+    public static final String DEBITED = "DEBITED";
+    public static final String COMPLETED = "COMPLETED";
+    public static final String COMPENSATED = "COMPENSATED";
+
+    @Id
+    @Column(length = 36)
+    private String id;
+
+    @Column(name = "from_account_id", nullable = false)
+    private Long fromAccountId;
+
+    @Column(name = "to_account_id", nullable = false)
+    private Long toAccountId;
+
+    @Column(nullable = false)
+    private Money amount;
+
+    @Column(nullable = false, length = 16)
+    private String state;
+
+    @Column(name = "origin_node", nullable = false, length = 64)
+    private String originNode;
+
+    @Column(name = "target_node", nullable = false, length = 64)
+    private String targetNode;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    // SHA-256 of username and Idempotency-Key; null without a key
+    @Column(name = "idempotency_key", length = 64)
+    private String idempotencyKey;
+
+    @Column(name = "last_error", length = 512)
+    private String lastError;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    // Getters and setters
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public Long getFromAccountId() { return fromAccountId; }
+    public void setFromAccountId(Long fromAccountId) { this.fromAccountId = fromAccountId; }
+
+    public Long getToAccountId() { return toAccountId; }
+    public void setToAccountId(Long toAccountId) { this.toAccountId = toAccountId; }
+
+    public Money getAmount() { return amount; }
+    public void setAmount(Money amount) { this.amount = amount; }
+
+    public String getState() { return state; }
+    public void setState(String state) { this.state = state; }
+
+    public String getOriginNode() { return originNode; }
+    public void setOriginNode(String originNode) { this.originNode = originNode; }
+
+    public String getTargetNode() { return targetNode; }
+    public void setTargetNode(String targetNode) { this.targetNode = targetNode; }
+
+    public int getAttempts() { return attempts; }
+    public void setAttempts(int attempts) { this.attempts = attempts; }
+
+    public String getIdempotencyKey() { return idempotencyKey; }
+    public void setIdempotencyKey(String idempotencyKey) { this.idempotencyKey = idempotencyKey; }
+
+    public String getLastError() { return lastError; }
+    public void setLastError(String lastError) { this.lastError = lastError; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+}
@@ -0,0 +1,33 @@
+package entities;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Shard directory entry: which shard holds a user and their customer data. Kept on shard 0 only.
+ */
+@Entity
+@Table(name = "user_shards")
+public class UserShard {
+
+    @Id
+    @Column(nullable = false)
+    private String username;
+
+    @Column(nullable = false)
+    private int shard;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    // Getters and setters
+    public String getUsername() { return username; }
+    public void setUsername(String username) { this.username = username; }
+
+    public int getShard() { return shard; }
+    public void setShard(int shard) { this.shard = shard; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+}
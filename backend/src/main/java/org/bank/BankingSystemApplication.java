@@ -1,5 +1,6 @@
 package org.bank;
 
+import config.StartupPhaseReporter;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.autoconfigure.domain.EntityScan;
@@ -11,14 +12,19 @@ import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
     "api",
     "service",
     "repository",
-    "entities", 
+    "entities",
     "util",
-    "dto"
+    "dto",
+    "reactive" // only with -Preactive (src/reactive/java)
 })
 @EnableJpaRepositories(basePackages = "repository")
 @EntityScan(basePackages = "entities")
 public class BankingSystemApplication {
     public static void main(String[] args) {
-        SpringApplication.run(BankingSystemApplication.class, args);
+        StartupPhaseReporter.markMainEntered();
+
+        SpringApplication app = new SpringApplication(BankingSystemApplication.class);
+        app.setApplicationStartup(StartupPhaseReporter.applicationStartup());
+        app.run(args);
     }
 }
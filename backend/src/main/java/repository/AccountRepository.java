@@ -2,12 +2,23 @@ package repository;
 
 import entities.Account;
 import entities.Customer;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+
 import java.util.List;
+import java.util.Optional;
 
 public interface AccountRepository extends JpaRepository<Account, Long> {
     List<Account> findByCustomer_CustomerId(Long customerId);
     List<Account> findByCustomer(Customer customer);
 
+    @Query("select a.customer.user.username from Account a where a.accountId = :accountId")
+    Optional<String> findOwnerUsername(Long accountId);
 
+    // SELECT ... FOR UPDATE: postings read-modify-write the balance
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select a from Account a where a.accountId = :accountId")
+    Optional<Account> findByIdForUpdate(Long accountId);
 }
@@ -0,0 +1,7 @@
+package repository;
+
+import entities.AppliedCredit;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface AppliedCreditRepository extends JpaRepository<AppliedCredit, String> {
+}
@@ -3,6 +3,9 @@ package repository;
 import entities.Customer;
 import entities.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Optional;
 
@@ -13,4 +16,18 @@ public interface CustomerRepository extends JpaRepository<Customer, Long> {
 
     // Finds customer by User entity itself
     Optional<Customer> findByUser(User user);
+
+    @Query("select c.customerId from Customer c where c.user.username = :username")
+    Optional<Long> findCustomerIdByUsername(String username);
+
+    @Query("select c.customerId from Customer c where c.user.id = :userId")
+    Optional<Long> findCustomerIdByUserId(Long userId);
+
+    @Query("select c.dataVersion from Customer c where c.customerId = :customerId")
+    Optional<Long> findDataVersion(Long customerId);
+
+    @Transactional
+    @Modifying
+    @Query("update Customer c set c.dataVersion = c.dataVersion + 1 where c.customerId = :customerId")
+    int incrementDataVersion(Long customerId);
 }
@@ -0,0 +1,25 @@
+package repository;
+
+import entities.IdempotencyKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+public interface IdempotencyKeyRepository extends JpaRepository<IdempotencyKey, Long> {
+
+    Optional<IdempotencyKey> findByUsernameAndKey(String username, String key);
+
+    @Transactional
+    @Modifying
+    @Query("delete from IdempotencyKey k where k.createdAt < :cutoff")
+    int deleteCreatedBefore(LocalDateTime cutoff);
+
+    // Joins the caller's transaction: an expired key is replaced together with the new posting
+    @Modifying
+    @Query("delete from IdempotencyKey k where k.id = :id and k.createdAt < :cutoff")
+    int deleteExpired(Long id, LocalDateTime cutoff);
+}
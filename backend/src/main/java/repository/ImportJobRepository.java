@@ -0,0 +1,13 @@
+package repository;
+
+import entities.ImportJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+
+public interface ImportJobRepository extends JpaRepository<ImportJob, String> {
+
+    List<ImportJob> findByStatusAndNode(String status, String node);
+
+    List<ImportJob> findTop50ByOrderByCreatedAtDesc();
+}
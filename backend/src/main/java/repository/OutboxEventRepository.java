@@ -0,0 +1,28 @@
+package repository;
+
+import entities.OutboxEvent;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    // SELECT ... FOR UPDATE SKIP LOCKED (lock timeout -2): concurrent dispatchers claim disjoint batches
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("select e from OutboxEvent e where e.status = 'PENDING' and e.nextAttemptAt <= :now order by e.id")
+    List<OutboxEvent> claimBatch(LocalDateTime now, Pageable page);
+
+    long countByStatus(String status);
+
+    @Query("select min(e.createdAt) from OutboxEvent e where e.status = 'PENDING'")
+    Optional<LocalDateTime> findOldestPendingCreatedAt();
+}
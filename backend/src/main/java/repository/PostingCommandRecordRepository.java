@@ -0,0 +1,28 @@
+package repository;
+
+import entities.PostingCommandRecord;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface PostingCommandRecordRepository extends JpaRepository<PostingCommandRecord, String> {
+
+    // Conditional on QUEUED: if two runs of a command race, the second one's posting rolls back
+    @Modifying
+    @Query("update PostingCommandRecord c set c.status = :status, c.message = :message, c.completedAt = :now "
+            + "where c.id = :id and c.status = 'QUEUED'")
+    int complete(String id, String status, String message, LocalDateTime now);
+
+    @Query("select c from PostingCommandRecord c where c.node = :node and c.status = 'QUEUED' and c.createdAt < :before order by c.createdAt")
+    List<PostingCommandRecord> findQueued(String node, LocalDateTime before, Pageable page);
+
+    @Transactional
+    @Modifying
+    @Query("delete from PostingCommandRecord c where c.status <> 'QUEUED' and c.completedAt < :cutoff")
+    int deleteCompletedBefore(LocalDateTime cutoff);
+}
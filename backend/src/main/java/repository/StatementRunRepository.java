@@ -0,0 +1,13 @@
+package repository;
+
+import entities.StatementRun;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+
+public interface StatementRunRepository extends JpaRepository<StatementRun, String> {
+
+    List<StatementRun> findByStatusAndNode(String status, String node);
+
+    List<StatementRun> findTop24ByOrderByPeriodDesc();
+}
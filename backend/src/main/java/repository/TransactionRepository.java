@@ -2,8 +2,10 @@ package repository;
 
 import entities.Customer;
 import entities.Transaction;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 public interface TransactionRepository extends JpaRepository<Transaction, Long> {
@@ -16,4 +18,8 @@ public interface TransactionRepository extends JpaRepository<Transaction, Long>
 
     // 🔑 Correct one for customer:
     List<Transaction> findByAccountCustomerOrderByTimestampDesc(Customer customer);
+
+    List<Transaction> findByAccountCustomerCustomerIdOrderByTimestampDescTransactionIdDesc(Long customerId, Pageable pageable);
+
+    long countByAccountCustomerCustomerIdAndTimestampGreaterThanEqual(Long customerId, LocalDateTime since);
 }
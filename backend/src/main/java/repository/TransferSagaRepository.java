@@ -0,0 +1,29 @@
+package repository;
+
+import entities.TransferSaga;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+public interface TransferSagaRepository extends JpaRepository<TransferSaga, String> {
+
+    @Query("select s from TransferSaga s where s.originNode = :node and s.state = 'DEBITED' and s.updatedAt < :before order by s.updatedAt")
+    List<TransferSaga> findStalled(String node, LocalDateTime before, Pageable page);
+
+    // Conditional on DEBITED so a saga is completed or compensated exactly once
+    @Modifying
+    @Query("update TransferSaga s set s.state = :state, s.updatedAt = :now where s.id = :id and s.state = 'DEBITED'")
+    int finish(String id, String state, LocalDateTime now);
+
+    Optional<TransferSaga> findByIdempotencyKey(String idempotencyKey);
+
+    // Frees a key whose Idempotency-Key has expired, so the client may reuse it for a new transfer
+    @Modifying
+    @Query("update TransferSaga s set s.idempotencyKey = null where s.idempotencyKey = :idempotencyKey and s.createdAt < :cutoff")
+    int releaseIdempotencyKey(String idempotencyKey, LocalDateTime cutoff);
+}
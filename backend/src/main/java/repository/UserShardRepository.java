@@ -0,0 +1,13 @@
+package repository;
+
+import entities.UserShard;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.Optional;
+
+public interface UserShardRepository extends JpaRepository<UserShard, String> {
+
+    @Query("select u.shard from UserShard u where u.username = :username")
+    Optional<Integer> findShardByUsername(String username);
+}
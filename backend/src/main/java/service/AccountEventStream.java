@@ -0,0 +1,265 @@
+package service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Server-sent event fan-out of balance changes and new transactions, per customer.
+ * <p>
+ * Idle connections cost no thread: each {@link SseEmitter} is an async servlet request parked in
+ * Tomcat's NIO poller. Events go into a small bounded queue per connection and are written by a
+ * shared pool of {@code stream.dispatch-threads}; a connection whose queue overflows is a slow
+ * consumer and is closed (the client reconnects and refetches). Heartbeats keep proxies from
+ * dropping quiet connections and detect dead ones.
+ * <p>
+ * A stream lives no longer than the token that opened it: it times out at the token's expiry, and
+ * every heartbeat run closes streams whose token has since been revoked.
+ */
+@Service
+public class AccountEventStream {
+
+    private static final Logger log = LoggerFactory.getLogger(AccountEventStream.class);
+
+    private final int bufferSize;
+    private final int maxConnectionsPerCustomer;
+    private final long heartbeatNanos;
+    private final ExecutorService dispatcher;
+    private final TokenRevocationService tokenRevocationService;
+
+    private final Map<Long, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    private final AtomicInteger connections = new AtomicInteger();
+    private final Counter slowConsumerDisconnects;
+    private final Counter revokedDisconnects;
+
+    public AccountEventStream(MeterRegistry meterRegistry,
+                              TokenRevocationService tokenRevocationService,
+                              @Value("${stream.buffer-size:64}") int bufferSize,
+                              @Value("${stream.max-connections-per-customer:8}") int maxConnectionsPerCustomer,
+                              @Value("${stream.heartbeat-ms:25000}") long heartbeatMs,
+                              @Value("${stream.dispatch-threads:4}") int dispatchThreads) {
+        this.bufferSize = bufferSize;
+        this.maxConnectionsPerCustomer = maxConnectionsPerCustomer;
+        this.heartbeatNanos = TimeUnit.MILLISECONDS.toNanos(heartbeatMs);
+        this.tokenRevocationService = tokenRevocationService;
+        AtomicInteger threadIds = new AtomicInteger();
+        this.dispatcher = Executors.newFixedThreadPool(dispatchThreads, r -> {
+            Thread thread = new Thread(r, "event-stream-" + threadIds.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        meterRegistry.gauge("stream.connections", connections);
+        this.slowConsumerDisconnects = meterRegistry.counter("stream.disconnects", "reason", "slow-consumer");
+        this.revokedDisconnects = meterRegistry.counter("stream.disconnects", "reason", "token-revoked");
+    }
+
+    // -----------------------------
+    // Subscriptions
+    // -----------------------------
+    /**
+     * Opens a stream for the holder of the token {@code tokenId}, ending at {@code expiresAt}.
+     *
+     * @throws IllegalStateException if the customer already has the maximum number of streams open
+     */
+    public SseEmitter subscribe(Long customerId, String tokenId, Date expiresAt) {
+        // Liveness is checked by the heartbeat; the timeout only enforces the token's expiry
+        SseEmitter emitter = new SseEmitter(Math.max(1, expiresAt.getTime() - System.currentTimeMillis()));
+        Subscriber subscriber = new Subscriber(customerId, tokenId, emitter);
+
+        // Add under the map's lock so a concurrent remove cannot drop the set we add to
+        AtomicBoolean added = new AtomicBoolean();
+        subscribers.compute(customerId, (id, set) -> {
+            Set<Subscriber> customerSubscribers = set != null ? set : ConcurrentHashMap.newKeySet();
+            if (customerSubscribers.size() < maxConnectionsPerCustomer) {
+                added.set(customerSubscribers.add(subscriber));
+            }
+            return customerSubscribers.isEmpty() ? null : customerSubscribers;
+        });
+        if (!added.get()) {
+            throw new IllegalStateException("Too many open streams for this customer");
+        }
+
+        emitter.onCompletion(() -> remove(subscriber));
+        emitter.onTimeout(() -> {
+            remove(subscriber);
+            emitter.complete();
+        });
+        emitter.onError(e -> remove(subscriber));
+        connections.incrementAndGet();
+        subscriber.offer(SseEmitter.event().name("ready").data(Map.of("customerId", customerId)));
+        return emitter;
+    }
+
+    public int connectionCount() {
+        return connections.get();
+    }
+
+    private void remove(Subscriber subscriber) {
+        if (!subscriber.closed.compareAndSet(false, true)) {
+            return;
+        }
+        connections.decrementAndGet();
+        subscribers.computeIfPresent(subscriber.customerId, (id, set) -> {
+            set.remove(subscriber);
+            return set.isEmpty() ? null : set;
+        });
+    }
+
+    // -----------------------------
+    // Publishing
+    // -----------------------------
+    // After commit so clients never see a balance that was rolled back
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onTransactionPosted(TransactionPostedEvent event) {
+        publishPosted(event);
+    }
+
+    /**
+     * Sends the transaction and balance events for a committed posting (also used for postings relayed by cluster peers).
+     */
+    public void publishPosted(TransactionPostedEvent event) {
+        if (!subscribers.containsKey(event.customerId())) {
+            return;
+        }
+
+        Map<String, Object> transaction = new LinkedHashMap<>();
+        transaction.put("id", event.transactionId());
+        transaction.put("type", event.transactionType());
+        transaction.put("amount", event.amount());
+        transaction.put("timestamp", event.timestamp());
+        transaction.put("accountId", event.accountId());
+        Map<String, Object> balance = Map.of("accountId", event.accountId(), "balance", event.balance());
+
+        publish(event.customerId(), "transaction", transaction);
+        publish(event.customerId(), "balance", balance);
+    }
+
+    /**
+     * Sends a named JSON event to every open stream of the customer.
+     */
+    public void publish(Long customerId, String eventName, Object data) {
+        Set<Subscriber> customerSubscribers = subscribers.get(customerId);
+        if (customerSubscribers == null) {
+            return;
+        }
+        for (Subscriber subscriber : customerSubscribers) {
+            subscriber.offer(SseEmitter.event().name(eventName).data(data, MediaType.APPLICATION_JSON));
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${stream.heartbeat-ms:25000}")
+    public void heartbeat() {
+        long now = System.nanoTime();
+        for (Set<Subscriber> customerSubscribers : subscribers.values()) {
+            for (Subscriber subscriber : customerSubscribers) {
+                if (tokenRevocationService.isRevoked(subscriber.tokenId)) {
+                    revokedDisconnects.increment();
+                    remove(subscriber);
+                    subscriber.emitter.complete();
+                } else if (now - subscriber.lastSentAt >= heartbeatNanos) {
+                    subscriber.offer(SseEmitter.event().comment("heartbeat"));
+                }
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        dispatcher.shutdownNow();
+        for (Set<Subscriber> customerSubscribers : subscribers.values()) {
+            customerSubscribers.forEach(subscriber -> subscriber.emitter.complete());
+        }
+    }
+
+    /**
+     * One open stream. {@code queue} is bounded by {@code queued}; at most one drain task is
+     * scheduled at a time, so events reach the client in order.
+     */
+    private class Subscriber {
+        final Long customerId;
+        final String tokenId;
+        final SseEmitter emitter;
+        final Queue<SseEmitter.SseEventBuilder> queue = new ConcurrentLinkedQueue<>();
+        final AtomicInteger queued = new AtomicInteger();
+        final AtomicBoolean draining = new AtomicBoolean();
+        final AtomicBoolean closed = new AtomicBoolean();
+        volatile long lastSentAt = System.nanoTime();
+
+        Subscriber(Long customerId, String tokenId, SseEmitter emitter) {
+            this.customerId = customerId;
+            this.tokenId = tokenId;
+            this.emitter = emitter;
+        }
+
+        void offer(SseEmitter.SseEventBuilder event) {
+            if (closed.get()) {
+                return;
+            }
+            if (queued.incrementAndGet() > bufferSize) {
+                queued.decrementAndGet();
+                slowConsumerDisconnects.increment();
+                log.debug("Closing slow event stream for customer {}", customerId);
+                remove(this);
+                emitter.complete();
+                return;
+            }
+            queue.add(event);
+            scheduleDrain();
+        }
+
+        private void scheduleDrain() {
+            if (draining.compareAndSet(false, true)) {
+                try {
+                    dispatcher.execute(this::drain);
+                } catch (RuntimeException e) {
+                    // Dispatcher shut down
+                    draining.set(false);
+                }
+            }
+        }
+
+        private void drain() {
+            try {
+                SseEmitter.SseEventBuilder event;
+                while (!closed.get() && (event = queue.poll()) != null) {
+                    queued.decrementAndGet();
+                    emitter.send(event);
+                    lastSentAt = System.nanoTime();
+                }
+            } catch (IOException | IllegalStateException e) {
+                // Client went away; the container reports the error to onError as well
+                remove(this);
+                emitter.completeWithError(e);
+            } finally {
+                draining.set(false);
+            }
+            if (!closed.get() && !queue.isEmpty()) {
+                scheduleDrain();
+            }
+        }
+    }
+}
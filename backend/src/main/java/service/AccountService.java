@@ -2,8 +2,8 @@ package service;
 
 import entities.Account;
 import entities.Customer;
+import entities.Money;
 
-import java.math.BigDecimal;
 import java.util.List;
 import java.util.Optional;
 
@@ -14,9 +14,16 @@ public interface AccountService {
     void deleteById(Long id);
     List<Account> findByCustomerId(Long customerId);
     List<Account> findByCustomer(Customer customer);
+    boolean isOwnedBy(Long accountId, String username);
 
     // Banking operations
-    void deposit(Long accountId, BigDecimal amount);
-    void withdraw(Long accountId, BigDecimal amount);
-    void transfer(Long fromAccountId, Long toAccountId, BigDecimal amount);
+    Account open(Account account);
+    void deposit(Long accountId, Money amount);
+    void withdraw(Long accountId, Money amount);
+    void transfer(Long fromAccountId, Long toAccountId, Money amount);
+
+    // One-sided legs of a transfer whose accounts live on different cluster nodes
+    void transferOut(Long fromAccountId, Long toAccountId, Money amount);
+    void transferIn(Long toAccountId, Long fromAccountId, Money amount);
+    void reverseTransferOut(Long fromAccountId, Long toAccountId, Money amount);
 }
@@ -2,26 +2,43 @@ package service;
 
 import entities.Account;
 import entities.Customer;
+import entities.Money;
 import entities.Transaction;
 import repository.AccountRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 public class AccountServiceImpl implements AccountService {
 
+    private static final int OWNER_CACHE_LIMIT = 100_000;
+
     private final AccountRepository accountRepository;
     private final TransactionService transactionService;
+    private final ChangeVersionService changeVersionService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final OutboxService outboxService;
+
+    // accountId -> owner's username; accounts never change owner, so only deletes evict
+    private final Map<Long, String> owners = new ConcurrentHashMap<>();
 
     @Autowired
-    public AccountServiceImpl(AccountRepository accountRepository, TransactionService transactionService) {
+    public AccountServiceImpl(AccountRepository accountRepository, TransactionService transactionService,
+                              ChangeVersionService changeVersionService, ApplicationEventPublisher eventPublisher,
+                              OutboxService outboxService) {
         this.accountRepository = accountRepository;
         this.transactionService = transactionService;
+        this.changeVersionService = changeVersionService;
+        this.eventPublisher = eventPublisher;
+        this.outboxService = outboxService;
     }
 
     @Override
@@ -42,6 +59,7 @@ public class AccountServiceImpl implements AccountService {
     @Override
     public void deleteById(Long id) {
         accountRepository.deleteById(id);
+        owners.remove(id);
     }
 
     @Override
@@ -55,80 +73,157 @@ public class AccountServiceImpl implements AccountService {
     }
 
     @Override
-    public void deposit(Long accountId, BigDecimal amount) {
-        Account account = accountRepository.findById(accountId)
-                .orElseThrow(() -> new RuntimeException("Account not found"));
+    public boolean isOwnedBy(Long accountId, String username) {
+        String owner = owners.get(accountId);
+        if (owner == null) {
+            owner = accountRepository.findOwnerUsername(accountId).orElse(null);
+            if (owner == null) {
+                return false;
+            }
+            if (owners.size() >= OWNER_CACHE_LIMIT) {
+                owners.clear();
+            }
+            owners.put(accountId, owner);
+        }
+        return owner.equals(username);
+    }
 
-        account.setBalance(account.getBalance().add(amount));
+    // A starting balance is booked as an OPENING_DEPOSIT, so the ledger adds up to the balance
+    @Override
+    @Transactional
+    public Account open(Account account) {
+        Money opening = account.getBalance() != null ? account.getBalance() : Money.ZERO;
+        account.setBalance(opening);
         accountRepository.save(account);
+        if (opening.isPositive()) {
+            record(account, "OPENING_DEPOSIT", opening);
+        } else {
+            // record() bumps otherwise; the new account must still invalidate the customer's list
+            changeVersionService.bump(account.getCustomer().getCustomerId());
+        }
+        return account;
+    }
 
-        // record transaction
-        Transaction transaction = new Transaction();
-        transaction.setAccount(account);
-        transaction.setTransactionType("DEPOSIT");
-        transaction.setAmount(BigDecimal.valueOf(amount.doubleValue()));
-        transaction.setTimestamp(LocalDateTime.now());
-        transaction.setStatus("SUCCESS");
+    @Override
+    @Transactional
+    public void deposit(Long accountId, Money amount) {
+        requirePositive(amount);
+        Account account = accountRepository.findByIdForUpdate(accountId)
+                .orElseThrow(() -> new RuntimeException("Account not found"));
 
-        transactionService.save(transaction);
+        account.setBalance(account.getBalance().plus(amount));
+        accountRepository.save(account);
+        record(account, "DEPOSIT", amount);
     }
 
     @Override
-    public void withdraw(Long accountId, BigDecimal amount) {
-        Account account = accountRepository.findById(accountId)
+    @Transactional
+    public void withdraw(Long accountId, Money amount) {
+        requirePositive(amount);
+        Account account = accountRepository.findByIdForUpdate(accountId)
                 .orElseThrow(() -> new RuntimeException("Account not found"));
 
-        if (account.getBalance().compareTo(amount) < 0) {
+        if (account.getBalance().isLessThan(amount)) {
             throw new RuntimeException("Insufficient balance");
         }
 
-        account.setBalance(account.getBalance().subtract(amount));
+        account.setBalance(account.getBalance().minus(amount));
         accountRepository.save(account);
-
-        // record transaction
-        Transaction transaction = new Transaction();
-        transaction.setAccount(account);
-        transaction.setTransactionType("WITHDRAW");
-        transaction.setAmount(BigDecimal.valueOf(amount.doubleValue()));
-        transaction.setTimestamp(LocalDateTime.now());
-        transaction.setStatus("SUCCESS");
-
-        transactionService.save(transaction);
+        record(account, "WITHDRAW", amount);
     }
 
     @Override
-    public void transfer(Long fromAccountId, Long toAccountId, BigDecimal amount) {
-        Account fromAccount = accountRepository.findById(fromAccountId)
-                .orElseThrow(() -> new RuntimeException("Sender account not found"));
-        Account toAccount = accountRepository.findById(toAccountId)
-                .orElseThrow(() -> new RuntimeException("Receiver account not found"));
+    @Transactional
+    public void transfer(Long fromAccountId, Long toAccountId, Money amount) {
+        requirePositive(amount);
+        if (fromAccountId.equals(toAccountId)) {
+            throw new IllegalArgumentException("Cannot transfer to the same account");
+        }
+        // Lock both rows in id order so opposite transfers cannot deadlock
+        boolean senderFirst = fromAccountId < toAccountId;
+        Account first = accountRepository.findByIdForUpdate(senderFirst ? fromAccountId : toAccountId).orElse(null);
+        Account second = accountRepository.findByIdForUpdate(senderFirst ? toAccountId : fromAccountId).orElse(null);
+        Account fromAccount = senderFirst ? first : second;
+        Account toAccount = senderFirst ? second : first;
+        if (fromAccount == null) {
+            throw new RuntimeException("Sender account not found");
+        }
+        if (toAccount == null) {
+            throw new RuntimeException("Receiver account not found");
+        }
 
-        if (fromAccount.getBalance().compareTo(amount) < 0) {
+        if (fromAccount.getBalance().isLessThan(amount)) {
             throw new RuntimeException("Insufficient balance for transfer");
         }
 
         // update balances
-        fromAccount.setBalance(fromAccount.getBalance().subtract(amount));
-        toAccount.setBalance(toAccount.getBalance().add(amount));
+        fromAccount.setBalance(fromAccount.getBalance().minus(amount));
+        toAccount.setBalance(toAccount.getBalance().plus(amount));
         accountRepository.save(fromAccount);
         accountRepository.save(toAccount);
 
-        // record debit transaction (sender)
-        Transaction debit = new Transaction();
-        debit.setAccount(fromAccount);
-        debit.setTransactionType("TRANSFER_SENT");
-        debit.setAmount(BigDecimal.valueOf(amount.doubleValue()));
-        debit.setTimestamp(LocalDateTime.now());
-        debit.setStatus("SUCCESS");
-        transactionService.save(debit);
-
-        // record credit transaction (receiver)
-        Transaction credit = new Transaction();
-        credit.setAccount(toAccount);
-        credit.setTransactionType("TRANSFER_RECEIVED");
-        credit.setAmount(BigDecimal.valueOf(amount.doubleValue()));
-        credit.setTimestamp(LocalDateTime.now());
-        credit.setStatus("SUCCESS");
-        transactionService.save(credit);
+        record(fromAccount, "TRANSFER_SENT", amount);
+        record(toAccount, "TRANSFER_RECEIVED", amount);
+    }
+
+    @Override
+    @Transactional
+    public void transferOut(Long fromAccountId, Long toAccountId, Money amount) {
+        requirePositive(amount);
+        Account fromAccount = accountRepository.findByIdForUpdate(fromAccountId)
+                .orElseThrow(() -> new RuntimeException("Sender account not found"));
+        if (fromAccount.getBalance().isLessThan(amount)) {
+            throw new RuntimeException("Insufficient balance for transfer");
+        }
+        fromAccount.setBalance(fromAccount.getBalance().minus(amount));
+        accountRepository.save(fromAccount);
+        record(fromAccount, "TRANSFER_SENT", amount);
+    }
+
+    @Override
+    @Transactional
+    public void transferIn(Long toAccountId, Long fromAccountId, Money amount) {
+        requirePositive(amount);
+        Account toAccount = accountRepository.findByIdForUpdate(toAccountId)
+                .orElseThrow(() -> new IllegalArgumentException("Receiver account not found"));
+        toAccount.setBalance(toAccount.getBalance().plus(amount));
+        accountRepository.save(toAccount);
+        record(toAccount, "TRANSFER_RECEIVED", amount);
+    }
+
+    // Compensation: gives back a debit whose credit was refused
+    @Override
+    @Transactional
+    public void reverseTransferOut(Long fromAccountId, Long toAccountId, Money amount) {
+        Account fromAccount = accountRepository.findByIdForUpdate(fromAccountId)
+                .orElseThrow(() -> new RuntimeException("Sender account not found"));
+        fromAccount.setBalance(fromAccount.getBalance().plus(amount));
+        accountRepository.save(fromAccount);
+        record(fromAccount, "TRANSFER_REVERSED", amount);
+    }
+
+    private void record(Account account, String type, Money amount) {
+        Transaction transaction = new Transaction();
+        transaction.setAccount(account);
+        transaction.setTransactionType(type);
+        transaction.setAmount(amount);
+        transaction.setTimestamp(LocalDateTime.now());
+        transaction.setStatus("SUCCESS");
+        transactionService.save(transaction);
+        changeVersionService.bump(account.getCustomer().getCustomerId());
+        posted(transaction);
+    }
+
+    // Outbox row commits with the balance change; the in-process event (live stream) fires after commit
+    private void posted(Transaction transaction) {
+        TransactionPostedEvent event = TransactionPostedEvent.of(transaction);
+        outboxService.recordTransactionPosted(event);
+        eventPublisher.publishEvent(event);
+    }
+
+    private static void requirePositive(Money amount) {
+        if (amount == null || !amount.isPositive()) {
+            throw new IllegalArgumentException("Amount must be positive");
+        }
     }
 }
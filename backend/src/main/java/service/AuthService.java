@@ -2,6 +2,7 @@ package service;
 
 import entities.Customer;
 import entities.User;
+import repository.CustomerRepository;
 import repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
@@ -10,21 +11,29 @@ import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import util.BankPrincipal;
 
 import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
 
 @Service
 public class AuthService implements UserDetailsService {
 
     private final UserRepository userRepository;
+    private final CustomerRepository customerRepository;
     private final PasswordEncoder passwordEncoder;
+    private final ShardService shardService;
 
     @Autowired
     public AuthService(UserRepository userRepository,
-                       PasswordEncoder passwordEncoder) {
+                       CustomerRepository customerRepository,
+                       PasswordEncoder passwordEncoder,
+                       ShardService shardService) {
         this.userRepository = userRepository;
+        this.customerRepository = customerRepository;
         this.passwordEncoder = passwordEncoder;
+        this.shardService = shardService;
     }
 
     // -----------------------------
@@ -32,7 +41,7 @@ public class AuthService implements UserDetailsService {
     // -----------------------------
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        User user = userRepository.findByUsername(username)
+        User user = findByUsername(username)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found: " + username));
 
         return org.springframework.security.core.userdetails.User.builder()
@@ -56,7 +65,12 @@ public class AuthService implements UserDetailsService {
             user.setRole("ROLE_USER");
         }
 
-        // Save user
+        // Save user (on a newly assigned shard when sharding is on)
+        int shard = shardService.assignShard(user.getUsername());
+        return shardService.onShard(shard, () -> saveWithCustomer(user, customerService));
+    }
+
+    private User saveWithCustomer(User user, CustomerService customerService) {
         User savedUser = userRepository.save(user);
 
         // Auto-create Customer for normal users if not already linked
@@ -78,6 +92,18 @@ public class AuthService implements UserDetailsService {
     // Helper to fetch user by username
     // -----------------------------
     public Optional<User> findByUsername(String username) {
-        return userRepository.findByUsername(username);
+        return shardService.shardOfUser(username)
+                .flatMap(shard -> shardService.onShard(shard, () -> userRepository.findByUsername(username)));
+    }
+
+    // -----------------------------
+    // Claims for a JWT (at login, and when a token's claims are refreshed)
+    // -----------------------------
+    public Optional<BankPrincipal> loadPrincipal(String username) {
+        return shardService.shardOfUser(username)
+                .flatMap(shard -> shardService.onShard(shard, () -> userRepository.findByUsername(username)
+                        .map(user -> new BankPrincipal(user.getId(), user.getUsername(),
+                                customerRepository.findCustomerIdByUsername(username).orElse(null),
+                                List.of(user.getRole())))));
     }
 }
@@ -0,0 +1,326 @@
+package service;
+
+import entities.BalanceCheckpointProgress;
+import entities.Money;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * Balances at a point in time, without summing an account's whole history.
+ * <p>
+ * After each day, {@code balance_checkpoints} gets the closing balance of every account that had
+ * successful postings that day (idle days get no row, so the table grows with activity, not with
+ * accounts times days). A checkpoint is the stored balance minus the postings made after its day,
+ * so it agrees with the balance even for accounts opened before opening deposits were booked.
+ * <p>
+ * A balance at time T starts from the last checkpoint before T's day and adds that account's postings
+ * up to T; with no earlier checkpoint it goes back from the first later one, or from the current
+ * balance. Either way it reads an index range of a day or so of postings. Checkpoints are written on
+ * {@code balances.checkpoint-cron} and at startup, catching up any days missed since the last run
+ * (the first run backfills all history), in account-id ranges of {@code balances.range-size}.
+ */
+@Service
+public class BalanceHistoryService {
+
+    private static final Logger log = LoggerFactory.getLogger(BalanceHistoryService.class);
+
+    public static final int MAX_SERIES_DAYS = 366;
+
+    // Signed amount of a transaction, as in ledger reconciliation
+    private static final String SIGNED_AMOUNT = LedgerReconciliationService.SIGNS.entrySet().stream()
+            .map(entry -> "WHEN '" + entry.getKey() + "' THEN " + (entry.getValue() < 0 ? "-" : "") + "x.amount")
+            .collect(Collectors.joining(" ", "CASE x.transaction_type ", " ELSE 0 END"));
+
+    private static final String SELECT_PROGRESS = "SELECT checkpointed_through FROM balance_checkpoint_progress WHERE id = ?";
+    private static final String UPDATE_PROGRESS = "UPDATE balance_checkpoint_progress SET checkpointed_through = ?, "
+            + "updated_at = ? WHERE id = ?";
+    private static final String INSERT_PROGRESS = "INSERT INTO balance_checkpoint_progress "
+            + "(id, checkpointed_through, updated_at) VALUES (?, ?, ?)";
+    private static final String SELECT_FIRST_DAY = "SELECT MIN(timestamp) FROM transactions";
+    private static final String SELECT_ACCOUNT_IDS = "SELECT MIN(account_id), MAX(account_id) FROM accounts";
+
+    // Successful postings per account and day, for a range of accounts and days
+    private static final String SELECT_DAILY_DELTAS = "SELECT x.account_id, CAST(x.timestamp AS DATE) AS posting_day, "
+            + "SUM(" + SIGNED_AMOUNT + ") AS delta FROM transactions x "
+            + "WHERE x.account_id BETWEEN ? AND ? AND x.timestamp >= ? AND x.timestamp < ? AND x.status = 'SUCCESS' "
+            + "GROUP BY x.account_id, CAST(x.timestamp AS DATE)";
+    // Balance at the end of the window: the stored balance minus what was posted since
+    private static final String SELECT_CLOSING = "SELECT a.account_id, a.balance - COALESCE((SELECT SUM("
+            + SIGNED_AMOUNT + ") FROM transactions x WHERE x.account_id = a.account_id AND x.timestamp >= ? "
+            + "AND x.status = 'SUCCESS'), 0) AS closing FROM accounts a WHERE a.account_id BETWEEN ? AND ?";
+    private static final String DELETE_CHECKPOINTS = "DELETE FROM balance_checkpoints "
+            + "WHERE account_id BETWEEN ? AND ? AND balance_date BETWEEN ? AND ?";
+    private static final String INSERT_CHECKPOINT = "INSERT INTO balance_checkpoints "
+            + "(account_id, balance_date, balance) VALUES (?, ?, ?)";
+
+    private static final String SELECT_CHECKPOINT_BEFORE = "SELECT balance_date, balance FROM balance_checkpoints "
+            + "WHERE account_id = ? AND balance_date < ? ORDER BY balance_date DESC LIMIT 1";
+    private static final String SELECT_CHECKPOINT_FROM = "SELECT balance_date, balance FROM balance_checkpoints "
+            + "WHERE account_id = ? AND balance_date >= ? ORDER BY balance_date LIMIT 1";
+    private static final String SUM_BETWEEN = "SELECT COALESCE(SUM(" + SIGNED_AMOUNT + "), 0) FROM transactions x "
+            + "WHERE x.account_id = ? AND x.timestamp >= ? AND x.timestamp < ? AND x.status = 'SUCCESS'";
+    private static final String SELECT_CURRENT = "SELECT a.balance - COALESCE((SELECT SUM(" + SIGNED_AMOUNT
+            + ") FROM transactions x WHERE x.account_id = a.account_id AND x.timestamp >= ? AND x.status = 'SUCCESS'), 0) "
+            + "FROM accounts a WHERE a.account_id = ?";
+    private static final String SELECT_DAILY_DELTAS_OF = "SELECT CAST(x.timestamp AS DATE) AS posting_day, "
+            + "SUM(" + SIGNED_AMOUNT + ") AS delta FROM transactions x "
+            + "WHERE x.account_id = ? AND x.timestamp >= ? AND x.timestamp < ? AND x.status = 'SUCCESS' "
+            + "GROUP BY CAST(x.timestamp AS DATE)";
+    private static final String SELECT_OWNER = "SELECT customer_id FROM accounts WHERE account_id = ?";
+
+    public record Point(LocalDate date, Money balance) {
+    }
+
+    private record Checkpoint(LocalDate day, BigDecimal balance) {
+    }
+
+    private final ShardService shardService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate snapshot;
+    private final TransactionTemplate readSnapshot;
+    private final int rangeSize;
+    private final Counter written;
+    private final ExecutorService worker;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public BalanceHistoryService(ShardService shardService,
+                                 JdbcTemplate jdbcTemplate,
+                                 PlatformTransactionManager transactionManager,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${balances.range-size:5000}") int rangeSize) {
+        this.shardService = shardService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.rangeSize = rangeSize;
+        // Balances and postings read from one snapshot, so a concurrent posting is in both or neither
+        this.snapshot = new TransactionTemplate(transactionManager);
+        this.snapshot.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.readSnapshot = new TransactionTemplate(transactionManager);
+        this.readSnapshot.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.readSnapshot.setReadOnly(true);
+        this.written = meterRegistry.counter("balances.checkpoints.written");
+        this.worker = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "balance-checkpoints");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void catchUpAtStartup() {
+        checkpointAsync();
+    }
+
+    @Scheduled(cron = "${balances.checkpoint-cron:0 15 0 * * *}")
+    public void checkpointAsync() {
+        worker.execute(this::checkpoint);
+    }
+
+    @PreDestroy
+    void stop() {
+        worker.shutdownNow();
+    }
+
+    // -----------------------------
+    // Writing checkpoints
+    // -----------------------------
+
+    /**
+     * Writes checkpoints for every day after the last one written, up to yesterday, on every shard.
+     * Safe to repeat: a range's days are deleted and written again in one transaction.
+     */
+    public void checkpoint() {
+        if (!running.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            LocalDate yesterday = LocalDate.now().minusDays(1);
+            shardService.forEachShard(() -> checkpointShard(yesterday));
+        } catch (RuntimeException e) {
+            log.warn("Balance checkpoints failed; the next run continues from the last completed day", e);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private void checkpointShard(LocalDate through) {
+        LocalDate from = progress().map(day -> day.plusDays(1)).orElseGet(() -> {
+            Timestamp first = jdbcTemplate.queryForObject(SELECT_FIRST_DAY, Timestamp.class);
+            return first == null ? through.plusDays(1) : first.toLocalDateTime().toLocalDate();
+        });
+        if (from.isAfter(through)) {
+            return;
+        }
+        long start = System.nanoTime();
+        long[] ids = jdbcTemplate.queryForObject(SELECT_ACCOUNT_IDS,
+                (rs, n) -> new long[]{rs.getLong(1), rs.wasNull() ? -1 : rs.getLong(2)});
+        long total = 0;
+        if (ids != null && ids[1] >= 0) {
+            for (long lo = ids[0]; lo <= ids[1]; lo += rangeSize) {
+                long hi = Math.min(ids[1], lo + rangeSize - 1);
+                long first = lo;
+                Integer count = snapshot.execute(status -> checkpointRange(first, hi, from, through));
+                total += count == null ? 0 : count;
+            }
+        }
+        saveProgress(through);
+        written.increment(total);
+        log.info("Balance checkpoints {} to {}: {} written in {} ms", from, through, total,
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    // Goes back from each account's balance at the end of the window, day by day
+    private int checkpointRange(long lo, long hi, LocalDate from, LocalDate through) {
+        Timestamp windowStart = Timestamp.valueOf(from.atStartOfDay());
+        Timestamp windowEnd = Timestamp.valueOf(through.plusDays(1).atStartOfDay());
+
+        Map<Long, TreeMap<LocalDate, BigDecimal>> deltas = new HashMap<>();
+        jdbcTemplate.query(SELECT_DAILY_DELTAS, rs -> {
+            deltas.computeIfAbsent(rs.getLong("account_id"), id -> new TreeMap<>())
+                    .put(rs.getDate("posting_day").toLocalDate(), rs.getBigDecimal("delta"));
+        }, lo, hi, windowStart, windowEnd);
+
+        List<Object[]> rows = new ArrayList<>();
+        if (!deltas.isEmpty()) {
+            jdbcTemplate.query(SELECT_CLOSING, rs -> {
+                TreeMap<LocalDate, BigDecimal> days = deltas.get(rs.getLong("account_id"));
+                if (days == null) {
+                    return;
+                }
+                BigDecimal balance = rs.getBigDecimal("closing");
+                for (Map.Entry<LocalDate, BigDecimal> day : days.descendingMap().entrySet()) {
+                    rows.add(new Object[]{rs.getLong("account_id"), Date.valueOf(day.getKey()), balance});
+                    balance = balance.subtract(day.getValue());
+                }
+            }, windowEnd, lo, hi);
+        }
+
+        jdbcTemplate.update(DELETE_CHECKPOINTS, lo, hi, Date.valueOf(from), Date.valueOf(through));
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_CHECKPOINT, rows);
+        }
+        return rows.size();
+    }
+
+    private Optional<LocalDate> progress() {
+        return jdbcTemplate.query(SELECT_PROGRESS, (rs, n) -> rs.getDate(1).toLocalDate(), BalanceCheckpointProgress.ID)
+                .stream().findFirst();
+    }
+
+    private void saveProgress(LocalDate through) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        try {
+            if (jdbcTemplate.update(UPDATE_PROGRESS, Date.valueOf(through), now, BalanceCheckpointProgress.ID) == 0) {
+                jdbcTemplate.update(INSERT_PROGRESS, BalanceCheckpointProgress.ID, Date.valueOf(through), now);
+            }
+        } catch (DataAccessException e) {
+            // Another node wrote the same days and got there first
+            log.debug("Balance checkpoint progress already saved", e);
+        }
+    }
+
+    // -----------------------------
+    // Queries
+    // -----------------------------
+
+    /**
+     * The customer owning {@code accountId}, empty if there is no such account.
+     */
+    public Optional<Long> ownerOf(Long accountId) {
+        return shardService.onShard(shardService.shardOf(accountId), () ->
+                jdbcTemplate.query(SELECT_OWNER, (rs, n) -> rs.getLong(1), accountId).stream().findFirst());
+    }
+
+    /**
+     * Balance after every successful posting made at or before {@code at}.
+     */
+    public Money balanceAt(Long accountId, LocalDateTime at) {
+        // Timestamps are stored to the microsecond; the next one is the first excluded
+        LocalDateTime end = at.plusNanos(1000 - at.getNano() % 1000);
+        return shardService.onShard(shardService.shardOf(accountId),
+                () -> readSnapshot.execute(status -> Money.of(balanceBefore(accountId, end))));
+    }
+
+    /**
+     * Closing balance of each day from {@code from} to {@code to}, at most {@link #MAX_SERIES_DAYS} days.
+     */
+    public List<Point> dailyBalances(Long accountId, LocalDate from, LocalDate to) {
+        long days = ChronoUnit.DAYS.between(from, to) + 1;
+        if (days < 1 || days > MAX_SERIES_DAYS) {
+            throw new IllegalArgumentException("The range must cover 1 to " + MAX_SERIES_DAYS + " days");
+        }
+        return shardService.onShard(shardService.shardOf(accountId), () -> readSnapshot.execute(status -> {
+            LocalDateTime start = from.atStartOfDay();
+            BigDecimal balance = balanceBefore(accountId, start);
+            Map<LocalDate, BigDecimal> deltas = new HashMap<>();
+            jdbcTemplate.query(SELECT_DAILY_DELTAS_OF, rs -> {
+                deltas.put(rs.getDate("posting_day").toLocalDate(), rs.getBigDecimal("delta"));
+            }, accountId, Timestamp.valueOf(start), Timestamp.valueOf(to.plusDays(1).atStartOfDay()));
+
+            List<Point> points = new ArrayList<>();
+            for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+                balance = balance.add(deltas.getOrDefault(day, BigDecimal.ZERO));
+                points.add(new Point(day, Money.of(balance)));
+            }
+            return points;
+        }));
+    }
+
+    // Balance from postings strictly before end; must run on the account's shard
+    private BigDecimal balanceBefore(Long accountId, LocalDateTime end) {
+        LocalDate endDay = end.toLocalDate();
+        Optional<Checkpoint> before = checkpoint(SELECT_CHECKPOINT_BEFORE, accountId, endDay);
+        if (before.isPresent()) {
+            // Covers postings before the next day; add the ones from then until end
+            return before.get().balance().add(sumBetween(accountId, before.get().day().plusDays(1).atStartOfDay(), end));
+        }
+        Optional<Checkpoint> after = checkpoint(SELECT_CHECKPOINT_FROM, accountId, endDay);
+        if (after.isPresent()) {
+            return after.get().balance().subtract(sumBetween(accountId, end, after.get().day().plusDays(1).atStartOfDay()));
+        }
+        // Not checkpointed yet: back from the current balance
+        List<BigDecimal> current = jdbcTemplate.query(SELECT_CURRENT, (rs, n) -> rs.getBigDecimal(1),
+                Timestamp.valueOf(end), accountId);
+        return current.isEmpty() ? BigDecimal.ZERO : current.get(0);
+    }
+
+    private Optional<Checkpoint> checkpoint(String sql, Long accountId, LocalDate day) {
+        return jdbcTemplate.query(sql, (rs, n) -> new Checkpoint(rs.getDate(1).toLocalDate(), rs.getBigDecimal(2)),
+                accountId, Date.valueOf(day)).stream().findFirst();
+    }
+
+    private BigDecimal sumBetween(Long accountId, LocalDateTime from, LocalDateTime to) {
+        BigDecimal sum = jdbcTemplate.queryForObject(SUM_BETWEEN, BigDecimal.class, accountId,
+                Timestamp.valueOf(from), Timestamp.valueOf(to));
+        return sum == null ? BigDecimal.ZERO : sum;
+    }
+}
@@ -0,0 +1,581 @@
+package service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import entities.ImportJob;
+import entities.Money;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import repository.ImportJobRepository;
+import util.ImportFileReader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Bulk customer onboarding: imports users, with their customer and an optional opening account,
+ * from an uploaded CSV or NDJSON file, far faster than one registration at a time.
+ * <p>
+ * The file is read in chunks of {@code imports.chunk-size} lines. Per chunk, existing usernames and
+ * e-mail addresses are found with one IN query each, passwords are BCrypt-hashed in parallel (rows
+ * may instead carry a ready {@code passwordHash}), and users, customers and accounts are inserted
+ * with JDBC batches in one transaction per shard. A chunk that fails is replayed row by row so only
+ * the bad rows fail. After each chunk the job's position is committed; an interrupted job resumes
+ * from there (automatically after a restart), and since usernames that already exist are skipped,
+ * replaying a chunk that had been half applied is harmless.
+ */
+@Service
+public class BulkImportService {
+
+    private static final Logger log = LoggerFactory.getLogger(BulkImportService.class);
+
+    private static final Pattern BCRYPT_HASH = Pattern.compile("^\\$2[aby]?\\$\\d{2}\\$[./A-Za-z0-9]{53}$");
+    private static final Set<String> ROLES = Set.of("ROLE_USER", "ROLE_ADMIN");
+    private static final int MAX_FIELD_LENGTH = 255;
+
+    private final ImportJobRepository importJobRepository;
+    private final ShardService shardService;
+    private final ClusterService clusterService;
+    private final CustomerSearchService customerSearchService;
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final PasswordEncoder passwordEncoder;
+    private final ObjectMapper objectMapper;
+    private final Path directory;
+    private final int chunkSize;
+    private final ForkJoinPool hashPool;
+    private final ExecutorService runner;
+
+    private final Set<String> active = ConcurrentHashMap.newKeySet();
+    private volatile boolean running = true;
+
+    private final Counter importedRows;
+    private final Counter skippedRows;
+    private final Counter failedRows;
+
+    public BulkImportService(ImportJobRepository importJobRepository,
+                             ShardService shardService,
+                             ClusterService clusterService,
+                             CustomerSearchService customerSearchService,
+                             JdbcTemplate jdbcTemplate,
+                             NamedParameterJdbcTemplate namedJdbcTemplate,
+                             PlatformTransactionManager transactionManager,
+                             PasswordEncoder passwordEncoder,
+                             ObjectMapper objectMapper,
+                             MeterRegistry meterRegistry,
+                             @Value("${imports.dir:${java.io.tmpdir}/bank-imports}") String directory,
+                             @Value("${imports.chunk-size:1000}") int chunkSize,
+                             @Value("${imports.hash-threads:0}") int hashThreads) {
+        this.importJobRepository = importJobRepository;
+        this.shardService = shardService;
+        this.clusterService = clusterService;
+        this.customerSearchService = customerSearchService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = namedJdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.passwordEncoder = passwordEncoder;
+        this.objectMapper = objectMapper;
+        this.directory = Path.of(directory);
+        this.chunkSize = chunkSize;
+        // BCrypt is the bulk of the work; 0 = one thread per core
+        this.hashPool = new ForkJoinPool(hashThreads > 0 ? hashThreads : Runtime.getRuntime().availableProcessors());
+        this.runner = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "bulk-import");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.importedRows = meterRegistry.counter("imports.rows", "outcome", "imported");
+        this.skippedRows = meterRegistry.counter("imports.rows", "outcome", "skipped");
+        this.failedRows = meterRegistry.counter("imports.rows", "outcome", "failed");
+    }
+
+    // -----------------------------
+    // Jobs
+    // -----------------------------
+
+    /**
+     * Stores the upload and queues its import. Jobs run one at a time.
+     */
+    public ImportJob start(String fileName, String format, InputStream content) throws IOException {
+        if (!ImportFileReader.CSV.equals(format) && !ImportFileReader.NDJSON.equals(format)) {
+            throw new IllegalArgumentException("Unsupported import format: " + format + " (use csv or ndjson)");
+        }
+        String id = UUID.randomUUID().toString();
+        Files.createDirectories(directory);
+        Path file = fileOf(id);
+        Files.copy(content, file);
+
+        ImportJob job = new ImportJob();
+        job.setId(id);
+        job.setFileName(fileName);
+        job.setFormat(format);
+        job.setStatus(ImportJob.RUNNING);
+        job.setNode(clusterService.self().name());
+        job.setTotalLines(ImportFileReader.countLines(file, format));
+        job.setCreatedAt(LocalDateTime.now());
+        job.setUpdatedAt(job.getCreatedAt());
+        job = save(job);
+        submit(id);
+        return job;
+    }
+
+    public Optional<ImportJob> find(String id) {
+        return shardService.onShard(ShardService.DIRECTORY_SHARD, () -> importJobRepository.findById(id));
+    }
+
+    public List<ImportJob> recent() {
+        return shardService.onShard(ShardService.DIRECTORY_SHARD, importJobRepository::findTop50ByOrderByCreatedAtDesc);
+    }
+
+    /**
+     * Continues a failed job from its last committed chunk.
+     */
+    public Optional<ImportJob> resume(String id) {
+        return find(id).map(job -> {
+            if (ImportJob.FAILED.equals(job.getStatus())) {
+                if (!Files.exists(fileOf(id))) {
+                    throw new IllegalStateException("The uploaded file of import " + id + " is gone");
+                }
+                job.setStatus(ImportJob.RUNNING);
+                job.setLastError(null);
+                job.setUpdatedAt(LocalDateTime.now());
+                job = save(job);
+            }
+            if (ImportJob.RUNNING.equals(job.getStatus())) {
+                submit(id);
+            }
+            return job;
+        });
+    }
+
+    // Jobs cut short by a shutdown or crash pick up where they stopped
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeInterrupted() {
+        shardService.onShard(ShardService.DIRECTORY_SHARD,
+                () -> importJobRepository.findByStatusAndNode(ImportJob.RUNNING, clusterService.self().name()))
+                .forEach(job -> {
+                    log.info("Resuming import {} at line {} of {}", job.getId(), job.getLinesDone(), job.getTotalLines());
+                    submit(job.getId());
+                });
+    }
+
+    @PreDestroy
+    void stop() {
+        // The current chunk finishes; the job stays RUNNING and resumes on the next start
+        running = false;
+        runner.shutdown();
+        hashPool.shutdown();
+    }
+
+    private void submit(String id) {
+        if (active.add(id)) {
+            runner.execute(() -> {
+                try {
+                    run(id);
+                } finally {
+                    active.remove(id);
+                }
+            });
+        }
+    }
+
+    private void run(String id) {
+        ImportJob job = find(id).orElse(null);
+        if (job == null || !ImportJob.RUNNING.equals(job.getStatus())) {
+            return;
+        }
+        try (ImportFileReader reader = new ImportFileReader(fileOf(id), job.getFormat(), objectMapper)) {
+            reader.skip(job.getLinesDone());
+            List<ImportFileReader.Record> chunk = new ArrayList<>(chunkSize);
+            while (running) {
+                chunk.clear();
+                ImportFileReader.Record record;
+                while (chunk.size() < chunkSize && (record = reader.next()) != null) {
+                    chunk.add(record);
+                }
+                if (chunk.isEmpty()) {
+                    break;
+                }
+                ChunkResult result = importChunk(chunk);
+                job.setLinesDone(chunk.get(chunk.size() - 1).line());
+                job.setImported(job.getImported() + result.imported);
+                job.setSkipped(job.getSkipped() + result.skipped);
+                job.setFailed(job.getFailed() + result.failed);
+                if (result.lastError != null) {
+                    job.setLastError(truncate(result.lastError, 512));
+                }
+                job.setUpdatedAt(LocalDateTime.now());
+                job = save(job);
+                log.debug("Import {}: {} of {} lines", id, job.getLinesDone(), job.getTotalLines());
+            }
+            if (running) {
+                job.setStatus(ImportJob.COMPLETED);
+                job.setUpdatedAt(LocalDateTime.now());
+                job = save(job);
+                // The file holds passwords; keep it no longer than needed
+                Files.deleteIfExists(fileOf(id));
+                log.info("Import {} completed: {} imported, {} skipped, {} failed",
+                        id, job.getImported(), job.getSkipped(), job.getFailed());
+            }
+        } catch (IOException | RuntimeException e) {
+            if (!running) {
+                // Cut off by shutdown: the last saved chunk is where the next start resumes
+                log.info("Import {} interrupted by shutdown at line {}", id, job.getLinesDone());
+                return;
+            }
+            log.error("Import {} failed at line {}", id, job.getLinesDone(), e);
+            job.setStatus(ImportJob.FAILED);
+            job.setLastError(truncate(String.valueOf(e.getMessage()), 512));
+            job.setUpdatedAt(LocalDateTime.now());
+            save(job);
+        }
+    }
+
+    private ImportJob save(ImportJob job) {
+        return shardService.onShard(ShardService.DIRECTORY_SHARD, () -> importJobRepository.save(job));
+    }
+
+    private Path fileOf(String id) {
+        return directory.resolve(id + ".import");
+    }
+
+    // -----------------------------
+    // Chunks
+    // -----------------------------
+    private ChunkResult importChunk(List<ImportFileReader.Record> chunk) {
+        ChunkResult result = new ChunkResult();
+        Map<String, Row> rows = new LinkedHashMap<>();
+        Set<String> emails = new HashSet<>();
+        for (ImportFileReader.Record record : chunk) {
+            if (record.isBlank()) {
+                continue;
+            }
+            if (record.error() != null) {
+                result.fail(record.error());
+                continue;
+            }
+            try {
+                Row row = Row.parse(record);
+                if (rows.containsKey(row.username)) {
+                    result.skip();
+                } else if (row.email != null && !emails.add(row.email.toLowerCase(Locale.ROOT))) {
+                    result.fail("Line " + row.line + ": e-mail " + row.email + " appears more than once");
+                } else {
+                    rows.put(row.username, row);
+                }
+            } catch (IllegalArgumentException e) {
+                result.fail("Line " + record.line() + ": " + e.getMessage());
+            }
+        }
+
+        Map<Integer, List<Row>> byShard = rows.values().stream()
+                .collect(Collectors.groupingBy(row -> shardService.placeNewUser(row.username), TreeMap::new, Collectors.toList()));
+        byShard.forEach((shard, shardRows) -> shardService.runOnShard(shard, () -> importOnShard(shardRows, result)));
+        if (shardService.isEnabled()) {
+            recordPlacement(byShard);
+        }
+        return result;
+    }
+
+    private void importOnShard(List<Row> rows, ChunkResult result) {
+        Set<String> existing = new HashSet<>(namedJdbcTemplate.queryForList(
+                "SELECT username FROM users WHERE username IN (:usernames)",
+                Map.of("usernames", rows.stream().map(row -> row.username).toList()), String.class));
+        List<Row> fresh = new ArrayList<>(rows.size());
+        for (Row row : rows) {
+            if (existing.contains(row.username)) {
+                // Imported before (or registered meanwhile); a replayed chunk lands here
+                row.placed = true;
+                result.skip();
+            } else {
+                fresh.add(row);
+            }
+        }
+
+        List<String> emails = fresh.stream().filter(row -> row.email != null).map(row -> row.email).toList();
+        if (!emails.isEmpty()) {
+            Set<String> taken = namedJdbcTemplate.queryForList(
+                    "SELECT email FROM users WHERE email IN (:emails) UNION SELECT email FROM customers WHERE email IN (:emails)",
+                    Map.of("emails", emails), String.class).stream()
+                    .map(email -> email.toLowerCase(Locale.ROOT))
+                    .collect(Collectors.toSet());
+            fresh.removeIf(row -> {
+                boolean clash = row.email != null && taken.contains(row.email.toLowerCase(Locale.ROOT));
+                if (clash) {
+                    result.fail("Line " + row.line + ": e-mail " + row.email + " is already in use");
+                }
+                return clash;
+            });
+        }
+        if (fresh.isEmpty()) {
+            return;
+        }
+
+        // Hash outside any transaction so no connection is held while the CPU works
+        hashPool.submit(() -> fresh.parallelStream()
+                .filter(row -> row.passwordHash == null)
+                .forEach(row -> row.passwordHash = passwordEncoder.encode(row.password))).join();
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> insert(fresh));
+            fresh.forEach(row -> row.placed = true);
+            result.imported(fresh.size());
+        } catch (DataAccessException e) {
+            log.debug("Import chunk of {} rolled back ({}); inserting row by row", fresh.size(), e.getMessage());
+            for (Row row : fresh) {
+                try {
+                    transactionTemplate.executeWithoutResult(status -> insert(List.of(row)));
+                    row.placed = true;
+                    result.imported(1);
+                } catch (DataAccessException rowError) {
+                    result.fail("Line " + row.line + ": " + rowError.getMostSpecificCause().getMessage());
+                }
+            }
+        }
+    }
+
+    private void insert(List<Row> rows) {
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO users (username, password, role, first_name, last_name, email, phone, address) "
+                        + "VALUES (?, ?, ?, ?, ?, ?, ?, ?)",
+                rows, rows.size(), (ps, row) -> {
+                    ps.setString(1, row.username);
+                    ps.setString(2, row.passwordHash);
+                    ps.setString(3, row.role);
+                    ps.setString(4, row.firstName);
+                    ps.setString(5, row.lastName);
+                    ps.setString(6, row.email);
+                    ps.setString(7, row.phone);
+                    ps.setString(8, row.address);
+                });
+        Map<String, Long> userIds = idsBy("SELECT username AS k, id AS v FROM users WHERE username IN (:keys)",
+                rows.stream().map(row -> row.username).toList());
+
+        // As at registration, only ROLE_USER gets a customer
+        List<Row> customers = rows.stream().filter(row -> "ROLE_USER".equals(row.role)).toList();
+        if (customers.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO customers (name, email, phone, address, user_id, data_version) VALUES (?, ?, ?, ?, ?, 0)",
+                customers, customers.size(), (ps, row) -> {
+                    Long userId = userIds.get(row.username);
+                    ps.setString(1, row.customerName());
+                    ps.setString(2, row.email != null ? row.email : "u" + userId + "@auto.local");
+                    ps.setString(3, row.phone);
+                    ps.setString(4, row.address);
+                    ps.setLong(5, userId);
+                });
+        Map<String, Long> customerIds = idsBy("SELECT u.username AS k, c.customer_id AS v FROM customers c "
+                + "JOIN users u ON u.id = c.user_id WHERE u.username IN (:keys)",
+                customers.stream().map(row -> row.username).toList());
+        customerSearchService.customersChanged(customerIds.values());
+
+        List<Row> accounts = customers.stream().filter(row -> row.accountType != null).toList();
+        if (!accounts.isEmpty()) {
+            jdbcTemplate.batchUpdate("INSERT INTO accounts (customer_id, account_type, balance) VALUES (?, ?, ?)",
+                    accounts, accounts.size(), (ps, row) -> {
+                        ps.setLong(1, customerIds.get(row.username));
+                        ps.setString(2, row.accountType);
+                        ps.setBigDecimal(3, row.openingBalance.toBigDecimal());
+                    });
+            // Opening balances are booked as OPENING_DEPOSIT transactions, as AccountService.open does
+            List<Row> funded = accounts.stream().filter(row -> row.openingBalance.isPositive()).toList();
+            if (!funded.isEmpty()) {
+                Map<String, Long> accountIds = idsBy("SELECT u.username AS k, a.account_id AS v FROM accounts a "
+                        + "JOIN customers c ON c.customer_id = a.customer_id JOIN users u ON u.id = c.user_id "
+                        + "WHERE u.username IN (:keys)", funded.stream().map(row -> row.username).toList());
+                Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+                jdbcTemplate.batchUpdate("INSERT INTO transactions (account_id, transaction_type, amount, timestamp, status) "
+                                + "VALUES (?, 'OPENING_DEPOSIT', ?, ?, 'SUCCESS')",
+                        funded, funded.size(), (ps, row) -> {
+                            ps.setLong(1, accountIds.get(row.username));
+                            ps.setBigDecimal(2, row.openingBalance.toBigDecimal());
+                            ps.setTimestamp(3, now);
+                        });
+            }
+        }
+    }
+
+    private Map<String, Long> idsBy(String sql, Collection<String> keys) {
+        Map<String, Long> ids = new HashMap<>();
+        namedJdbcTemplate.query(sql, Map.of("keys", keys), (RowCallbackHandler) rs -> ids.put(rs.getString("k"), rs.getLong("v")));
+        return ids;
+    }
+
+    // Directory entries for the chunk's users, including ones a crash left without an entry
+    private void recordPlacement(Map<Integer, List<Row>> byShard) {
+        Map<String, Integer> placed = new HashMap<>();
+        byShard.forEach((shard, rows) -> rows.stream().filter(row -> row.placed)
+                .forEach(row -> placed.put(row.username, shard)));
+        if (placed.isEmpty()) {
+            return;
+        }
+        shardService.runOnShard(ShardService.DIRECTORY_SHARD, () -> {
+            Set<String> known = new HashSet<>(namedJdbcTemplate.queryForList(
+                    "SELECT username FROM user_shards WHERE username IN (:usernames)",
+                    Map.of("usernames", placed.keySet()), String.class));
+            List<Map.Entry<String, Integer>> missing = placed.entrySet().stream()
+                    .filter(entry -> !known.contains(entry.getKey()))
+                    .toList();
+            Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+            jdbcTemplate.batchUpdate("INSERT INTO user_shards (username, shard, created_at) VALUES (?, ?, ?)",
+                    missing, missing.size(), (ps, entry) -> {
+                        ps.setString(1, entry.getKey());
+                        ps.setInt(2, entry.getValue());
+                        ps.setTimestamp(3, now);
+                    });
+        });
+    }
+
+    private static String truncate(String text, int length) {
+        return text.length() <= length ? text : text.substring(0, length);
+    }
+
+    // -----------------------------
+    // Rows
+    // -----------------------------
+    private final class ChunkResult {
+        long imported;
+        long skipped;
+        long failed;
+        String lastError;
+
+        void imported(int count) {
+            imported += count;
+            importedRows.increment(count);
+        }
+
+        void skip() {
+            skipped++;
+            skippedRows.increment();
+        }
+
+        void fail(String error) {
+            failed++;
+            lastError = error;
+            failedRows.increment();
+            log.debug("Import row rejected: {}", error);
+        }
+    }
+
+    /**
+     * One line of the file: username, password or passwordHash, and optionally role, email, firstName,
+     * lastName, phone, address, accountType and openingBalance (an account is opened when either of the
+     * last two is present).
+     */
+    private static final class Row {
+        final long line;
+        final String username;
+        final String password;
+        volatile String passwordHash;
+        final String role;
+        final String email;
+        final String firstName;
+        final String lastName;
+        final String phone;
+        final String address;
+        final String accountType;
+        final Money openingBalance;
+        boolean placed;
+
+        private Row(long line, Map<String, String> fields) {
+            this.line = line;
+            this.username = required(fields, "username");
+            this.password = field(fields, "password");
+            this.passwordHash = field(fields, "passwordHash");
+            this.role = fields.getOrDefault("role", "ROLE_USER").toUpperCase(Locale.ROOT);
+            this.email = field(fields, "email");
+            this.firstName = field(fields, "firstName");
+            this.lastName = field(fields, "lastName");
+            this.phone = field(fields, "phone");
+            this.address = field(fields, "address");
+            String balance = field(fields, "openingBalance");
+            String type = field(fields, "accountType");
+            this.accountType = type != null ? type.toUpperCase(Locale.ROOT) : balance != null ? "SAVINGS" : null;
+            try {
+                this.openingBalance = balance != null ? Money.parse(balance) : Money.ZERO;
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("openingBalance is not an amount: " + balance);
+            }
+        }
+
+        static Row parse(ImportFileReader.Record record) {
+            Row row = new Row(record.line(), record.fields());
+            if (row.password == null && row.passwordHash == null) {
+                throw new IllegalArgumentException("password or passwordHash is required");
+            }
+            if (row.passwordHash != null && !BCRYPT_HASH.matcher(row.passwordHash).matches()) {
+                throw new IllegalArgumentException("passwordHash is not a BCrypt hash");
+            }
+            if (!ROLES.contains(row.role)) {
+                throw new IllegalArgumentException("role must be one of " + ROLES);
+            }
+            if (row.openingBalance.isNegative()) {
+                throw new IllegalArgumentException("openingBalance cannot be negative");
+            }
+            return row;
+        }
+
+        String customerName() {
+            String name = ((firstName != null ? firstName : "") + " " + (lastName != null ? lastName : "")).trim();
+            return name.isEmpty() ? username : truncate(name, MAX_FIELD_LENGTH);
+        }
+
+        private static String required(Map<String, String> fields, String name) {
+            String value = field(fields, name);
+            if (value == null) {
+                throw new IllegalArgumentException(name + " is required");
+            }
+            return value;
+        }
+
+        private static String field(Map<String, String> fields, String name) {
+            String value = fields.get(name);
+            if (value == null || value.isBlank()) {
+                return null;
+            }
+            if (value.length() > MAX_FIELD_LENGTH) {
+                throw new IllegalArgumentException(name + " is longer than " + MAX_FIELD_LENGTH + " characters");
+            }
+            return value.trim();
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import repository.CustomerRepository;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-customer change counter behind the strong ETags of the dashboard reads.
+ * The counter lives in {@code customers.data_version} and is bumped together with every change;
+ * reads are served from a local cache so a matching {@code If-None-Match} normally costs no query.
+ * Local bumps evict immediately; bumps made by other instances are seen after {@code etag.version-cache-ttl-ms}.
+ */
+@Service
+public class ChangeVersionService {
+
+    private static final int CACHE_LIMIT = 100_000;
+
+    private final CustomerRepository customerRepository;
+    private final ShardService shardService;
+    private final long cacheTtlNanos;
+
+    private final Map<Long, CachedVersion> versions = new ConcurrentHashMap<>();
+    // username -> customerId never changes once the customer exists
+    private final Map<String, Long> customerIds = new ConcurrentHashMap<>();
+
+    public ChangeVersionService(CustomerRepository customerRepository,
+                                ShardService shardService,
+                                @Value("${etag.version-cache-ttl-ms:2000}") long cacheTtlMs) {
+        this.customerRepository = customerRepository;
+        this.shardService = shardService;
+        this.cacheTtlNanos = TimeUnit.MILLISECONDS.toNanos(cacheTtlMs);
+    }
+
+    public Optional<Long> customerIdFor(String username) {
+        Long cached = customerIds.get(username);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        // Also called from worker threads, so route explicitly rather than trust the thread's shard
+        Optional<Long> customerId = shardService.shardOfUser(username)
+                .flatMap(shard -> shardService.onShard(shard, () -> customerRepository.findCustomerIdByUsername(username)));
+        customerId.ifPresent(id -> remember(customerIds, username, id));
+        return customerId;
+    }
+
+    /**
+     * Strong ETag for one of the customer's resources, e.g. {@code "accounts-42-17"}.
+     */
+    public String etag(String resource, Long customerId) {
+        return etag(resource, customerId, version(customerId));
+    }
+
+    // Also used by readers that load the version themselves (the reactive endpoints)
+    public static String etag(String resource, Long customerId, long version) {
+        return "\"" + resource + "-" + customerId + "-" + version + "\"";
+    }
+
+    public long version(Long customerId) {
+        CachedVersion cached = versions.get(customerId);
+        long now = System.nanoTime();
+        if (cached != null && now - cached.loadedAt < cacheTtlNanos) {
+            return cached.version;
+        }
+        long version = shardService.onShard(shardService.shardOf(customerId),
+                () -> customerRepository.findDataVersion(customerId)).orElse(0L);
+        remember(versions, customerId, new CachedVersion(version, now));
+        return version;
+    }
+
+    // -----------------------------
+    // Invalidation (called next to every write, inside its transaction and so on the customer's shard)
+    // -----------------------------
+    public void bump(Long customerId) {
+        if (customerId == null) {
+            return;
+        }
+        customerRepository.incrementDataVersion(customerId);
+        evictAfterCommit(customerId);
+    }
+
+    public void bumpForUser(Long userId) {
+        customerRepository.findCustomerIdByUserId(userId).ifPresent(this::bump);
+    }
+
+    // Evicting before commit would let a concurrent read re-cache the old version
+    private void evictAfterCommit(Long customerId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    versions.remove(customerId);
+                }
+            });
+        } else {
+            versions.remove(customerId);
+        }
+    }
+
+    private static <K, V> void remember(Map<K, V> cache, K key, V value) {
+        if (cache.size() >= CACHE_LIMIT) {
+            cache.clear();
+        }
+        cache.put(key, value);
+    }
+
+    private record CachedVersion(long version, long loadedAt) {
+    }
+}
@@ -0,0 +1,174 @@
+package service;
+
+import entities.Account;
+import entities.Money;
+import entities.Transaction;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import util.BankPrincipal;
+import util.IntentClassifier;
+
+import java.time.format.DateTimeFormatter;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Answers the chat questions the bank can answer itself — balances, recent transactions, how to
+ * transfer — from the customer's own data, in microseconds and without a Gemini call. Messages the
+ * {@link IntentClassifier} does not clearly recognize go to the model as before.
+ * <p>
+ * {@code chat.requests{route=fast|llm}} gives the fast-path hit rate, {@code chat.intents{intent}}
+ * what it answered.
+ */
+@Service
+public class ChatIntentRouter {
+
+    enum Intent { BALANCE, RECENT_TRANSACTIONS, HOW_TO_TRANSFER }
+
+    private static final int RECENT_LIMIT = 5;
+    private static final DateTimeFormatter WHEN = DateTimeFormatter.ofPattern("dd MMM yyyy HH:mm");
+    private static final String TRANSFER_HELP = """
+            To transfer money, open Transfer in the sidebar. On the Transfer Funds page pick the account \
+            to pay from (From Account), enter the account number to pay into (To Account) and the Amount (₹), \
+            then submit. The money leaves your account at once and shows under Transactions for both accounts.""";
+    private static final String LOG_IN = "Please log in so I can look up your accounts.";
+
+    private final AccountService accountService;
+    private final TransactionService transactionService;
+    private final IntentClassifier<Intent> classifier;
+    private final Counter fastRoute;
+    private final Counter llmRoute;
+    private final Map<Intent, Counter> byIntent = new EnumMap<>(Intent.class);
+
+    public ChatIntentRouter(AccountService accountService,
+                            TransactionService transactionService,
+                            MeterRegistry meterRegistry,
+                            @Value("${chat.intents.min-score:2.5}") double minScore,
+                            @Value("${chat.intents.min-margin:1.0}") double minMargin,
+                            @Value("${chat.intents.max-words:12}") int maxWords) {
+        this.accountService = accountService;
+        this.transactionService = transactionService;
+        this.classifier = keywords(IntentClassifier.builder(List.of(Intent.values())))
+                .minScore(minScore)
+                .minMargin(minMargin)
+                .maxWords(maxWords)
+                .build();
+        this.fastRoute = meterRegistry.counter("chat.requests", "route", "fast");
+        this.llmRoute = meterRegistry.counter("chat.requests", "route", "llm");
+        for (Intent intent : Intent.values()) {
+            byIntent.put(intent, meterRegistry.counter("chat.intents", "intent", intent.name().toLowerCase()));
+        }
+    }
+
+    // Strong words score 2-3, supporting words 0.5-1; "why"/"explain" style words point at the model
+    private static IntentClassifier.Builder<Intent> keywords(IntentClassifier.Builder<Intent> builder) {
+        return builder
+                .keyword("balance*", Intent.BALANCE, 3)
+                .keyword("bal", Intent.BALANCE, 2)
+                .keyword("much", Intent.BALANCE, 1.5)
+                .keyword("money", Intent.BALANCE, 0.5)
+                .keyword("funds", Intent.BALANCE, 0.5)
+                .keyword("left", Intent.BALANCE, 1)
+                .keyword("have", Intent.BALANCE, 0.5)
+                .keyword("available", Intent.BALANCE, 1)
+                .keyword("account*", Intent.BALANCE, 0.5)
+                .keyword("check", Intent.BALANCE, 0.5)
+
+                .keyword("transaction*", Intent.RECENT_TRANSACTIONS, 3)
+                .keyword("txn*", Intent.RECENT_TRANSACTIONS, 3)
+                .keyword("history", Intent.RECENT_TRANSACTIONS, 2)
+                .keyword("statement", Intent.RECENT_TRANSACTIONS, 1)
+                .keyword("payments", Intent.RECENT_TRANSACTIONS, 1.5)
+                .keyword("activity", Intent.RECENT_TRANSACTIONS, 1.5)
+                .keyword("last", Intent.RECENT_TRANSACTIONS, 1)
+                .keyword("recent*", Intent.RECENT_TRANSACTIONS, 1)
+                .keyword("latest", Intent.RECENT_TRANSACTIONS, 1)
+                .keyword("show", Intent.RECENT_TRANSACTIONS, 0.5)
+
+                .keyword("transfer*", Intent.HOW_TO_TRANSFER, 2.5)
+                .keyword("send", Intent.HOW_TO_TRANSFER, 2)
+                .keyword("move", Intent.HOW_TO_TRANSFER, 1)
+                .keyword("pay", Intent.HOW_TO_TRANSFER, 1)
+                .keyword("how", Intent.HOW_TO_TRANSFER, 1)
+                .keyword("can", Intent.HOW_TO_TRANSFER, 0.5)
+                .keyword("do", Intent.HOW_TO_TRANSFER, 0.5)
+                .keyword("money", Intent.HOW_TO_TRANSFER, 0.5)
+                .keyword("another", Intent.HOW_TO_TRANSFER, 0.5)
+                // "how much" asks for a balance, "how many transactions" for history
+                .keyword("much", Intent.HOW_TO_TRANSFER, -1)
+                .keyword("many", Intent.HOW_TO_TRANSFER, -1)
+                // A transfer that went wrong needs a real answer, not the how-to
+                .keyword("fail*", Intent.HOW_TO_TRANSFER, -2)
+                .keyword("why", Intent.HOW_TO_TRANSFER, -2)
+
+                .keyword("why", Intent.BALANCE, -2)
+                .keyword("why", Intent.RECENT_TRANSACTIONS, -2)
+                .keyword("explain", Intent.BALANCE, -2)
+                .keyword("explain", Intent.RECENT_TRANSACTIONS, -2)
+                .keyword("explain", Intent.HOW_TO_TRANSFER, -2)
+                .keyword("interest", Intent.BALANCE, -2)
+                .keyword("loan*", Intent.BALANCE, -2)
+                .keyword("loan*", Intent.HOW_TO_TRANSFER, -2);
+    }
+
+    /**
+     * @return the answer for a recognized intent, or empty when the message should go to the model.
+     * A null {@code principal} (anonymous caller) gets a log-in prompt for the account intents.
+     */
+    public Optional<String> answer(String message, BankPrincipal principal) {
+        Optional<IntentClassifier.Match<Intent>> match = message == null ? Optional.empty() : classifier.classify(message);
+        if (match.isEmpty()) {
+            llmRoute.increment();
+            return Optional.empty();
+        }
+        Intent intent = match.get().intent();
+        fastRoute.increment();
+        byIntent.get(intent).increment();
+        return Optional.of(switch (intent) {
+            case BALANCE -> principal == null || principal.customerId() == null ? LOG_IN : balances(principal.customerId());
+            case RECENT_TRANSACTIONS -> principal == null || principal.customerId() == null ? LOG_IN : recent(principal.customerId());
+            case HOW_TO_TRANSFER -> TRANSFER_HELP;
+        });
+    }
+
+    private String balances(Long customerId) {
+        List<Account> accounts = accountService.findByCustomerId(customerId);
+        if (accounts.isEmpty()) {
+            return "You don't have any accounts yet. You can open one from the Accounts page.";
+        }
+        StringBuilder reply = new StringBuilder(accounts.size() == 1 ? "Your balance:" : "Your balances:");
+        Money total = Money.ZERO;
+        for (Account account : accounts) {
+            reply.append("\n• ").append(account.getAccountType()).append(" #").append(account.getAccountId())
+                    .append(": ₹").append(account.getBalance());
+            total = total.plus(account.getBalance());
+        }
+        if (accounts.size() > 1) {
+            reply.append("\nTotal: ₹").append(total);
+        }
+        return reply.toString();
+    }
+
+    private String recent(Long customerId) {
+        List<Transaction> transactions = transactionService.findRecentByCustomerId(customerId, RECENT_LIMIT);
+        if (transactions.isEmpty()) {
+            return "You don't have any transactions yet.";
+        }
+        StringBuilder reply = new StringBuilder("Your last ").append(transactions.size())
+                .append(transactions.size() == 1 ? " transaction:" : " transactions:");
+        for (Transaction transaction : transactions) {
+            reply.append("\n• ").append(transaction.getTimestamp().format(WHEN))
+                    .append(" ").append(transaction.getTransactionType())
+                    .append(" ₹").append(transaction.getAmount())
+                    .append(" (account #").append(transaction.getAccount().getAccountId()).append(")");
+            if (!"SUCCESS".equalsIgnoreCase(transaction.getStatus())) {
+                reply.append(" — ").append(transaction.getStatus());
+            }
+        }
+        return reply.toString();
+    }
+}
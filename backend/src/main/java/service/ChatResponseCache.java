@@ -0,0 +1,144 @@
+package service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import util.SimilarityCache;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+/**
+ * Gemini answers to generic questions, shared between users: an exact or near-duplicate prompt
+ * ({@link SimilarityCache}) gets the stored answer instead of a new upstream call.
+ * <p>
+ * Only answers that cannot be about one customer are stored. Balance and transaction questions are
+ * answered by {@link ChatIntentRouter} and never get here; beyond that a prompt or answer with a run of
+ * four or more digits (account, phone or card numbers), an email address or a currency amount is not
+ * stored, and neither are upstream errors.
+ * <p>
+ * With {@code chat.cache.file} set, the entries are written there on shutdown and read back at startup.
+ */
+@Service
+public class ChatResponseCache {
+
+    private static final Logger log = LoggerFactory.getLogger(ChatResponseCache.class);
+
+    private static final Pattern PERSONAL = Pattern.compile("\\d{4,}|@|[₹$€£]\\s?\\d|\\d\\s?(rs|inr|usd)\\b",
+            Pattern.CASE_INSENSITIVE);
+
+    private record Line(String prompt, String response, long expiresAt) {
+    }
+
+    private final SimilarityCache<String> cache;
+    private final ObjectMapper objectMapper;
+    private final Path file;
+    private final Counter exactHits;
+    private final Counter similarHits;
+    private final Counter misses;
+    private final Counter notStored;
+
+    public ChatResponseCache(ObjectMapper objectMapper,
+                             MeterRegistry meterRegistry,
+                             @Value("${chat.cache.max-entries:2000}") int maxEntries,
+                             @Value("${chat.cache.ttl-ms:21600000}") long ttlMs,
+                             @Value("${chat.cache.similarity:0.85}") double similarity,
+                             @Value("${chat.cache.file:}") String file) {
+        this.cache = new SimilarityCache<>(maxEntries, ttlMs, similarity);
+        this.objectMapper = objectMapper;
+        this.file = file.isBlank() ? null : Path.of(file);
+        this.exactHits = meterRegistry.counter("chat.cache", "result", "exact");
+        this.similarHits = meterRegistry.counter("chat.cache", "result", "similar");
+        this.misses = meterRegistry.counter("chat.cache", "result", "miss");
+        this.notStored = meterRegistry.counter("chat.cache.skipped");
+        Gauge.builder("chat.cache.size", cache, SimilarityCache::size)
+                .description("Cached chat answers")
+                .register(meterRegistry);
+        load();
+    }
+
+    public Optional<String> get(String prompt) {
+        Optional<SimilarityCache.Hit<String>> hit = cache.get(prompt);
+        if (hit.isEmpty()) {
+            misses.increment();
+            return Optional.empty();
+        }
+        (hit.get().exact() ? exactHits : similarHits).increment();
+        return Optional.of(hit.get().value());
+    }
+
+    /**
+     * Stores {@code response} unless it or the prompt may be personal.
+     */
+    public void put(String prompt, String response) {
+        if (!isShareable(prompt) || !isShareable(response)) {
+            notStored.increment();
+            return;
+        }
+        cache.put(prompt, response);
+    }
+
+    static boolean isShareable(String text) {
+        return text != null && !text.isBlank() && !PERSONAL.matcher(text).find();
+    }
+
+    // -----------------------------
+    // Persistence
+    // -----------------------------
+    private void load() {
+        if (file == null || !Files.exists(file)) {
+            return;
+        }
+        int loaded = 0;
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String text;
+            while ((text = in.readLine()) != null) {
+                if (text.isBlank()) {
+                    continue;
+                }
+                Line line = objectMapper.readValue(text, Line.class);
+                cache.put(line.prompt(), line.response(), line.expiresAt());
+                loaded++;
+            }
+            log.info("Loaded {} cached chat answers from {}", loaded, file);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Cannot read the chat cache {}; starting with what was read ({} entries)", file, loaded, e);
+        }
+    }
+
+    @PreDestroy
+    void save() {
+        if (file == null) {
+            return;
+        }
+        Path partial = file.resolveSibling(file.getFileName() + ".part");
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            try (Writer out = Files.newBufferedWriter(partial, StandardCharsets.UTF_8)) {
+                for (SimilarityCache.Stored<String> entry : cache.entries()) {
+                    out.write(objectMapper.writeValueAsString(
+                            new Line(entry.key(), entry.value(), entry.expiresAtMillis())));
+                    out.write('\n');
+                }
+            }
+            Files.move(partial, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("Cannot write the chat cache to {}", file, e);
+        }
+    }
+}
@@ -1,24 +1,136 @@
 package service;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.http.*;
+import util.BankPrincipal;
+import util.SimilarityCache;
 
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Chat assistant backed by Gemini.
+ * <p>
+ * Calls run on a dedicated, bounded pool ({@code chat.threads} threads, {@code chat.queue-capacity}
+ * waiting), never on Tomcat's request threads: a slow upstream can fill this pool, but not the
+ * threads that serve logins and postings. When the pool is full {@link #ask} fails at once with
+ * {@link RejectedExecutionException}.
+ * <p>
+ * Questions {@link ChatIntentRouter} recognizes (balance, recent transactions, how to transfer) are
+ * answered on the caller's thread from the bank's own data and never reach the pool. Other questions
+ * are looked up in {@link ChatResponseCache} first, and concurrent calls for the same normalized
+ * prompt share one upstream call.
+ */
 @Service
 public class ChatbotService {
 
-    @Value("${gemini.api.key}")
-    private String geminiApiKey;
+    private final String geminiUrl;
+    private final String geminiApiKey;
+    private final RestTemplate restTemplate;
+    private final ThreadPoolExecutor chatExecutor;
+    private final Counter rejected;
+    private final Counter coalesced;
+    private final ChatIntentRouter intentRouter;
+    private final ChatResponseCache responseCache;
+    // Upstream calls in progress, by normalized prompt
+    private final ConcurrentHashMap<String, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
 
-    private static final String GEMINI_URL =
-        "https://generativelanguage.googleapis.com/v1beta/models/gemini-flash-latest:generateMessage?key=";
+    public ChatbotService(ChatIntentRouter intentRouter,
+                          ChatResponseCache responseCache,
+                          @Value("${gemini.api.key}") String geminiApiKey,
+                          @Value("${gemini.api.url:https://generativelanguage.googleapis.com/v1beta/models/gemini-flash-latest:generateMessage}") String geminiUrl,
+                          @Value("${chat.threads:8}") int threads,
+                          @Value("${chat.queue-capacity:50}") int queueCapacity,
+                          @Value("${chat.connect-timeout-ms:2000}") int connectTimeoutMs,
+                          @Value("${chat.read-timeout-ms:20000}") int readTimeoutMs,
+                          MeterRegistry meterRegistry) {
+        this.intentRouter = intentRouter;
+        this.responseCache = responseCache;
+        this.geminiApiKey = geminiApiKey;
+        this.geminiUrl = geminiUrl;
+
+        // One client for all calls, with timeouts so a hung upstream frees its thread
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(connectTimeoutMs);
+        requestFactory.setReadTimeout(readTimeoutMs);
+        this.restTemplate = new RestTemplate(requestFactory);
+
+        AtomicInteger threadIds = new AtomicInteger();
+        this.chatExecutor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), r -> {
+                    Thread thread = new Thread(r, "chat-" + threadIds.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+
+        meterRegistry.gauge("chat.pool.active", chatExecutor, ThreadPoolExecutor::getActiveCount);
+        meterRegistry.gaugeCollectionSize("chat.queue.depth", List.of(), chatExecutor.getQueue());
+        this.rejected = meterRegistry.counter("chat.rejected");
+        this.coalesced = meterRegistry.counter("chat.coalesced");
+    }
+
+    /**
+     * Answers a recognized intent or a cached question at once, anything else on the chat pool. The
+     * future fails with {@link RejectedExecutionException} when the pool is full. {@code principal} is
+     * null for anonymous callers.
+     */
+    public CompletableFuture<String> ask(String userMessage, BankPrincipal principal) {
+        Optional<String> local = intentRouter.answer(userMessage, principal);
+        if (local.isPresent()) {
+            return CompletableFuture.completedFuture(local.get());
+        }
+        Optional<String> cached = responseCache.get(userMessage);
+        if (cached.isPresent()) {
+            return CompletableFuture.completedFuture(cached.get());
+        }
+
+        String key = SimilarityCache.normalize(userMessage);
+        CompletableFuture<String> started = new CompletableFuture<>();
+        CompletableFuture<String> shared = inFlight.putIfAbsent(key, started);
+        if (shared != null) {
+            coalesced.increment();
+            // A copy, so one caller's timeout does not fail the others
+            return shared.copy();
+        }
+        try {
+            CompletableFuture.supplyAsync(() -> getResponse(userMessage), chatExecutor)
+                    .whenComplete((answer, error) -> {
+                        inFlight.remove(key, started);
+                        if (error != null) {
+                            started.completeExceptionally(error);
+                        } else {
+                            started.complete(answer);
+                        }
+                    });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            inFlight.remove(key, started);
+            started.completeExceptionally(e);
+        }
+        return started.copy();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        chatExecutor.shutdownNow();
+    }
 
     public String getResponse(String userMessage) {
-        RestTemplate restTemplate = new RestTemplate();
-        String url = GEMINI_URL + geminiApiKey;
+        String url = geminiUrl + "?key=" + geminiApiKey;
 
         // Corrected request body for Gemini generateMessage
         Map<String, Object> requestBody = Map.of(
@@ -42,7 +154,10 @@ public class ChatbotService {
                 java.util.List outputs = (java.util.List) candidate.get("output");
                 if (outputs != null && !outputs.isEmpty()) {
                     Map firstOutput = (Map) outputs.get(0);
-                    return (String) firstOutput.get("content");
+                    String content = (String) firstOutput.get("content");
+                    // Only real answers are cached, never the fallback messages below
+                    responseCache.put(userMessage, content);
+                    return content;
                 }
             }
             return "No response from Gemini API.";
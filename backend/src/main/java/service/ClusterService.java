@@ -0,0 +1,248 @@
+package service;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.client.DefaultResponseErrorHandler;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+import util.ConsistentHashRing;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cluster mode ({@code cluster.enabled}): every account is owned by one node, chosen by consistent
+ * hashing on its id, and only the owner moves its money. Other nodes forward such requests to it,
+ * so row-lock contention and idempotency coalescing stay inside one JVM. Nodes call each other over
+ * HTTP; internal endpoints require {@code X-Cluster-Token}.
+ * <p>
+ * Disabled, every account is local and nothing here does any work.
+ */
+@Service
+public class ClusterService {
+
+    public static final String TOKEN_HEADER = "X-Cluster-Token";
+    public static final String FORWARDED_HEADER = "X-Cluster-Forwarded";
+
+    // Request headers worth passing on, and response headers worth passing back
+    private static final List<String> FORWARDED_REQUEST_HEADERS = List.of(
+            HttpHeaders.AUTHORIZATION, HttpHeaders.CONTENT_TYPE, "Idempotency-Key", "Prefer");
+    private static final List<String> RELAYED_RESPONSE_HEADERS = List.of(
+            HttpHeaders.CONTENT_TYPE, HttpHeaders.LOCATION, HttpHeaders.RETRY_AFTER,
+            "Idempotent-Replayed", "Preference-Applied");
+
+    private static final Logger log = LoggerFactory.getLogger(ClusterService.class);
+
+    public record Node(String name, String baseUrl) {
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    private final boolean enabled;
+    private final Node self;
+    private final List<Node> peers;
+    private final ConsistentHashRing<Node> ring;
+    private final byte[] token;
+    private final RestTemplate restTemplate;
+    private final ThreadPoolExecutor broadcaster;
+
+    public ClusterService(@Value("${cluster.enabled:false}") boolean enabled,
+                          @Value("${cluster.self:}") String selfName,
+                          @Value("${cluster.nodes:}") String nodes,
+                          @Value("${cluster.token:}") String token,
+                          @Value("${cluster.virtual-nodes:128}") int virtualNodes,
+                          @Value("${cluster.connect-timeout-ms:1000}") int connectTimeoutMs,
+                          @Value("${cluster.read-timeout-ms:35000}") int readTimeoutMs) {
+        this.enabled = enabled;
+        this.token = token.getBytes(StandardCharsets.UTF_8);
+
+        List<Node> members = parseNodes(nodes);
+        if (!enabled) {
+            this.self = new Node(selfName.isBlank() ? "local" : selfName, "");
+            this.peers = List.of();
+            this.ring = new ConsistentHashRing<>(List.of(self), 1);
+        } else {
+            if (token.isBlank()) {
+                throw new IllegalStateException("cluster.token must be set when cluster.enabled=true");
+            }
+            this.self = members.stream().filter(node -> node.name().equals(selfName)).findFirst()
+                    .orElseThrow(() -> new IllegalStateException("cluster.self '" + selfName + "' is not in cluster.nodes"));
+            this.peers = members.stream().filter(node -> node != self).toList();
+            this.ring = new ConsistentHashRing<>(members, virtualNodes);
+            log.info("Cluster mode: {} of {}", self.name(), members);
+        }
+
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(connectTimeoutMs);
+        // Covers forwarded long-polls (up to 30s)
+        requestFactory.setReadTimeout(readTimeoutMs);
+        this.restTemplate = new RestTemplate(requestFactory);
+        // Statuses are relayed or interpreted by the caller, not thrown
+        this.restTemplate.setErrorHandler(new DefaultResponseErrorHandler() {
+            @Override
+            public boolean hasError(ClientHttpResponse response) {
+                return false;
+            }
+        });
+
+        // Live-event relay is best effort: a full queue drops events rather than slowing postings
+        this.broadcaster = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(1000),
+                r -> {
+                    Thread thread = new Thread(r, "cluster-broadcast");
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.DiscardPolicy());
+    }
+
+    private static List<Node> parseNodes(String nodes) {
+        List<Node> members = new ArrayList<>();
+        for (String entry : nodes.split(",")) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            String[] parts = entry.trim().split("=", 2);
+            if (parts.length != 2) {
+                throw new IllegalStateException("cluster.nodes entries must look like name=http://host:port: " + entry);
+            }
+            String baseUrl = parts[1].trim();
+            members.add(new Node(parts[0].trim(), baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl));
+        }
+        return members;
+    }
+
+    // -----------------------------
+    // Ownership
+    // -----------------------------
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Node self() {
+        return self;
+    }
+
+    public Node ownerOf(Long accountId) {
+        return enabled ? ring.nodeFor(accountId) : self;
+    }
+
+    public boolean isLocal(Long accountId) {
+        return ownerOf(accountId) == self;
+    }
+
+    /**
+     * The node that must handle {@code accountId}, when that is not this one.
+     */
+    public Optional<Node> remoteOwner(Long accountId) {
+        Node owner = ownerOf(accountId);
+        return owner == self ? Optional.empty() : Optional.of(owner);
+    }
+
+    public Optional<Node> node(String name) {
+        return ring.nodes().stream().filter(node -> node.name().equals(name)).findFirst();
+    }
+
+    // -----------------------------
+    // Forwarding client requests
+    // -----------------------------
+    public static boolean isForwarded(HttpServletRequest request) {
+        return request.getHeader(FORWARDED_HEADER) != null;
+    }
+
+    /**
+     * Replays the client's request on {@code owner} and relays its answer.
+     */
+    public ResponseEntity<?> forward(Node owner, HttpServletRequest request, Object body) {
+        HttpHeaders headers = new HttpHeaders();
+        for (String name : FORWARDED_REQUEST_HEADERS) {
+            String value = request.getHeader(name);
+            if (value != null) {
+                headers.set(name, value);
+            }
+        }
+        // Loop guard: the receiver handles the request even if its view of the ring differs
+        headers.set(FORWARDED_HEADER, self.name());
+
+        String query = request.getQueryString();
+        String url = owner.baseUrl() + request.getRequestURI() + (query != null ? "?" + query : "");
+        try {
+            ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.valueOf(request.getMethod()),
+                    new HttpEntity<>(body, headers), String.class);
+            HttpHeaders relayed = new HttpHeaders();
+            for (String name : RELAYED_RESPONSE_HEADERS) {
+                List<String> values = response.getHeaders().get(name);
+                if (values != null) {
+                    relayed.put(name, values);
+                }
+            }
+            return new ResponseEntity<>(response.getBody(), relayed, response.getStatusCode());
+        } catch (RestClientException e) {
+            log.warn("Forwarding {} {} to {} failed: {}", request.getMethod(), request.getRequestURI(), owner, e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_GATEWAY)
+                    .body(Map.of("success", false, "error", "Account owner node " + owner + " is unreachable"));
+        }
+    }
+
+    // -----------------------------
+    // Node-to-node calls
+    // -----------------------------
+
+    /**
+     * POSTs to an internal endpoint of {@code node}; throws {@link RestClientException} when the outcome is unknown.
+     */
+    public ResponseEntity<Map> callInternal(Node node, String path, Object body) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.set(TOKEN_HEADER, new String(token, StandardCharsets.UTF_8));
+        return restTemplate.postForEntity(node.baseUrl() + path, new HttpEntity<>(body, headers), Map.class);
+    }
+
+    public boolean isValidToken(String presented) {
+        return enabled && presented != null
+                && MessageDigest.isEqual(token, presented.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Live stream subscribers may be connected to any node; relay committed postings to the others
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onTransactionPosted(TransactionPostedEvent event) {
+        for (Node peer : peers) {
+            broadcaster.execute(() -> {
+                try {
+                    callInternal(peer, "/internal/cluster/events", event);
+                } catch (RestClientException e) {
+                    log.debug("Event relay to {} failed: {}", peer, e.getMessage());
+                }
+            });
+        }
+    }
+
+    public Map<String, Object> describe() {
+        Map<String, Object> view = new LinkedHashMap<>();
+        view.put("enabled", enabled);
+        view.put("self", self.name());
+        view.put("nodes", ring.nodes().stream().map(Node::name).toList());
+        return view;
+    }
+}
@@ -0,0 +1,245 @@
+package service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import repository.CustomerRepository;
+import util.SearchIndex;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Search over customers by partial name, username, e-mail or phone, with typo tolerance on names,
+ * answered from an in-memory {@link SearchIndex} instead of {@code LIKE '%x%'} scans.
+ * <p>
+ * The index is loaded from every shard at startup and reloaded every {@code search.rebuild-ms}, which
+ * also picks up changes made by other instances. Local changes are queued after commit by
+ * {@link #customerChanged} / {@link #userChanged} and applied within {@code search.refresh-ms}. Loading
+ * and refreshing share one thread, so a change made during a reload is applied after it.
+ */
+@Service
+public class CustomerSearchService {
+
+    private static final Logger log = LoggerFactory.getLogger(CustomerSearchService.class);
+
+    private static final String SELECT_CUSTOMERS = "SELECT c.customer_id, c.name, c.email, c.phone, "
+            + "u.username, u.first_name, u.last_name, u.email AS user_email, u.phone AS user_phone "
+            + "FROM customers c LEFT JOIN users u ON u.id = c.user_id";
+    private static final Pattern PHONE_QUERY = Pattern.compile("[+()\\d\\s.-]+");
+    private static final Pattern NON_DIGITS = Pattern.compile("\\D+");
+    private static final Pattern EMAIL_SEPARATORS = Pattern.compile("[._+-]+");
+
+    public record CustomerDocument(long customerId, String name, String username, String email, String phone) {
+    }
+
+    private final ShardService shardService;
+    private final CustomerRepository customerRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final long rebuildMs;
+    private final long refreshMs;
+    private final ScheduledExecutorService worker;
+
+    private volatile SearchIndex<CustomerDocument> index = new SearchIndex<>();
+    private volatile boolean ready;
+    private final Set<Long> pending = ConcurrentHashMap.newKeySet();
+
+    public CustomerSearchService(ShardService shardService,
+                                 CustomerRepository customerRepository,
+                                 JdbcTemplate jdbcTemplate,
+                                 NamedParameterJdbcTemplate namedJdbcTemplate,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${search.rebuild-ms:600000}") long rebuildMs,
+                                 @Value("${search.refresh-ms:250}") long refreshMs) {
+        this.shardService = shardService;
+        this.customerRepository = customerRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = namedJdbcTemplate;
+        this.rebuildMs = rebuildMs;
+        this.refreshMs = refreshMs;
+        this.worker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "customer-search");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        Gauge.builder("search.index.documents", this, service -> service.index.size())
+                .description("Customers in the search index")
+                .register(meterRegistry);
+    }
+
+    // Loaded off the startup path; searches answer from whatever is indexed meanwhile
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        worker.scheduleWithFixedDelay(this::rebuild, 0, rebuildMs, TimeUnit.MILLISECONDS);
+        worker.scheduleWithFixedDelay(this::refreshPending, refreshMs, refreshMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        worker.shutdownNow();
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public SearchIndex.Page<CustomerDocument> search(String query, int page, int size) {
+        String text = query == null ? "" : query.trim();
+        if (PHONE_QUERY.matcher(text).matches()) {
+            String digits = NON_DIGITS.matcher(text).replaceAll("");
+            // "+1 (555) 123-45" searches the digits, as phones are indexed
+            if (digits.length() >= 3) {
+                text = digits;
+            }
+        }
+        return index.search(text, (long) page * size, size);
+    }
+
+    // -----------------------------
+    // Change notification (called next to writes; applied after commit)
+    // -----------------------------
+    public void customerChanged(Long customerId) {
+        if (customerId != null) {
+            afterCommit(List.of(customerId));
+        }
+    }
+
+    public void customersChanged(Collection<Long> customerIds) {
+        if (!customerIds.isEmpty()) {
+            afterCommit(List.copyOf(customerIds));
+        }
+    }
+
+    // On the user's shard, like ChangeVersionService.bumpForUser
+    public void userChanged(Long userId) {
+        customerRepository.findCustomerIdByUserId(userId).ifPresent(this::customerChanged);
+    }
+
+    private void afterCommit(List<Long> customerIds) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    pending.addAll(customerIds);
+                }
+            });
+        } else {
+            pending.addAll(customerIds);
+        }
+    }
+
+    // -----------------------------
+    // Loading
+    // -----------------------------
+    private void rebuild() {
+        try {
+            long start = System.nanoTime();
+            SearchIndex<CustomerDocument> fresh = new SearchIndex<>();
+            shardService.forEachShard(() -> jdbcTemplate.query(connection -> {
+                PreparedStatement statement = connection.prepareStatement(SELECT_CUSTOMERS + " ORDER BY c.customer_id");
+                statement.setFetchSize(1000);
+                return statement;
+            }, (RowCallbackHandler) rs -> put(fresh, rs)));
+            index = fresh;
+            ready = true;
+            log.info("Customer search index loaded: {} customers in {} ms",
+                    fresh.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (RuntimeException e) {
+            log.warn("Customer search index reload failed; keeping the previous one", e);
+        }
+    }
+
+    private void refreshPending() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        List<Long> ids = new ArrayList<>(pending);
+        pending.removeAll(ids);
+        try {
+            SearchIndex<CustomerDocument> target = index;
+            Map<Integer, List<Long>> byShard = ids.stream().collect(Collectors.groupingBy(shardService::shardOf));
+            byShard.forEach((shard, shardIds) -> shardService.runOnShard(shard, () -> {
+                Set<Long> found = new HashSet<>();
+                namedJdbcTemplate.query(SELECT_CUSTOMERS + " WHERE c.customer_id IN (:ids)", Map.of("ids", shardIds),
+                        (RowCallbackHandler) rs -> found.add(put(target, rs)));
+                // Deleted meanwhile
+                shardIds.stream().filter(id -> !found.contains(id)).forEach(target::remove);
+            }));
+        } catch (RuntimeException e) {
+            pending.addAll(ids);
+            log.warn("Customer search refresh failed; will retry", e);
+        }
+    }
+
+    private static long put(SearchIndex<CustomerDocument> target, ResultSet rs) throws SQLException {
+        long customerId = rs.getLong("customer_id");
+        String name = rs.getString("name");
+        String username = rs.getString("username");
+        String email = rs.getString("email");
+        String phone = rs.getString("phone");
+        String userPhone = rs.getString("user_phone");
+
+        List<String> keys = new ArrayList<>();
+        keys.add(username);
+        addEmail(keys, email);
+        addEmail(keys, rs.getString("user_email"));
+        addPhone(keys, phone);
+        addPhone(keys, userPhone);
+        target.put(customerId,
+                new CustomerDocument(customerId, name, username, email, phone != null ? phone : userPhone),
+                Arrays.asList(name, rs.getString("first_name"), rs.getString("last_name")),
+                keys);
+        return customerId;
+    }
+
+    // Whole, and each part of the local part ("smith" in "john.smith@..."); the domain would match everyone
+    private static void addEmail(List<String> keys, String email) {
+        if (email == null) {
+            return;
+        }
+        keys.add(email);
+        int at = email.indexOf('@');
+        keys.addAll(Arrays.asList(EMAIL_SEPARATORS.split(at < 0 ? email : email.substring(0, at))));
+    }
+
+    // Digits only, plus the last ten so numbers are found with or without the country code
+    private static void addPhone(List<String> keys, String phone) {
+        if (phone == null) {
+            return;
+        }
+        String digits = NON_DIGITS.matcher(phone).replaceAll("");
+        if (!digits.isEmpty()) {
+            keys.add(digits);
+            if (digits.length() > 10) {
+                keys.add(digits.substring(digits.length() - 10));
+            }
+        }
+    }
+}
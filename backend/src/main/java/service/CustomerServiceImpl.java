@@ -13,10 +13,12 @@ import java.util.Optional;
 public class CustomerServiceImpl implements CustomerService {
 
     private final CustomerRepository customerRepository;
+    private final CustomerSearchService customerSearchService;
 
     @Autowired
-    public CustomerServiceImpl(CustomerRepository customerRepository) {
+    public CustomerServiceImpl(CustomerRepository customerRepository, CustomerSearchService customerSearchService) {
         this.customerRepository = customerRepository;
+        this.customerSearchService = customerSearchService;
     }
 
     @Override
@@ -31,12 +33,15 @@ public class CustomerServiceImpl implements CustomerService {
 
     @Override
     public Customer save(Customer customer) {
-        return customerRepository.save(customer);
+        Customer saved = customerRepository.save(customer);
+        customerSearchService.customerChanged(saved.getCustomerId());
+        return saved;
     }
 
     @Override
     public void deleteById(Long id) {
         customerRepository.deleteById(id);
+        customerSearchService.customerChanged(id);
     }
 
     @Override
@@ -0,0 +1,324 @@
+package service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import entities.IdempotencyKey;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import repository.IdempotencyKeyRepository;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Honours the {@code Idempotency-Key} header on money-moving endpoints.
+ * <p>
+ * The first request with a key runs and its response is stored; retries get that response back
+ * (with {@code Idempotent-Replayed: true}) without running the action again. Lookups go through a
+ * bounded in-memory LRU in front of the {@code idempotency_keys} table. A duplicate arriving while the
+ * first is still running waits for it. A successful response is stored in the same transaction as
+ * the posting, so across instances the loser of a race rolls back on the unique key and replays the
+ * winner's response. Split transfers are the exception: their debit commits on its own, so
+ * {@link TransferSagaService} deduplicates them on the saga's own unique key.
+ */
+@Service
+public class IdempotencyService {
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private static final Logger log = LoggerFactory.getLogger(IdempotencyService.class);
+
+    private final IdempotencyKeyRepository idempotencyKeyRepository;
+    private final ShardService shardService;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final long waitMs;
+    private final long ttlHours;
+
+    private final Map<String, StoredResponse> cache;
+    private final Map<String, InFlight> inFlight = new ConcurrentHashMap<>();
+    private final Counter replays;
+
+    public IdempotencyService(IdempotencyKeyRepository idempotencyKeyRepository,
+                              ShardService shardService,
+                              ObjectMapper objectMapper,
+                              PlatformTransactionManager transactionManager,
+                              MeterRegistry meterRegistry,
+                              @Value("${idempotency.cache-size:10000}") int cacheSize,
+                              @Value("${idempotency.wait-ms:30000}") long waitMs,
+                              @Value("${idempotency.ttl-hours:24}") long ttlHours) {
+        this.idempotencyKeyRepository = idempotencyKeyRepository;
+        this.shardService = shardService;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.waitMs = waitMs;
+        this.ttlHours = ttlHours;
+        this.cache = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, StoredResponse> eldest) {
+                return size() > cacheSize;
+            }
+        };
+        this.replays = meterRegistry.counter("idempotency.replays");
+    }
+
+    /**
+     * Runs {@code action} at most once per (user, key). Without a key the action simply runs.
+     *
+     * @param requestBody the parsed body, hashed with method and path to detect a key reused for a different request
+     */
+    public ResponseEntity<?> execute(String username, String key, String method, String path, Object requestBody,
+                                     Supplier<ResponseEntity<?>> action) {
+        if (key == null || username == null) {
+            return action.get();
+        }
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            return error(HttpStatus.BAD_REQUEST, HEADER + " must be 1-" + MAX_KEY_LENGTH + " characters");
+        }
+
+        String cacheKey = username + '\n' + key;
+        String requestHash = hash(method + ' ' + path + '\n' + toJson(requestBody));
+
+        StoredResponse stored = cached(cacheKey);
+        if (stored != null) {
+            return replay(stored, requestHash);
+        }
+
+        InFlight mine = new InFlight(requestHash);
+        InFlight running = inFlight.putIfAbsent(cacheKey, mine);
+        if (running != null) {
+            return awaitDuplicate(running, requestHash);
+        }
+
+        try {
+            StoredResponse result = runOnce(username, key, requestHash, action);
+            if (result.stored) {
+                remember(cacheKey, result);
+            }
+            mine.future.complete(result);
+            return result.original != null ? result.original : replay(result, requestHash);
+        } catch (RuntimeException e) {
+            // Nothing stored: waiting duplicates fail too and the client may retry with the same key
+            mine.future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(cacheKey, mine);
+        }
+    }
+
+    private StoredResponse runOnce(String username, String key, String requestHash, Supplier<ResponseEntity<?>> action) {
+        IdempotencyKey existing = idempotencyKeyRepository.findByUsernameAndKey(username, key).orElse(null);
+        if (existing != null && !expired(existing.getCreatedAt())) {
+            return StoredResponse.loaded(existing);
+        }
+        // Expired but not purged yet: its row would hold the unique key against ours
+        Long expiredId = existing != null ? existing.getId() : null;
+
+        try {
+            return transactionTemplate.execute(status -> {
+                if (expiredId != null) {
+                    idempotencyKeyRepository.deleteExpired(expiredId, cutoff());
+                }
+                ResponseEntity<?> response = action.get();
+                if (!response.getStatusCode().is2xxSuccessful()) {
+                    // Only completed postings are remembered, so a retry after a failure runs again.
+                    // Roll back whatever the action joined (local rollback-only: no UnexpectedRollbackException)
+                    status.setRollbackOnly();
+                    return StoredResponse.unstored(requestHash, toJson(response.getBody()), response);
+                }
+                // Same transaction as the posting: the key exists if and only if the money moved
+                // (a split transfer commits its steps itself and is deduplicated by its saga)
+                IdempotencyKey row = idempotencyKeyRepository.saveAndFlush(row(username, key, requestHash, response));
+                return StoredResponse.stored(row, response);
+            });
+        } catch (DataIntegrityViolationException e) {
+            // Another instance stored this key first; our posting was rolled back with the insert,
+            // or, for a split transfer, answered from the winner's saga without moving money
+            return idempotencyKeyRepository.findByUsernameAndKey(username, key)
+                    .filter(row -> !expired(row.getCreatedAt()))
+                    .map(StoredResponse::loaded)
+                    .orElseThrow(() -> e);
+        }
+    }
+
+    private IdempotencyKey row(String username, String key, String requestHash, ResponseEntity<?> response) {
+        IdempotencyKey row = new IdempotencyKey();
+        row.setUsername(username);
+        row.setKey(key);
+        row.setRequestHash(requestHash);
+        row.setStatusCode(response.getStatusCode().value());
+        row.setResponseBody(toJson(response.getBody()));
+        row.setCreatedAt(LocalDateTime.now());
+        return row;
+    }
+
+    private ResponseEntity<?> awaitDuplicate(InFlight running, String requestHash) {
+        if (!running.requestHash.equals(requestHash)) {
+            return keyReused();
+        }
+        try {
+            return replay(running.future.get(waitMs, TimeUnit.MILLISECONDS), requestHash);
+        } catch (TimeoutException e) {
+            return error(HttpStatus.CONFLICT, "A request with this " + HEADER + " is still in progress");
+        } catch (ExecutionException e) {
+            return error(HttpStatus.CONFLICT, "The original request with this " + HEADER + " failed; retry it");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return error(HttpStatus.SERVICE_UNAVAILABLE, "Interrupted while waiting for the original request");
+        }
+    }
+
+    private ResponseEntity<?> replay(StoredResponse stored, String requestHash) {
+        if (!stored.requestHash.equals(requestHash)) {
+            return keyReused();
+        }
+        replays.increment();
+        return ResponseEntity.status(stored.statusCode)
+                .header(REPLAYED_HEADER, "true")
+                .body(fromJson(stored.bodyJson));
+    }
+
+    private ResponseEntity<?> keyReused() {
+        return error(HttpStatus.UNPROCESSABLE_ENTITY, HEADER + " was already used for a different request");
+    }
+
+    private static ResponseEntity<?> error(HttpStatus status, String message) {
+        return ResponseEntity.status(status).body(Map.of("success", false, "error", message));
+    }
+
+    // -----------------------------
+    // Cache and expiry
+    // -----------------------------
+    private StoredResponse cached(String cacheKey) {
+        StoredResponse stored;
+        synchronized (cache) {
+            stored = cache.get(cacheKey);
+        }
+        return stored != null && !expired(stored.createdAt) ? stored : null;
+    }
+
+    private void remember(String cacheKey, StoredResponse stored) {
+        synchronized (cache) {
+            cache.put(cacheKey, stored);
+        }
+    }
+
+    private boolean expired(LocalDateTime createdAt) {
+        return createdAt.isBefore(cutoff());
+    }
+
+    private LocalDateTime cutoff() {
+        return LocalDateTime.now().minusHours(ttlHours);
+    }
+
+    @Scheduled(fixedDelayString = "${idempotency.cleanup-ms:3600000}")
+    public void purgeExpired() {
+        // Keys are stored on the shard of the posting they belong to
+        shardService.forEachShard(() -> {
+            int deleted = idempotencyKeyRepository.deleteCreatedBefore(cutoff());
+            if (deleted > 0) {
+                log.info("Purged {} expired idempotency keys", deleted);
+            }
+        });
+    }
+
+    // -----------------------------
+    // Serialization
+    // -----------------------------
+    private String toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Not serializable: " + e.getMessage(), e);
+        }
+    }
+
+    private Object fromJson(String json) {
+        try {
+            // BigDecimal keeps amounts such as 12.50 byte-identical to the original response
+            return json == null ? null : objectMapper.reader()
+                    .with(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS)
+                    .forType(Object.class)
+                    .readValue(json);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Corrupt stored response: " + e.getMessage(), e);
+        }
+    }
+
+    static String hash(String text) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(text.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static final class InFlight {
+        final String requestHash;
+        final CompletableFuture<StoredResponse> future = new CompletableFuture<>();
+
+        InFlight(String requestHash) {
+            this.requestHash = requestHash;
+        }
+    }
+
+    private static final class StoredResponse {
+        final String requestHash;
+        final int statusCode;
+        final String bodyJson;
+        final LocalDateTime createdAt;
+        final ResponseEntity<?> original;   // null when loaded from the table
+        final boolean stored;
+
+        private StoredResponse(String requestHash, int statusCode, String bodyJson, LocalDateTime createdAt,
+                               ResponseEntity<?> original, boolean stored) {
+            this.requestHash = requestHash;
+            this.statusCode = statusCode;
+            this.bodyJson = bodyJson;
+            this.createdAt = createdAt;
+            this.original = original;
+            this.stored = stored;
+        }
+
+        static StoredResponse stored(IdempotencyKey row, ResponseEntity<?> original) {
+            return new StoredResponse(row.getRequestHash(), row.getStatusCode(), row.getResponseBody(),
+                    row.getCreatedAt(), original, true);
+        }
+
+        static StoredResponse loaded(IdempotencyKey row) {
+            return new StoredResponse(row.getRequestHash(), row.getStatusCode(), row.getResponseBody(),
+                    row.getCreatedAt(), null, true);
+        }
+
+        // A failed attempt: handed to duplicates that waited on it, but not kept
+        static StoredResponse unstored(String requestHash, String bodyJson, ResponseEntity<?> original) {
+            return new StoredResponse(requestHash, original.getStatusCode().value(), bodyJson,
+                    LocalDateTime.now(), original, false);
+        }
+    }
+}
@@ -0,0 +1,344 @@
+package service;
+
+import entities.Money;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Checks that every account's stored balance equals the signed sum of its successful transactions.
+ * <p>
+ * Each shard's accounts are split into id ranges of {@code reconciliation.range-size}, reconciled in
+ * parallel on {@code reconciliation.threads}. A range reads its balances and, grouped per account and
+ * type, only the transactions after each account's watermark ({@code ledger_watermarks}), all in one
+ * repeatable-read transaction so balances and postings come from the same snapshot; then it moves the
+ * watermarks forward. Postings lock their account row before inserting the transaction, so one
+ * account's transactions commit in id order and a watermark never passes one not yet committed.
+ * Accounts whose difference is not zero are reported by {@link #mismatches} and counted in the
+ * {@code ledger.reconciliation.mismatches} gauge.
+ */
+@Service
+public class LedgerReconciliationService {
+
+    private static final Logger log = LoggerFactory.getLogger(LedgerReconciliationService.class);
+
+    // Money coming into the account (+1) or leaving it (-1); statements use the same signs
+    static final Map<String, Integer> SIGNS = Map.of(
+            "OPENING_DEPOSIT", 1,
+            "DEPOSIT", 1,
+            "TRANSFER_RECEIVED", 1,
+            "TRANSFER_REVERSED", 1,
+            "WITHDRAW", -1,
+            "TRANSFER_SENT", -1);
+
+    private static final String SELECT_WATERMARKS = "SELECT account_id, last_transaction_id, ledger_balance, difference "
+            + "FROM ledger_watermarks WHERE account_id BETWEEN ? AND ?";
+    private static final String SELECT_BALANCES = "SELECT account_id, balance FROM accounts WHERE account_id BETWEEN ? AND ?";
+    // Driven from accounts, so each account's index range is entered after its watermark
+    private static final String SELECT_NEW_POSTINGS = "SELECT t.account_id, t.transaction_type, "
+            + "SUM(CASE WHEN t.status = 'SUCCESS' THEN t.amount ELSE 0 END) AS total, "
+            + "COUNT(*) AS postings, MAX(t.transaction_id) AS last_id "
+            + "FROM accounts a LEFT JOIN ledger_watermarks w ON w.account_id = a.account_id "
+            + "JOIN transactions t ON t.account_id = a.account_id AND t.transaction_id > COALESCE(w.last_transaction_id, 0) "
+            + "WHERE a.account_id BETWEEN ? AND ? GROUP BY t.account_id, t.transaction_type";
+    private static final String SELECT_ALL_POSTINGS = "SELECT t.account_id, t.transaction_type, "
+            + "SUM(CASE WHEN t.status = 'SUCCESS' THEN t.amount ELSE 0 END) AS total, "
+            + "COUNT(*) AS postings, MAX(t.transaction_id) AS last_id "
+            + "FROM transactions t WHERE t.account_id BETWEEN ? AND ? GROUP BY t.account_id, t.transaction_type";
+    private static final String SELECT_MISMATCHES = "SELECT w.account_id, a.balance, w.ledger_balance, w.difference, "
+            + "w.checked_at FROM ledger_watermarks w JOIN accounts a ON a.account_id = w.account_id "
+            + "WHERE w.difference <> 0 ORDER BY w.account_id";
+
+    public static final class Run {
+        private final boolean full;
+        private final LocalDateTime startedAt = LocalDateTime.now();
+        private volatile LocalDateTime finishedAt;
+        private volatile String status = "RUNNING";
+        private volatile String lastError;
+        private final AtomicInteger ranges = new AtomicInteger();
+        private final AtomicInteger rangesDone = new AtomicInteger();
+        private final AtomicInteger rangesFailed = new AtomicInteger();
+        private final AtomicLong accounts = new AtomicLong();
+        private final AtomicLong transactions = new AtomicLong();
+        private final AtomicLong mismatches = new AtomicLong();
+
+        Run(boolean full) {
+            this.full = full;
+        }
+
+        public boolean isFull() { return full; }
+        public LocalDateTime getStartedAt() { return startedAt; }
+        public LocalDateTime getFinishedAt() { return finishedAt; }
+        public String getStatus() { return status; }
+        public String getLastError() { return lastError; }
+        public int getRanges() { return ranges.get(); }
+        public int getRangesDone() { return rangesDone.get(); }
+        public int getRangesFailed() { return rangesFailed.get(); }
+        public long getAccounts() { return accounts.get(); }
+        public long getTransactions() { return transactions.get(); }
+        public long getMismatches() { return mismatches.get(); }
+    }
+
+    public record Mismatch(long accountId, Money balance, Money ledgerBalance, Money difference, LocalDateTime checkedAt) {
+    }
+
+    private record Mark(long lastTransactionId, long ledgerMinor, long differenceMinor) {
+    }
+
+    private record Range(int shard, long from, long to) {
+    }
+
+    private final ShardService shardService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate snapshot;
+    private final long rangeSize;
+    private final long intervalMs;
+    private final ExecutorService pool;
+    private final ScheduledExecutorService scheduler;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile Run lastRun;
+    private volatile long knownMismatches;
+
+    private final Counter transactionsChecked;
+    private final MeterRegistry meterRegistry;
+
+    public LedgerReconciliationService(ShardService shardService,
+                                       JdbcTemplate jdbcTemplate,
+                                       PlatformTransactionManager transactionManager,
+                                       MeterRegistry meterRegistry,
+                                       @Value("${reconciliation.range-size:5000}") long rangeSize,
+                                       @Value("${reconciliation.threads:0}") int threads,
+                                       @Value("${reconciliation.interval-ms:3600000}") long intervalMs) {
+        this.shardService = shardService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.snapshot = new TransactionTemplate(transactionManager);
+        this.snapshot.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.rangeSize = rangeSize;
+        this.intervalMs = intervalMs;
+        // Mostly waiting on the database; 0 = one per core, at least two
+        int size = threads > 0 ? threads : Math.max(2, Runtime.getRuntime().availableProcessors());
+        AtomicInteger counter = new AtomicInteger();
+        this.pool = Executors.newFixedThreadPool(size, r -> {
+            Thread thread = new Thread(r, "reconciliation-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "reconciliation");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.meterRegistry = meterRegistry;
+        this.transactionsChecked = meterRegistry.counter("ledger.reconciliation.transactions");
+        Gauge.builder("ledger.reconciliation.mismatches", this, service -> service.knownMismatches)
+                .description("Accounts whose balance differs from their transactions, as of the last run")
+                .register(meterRegistry);
+    }
+
+    // Incremental runs every reconciliation.interval-ms (0 = on demand only)
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (intervalMs > 0) {
+            scheduler.scheduleWithFixedDelay(() -> start(false), intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    void stop() {
+        scheduler.shutdownNow();
+        pool.shutdownNow();
+    }
+
+    /**
+     * Starts a run in the background; {@code full} ignores the watermarks and re-sums every
+     * transaction. Empty if a run is already going on this instance.
+     */
+    public Optional<Run> start(boolean full) {
+        if (!running.compareAndSet(false, true)) {
+            return Optional.empty();
+        }
+        Run run = new Run(full);
+        lastRun = run;
+        scheduler.execute(() -> execute(run));
+        return Optional.of(run);
+    }
+
+    public Optional<Run> lastRun() {
+        return Optional.ofNullable(lastRun);
+    }
+
+    /**
+     * Accounts out of balance as of their last check, all shards, at most {@code limit}.
+     */
+    public List<Mismatch> mismatches(int limit) {
+        List<Mismatch> found = shardService.scatterGather(() -> {
+            List<Mismatch> rows = new ArrayList<>();
+            jdbcTemplate.query(connection -> {
+                var statement = connection.prepareStatement(SELECT_MISMATCHES);
+                statement.setMaxRows(limit);
+                return statement;
+            }, (RowCallbackHandler) rs -> rows.add(new Mismatch(
+                    rs.getLong("account_id"),
+                    Money.of(rs.getBigDecimal("balance")),
+                    Money.of(rs.getBigDecimal("ledger_balance")),
+                    Money.of(rs.getBigDecimal("difference")),
+                    rs.getTimestamp("checked_at").toLocalDateTime())));
+            return rows;
+        });
+        return found.size() > limit ? found.subList(0, limit) : found;
+    }
+
+    // -----------------------------
+    // Runs
+    // -----------------------------
+    private void execute(Run run) {
+        long start = System.nanoTime();
+        try {
+            List<Range> ranges = new ArrayList<>();
+            for (int shard = 0; shard < shardService.shardCount(); shard++) {
+                int target = shard;
+                shardService.runOnShard(shard, () -> jdbcTemplate.query(
+                        "SELECT MIN(account_id) AS lo, MAX(account_id) AS hi FROM accounts",
+                        (RowCallbackHandler) rs -> {
+                            long lo = rs.getLong("lo");
+                            if (rs.wasNull()) {
+                                return;
+                            }
+                            long hi = rs.getLong("hi");
+                            for (long from = lo; from <= hi; from += rangeSize) {
+                                ranges.add(new Range(target, from, Math.min(hi, from + rangeSize - 1)));
+                            }
+                        }));
+            }
+            run.ranges.set(ranges.size());
+
+            CompletableFuture.allOf(ranges.stream()
+                    .map(range -> CompletableFuture.runAsync(() -> reconcileSafely(run, range), pool))
+                    .toArray(CompletableFuture[]::new)).join();
+
+            run.status = run.rangesFailed.get() == 0 ? "COMPLETED" : "COMPLETED_WITH_ERRORS";
+            // A failed range keeps its previous mismatches, which this count then leaves out
+            knownMismatches = run.mismatches.get();
+        } catch (RuntimeException e) {
+            run.status = "FAILED";
+            run.lastError = e.getMessage();
+            log.error("Ledger reconciliation failed", e);
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            run.finishedAt = LocalDateTime.now();
+            Timer.builder("ledger.reconciliation.duration")
+                    .tag("full", String.valueOf(run.full))
+                    .register(meterRegistry)
+                    .record(elapsed, TimeUnit.NANOSECONDS);
+            running.set(false);
+            log.info("Ledger reconciliation {}: {} accounts, {} new transactions, {} mismatches, {} ranges failed in {}",
+                    run.status, run.getAccounts(), run.getTransactions(), run.getMismatches(), run.getRangesFailed(),
+                    Duration.ofNanos(elapsed));
+        }
+    }
+
+    private void reconcileSafely(Run run, Range range) {
+        try {
+            shardService.runOnShard(range.shard(), () -> snapshot.executeWithoutResult(status -> reconcile(run, range)));
+            run.rangesDone.incrementAndGet();
+        } catch (RuntimeException e) {
+            run.rangesFailed.incrementAndGet();
+            run.lastError = e.getMessage();
+            log.warn("Ledger reconciliation of accounts {}..{} on shard {} failed; it is retried next run",
+                    range.from(), range.to(), range.shard(), e);
+        }
+    }
+
+    private void reconcile(Run run, Range range) {
+        Map<Long, Mark> marks = new HashMap<>();
+        jdbcTemplate.query(SELECT_WATERMARKS, (RowCallbackHandler) rs -> marks.put(rs.getLong("account_id"), new Mark(
+                rs.getLong("last_transaction_id"),
+                Money.of(rs.getBigDecimal("ledger_balance")).getMinorUnits(),
+                Money.of(rs.getBigDecimal("difference")).getMinorUnits())), range.from(), range.to());
+
+        // Net of the postings after each watermark, and the newest id seen
+        Map<Long, long[]> deltas = new HashMap<>();
+        jdbcTemplate.query(run.full ? SELECT_ALL_POSTINGS : SELECT_NEW_POSTINGS, (RowCallbackHandler) rs -> {
+            String type = rs.getString("transaction_type");
+            Integer sign = SIGNS.get(type);
+            if (sign == null) {
+                log.warn("Transaction type {} is not reconciled; account {} will show a difference",
+                        type, rs.getLong("account_id"));
+                sign = 0;
+            }
+            long[] delta = deltas.computeIfAbsent(rs.getLong("account_id"), id -> new long[2]);
+            delta[0] += sign * Money.of(rs.getBigDecimal("total")).getMinorUnits();
+            delta[1] = Math.max(delta[1], rs.getLong("last_id"));
+            run.transactions.addAndGet(rs.getLong("postings"));
+            transactionsChecked.increment(rs.getLong("postings"));
+        }, range.from(), range.to());
+
+        List<Object[]> updates = new ArrayList<>();
+        List<Object[]> inserts = new ArrayList<>();
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.query(SELECT_BALANCES, (RowCallbackHandler) rs -> {
+            long accountId = rs.getLong("account_id");
+            long balance = Money.of(rs.getBigDecimal("balance")).getMinorUnits();
+            Mark mark = marks.get(accountId);
+            long[] delta = deltas.get(accountId);
+            long ledger = (mark != null && !run.full ? mark.ledgerMinor() : 0) + (delta != null ? delta[0] : 0);
+            long lastId = delta != null ? delta[1] : mark != null && !run.full ? mark.lastTransactionId() : 0;
+            long difference = balance - ledger;
+
+            run.accounts.incrementAndGet();
+            if (difference != 0) {
+                run.mismatches.incrementAndGet();
+            }
+            // Rows only for accounts with postings or a difference; others are implicitly at zero
+            if (mark == null) {
+                if (delta != null || difference != 0) {
+                    inserts.add(row(lastId, ledger, difference, now, accountId));
+                }
+            } else if (delta != null || difference != mark.differenceMinor() || run.full) {
+                updates.add(row(lastId, ledger, difference, now, accountId));
+            }
+        }, range.from(), range.to());
+
+        jdbcTemplate.batchUpdate("UPDATE ledger_watermarks SET last_transaction_id = ?, ledger_balance = ?, "
+                + "difference = ?, checked_at = ? WHERE account_id = ?", updates);
+        jdbcTemplate.batchUpdate("INSERT INTO ledger_watermarks (last_transaction_id, ledger_balance, difference, "
+                + "checked_at, account_id) VALUES (?, ?, ?, ?, ?)", inserts);
+    }
+
+    private static Object[] row(long lastId, long ledgerMinor, long differenceMinor, Timestamp now, long accountId) {
+        return new Object[]{lastId, Money.ofMinor(ledgerMinor).toBigDecimal(),
+                Money.ofMinor(differenceMinor).toBigDecimal(), now, accountId};
+    }
+}
@@ -0,0 +1,33 @@
+package service;
+
+import entities.OutboxEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Writes delivered events to the {@code outbox} logger at DEBUG; a stand-in for real sinks.
+ */
+@Component
+@ConditionalOnProperty(name = "outbox.sinks.log.enabled", havingValue = "true", matchIfMissing = true)
+public class LoggingOutboxSink implements OutboxSink {
+
+    private static final Logger log = LoggerFactory.getLogger("outbox");
+
+    @Override
+    public String name() {
+        return "log";
+    }
+
+    @Override
+    public void deliver(List<OutboxEvent> events) {
+        if (log.isDebugEnabled()) {
+            for (OutboxEvent event : events) {
+                log.debug("{} #{} {}", event.getEventType(), event.getId(), event.getPayload());
+            }
+        }
+    }
+}
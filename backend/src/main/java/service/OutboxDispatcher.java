@@ -0,0 +1,184 @@
+package service;
+
+import entities.OutboxEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import repository.OutboxEventRepository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drains the outbox into the {@link OutboxSink} beans. Each batch is claimed with
+ * {@code FOR UPDATE SKIP LOCKED}, delivered and deleted in one transaction, so several instances
+ * can poll the same table without double delivery in the normal case. When a sink throws, the batch
+ * is split in halves and retried until the failing events are isolated; the rest are delivered and
+ * removed as usual. Only a failing event is retried, with exponential backoff, and parked as
+ * {@code FAILED} after {@code outbox.max-attempts}; newer events keep flowing past it meanwhile, so
+ * events can reach a sink out of order after a failure.
+ */
+@Service
+@ConditionalOnProperty(name = "outbox.dispatcher.enabled", havingValue = "true", matchIfMissing = true)
+public class OutboxDispatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(OutboxDispatcher.class);
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final List<OutboxSink> sinks;
+    private final ShardService shardService;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final int maxBatchesPerPoll;
+    private final int maxAttempts;
+    private final long backoffMs;
+
+    private final Timer lag;
+    private final Counter dispatched;
+    private final Counter failedBatches;
+    private final Counter failedEvents;
+    private final AtomicLong pending = new AtomicLong();
+    private final AtomicLong oldestPendingAgeMs = new AtomicLong();
+
+    public OutboxDispatcher(OutboxEventRepository outboxEventRepository,
+                            List<OutboxSink> sinks,
+                            ShardService shardService,
+                            PlatformTransactionManager transactionManager,
+                            MeterRegistry meterRegistry,
+                            @Value("${outbox.batch-size:200}") int batchSize,
+                            @Value("${outbox.max-batches-per-poll:20}") int maxBatchesPerPoll,
+                            @Value("${outbox.max-attempts:10}") int maxAttempts,
+                            @Value("${outbox.backoff-ms:1000}") long backoffMs) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.sinks = sinks;
+        this.shardService = shardService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.maxBatchesPerPoll = maxBatchesPerPoll;
+        this.maxAttempts = maxAttempts;
+        this.backoffMs = backoffMs;
+
+        this.lag = Timer.builder("outbox.lag")
+                .description("Time from an event being recorded to its delivery")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.dispatched = meterRegistry.counter("outbox.dispatched");
+        this.failedBatches = meterRegistry.counter("outbox.failed-batches");
+        this.failedEvents = meterRegistry.counter("outbox.failed-events");
+        meterRegistry.gauge("outbox.pending", pending);
+        meterRegistry.gauge("outbox.oldest-pending-age-ms", oldestPendingAgeMs);
+    }
+
+    @Scheduled(fixedDelayString = "${outbox.poll-ms:500}")
+    public void poll() {
+        // Each shard has its own outbox table
+        shardService.forEachShard(() -> {
+            // Keep draining while batches come back full, so a backlog clears without waiting a poll per batch
+            for (int i = 0; i < maxBatchesPerPoll; i++) {
+                if (dispatchBatch() < batchSize) {
+                    break;
+                }
+            }
+        });
+        refreshBacklog();
+    }
+
+    /**
+     * Claims, delivers and removes one batch.
+     *
+     * @return the number of events claimed
+     */
+    public int dispatchBatch() {
+        Integer claimed = transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<OutboxEvent> batch = outboxEventRepository.claimBatch(now, PageRequest.of(0, batchSize));
+            if (batch.isEmpty()) {
+                return 0;
+            }
+
+            // An event that fails on one sink is not offered to the others; its retry goes to all of them
+            Map<OutboxEvent, Exception> failed = new IdentityHashMap<>();
+            for (OutboxSink sink : sinks) {
+                List<OutboxEvent> accepted = batch.stream()
+                        .filter(event -> !failed.containsKey(event) && sink.accepts(event.getEventType()))
+                        .toList();
+                if (!accepted.isEmpty()) {
+                    deliver(sink, accepted, failed);
+                }
+            }
+
+            List<OutboxEvent> delivered = failed.isEmpty() ? batch
+                    : batch.stream().filter(event -> !failed.containsKey(event)).toList();
+            for (OutboxEvent event : delivered) {
+                lag.record(Duration.between(event.getCreatedAt(), now).abs());
+            }
+            outboxEventRepository.deleteAllInBatch(delivered);
+            dispatched.increment(delivered.size());
+            if (!failed.isEmpty()) {
+                failedBatches.increment();
+                failedEvents.increment(failed.size());
+                scheduleRetry(failed, now);
+            }
+            return batch.size();
+        });
+        return claimed != null ? claimed : 0;
+    }
+
+    // Bisects a failing delivery down to the events that fail on their own
+    private void deliver(OutboxSink sink, List<OutboxEvent> events, Map<OutboxEvent, Exception> failed) {
+        try {
+            sink.deliver(events);
+        } catch (Exception e) {
+            if (events.size() == 1) {
+                failed.put(events.get(0), e);
+                return;
+            }
+            int half = events.size() / 2;
+            deliver(sink, events.subList(0, half), failed);
+            deliver(sink, events.subList(half, events.size()), failed);
+        }
+    }
+
+    private void scheduleRetry(Map<OutboxEvent, Exception> failed, LocalDateTime now) {
+        failed.forEach((event, error) -> {
+            int attempts = event.getAttempts() + 1;
+            event.setAttempts(attempts);
+            if (attempts >= maxAttempts) {
+                event.setStatus(OutboxEvent.FAILED);
+                log.error("Outbox event #{} ({}) parked after {} attempts: {}", event.getId(), event.getEventType(),
+                        attempts, error.toString());
+            } else {
+                log.warn("Outbox event #{} ({}) failed, attempt {}: {}", event.getId(), event.getEventType(),
+                        attempts, error.toString());
+                long delay = backoffMs << Math.min(attempts - 1, 16);
+                event.setNextAttemptAt(now.plus(Duration.ofMillis(delay)));
+            }
+        });
+    }
+
+    private void refreshBacklog() {
+        AtomicLong pendingTotal = new AtomicLong();
+        AtomicLong oldestAge = new AtomicLong();
+        shardService.forEachShard(() -> {
+            pendingTotal.addAndGet(outboxEventRepository.countByStatus(OutboxEvent.PENDING));
+            oldestAge.accumulateAndGet(outboxEventRepository.findOldestPendingCreatedAt()
+                    .map(createdAt -> Math.max(0, Duration.between(createdAt, LocalDateTime.now()).toMillis()))
+                    .orElse(0L), Math::max);
+        });
+        pending.set(pendingTotal.get());
+        oldestPendingAgeMs.set(oldestAge.get());
+    }
+}
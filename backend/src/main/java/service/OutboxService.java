@@ -0,0 +1,55 @@
+package service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import entities.OutboxEvent;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import repository.OutboxEventRepository;
+
+import java.time.LocalDateTime;
+
+/**
+ * Queues events for {@link OutboxDispatcher}. Every method joins the caller's transaction
+ * (and fails without one), so an event exists exactly when the change that caused it committed.
+ */
+@Service
+@Transactional(propagation = Propagation.MANDATORY)
+public class OutboxService {
+
+    public static final String TRANSACTION_POSTED = "TRANSACTION_POSTED";
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final ObjectMapper objectMapper;
+
+    public OutboxService(OutboxEventRepository outboxEventRepository, ObjectMapper objectMapper) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    public OutboxEvent record(String eventType, Long aggregateId, Long customerId, Object payload) {
+        OutboxEvent event = new OutboxEvent();
+        event.setEventType(eventType);
+        event.setAggregateId(aggregateId);
+        event.setCustomerId(customerId);
+        event.setPayload(toJson(payload));
+        LocalDateTime now = LocalDateTime.now();
+        event.setCreatedAt(now);
+        event.setNextAttemptAt(now);
+        event.setStatus(OutboxEvent.PENDING);
+        return outboxEventRepository.save(event);
+    }
+
+    public OutboxEvent recordTransactionPosted(TransactionPostedEvent posted) {
+        return record(TRANSACTION_POSTED, posted.accountId(), posted.customerId(), posted);
+    }
+
+    private String toJson(Object payload) {
+        try {
+            return objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Outbox payload is not serializable: " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package service;
+
+import entities.OutboxEvent;
+
+import java.util.List;
+
+/**
+ * Local consumer of outbox events (notifications, exports, analytics...). Any bean implementing
+ * this is picked up by {@link OutboxDispatcher}.
+ * <p>
+ * Delivery is at-least-once: a failed delivery is split and retried in smaller batches, and an
+ * event that still fails is retried later for every sink, so implementations must tolerate seeing
+ * an event id twice.
+ */
+public interface OutboxSink {
+
+    String name();
+
+    default boolean accepts(String eventType) {
+        return true;
+    }
+
+    /**
+     * Delivers events in id order. Throwing makes the dispatcher retry the events in halves, down to
+     * single events; those that still fail are retried with backoff.
+     */
+    void deliver(List<OutboxEvent> events) throws Exception;
+}
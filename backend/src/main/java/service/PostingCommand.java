@@ -0,0 +1,177 @@
+package service;
+
+import entities.Money;
+import entities.PostingCommandRecord;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A validated deposit, withdrawal or transfer. Runs inline, or queued by {@link PostingCommandQueue}
+ * with its status readable while it waits; a queued command is also stored as a {@link PostingCommandRecord}.
+ */
+public final class PostingCommand {
+
+    public enum Type { DEPOSIT, WITHDRAW, TRANSFER }
+
+    public enum Status { QUEUED, SUCCEEDED, FAILED }
+
+    private String id = UUID.randomUUID().toString();
+    private final Type type;
+    private final Long accountId;
+    private final Long toAccountId;
+    private final Money amount;
+    private final Instant createdAt;
+    private final CompletableFuture<PostingCommand> completion = new CompletableFuture<>();
+    private String idempotencyKey;
+
+    private volatile String username;
+    private volatile Status status = Status.QUEUED;
+    private volatile String message;
+    private volatile Instant completedAt;
+
+    private PostingCommand(Type type, Long accountId, Long toAccountId, Money amount, Instant createdAt) {
+        if (amount == null || !amount.isPositive()) {
+            throw new IllegalArgumentException("Amount must be positive");
+        }
+        if (accountId.equals(toAccountId)) {
+            throw new IllegalArgumentException("Cannot transfer to the same account");
+        }
+        this.type = type;
+        this.accountId = accountId;
+        this.toAccountId = toAccountId;
+        this.amount = amount;
+        this.createdAt = createdAt;
+    }
+
+    public static PostingCommand deposit(Long accountId, Money amount) {
+        return new PostingCommand(Type.DEPOSIT, accountId, null, amount, Instant.now());
+    }
+
+    public static PostingCommand withdraw(Long accountId, Money amount) {
+        return new PostingCommand(Type.WITHDRAW, accountId, null, amount, Instant.now());
+    }
+
+    public static PostingCommand transfer(Long fromAccountId, Long toAccountId, Money amount) {
+        return new PostingCommand(Type.TRANSFER, fromAccountId, toAccountId, amount, Instant.now());
+    }
+
+    // A stored command, as queued (to run it again) or completed (to show its result)
+    static PostingCommand restore(PostingCommandRecord record) {
+        PostingCommand command = new PostingCommand(Type.valueOf(record.getType()), record.getAccountId(),
+                record.getToAccountId(), record.getAmount(), record.getCreatedAt().atZone(ZoneId.systemDefault()).toInstant());
+        command.id = record.getId();
+        command.username = record.getUsername();
+        command.idempotencyKey = record.getIdempotencyKey();
+        Status status = Status.valueOf(record.getStatus());
+        if (status != Status.QUEUED) {
+            command.message = record.getMessage();
+            command.completedAt = record.getCompletedAt().atZone(ZoneId.systemDefault()).toInstant();
+            command.status = status;
+            command.completion.complete(command);
+        }
+        return command;
+    }
+
+    PostingCommandRecord toRecord(String node) {
+        PostingCommandRecord record = new PostingCommandRecord();
+        record.setId(id);
+        record.setNode(node);
+        record.setUsername(username);
+        record.setType(type.name());
+        record.setAccountId(accountId);
+        record.setToAccountId(toAccountId);
+        record.setAmount(amount);
+        record.setIdempotencyKey(idempotencyKey);
+        record.setStatus(Status.QUEUED.name());
+        record.setCreatedAt(LocalDateTime.ofInstant(createdAt, ZoneId.systemDefault()));
+        return record;
+    }
+
+    /**
+     * Performs the posting and returns the success message shown to the client.
+     */
+    public String apply(AccountService accountService, TransferSagaService transferSagaService) {
+        switch (type) {
+            case DEPOSIT -> {
+                accountService.deposit(accountId, amount);
+                return "Deposited " + amount;
+            }
+            case WITHDRAW -> {
+                accountService.withdraw(accountId, amount);
+                return "Withdrew " + amount;
+            }
+            default -> {
+                return transferSagaService.transfer(accountId, toAccountId, amount, idempotencyKey);
+            }
+        }
+    }
+
+    /**
+     * True for a transfer whose accounts live on different cluster nodes or shards: it commits in
+     * steps of its own, so it must not be batched with other postings.
+     */
+    public boolean isSplit(TransferSagaService transferSagaService) {
+        return type == Type.TRANSFER && transferSagaService.isSplit(accountId, toAccountId);
+    }
+
+    /**
+     * Lets a split transfer deduplicate on its saga; see {@link TransferSagaService#idempotencyKey}.
+     */
+    public PostingCommand withIdempotencyKey(String idempotencyKey) {
+        this.idempotencyKey = idempotencyKey;
+        return this;
+    }
+
+    // In cluster mode the id names the node holding the command, so any node can route a status lookup
+    PostingCommand submittedBy(String username, String nodeName) {
+        this.username = username;
+        if (nodeName != null) {
+            this.id = nodeName + "." + id;
+        }
+        return this;
+    }
+
+    void complete(Status status, String message) {
+        this.message = message;
+        this.completedAt = Instant.now();
+        this.status = status;
+        completion.complete(this);
+    }
+
+    public Map<String, Object> toView() {
+        Map<String, Object> view = new LinkedHashMap<>();
+        Status current = status;   // read once: fields below were written before it
+        view.put("commandId", id);
+        view.put("type", type);
+        view.put("status", current);
+        view.put("accountId", accountId);
+        if (toAccountId != null) {
+            view.put("toAccountId", toAccountId);
+        }
+        view.put("amount", amount);
+        view.put("createdAt", createdAt);
+        if (current != Status.QUEUED) {
+            view.put("completedAt", completedAt);
+            view.put(current == Status.SUCCEEDED ? "message" : "error", message);
+        }
+        return view;
+    }
+
+    public String getId() { return id; }
+    public Type getType() { return type; }
+    public Long getAccountId() { return accountId; }
+    public String getUsername() { return username; }
+    public String getIdempotencyKey() { return idempotencyKey; }
+    public Status getStatus() { return status; }
+    public String getMessage() { return message; }
+    public Instant getCreatedAt() { return createdAt; }
+    public Instant getCompletedAt() { return completedAt; }
+    public boolean isDone() { return status != Status.QUEUED; }
+    public CompletableFuture<PostingCommand> getCompletion() { return completion; }
+}
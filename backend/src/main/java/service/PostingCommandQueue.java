@@ -0,0 +1,348 @@
+package service;
+
+import entities.PostingCommandRecord;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import repository.PostingCommandRecordRepository;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Asynchronous posting mode: requests are validated on the HTTP thread, queued here and
+ * acknowledged with 202. Worker threads drain the queue in batches, applying each batch in a
+ * single transaction (one commit for many postings); if any command in it fails, the batch is
+ * rolled back and replayed one command per transaction so only the bad one fails.
+ * <p>
+ * The queue is bounded: {@link #submit} never blocks and returns false when full, which the API
+ * turns into 503 + Retry-After. Results stay readable for {@code commands.retention-ms} and are
+ * also pushed to the customer's event stream.
+ * <p>
+ * Each command is also stored in {@code posting_commands}, in the request's transaction (with its
+ * Idempotency-Key), and only queued once that commits. A worker marks it done in the posting's own
+ * transaction. Commands still queued in the table after {@code commands.recover-ms}, e.g. after a
+ * restart, are queued again; the conditional completion makes a second run roll back.
+ */
+@Service
+public class PostingCommandQueue {
+
+    private static final Logger log = LoggerFactory.getLogger(PostingCommandQueue.class);
+
+    private final AccountService accountService;
+    private final TransferSagaService transferSagaService;
+    private final ClusterService clusterService;
+    private final ShardService shardService;
+    private final AccountEventStream accountEventStream;
+    private final ChangeVersionService changeVersionService;
+    private final PostingCommandRecordRepository recordRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final BlockingQueue<PostingCommand> queue;
+    private final int workers;
+    private final int batchSize;
+    private final long retentionMs;
+    private final long recoverMs;
+
+    private final Map<String, PostingCommand> commands = new ConcurrentHashMap<>();
+    private final List<Thread> workerThreads = new ArrayList<>();
+    private volatile boolean running;
+
+    private final Timer latency;
+    private final DistributionSummary batchSizes;
+    private final Counter rejected;
+
+    public PostingCommandQueue(AccountService accountService,
+                               TransferSagaService transferSagaService,
+                               ClusterService clusterService,
+                               ShardService shardService,
+                               AccountEventStream accountEventStream,
+                               ChangeVersionService changeVersionService,
+                               PostingCommandRecordRepository recordRepository,
+                               PlatformTransactionManager transactionManager,
+                               MeterRegistry meterRegistry,
+                               @Value("${commands.queue-capacity:10000}") int capacity,
+                               @Value("${commands.workers:2}") int workers,
+                               @Value("${commands.batch-size:50}") int batchSize,
+                               @Value("${commands.retention-ms:600000}") long retentionMs,
+                               @Value("${commands.recover-ms:30000}") long recoverMs) {
+        this.accountService = accountService;
+        this.transferSagaService = transferSagaService;
+        this.clusterService = clusterService;
+        this.shardService = shardService;
+        this.accountEventStream = accountEventStream;
+        this.changeVersionService = changeVersionService;
+        this.recordRepository = recordRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.workers = workers;
+        this.batchSize = batchSize;
+        this.retentionMs = retentionMs;
+        this.recoverMs = recoverMs;
+
+        this.latency = Timer.builder("commands.latency")
+                .description("Time from acceptance to completion of queued postings")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.batchSizes = meterRegistry.summary("commands.batch.size");
+        this.rejected = meterRegistry.counter("commands.rejected");
+        meterRegistry.gaugeCollectionSize("commands.queue.depth", List.of(), queue);
+    }
+
+    @PostConstruct
+    void start() {
+        running = true;
+        for (int i = 1; i <= workers; i++) {
+            Thread worker = new Thread(this::work, "posting-worker-" + i);
+            worker.setDaemon(true);
+            worker.start();
+            workerThreads.add(worker);
+        }
+    }
+
+    // Stop taking new work, let the workers finish what was accepted
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        for (Thread worker : workerThreads) {
+            worker.join(TimeUnit.SECONDS.toMillis(10));
+        }
+    }
+
+    // -----------------------------
+    // Submission and lookup
+    // -----------------------------
+
+    /**
+     * Stores an already validated command, joining the caller's transaction, and queues it without
+     * blocking once that commits. A rolled-back caller (e.g. the loser of an Idempotency-Key race)
+     * leaves nothing queued.
+     *
+     * @return false when the queue is full (or shutting down) and the client should retry later
+     */
+    public boolean submit(PostingCommand command, String username) {
+        if (!running || queue.remainingCapacity() == 0) {
+            rejected.increment();
+            return false;
+        }
+        command.submittedBy(username, clusterService.isEnabled() ? clusterService.self().name() : null);
+        if (command.getIdempotencyKey() == null) {
+            // Still gives a split transfer a saga key, so a recovered second run cannot debit twice.
+            // A header value cannot contain a newline, so this never equals a client's key.
+            command.withIdempotencyKey(TransferSagaService.idempotencyKey(username, "\n" + command.getId()));
+        }
+        commands.put(command.getId(), command);
+        recordRepository.save(command.toRecord(clusterService.self().name()));
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_COMMITTED) {
+                        offer(command);
+                    } else {
+                        commands.remove(command.getId());
+                    }
+                }
+            });
+        } else {
+            offer(command);
+        }
+        return true;
+    }
+
+    private void offer(PostingCommand command) {
+        if (!queue.offer(command)) {
+            // Filled up since submit checked; stored, so recoverQueued picks it up
+            commands.remove(command.getId());
+            log.debug("Queue full, command {} left for recovery", command.getId());
+        }
+    }
+
+    /**
+     * A command visible to its submitter only: queued or recently completed here, or stored.
+     */
+    public Optional<PostingCommand> find(String commandId, String username) {
+        PostingCommand command = commands.get(commandId);
+        if (command == null) {
+            command = recordRepository.findById(commandId).map(PostingCommand::restore).orElse(null);
+        }
+        return Optional.ofNullable(command)
+                .filter(found -> found.getUsername().equals(username));
+    }
+
+    @Scheduled(fixedDelayString = "${commands.purge-ms:60000}")
+    public void purgeCompleted() {
+        Instant cutoff = Instant.now().minusMillis(retentionMs);
+        commands.values().removeIf(command -> command.isDone() && command.getCompletedAt().isBefore(cutoff));
+        LocalDateTime storedCutoff = LocalDateTime.now().minusNanos(retentionMs * 1_000_000);
+        shardService.forEachShard(() -> recordRepository.deleteCompletedBefore(storedCutoff));
+    }
+
+    // Stored commands of this node that are queued but not in memory: accepted before a restart,
+    // or left out when the queue was full
+    @Scheduled(fixedDelayString = "${commands.recover-ms:30000}")
+    public void recoverQueued() {
+        if (!running) {
+            return;
+        }
+        LocalDateTime before = LocalDateTime.now().minusNanos(recoverMs * 1_000_000);
+        int[] recovered = {0};
+        shardService.forEachShard(() -> {
+            for (PostingCommandRecord record : recordRepository.findQueued(clusterService.self().name(), before,
+                    PageRequest.of(0, 500))) {
+                if (commands.containsKey(record.getId())) {
+                    continue;
+                }
+                PostingCommand command = PostingCommand.restore(record);
+                commands.put(command.getId(), command);
+                if (!queue.offer(command)) {
+                    commands.remove(command.getId());
+                    return;
+                }
+                recovered[0]++;
+            }
+        });
+        if (recovered[0] > 0) {
+            log.info("Queued {} stored posting commands again", recovered[0]);
+        }
+    }
+
+    // -----------------------------
+    // Workers
+    // -----------------------------
+    private void work() {
+        List<PostingCommand> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PostingCommand first = queue.poll(200, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                batchSizes.record(batch.size());
+                runBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                // Never lose a worker; anything still open in the batch fails visibly
+                log.error("Posting worker failed on a batch of {}", batch.size(), e);
+                batch.stream().filter(command -> !command.isDone())
+                        .forEach(command -> finish(command, PostingCommand.Status.FAILED, "Internal error"));
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void runBatch(List<PostingCommand> batch) {
+        // Cross-node/shard transfers commit their own steps and cannot be rolled back with a batch
+        List<PostingCommand> sagas = batch.stream().filter(command -> command.isSplit(transferSagaService)).toList();
+        if (!sagas.isEmpty()) {
+            batch.removeAll(sagas);
+            sagas.forEach(this::runOne);
+        }
+        if (!shardService.isEnabled()) {
+            runShardBatch(batch);
+            return;
+        }
+        // A transaction covers one shard, so batch per shard of the debited account
+        Map<Integer, List<PostingCommand>> byShard = batch.stream()
+                .collect(Collectors.groupingBy(command -> shardService.shardOf(command.getAccountId())));
+        byShard.forEach((shard, commands) -> shardService.runOnShard(shard, () -> runShardBatch(commands)));
+    }
+
+    private void runShardBatch(List<PostingCommand> batch) {
+        if (batch.size() > 1) {
+            try {
+                List<String> messages = transactionTemplate.execute(status -> {
+                    List<String> results = new ArrayList<>(batch.size());
+                    for (PostingCommand command : batch) {
+                        String message = command.apply(accountService, transferSagaService);
+                        completeRecord(command, PostingCommand.Status.SUCCEEDED, message);
+                        results.add(message);
+                    }
+                    return results;
+                });
+                for (int i = 0; i < batch.size(); i++) {
+                    finish(batch.get(i), PostingCommand.Status.SUCCEEDED, messages.get(i));
+                }
+                return;
+            } catch (RuntimeException e) {
+                // Whole batch rolled back; replay it one by one so only the failing command fails
+                log.debug("Batch of {} rolled back ({}); applying individually", batch.size(), e.getMessage());
+            }
+        }
+        batch.forEach(this::runOne);
+    }
+
+    private void runOne(PostingCommand command) {
+        int shard = shardService.shardOf(command.getAccountId());
+        try {
+            String message = shardService.onShard(shard, () -> transactionTemplate.execute(status -> {
+                String result = command.apply(accountService, transferSagaService);
+                completeRecord(command, PostingCommand.Status.SUCCEEDED, result);
+                return result;
+            }));
+            finish(command, PostingCommand.Status.SUCCEEDED, message);
+        } catch (AlreadyCompletedException e) {
+            // Another run completed it (and this one rolled back); show what that run stored
+            shardService.onShard(shard, () -> recordRepository.findById(command.getId()))
+                    .map(PostingCommand::restore)
+                    .ifPresent(stored -> finish(command, stored.getStatus(), stored.getMessage()));
+        } catch (RuntimeException e) {
+            String error = String.valueOf(e.getMessage());
+            shardService.onShard(shard, () -> transactionTemplate.execute(status ->
+                    recordRepository.complete(command.getId(), PostingCommand.Status.FAILED.name(), truncate(error),
+                            LocalDateTime.now())));
+            finish(command, PostingCommand.Status.FAILED, error);
+        }
+    }
+
+    // In the posting's transaction, so the command is marked done if and only if the posting committed
+    private void completeRecord(PostingCommand command, PostingCommand.Status status, String message) {
+        if (recordRepository.complete(command.getId(), status.name(), truncate(message), LocalDateTime.now()) == 0) {
+            throw new AlreadyCompletedException();
+        }
+    }
+
+    private static String truncate(String message) {
+        return message != null && message.length() > 512 ? message.substring(0, 512) : message;
+    }
+
+    private void finish(PostingCommand command, PostingCommand.Status status, String message) {
+        command.complete(status, message);
+        latency.record(Duration.between(command.getCreatedAt(), command.getCompletedAt()));
+        changeVersionService.customerIdFor(command.getUsername())
+                .ifPresent(customerId -> accountEventStream.publish(customerId, "command", command.toView()));
+    }
+
+    private static class AlreadyCompletedException extends RuntimeException {
+        AlreadyCompletedException() {
+            super("Command already completed", null, false, false);
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import util.SqlNormalizer;
+
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects JDBC statement latencies grouped by normalized SQL, counts statements per HTTP
+ * request, and flags slow queries and N+1 patterns. Fed by the proxies in {@code config.JdbcProfilerConfig}.
+ */
+@Service
+public class QueryProfiler {
+
+    private static final Logger log = LoggerFactory.getLogger(QueryProfiler.class);
+
+    // Upper bounds of the latency histogram buckets, in microseconds; the last bucket is open-ended
+    private static final long[] BUCKET_BOUNDS_MICROS = {
+            100, 250, 500, 1_000, 2_500, 5_000, 10_000, 25_000, 50_000,
+            100_000, 250_000, 500_000, 1_000_000, 2_500_000, 5_000_000
+    };
+
+    private static final int RECENT_INCIDENTS = 100;
+    private static final String OVERFLOW_QUERY = "(other)";
+
+    private final MeterRegistry meterRegistry;
+    private final long slowQueryNanos;
+    private final int nPlusOneThreshold;
+    private final int maxQueries;
+
+    private final Map<String, QueryStats> stats = new ConcurrentHashMap<>();
+    private final ThreadLocal<RequestStats> currentRequest = new ThreadLocal<>();
+    private final Deque<Map<String, Object>> slowQueries = new ArrayDeque<>();
+    private final Deque<Map<String, Object>> nPlusOneIncidents = new ArrayDeque<>();
+
+    private final Counter slowQueryCounter;
+    private final Counter nPlusOneCounter;
+    private final DistributionSummary statementsPerRequest;
+
+    public QueryProfiler(MeterRegistry meterRegistry,
+                         @Value("${jdbc.profiler.slow-query-ms:200}") long slowQueryMs,
+                         @Value("${jdbc.profiler.n-plus-one-threshold:10}") int nPlusOneThreshold,
+                         @Value("${jdbc.profiler.max-queries:500}") int maxQueries) {
+        this.meterRegistry = meterRegistry;
+        this.slowQueryNanos = TimeUnit.MILLISECONDS.toNanos(slowQueryMs);
+        this.nPlusOneThreshold = nPlusOneThreshold;
+        this.maxQueries = maxQueries;
+
+        this.slowQueryCounter = Counter.builder("jdbc.queries.slow")
+                .description("Statements slower than jdbc.profiler.slow-query-ms")
+                .register(meterRegistry);
+        this.nPlusOneCounter = Counter.builder("jdbc.queries.n-plus-one")
+                .description("HTTP requests that repeated one statement at least jdbc.profiler.n-plus-one-threshold times")
+                .register(meterRegistry);
+        this.statementsPerRequest = DistributionSummary.builder("jdbc.statements.per-request")
+                .description("JDBC statements executed per HTTP request")
+                .register(meterRegistry);
+    }
+
+    // -----------------------------
+    // Recording (called by the JDBC proxies and the request filter)
+    // -----------------------------
+    public void record(String sql, long elapsedNanos) {
+        String normalized = SqlNormalizer.normalize(sql);
+        statsFor(normalized).record(elapsedNanos);
+
+        RequestStats request = currentRequest.get();
+        if (request != null) {
+            request.record(normalized);
+        }
+
+        if (elapsedNanos >= slowQueryNanos) {
+            slowQueryCounter.increment();
+            long millis = TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+            log.warn("Slow query ({} ms): {}", millis, normalized);
+            remember(slowQueries, Map.of("sql", normalized, "millis", millis, "at", Instant.now().toString()));
+        }
+    }
+
+    public void beginRequest() {
+        currentRequest.set(new RequestStats());
+    }
+
+    public void endRequest(String method, String uri) {
+        RequestStats request = currentRequest.get();
+        currentRequest.remove();
+        if (request == null || request.total == 0) {
+            return;
+        }
+        statementsPerRequest.record(request.total);
+
+        request.perQuery.forEach((sql, count) -> {
+            if (count >= nPlusOneThreshold) {
+                nPlusOneCounter.increment();
+                log.warn("Possible N+1: {} {} ran the same statement {} times: {}", method, uri, count, sql);
+                remember(nPlusOneIncidents, Map.of(
+                        "request", method + " " + uri,
+                        "sql", sql,
+                        "executions", count,
+                        "at", Instant.now().toString()));
+            }
+        });
+    }
+
+    // -----------------------------
+    // Reporting (admin endpoint)
+    // -----------------------------
+    public List<Map<String, Object>> topQueries(int limit) {
+        return stats.entrySet().stream()
+                .sorted(Comparator.comparingLong((Map.Entry<String, QueryStats> e) -> e.getValue().totalNanos.sum()).reversed())
+                .limit(limit)
+                .map(e -> e.getValue().snapshot(e.getKey()))
+                .toList();
+    }
+
+    public List<Map<String, Object>> recentSlowQueries() {
+        synchronized (slowQueries) {
+            return new ArrayList<>(slowQueries);
+        }
+    }
+
+    public List<Map<String, Object>> recentNPlusOneIncidents() {
+        synchronized (nPlusOneIncidents) {
+            return new ArrayList<>(nPlusOneIncidents);
+        }
+    }
+
+    public void reset() {
+        stats.clear();
+        synchronized (slowQueries) {
+            slowQueries.clear();
+        }
+        synchronized (nPlusOneIncidents) {
+            nPlusOneIncidents.clear();
+        }
+    }
+
+    private QueryStats statsFor(String normalized) {
+        QueryStats existing = stats.get(normalized);
+        if (existing != null) {
+            return existing;
+        }
+        // Bound the number of tracked statements (and meter tags) against ad-hoc SQL
+        String key = stats.size() >= maxQueries ? OVERFLOW_QUERY : normalized;
+        return stats.computeIfAbsent(key, k -> new QueryStats(Timer.builder("jdbc.query")
+                .description("JDBC statement latency by normalized SQL")
+                .tag("query", Integer.toHexString(k.hashCode()))
+                .register(meterRegistry)));
+    }
+
+    private static void remember(Deque<Map<String, Object>> recent, Map<String, Object> entry) {
+        synchronized (recent) {
+            if (recent.size() >= RECENT_INCIDENTS) {
+                recent.removeFirst();
+            }
+            recent.addLast(entry);
+        }
+    }
+
+    private static class RequestStats {
+        private final Map<String, Integer> perQuery = new HashMap<>();
+        private int total;
+
+        void record(String normalized) {
+            total++;
+            perQuery.merge(normalized, 1, Integer::sum);
+        }
+    }
+
+    private static class QueryStats {
+        private final Timer timer;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+        private final LongAdder[] buckets = new LongAdder[BUCKET_BOUNDS_MICROS.length + 1];
+
+        QueryStats(Timer timer) {
+            this.timer = timer;
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        void record(long nanos) {
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+            buckets[bucketIndex(nanos / 1_000)].increment();
+            timer.record(nanos, TimeUnit.NANOSECONDS);
+        }
+
+        Map<String, Object> snapshot(String sql) {
+            long n = count.sum();
+            long[] counts = new long[buckets.length];
+            Map<String, Long> histogram = new LinkedHashMap<>();
+            for (int i = 0; i < buckets.length; i++) {
+                counts[i] = buckets[i].sum();
+                histogram.put(i < BUCKET_BOUNDS_MICROS.length ? "le_" + BUCKET_BOUNDS_MICROS[i] + "us" : "inf", counts[i]);
+            }
+
+            Map<String, Object> snapshot = new LinkedHashMap<>();
+            snapshot.put("sql", sql);
+            snapshot.put("count", n);
+            snapshot.put("totalMillis", TimeUnit.NANOSECONDS.toMillis(totalNanos.sum()));
+            snapshot.put("meanMicros", n == 0 ? 0 : totalNanos.sum() / n / 1_000);
+            snapshot.put("p50Micros", percentile(counts, n, 0.50));
+            snapshot.put("p95Micros", percentile(counts, n, 0.95));
+            snapshot.put("p99Micros", percentile(counts, n, 0.99));
+            snapshot.put("maxMicros", maxNanos.get() / 1_000);
+            snapshot.put("histogram", histogram);
+            return snapshot;
+        }
+
+        // Upper bound of the bucket holding the requested rank
+        private long percentile(long[] counts, long total, double quantile) {
+            long rank = (long) Math.ceil(total * quantile);
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank && rank > 0) {
+                    return i < BUCKET_BOUNDS_MICROS.length ? BUCKET_BOUNDS_MICROS[i] : maxNanos.get() / 1_000;
+                }
+            }
+            return 0;
+        }
+
+        private static int bucketIndex(long micros) {
+            for (int i = 0; i < BUCKET_BOUNDS_MICROS.length; i++) {
+                if (micros <= BUCKET_BOUNDS_MICROS[i]) {
+                    return i;
+                }
+            }
+            return BUCKET_BOUNDS_MICROS.length;
+        }
+    }
+}
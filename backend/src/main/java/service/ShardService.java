@@ -0,0 +1,217 @@
+package service;
+
+import entities.UserShard;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import repository.UserShardRepository;
+import util.ShardContext;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+/**
+ * Where a customer's data lives when {@code sharding.enabled} (see config.ShardingConfig).
+ * <p>
+ * A user and everything they own sit on one shard. Ids are allocated per shard from disjoint
+ * ranges ({@link #firstId}), so any user, customer, account or transaction id names its shard
+ * without a lookup; usernames are resolved through the {@code user_shards} directory on shard 0,
+ * which is written once at registration and cached here.
+ * <p>
+ * Disabled, there is a single shard 0 and every method is a pass-through.
+ */
+@Service
+public class ShardService {
+
+    // Shard k allocates ids from k << 40; room for about a trillion rows per table per shard
+    private static final int ID_BITS = 40;
+    // Holds the global tables: the user_shards directory and revoked_tokens
+    public static final int DIRECTORY_SHARD = 0;
+    private static final int CACHE_LIMIT = 100_000;
+
+    private final boolean enabled;
+    private final int shardCount;
+    private final UserShardRepository userShardRepository;
+    private final EntityManagerFactory entityManagerFactory;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ExecutorService scatterPool;
+
+    private final Map<String, Integer> userShards = new ConcurrentHashMap<>();
+
+    public ShardService(@Value("${sharding.enabled:false}") boolean enabled,
+                        @Value("${sharding.urls:}") String[] urls,
+                        UserShardRepository userShardRepository,
+                        EntityManagerFactory entityManagerFactory,
+                        PlatformTransactionManager transactionManager) {
+        this.enabled = enabled;
+        this.shardCount = enabled ? urls.length : 1;
+        this.userShardRepository = userShardRepository;
+        this.entityManagerFactory = entityManagerFactory;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.scatterPool = Executors.newFixedThreadPool(shardCount, r -> {
+            Thread thread = new Thread(r, "shard-scatter");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int shardCount() {
+        return shardCount;
+    }
+
+    public static long firstId(int shard) {
+        return shard == 0 ? 1 : (long) shard << ID_BITS;
+    }
+
+    // -----------------------------
+    // Locating data
+    // -----------------------------
+
+    /**
+     * Shard of a user, customer, account or transaction id. Ids outside every range map to shard 0,
+     * where they simply are not found.
+     */
+    public int shardOf(Long id) {
+        if (!enabled || id == null || id < 0) {
+            return 0;
+        }
+        long shard = id >>> ID_BITS;
+        return shard < shardCount ? (int) shard : 0;
+    }
+
+    public Optional<Integer> shardOfUser(String username) {
+        if (!enabled) {
+            return Optional.of(0);
+        }
+        Integer cached = userShards.get(username);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        Optional<Integer> shard = onShard(DIRECTORY_SHARD, () -> userShardRepository.findShardByUsername(username));
+        shard.ifPresent(found -> remember(username, found));
+        return shard;
+    }
+
+    /**
+     * Places a new user and records it in the directory; the unique username makes a second
+     * registration fail here with a DataIntegrityViolationException.
+     */
+    public int assignShard(String username) {
+        if (!enabled) {
+            return 0;
+        }
+        int shard = placeNewUser(username);
+        UserShard entry = new UserShard();
+        entry.setUsername(username);
+        entry.setShard(shard);
+        entry.setCreatedAt(LocalDateTime.now());
+        onShard(DIRECTORY_SHARD, () -> userShardRepository.saveAndFlush(entry));
+        remember(username, shard);
+        return shard;
+    }
+
+    /**
+     * The shard a new user goes to (bulk imports place users themselves and must agree).
+     */
+    public int placeNewUser(String username) {
+        return enabled ? Math.floorMod(username.hashCode(), shardCount) : 0;
+    }
+
+    private void remember(String username, int shard) {
+        if (userShards.size() >= CACHE_LIMIT) {
+            userShards.clear();
+        }
+        userShards.put(username, shard);
+    }
+
+    // -----------------------------
+    // Running on a shard
+    // -----------------------------
+
+    /**
+     * Runs {@code action} against {@code shard}. Outside a transaction, an EntityManager left open
+     * by open-in-view (which holds a connection to the request's shard) is set aside meanwhile.
+     * Inside one, only work that starts its own (REQUIRES_NEW) transaction reaches the other shard.
+     */
+    public <T> T onShard(int shard, Supplier<T> action) {
+        Integer previous = ShardContext.current();
+        if (!enabled || (previous != null && previous == shard)) {
+            return action.get();
+        }
+        Object openEntityManager = TransactionSynchronizationManager.isActualTransactionActive()
+                ? null : TransactionSynchronizationManager.unbindResourceIfPossible(entityManagerFactory);
+        ShardContext.set(shard);
+        try {
+            return action.get();
+        } finally {
+            ShardContext.set(previous);
+            if (openEntityManager != null) {
+                TransactionSynchronizationManager.bindResource(entityManagerFactory, openEntityManager);
+            }
+        }
+    }
+
+    public void runOnShard(int shard, Runnable action) {
+        onShard(shard, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    /**
+     * Runs {@code action} once per shard, one after the other (background jobs).
+     */
+    public void forEachShard(Runnable action) {
+        for (int shard = 0; shard < shardCount; shard++) {
+            runOnShard(shard, action);
+        }
+    }
+
+    /**
+     * Runs {@code query} on every shard in parallel, each in a read-only transaction (so results
+     * should be mapped to plain views inside it), and concatenates the results in shard order.
+     */
+    public <T> List<T> scatterGather(Supplier<List<T>> query) {
+        if (!enabled) {
+            return readOnlyTransaction.execute(status -> query.get());
+        }
+        List<CompletableFuture<List<T>>> parts = new ArrayList<>(shardCount);
+        for (int shard = 0; shard < shardCount; shard++) {
+            int target = shard;
+            parts.add(CompletableFuture.supplyAsync(
+                    () -> onShard(target, () -> readOnlyTransaction.execute(status -> query.get())), scatterPool));
+        }
+        List<T> results = new ArrayList<>();
+        try {
+            for (CompletableFuture<List<T>> part : parts) {
+                results.addAll(part.join());
+            }
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+        return results;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        scatterPool.shutdownNow();
+    }
+}
@@ -0,0 +1,245 @@
+package service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import entities.Money;
+import entities.OutboxEvent;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import util.TransactionColumns;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Monthly spending figures answered from a columnar in-memory copy of recent transactions
+ * ({@link TransactionColumns}) rather than {@code GROUP BY} over the transactions table.
+ * <p>
+ * The copy is fed by the outbox as transactions are posted, and reloaded from every shard at startup
+ * and every {@code analytics.reload-ms}: that drops months that left the {@code analytics.window-months}
+ * window and, in cluster mode, adds the postings whose events another instance dispatched. Events
+ * delivered while a reload runs are replayed into the new copy before it replaces the old one.
+ */
+@Service
+public class SpendingAnalyticsService implements OutboxSink {
+
+    private static final Logger log = LoggerFactory.getLogger(SpendingAnalyticsService.class);
+
+    private static final String SELECT_RECENT = "SELECT t.transaction_id, a.customer_id, t.timestamp, t.amount, "
+            + "t.transaction_type, t.status FROM transactions t JOIN accounts a ON a.account_id = t.account_id "
+            + "WHERE t.timestamp >= ? ORDER BY t.timestamp";
+    private static final String SUCCESS = "SUCCESS";
+    // Money leaving the customer's accounts, and the refunds of it netted against spending
+    private static final Set<String> OUTFLOW_TYPES = Set.of("WITHDRAW", "TRANSFER_SENT");
+    private static final Set<String> REFUND_TYPES = Set.of("TRANSFER_REVERSED");
+    // Money coming in; an opening deposit is a starting balance, not income
+    private static final Set<String> INFLOW_TYPES = Set.of("DEPOSIT", "TRANSFER_RECEIVED");
+
+    private record Row(long transactionId, long customerId, long epochSecond, long amountMinor,
+                       String type, String status) {
+    }
+
+    public record TypeTotal(long count, long totalMinor) {
+    }
+
+    public record Month(YearMonth month, Map<String, TypeTotal> byType) {
+
+        public long spentMinor() {
+            return total(OUTFLOW_TYPES) - total(REFUND_TYPES);
+        }
+
+        public long receivedMinor() {
+            return total(INFLOW_TYPES);
+        }
+
+        private long total(Set<String> types) {
+            return byType.entrySet().stream().filter(e -> types.contains(e.getKey()))
+                    .mapToLong(e -> e.getValue().totalMinor()).sum();
+        }
+    }
+
+    private final ShardService shardService;
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final int windowMonths;
+    private final long reloadMs;
+    private final ZoneId zone = ZoneId.systemDefault();
+    private final ScheduledExecutorService worker;
+
+    private final Object lock = new Object();
+    private volatile TransactionColumns columns = new TransactionColumns();
+    private volatile boolean ready;
+    private List<Row> deliveredDuringReload;
+
+    public SpendingAnalyticsService(ShardService shardService,
+                                    JdbcTemplate jdbcTemplate,
+                                    ObjectMapper objectMapper,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${analytics.window-months:13}") int windowMonths,
+                                    @Value("${analytics.reload-ms:3600000}") long reloadMs) {
+        this.shardService = shardService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.windowMonths = windowMonths;
+        this.reloadMs = reloadMs;
+        this.worker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "spending-analytics");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        Gauge.builder("analytics.rows", this, service -> service.columns.rows())
+                .description("Transactions in the in-memory analytics store")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        worker.scheduleWithFixedDelay(this::reload, 0, reloadMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        worker.shutdownNow();
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public int getWindowMonths() {
+        return windowMonths;
+    }
+
+    /**
+     * Successful transactions per month and type for the last {@code months} months, the current one
+     * included, oldest first. A null {@code customerId} covers every customer.
+     */
+    public List<Month> monthly(Long customerId, int months) {
+        YearMonth first = YearMonth.now(zone).minusMonths(months - 1L);
+        long[] bounds = new long[months + 1];
+        for (int i = 0; i <= months; i++) {
+            bounds[i] = first.plusMonths(i).atDay(1).atStartOfDay(zone).toEpochSecond();
+        }
+        TransactionColumns.Totals totals = columns.aggregate(
+                customerId == null ? TransactionColumns.ANY_CUSTOMER : customerId, SUCCESS, bounds);
+
+        List<Month> result = new ArrayList<>(months);
+        for (int bucket = 0; bucket < months; bucket++) {
+            Map<String, TypeTotal> byType = new LinkedHashMap<>();
+            for (int type = 0; type < totals.types().size(); type++) {
+                long count = totals.count(bucket, type);
+                if (count > 0) {
+                    byType.put(totals.types().get(type), new TypeTotal(count, totals.sum(bucket, type)));
+                }
+            }
+            result.add(new Month(first.plusMonths(bucket), byType));
+        }
+        return result;
+    }
+
+    // -----------------------------
+    // Outbox feed
+    // -----------------------------
+    @Override
+    public String name() {
+        return "analytics";
+    }
+
+    @Override
+    public boolean accepts(String eventType) {
+        return OutboxService.TRANSACTION_POSTED.equals(eventType);
+    }
+
+    @Override
+    public void deliver(List<OutboxEvent> events) throws Exception {
+        List<Row> rows = new ArrayList<>(events.size());
+        for (OutboxEvent event : events) {
+            TransactionPostedEvent posted = objectMapper.readValue(event.getPayload(), TransactionPostedEvent.class);
+            if (posted.transactionId() == null || posted.timestamp() == null) {
+                continue;
+            }
+            rows.add(new Row(posted.transactionId(), posted.customerId(), epochSecond(posted.timestamp()),
+                    posted.amount().getMinorUnits(), posted.transactionType(),
+                    // Events queued before the status was carried were all successful postings
+                    posted.status() != null ? posted.status() : SUCCESS));
+        }
+        synchronized (lock) {
+            TransactionColumns target = columns;
+            for (Row row : rows) {
+                append(target, row);
+            }
+            if (deliveredDuringReload != null) {
+                deliveredDuringReload.addAll(rows);
+            }
+        }
+    }
+
+    // -----------------------------
+    // Loading
+    // -----------------------------
+    private void reload() {
+        synchronized (lock) {
+            deliveredDuringReload = new ArrayList<>();
+        }
+        try {
+            long start = System.nanoTime();
+            LocalDateTime since = YearMonth.now(zone).minusMonths(windowMonths - 1L).atDay(1).atStartOfDay();
+            TransactionColumns fresh = new TransactionColumns();
+            shardService.forEachShard(() -> jdbcTemplate.query(connection -> {
+                PreparedStatement statement = connection.prepareStatement(SELECT_RECENT);
+                statement.setTimestamp(1, Timestamp.valueOf(since));
+                statement.setFetchSize(1000);
+                return statement;
+            }, (RowCallbackHandler) rs -> fresh.append(
+                    rs.getLong("transaction_id"),
+                    rs.getLong("customer_id"),
+                    epochSecond(rs.getTimestamp("timestamp").toLocalDateTime()),
+                    Money.of(rs.getBigDecimal("amount")).getMinorUnits(),
+                    rs.getString("transaction_type"),
+                    rs.getString("status"))));
+            synchronized (lock) {
+                // Already-loaded ids are skipped
+                deliveredDuringReload.forEach(row -> append(fresh, row));
+                columns = fresh;
+            }
+            ready = true;
+            log.info("Spending analytics loaded: {} transactions in {} segments in {} ms", fresh.rows(),
+                    fresh.segmentCount(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (RuntimeException e) {
+            log.warn("Spending analytics reload failed; keeping the previous data", e);
+        } finally {
+            synchronized (lock) {
+                deliveredDuringReload = null;
+            }
+        }
+    }
+
+    private static void append(TransactionColumns target, Row row) {
+        target.append(row.transactionId(), row.customerId(), row.epochSecond(), row.amountMinor(),
+                row.type(), row.status());
+    }
+
+    private long epochSecond(LocalDateTime timestamp) {
+        return timestamp.atZone(zone).toEpochSecond();
+    }
+}
@@ -0,0 +1,478 @@
+package service;
+
+import entities.Money;
+import entities.StatementRun;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import repository.StatementRunRepository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+/**
+ * Month-end statements: one text file per customer with accounts, under
+ * {@code statements.dir/yyyy-MM/<customerId>.txt}, instead of loading each customer's whole history.
+ * <p>
+ * Customers are read in id order, {@code statements.batch-size} at a time. One query per batch returns
+ * each account's balance at the end of the month followed by the month's transactions, ordered by
+ * customer, account and timestamp, so rows are grouped per customer as they stream in and only one
+ * customer is held by the reader. Finished customers are rendered on {@code statements.threads}
+ * workers, with at most twice that many waiting. After every batch the run records the customer id
+ * below which every statement is written; a run interrupted by a restart or failure continues from
+ * there. Runs start on {@code statements.cron} for the previous month, or on demand.
+ */
+@Service
+public class StatementService {
+
+    private static final Logger log = LoggerFactory.getLogger(StatementService.class);
+
+    private static final DateTimeFormatter LINE_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+
+    // Signed amount of a successful transaction, as in ledger reconciliation
+    private static final String SIGNED_AMOUNT = LedgerReconciliationService.SIGNS.entrySet().stream()
+            .map(entry -> "WHEN '" + entry.getKey() + "' THEN " + (entry.getValue() < 0 ? "-" : "") + "x.amount")
+            .collect(Collectors.joining(" ", "CASE x.transaction_type ", " ELSE 0 END"));
+
+    private static final String SELECT_BATCH_END = "SELECT customer_id FROM customers WHERE customer_id > ? "
+            + "ORDER BY customer_id LIMIT 1 OFFSET ?";
+    // Kind 0: an account and its balance at the end of the period; kind 1: its transactions in the period
+    private static final String SELECT_BATCH = "SELECT c.customer_id, c.name, a.account_id, 0 AS kind, "
+            + "a.account_type AS detail, a.balance - COALESCE((SELECT SUM(" + SIGNED_AMOUNT + ") FROM transactions x "
+            + "WHERE x.account_id = a.account_id AND x.timestamp >= ? AND x.status = 'SUCCESS'), 0) AS amount, "
+            + "NULL AS ts, 0 AS transaction_id, NULL AS status "
+            + "FROM customers c JOIN accounts a ON a.customer_id = c.customer_id "
+            + "WHERE c.customer_id > ? AND c.customer_id <= ? "
+            + "UNION ALL "
+            + "SELECT a.customer_id, NULL, t.account_id, 1, t.transaction_type, t.amount, t.timestamp, "
+            + "t.transaction_id, t.status "
+            + "FROM accounts a JOIN transactions t ON t.account_id = a.account_id "
+            + "AND t.timestamp >= ? AND t.timestamp < ? "
+            + "WHERE a.customer_id > ? AND a.customer_id <= ? "
+            + "ORDER BY customer_id, account_id, kind, ts, transaction_id";
+
+    private record Line(LocalDateTime timestamp, String type, long amountMinor, String status) {
+    }
+
+    private static final class AccountSection {
+        final long accountId;
+        final String accountType;
+        final long closingMinor;
+        final List<Line> lines = new ArrayList<>();
+
+        AccountSection(long accountId, String accountType, long closingMinor) {
+            this.accountId = accountId;
+            this.accountType = accountType;
+            this.closingMinor = closingMinor;
+        }
+    }
+
+    private static final class CustomerStatement {
+        final long customerId;
+        final String name;
+        final List<AccountSection> accounts = new ArrayList<>();
+
+        CustomerStatement(long customerId, String name) {
+            this.customerId = customerId;
+            this.name = name;
+        }
+    }
+
+    private final StatementRunRepository statementRunRepository;
+    private final ShardService shardService;
+    private final ClusterService clusterService;
+    private final JdbcTemplate jdbcTemplate;
+    private final Path directory;
+    private final int batchSize;
+    private final int threads;
+    private final ExecutorService runner;
+    private final ExecutorService renderPool;
+    private final Counter rendered;
+
+    private volatile boolean running = true;
+
+    public StatementService(StatementRunRepository statementRunRepository,
+                            ShardService shardService,
+                            ClusterService clusterService,
+                            JdbcTemplate jdbcTemplate,
+                            MeterRegistry meterRegistry,
+                            @Value("${statements.dir:${java.io.tmpdir}/bank-statements}") String directory,
+                            @Value("${statements.batch-size:1000}") int batchSize,
+                            @Value("${statements.threads:0}") int threads) {
+        this.statementRunRepository = statementRunRepository;
+        this.shardService = shardService;
+        this.clusterService = clusterService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.directory = Path.of(directory);
+        this.batchSize = batchSize;
+        // Rendering is file I/O; 0 = one per core, at least two
+        this.threads = threads > 0 ? threads : Math.max(2, Runtime.getRuntime().availableProcessors());
+        this.runner = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "statements");
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicInteger counter = new AtomicInteger();
+        this.renderPool = Executors.newFixedThreadPool(this.threads, r -> {
+            Thread thread = new Thread(r, "statement-render-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.rendered = meterRegistry.counter("statements.rendered");
+    }
+
+    // -----------------------------
+    // Runs
+    // -----------------------------
+
+    /**
+     * Starts (or restarts a failed) run for a past month. Only one run per month exists across the
+     * cluster: a month already running or completed is refused with {@link IllegalStateException}.
+     */
+    public StatementRun start(YearMonth period) {
+        if (!period.isBefore(YearMonth.now())) {
+            throw new IllegalArgumentException("Statements are generated for past months only");
+        }
+        StatementRun run = find(period).orElse(null);
+        if (run == null) {
+            run = new StatementRun();
+            run.setPeriod(period.toString());
+            run.setCreatedAt(LocalDateTime.now());
+        } else if (!StatementRun.FAILED.equals(run.getStatus())) {
+            throw new IllegalStateException("Statements for " + period + " are already "
+                    + run.getStatus().toLowerCase(Locale.ROOT) + " (node " + run.getNode() + ")");
+        }
+        run.setStatus(StatementRun.RUNNING);
+        run.setNode(clusterService.self().name());
+        run.setLastError(null);
+        run.setUpdatedAt(LocalDateTime.now());
+        try {
+            run = save(run);
+        } catch (DataIntegrityViolationException e) {
+            throw new IllegalStateException("Statements for " + period + " were just started elsewhere");
+        }
+        submit(period);
+        return run;
+    }
+
+    public Optional<StatementRun> find(YearMonth period) {
+        return shardService.onShard(ShardService.DIRECTORY_SHARD, () -> statementRunRepository.findById(period.toString()));
+    }
+
+    public List<StatementRun> recent() {
+        return shardService.onShard(ShardService.DIRECTORY_SHARD, statementRunRepository::findTop24ByOrderByPeriodDesc);
+    }
+
+    /**
+     * The customer's statement file for {@code period}, if it has been written on this instance.
+     */
+    public Optional<Path> statementFile(YearMonth period, long customerId) {
+        Path file = fileOf(period, customerId);
+        return Files.isRegularFile(file) ? Optional.of(file) : Optional.empty();
+    }
+
+    // Previous month, early on the 1st; "-" disables
+    @Scheduled(cron = "${statements.cron:0 0 2 1 * *}")
+    public void startMonthEnd() {
+        YearMonth period = YearMonth.now().minusMonths(1);
+        try {
+            start(period);
+        } catch (IllegalStateException e) {
+            log.debug("Month-end statements not started: {}", e.getMessage());
+        }
+    }
+
+    // Runs cut short by a shutdown or crash pick up where they stopped
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeInterrupted() {
+        shardService.onShard(ShardService.DIRECTORY_SHARD,
+                () -> statementRunRepository.findByStatusAndNode(StatementRun.RUNNING, clusterService.self().name()))
+                .forEach(run -> {
+                    log.info("Resuming statements for {} after customer {}", run.getPeriod(), run.getLastCustomerId());
+                    submit(YearMonth.parse(run.getPeriod()));
+                });
+    }
+
+    @PreDestroy
+    void stop() {
+        // The current batch finishes reading; the run stays RUNNING and resumes on the next start
+        running = false;
+        runner.shutdown();
+        renderPool.shutdown();
+    }
+
+    private void submit(YearMonth period) {
+        runner.execute(() -> run(period));
+    }
+
+    private void run(YearMonth period) {
+        StatementRun run = find(period).orElse(null);
+        if (run == null || !StatementRun.RUNNING.equals(run.getStatus())) {
+            return;
+        }
+        Progress progress = new Progress(run);
+        try {
+            Files.createDirectories(directory.resolve(period.toString()));
+            for (int shard = 0; shard < shardService.shardCount() && running && progress.failure.get() == null; shard++) {
+                shardService.runOnShard(shard, () -> runShard(period, progress, run));
+            }
+            progress.awaitAll();
+            if (progress.failure.get() != null) {
+                throw progress.failure.get();
+            }
+            if (running) {
+                run.setStatus(StatementRun.COMPLETED);
+                checkpoint(run, progress);
+                log.info("Statements for {} completed: {} statements, {} transactions",
+                        period, run.getStatements(), run.getTransactions());
+            }
+        } catch (IOException | RuntimeException e) {
+            progress.awaitAll();
+            if (!running) {
+                log.info("Statements for {} interrupted by shutdown after customer {}", period, run.getLastCustomerId());
+                return;
+            }
+            log.error("Statements for {} failed after customer {}", period, progress.safePoint(), e);
+            run.setStatus(StatementRun.FAILED);
+            run.setLastError(truncate(String.valueOf(e.getMessage()), 512));
+            checkpoint(run, progress);
+        }
+    }
+
+    private void runShard(YearMonth period, Progress progress, StatementRun run) {
+        Timestamp start = Timestamp.valueOf(period.atDay(1).atStartOfDay());
+        Timestamp end = Timestamp.valueOf(period.plusMonths(1).atDay(1).atStartOfDay());
+        while (running && progress.failure.get() == null) {
+            long after = progress.queuedUpTo;
+            List<Long> next = jdbcTemplate.queryForList(SELECT_BATCH_END, Long.class, after, batchSize - 1);
+            boolean last = next.isEmpty();
+            Long batchEnd = last
+                    ? jdbcTemplate.queryForObject("SELECT MAX(customer_id) FROM customers WHERE customer_id > ?", Long.class, after)
+                    : next.get(0);
+            if (batchEnd == null) {
+                return;
+            }
+            long upTo = batchEnd;
+
+            StreamingGrouper grouper = new StreamingGrouper(period, progress);
+            jdbcTemplate.query(connection -> {
+                PreparedStatement statement = connection.prepareStatement(SELECT_BATCH);
+                statement.setTimestamp(1, end);
+                statement.setLong(2, after);
+                statement.setLong(3, upTo);
+                statement.setTimestamp(4, start);
+                statement.setTimestamp(5, end);
+                statement.setLong(6, after);
+                statement.setLong(7, upTo);
+                statement.setFetchSize(1000);
+                return statement;
+            }, grouper);
+            grouper.flush();
+
+            progress.queuedUpTo = upTo;
+            checkpoint(run, progress);
+            if (last) {
+                return;
+            }
+        }
+    }
+
+    private void checkpoint(StatementRun run, Progress progress) {
+        run.setLastCustomerId(progress.safePoint());
+        run.setStatements(progress.statements.get());
+        run.setTransactions(progress.transactions.get());
+        run.setUpdatedAt(LocalDateTime.now());
+        save(run);
+    }
+
+    private StatementRun save(StatementRun run) {
+        return shardService.onShard(ShardService.DIRECTORY_SHARD, () -> statementRunRepository.save(run));
+    }
+
+    private Path fileOf(YearMonth period, long customerId) {
+        return directory.resolve(period.toString()).resolve(customerId + ".txt");
+    }
+
+    private static String truncate(String text, int max) {
+        return text.length() <= max ? text : text.substring(0, max);
+    }
+
+    // -----------------------------
+    // Pipeline
+    // -----------------------------
+
+    /**
+     * What the reader has handed over and what the workers have finished. The safe point is the
+     * highest customer id below which nothing is pending, so resuming after it skips no one.
+     */
+    private final class Progress {
+        final Semaphore slots = new Semaphore(threads * 2);
+        final ConcurrentSkipListSet<Long> pending = new ConcurrentSkipListSet<>();
+        final AtomicLong statements;
+        final AtomicLong transactions;
+        final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        volatile long queuedUpTo;
+
+        Progress(StatementRun run) {
+            this.queuedUpTo = run.getLastCustomerId();
+            this.statements = new AtomicLong(run.getStatements());
+            this.transactions = new AtomicLong(run.getTransactions());
+        }
+
+        long safePoint() {
+            Long first = pending.isEmpty() ? null : pending.first();
+            return first == null ? queuedUpTo : Math.min(queuedUpTo, first - 1);
+        }
+
+        void awaitAll() {
+            slots.acquireUninterruptibly(threads * 2);
+            slots.release(threads * 2);
+        }
+    }
+
+    /**
+     * Turns the ordered rows of a batch into one {@link CustomerStatement} at a time and hands each
+     * to the render pool, blocking while the pool is full.
+     */
+    private final class StreamingGrouper implements RowCallbackHandler {
+        private final YearMonth period;
+        private final Progress progress;
+        private CustomerStatement current;
+        private AccountSection account;
+
+        StreamingGrouper(YearMonth period, Progress progress) {
+            this.period = period;
+            this.progress = progress;
+        }
+
+        @Override
+        public void processRow(ResultSet rs) throws SQLException {
+            long customerId = rs.getLong("customer_id");
+            if (current == null || current.customerId != customerId) {
+                flush();
+                current = new CustomerStatement(customerId, rs.getString("name"));
+            }
+            long amount = Money.of(rs.getBigDecimal("amount")).getMinorUnits();
+            if (rs.getInt("kind") == 0) {
+                account = new AccountSection(rs.getLong("account_id"), rs.getString("detail"), amount);
+                current.accounts.add(account);
+            } else {
+                account.lines.add(new Line(rs.getTimestamp("ts").toLocalDateTime(), rs.getString("detail"),
+                        amount, rs.getString("status")));
+            }
+        }
+
+        void flush() {
+            if (current == null) {
+                return;
+            }
+            CustomerStatement statement = current;
+            current = null;
+            account = null;
+            progress.slots.acquireUninterruptibly();
+            progress.pending.add(statement.customerId);
+            try {
+                renderPool.execute(() -> {
+                    try {
+                        write(period, statement);
+                        progress.pending.remove(statement.customerId);
+                        progress.statements.incrementAndGet();
+                        progress.transactions.addAndGet(statement.accounts.stream().mapToLong(a -> a.lines.size()).sum());
+                        rendered.increment();
+                    } catch (RuntimeException e) {
+                        // Stays pending, so the checkpoint never passes it
+                        progress.failure.compareAndSet(null, e);
+                    } finally {
+                        progress.slots.release();
+                    }
+                });
+            } catch (RuntimeException e) {
+                progress.slots.release();
+                throw e;
+            }
+        }
+    }
+
+    // -----------------------------
+    // Rendering
+    // -----------------------------
+    private void write(YearMonth period, CustomerStatement statement) {
+        Path file = fileOf(period, statement.customerId);
+        Path partial = file.resolveSibling(file.getFileName() + ".part");
+        try {
+            try (Writer out = Files.newBufferedWriter(partial, StandardCharsets.UTF_8)) {
+                render(period, statement, out);
+            }
+            Files.move(partial, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write " + file, e);
+        }
+    }
+
+    private static void render(YearMonth period, CustomerStatement statement, Writer out) throws IOException {
+        out.write("Statement for " + period + "\n");
+        out.write("Customer " + statement.customerId + (statement.name != null ? " - " + statement.name : "") + "\n");
+        out.write("Period " + period.atDay(1) + " to " + period.atEndOfMonth() + "\n");
+        Map<String, Integer> signs = LedgerReconciliationService.SIGNS;
+        for (AccountSection account : statement.accounts) {
+            long net = 0;
+            for (Line line : account.lines) {
+                if ("SUCCESS".equals(line.status())) {
+                    net += signs.getOrDefault(line.type(), 0) * line.amountMinor();
+                }
+            }
+            long balance = account.closingMinor - net;
+
+            out.write("\nAccount " + account.accountId + " (" + account.accountType + ")\n");
+            out.write(String.format("%-16s  %-18s %14s %14s%n", "", "Opening balance", "", Money.ofMinor(balance)));
+            for (Line line : account.lines) {
+                String amount;
+                if ("SUCCESS".equals(line.status())) {
+                    long signed = signs.getOrDefault(line.type(), 0) * line.amountMinor();
+                    balance += signed;
+                    amount = (signed > 0 ? "+" : "") + Money.ofMinor(signed);
+                } else {
+                    amount = "(" + line.status() + ") " + Money.ofMinor(line.amountMinor());
+                }
+                out.write(String.format("%-16s  %-18s %14s %14s%n",
+                        LINE_TIME.format(line.timestamp()), line.type(), amount, Money.ofMinor(balance)));
+            }
+            out.write(String.format("%-16s  %-18s %14s %14s%n", "", "Closing balance", "", Money.ofMinor(balance)));
+        }
+    }
+}
@@ -0,0 +1,587 @@
+package service;
+
+import entities.Money;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fills the database (or bulk-load files) with a synthetic bank for scale testing: users, customers,
+ * accounts and years of transactions. Runs instead of the usual startup work when started with
+ * {@code --datagen.customers=N}, then exits.
+ * <p>
+ * The data is realistic enough to exercise the hot paths. Customers have one to three accounts.
+ * Postings per account follow a Pareto law, so most accounts are quiet and a few are very busy. Transfer
+ * receivers are skewed too, so some accounts are hot. Timestamps spread over {@code datagen.years},
+ * mostly in the daytime. Postings are simulated in time order: a withdrawal or transfer the balance cannot
+ * cover is recorded as FAILED, and every account's balance equals the signed sum of its successful
+ * postings, opening deposit included.
+ * <p>
+ * Customers are generated in blocks of {@code datagen.block-size}, in parallel, each block from its own
+ * random stream derived from {@code datagen.seed}. Ids are handed out in block order, so the same seed,
+ * parameters, end date and starting database give the same dataset (only the password salt differs). Blocks are written with JDBC batches, one
+ * transaction per block, or as CSV files plus a {@code load.sql} for MySQL's {@code LOAD DATA}.
+ */
+@Service
+@ConditionalOnProperty(name = "datagen.customers")
+public class SyntheticDataGenerator implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(SyntheticDataGenerator.class);
+
+    private static final String[] FIRST_NAMES = {"Aarav", "Priya", "Rohan", "Ananya", "Vikram", "Meera", "Arjun",
+            "Kavya", "Rahul", "Sneha", "Aditya", "Isha", "Karan", "Pooja", "Nikhil", "Divya", "Sanjay", "Neha",
+            "Maria", "John", "Anna", "David", "Sara", "Omar"};
+    private static final String[] LAST_NAMES = {"Sharma", "Patel", "Gupta", "Singh", "Kumar", "Reddy", "Iyer",
+            "Nair", "Joshi", "Mehta", "Das", "Chopra", "Bose", "Rao", "Khan", "Anderson", "Johnson", "Fernandes"};
+    private static final String[] STREETS = {"MG Road", "Park Street", "Station Road", "Lake View", "Church Street",
+            "Hill Road", "Ring Road", "Nehru Nagar"};
+    private static final String[] CITIES = {"Mumbai", "Delhi", "Bengaluru", "Pune", "Chennai", "Kolkata",
+            "Hyderabad", "Jaipur", "Ahmedabad", "Kochi"};
+
+    // Postings per account: mean * w / E[w], w ~ Pareto(alpha), capped
+    private static final double PARETO_ALPHA = 1.5;
+    private static final double PARETO_MEAN = PARETO_ALPHA / (PARETO_ALPHA - 1);
+    private static final int MAX_ACTIVITY_FACTOR = 50;
+    private static final long DAY = 86_400;
+    private static final DateTimeFormatter CSV_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private static final byte OPENING = 0;
+    private static final byte DEPOSIT = 1;
+    private static final byte WITHDRAW = 2;
+    private static final byte TRANSFER = 3;
+
+    private static final String[] ID_TABLES = {"users", "customers", "accounts", "transactions"};
+    private static final String[] ID_COLUMNS = {"id", "customer_id", "account_id", "transaction_id"};
+
+    private record Person(long number, String firstName, String lastName, String phone, String address) {
+    }
+
+    private record AccountPlan(int customer, String type, long openedSecond) {
+    }
+
+    private record Event(long second, int sequence, byte kind, int account, int destination, long amountMinor) {
+    }
+
+    private record Posting(int account, long second, String type, long amountMinor, String status) {
+    }
+
+    private static final class Block {
+        final int index;
+        final List<Person> people = new ArrayList<>();
+        final List<AccountPlan> accounts = new ArrayList<>();
+        final List<Posting> postings = new ArrayList<>();
+        long[] balances;
+        int shard;
+        long firstUserId;
+        long firstCustomerId;
+        long firstAccountId;
+        long firstTransactionId;
+
+        Block(int index) {
+            this.index = index;
+        }
+    }
+
+    private final ShardService shardService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final PasswordEncoder passwordEncoder;
+    private final ConfigurableApplicationContext context;
+
+    private final long customers;
+    private final long seed;
+    private final int years;
+    private final LocalDate endDate;
+    private final int postingsPerAccount;
+    private final int blockSize;
+    private final int threads;
+    private final int batchSize;
+    private final String usernamePrefix;
+    private final String password;
+    private final String output;
+    private final Path directory;
+    private final boolean exit;
+
+    public SyntheticDataGenerator(ShardService shardService,
+                                  JdbcTemplate jdbcTemplate,
+                                  TransactionTemplate transactionTemplate,
+                                  PasswordEncoder passwordEncoder,
+                                  ConfigurableApplicationContext context,
+                                  @Value("${datagen.customers}") long customers,
+                                  @Value("${datagen.seed:42}") long seed,
+                                  @Value("${datagen.years:3}") int years,
+                                  @Value("${datagen.end-date:}") String endDate,
+                                  @Value("${datagen.postings-per-account:100}") int postingsPerAccount,
+                                  @Value("${datagen.block-size:500}") int blockSize,
+                                  @Value("${datagen.threads:0}") int threads,
+                                  @Value("${datagen.batch-size:1000}") int batchSize,
+                                  @Value("${datagen.username-prefix:load}") String usernamePrefix,
+                                  @Value("${datagen.password:password}") String password,
+                                  @Value("${datagen.output:jdbc}") String output,
+                                  @Value("${datagen.dir:datagen}") String directory,
+                                  @Value("${datagen.exit:true}") boolean exit) {
+        if (!"jdbc".equals(output) && !"csv".equals(output)) {
+            throw new IllegalArgumentException("datagen.output must be jdbc or csv");
+        }
+        this.shardService = shardService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.passwordEncoder = passwordEncoder;
+        this.context = context;
+        this.customers = customers;
+        this.seed = seed;
+        this.years = years;
+        // Fix it for byte-identical datasets; by default the history ends today
+        this.endDate = endDate.isBlank() ? LocalDate.now() : LocalDate.parse(endDate);
+        this.postingsPerAccount = postingsPerAccount;
+        this.blockSize = blockSize;
+        this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.batchSize = batchSize;
+        this.usernamePrefix = usernamePrefix;
+        this.password = password;
+        this.output = output;
+        this.directory = Path.of(directory);
+        this.exit = exit;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        long start = System.nanoTime();
+        log.info("Generating {} customers (seed {}, {} years to {}, {} postings per account on average) to {}",
+                customers, seed, years, endDate, postingsPerAccount, "csv".equals(output) ? directory : "the database");
+        // One hash for every generated user: BCrypt per user would take longer than everything else
+        String passwordHash = passwordEncoder.encode(password);
+        int blocks = (int) ((customers + blockSize - 1) / blockSize);
+        int shards = shardService.isEnabled() && "jdbc".equals(output) ? shardService.shardCount() : 1;
+        long[][] nextIds = new long[shards][];
+        for (int shard = 0; shard < shards; shard++) {
+            nextIds[shard] = "csv".equals(output) ? new long[]{1, 1, 1, 1} : firstFreeIds(shard);
+        }
+
+        AtomicInteger threadIds = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "datagen-" + threadIds.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        CsvFiles files = "csv".equals(output) ? new CsvFiles(directory) : null;
+        long accounts = 0;
+        long postings = 0;
+        try {
+            // Bounded look-ahead: at most `window` blocks generated and `window` being written
+            int window = threads * 2;
+            Semaphore writing = new Semaphore(window);
+            ArrayDeque<CompletableFuture<Block>> generating = new ArrayDeque<>();
+            List<CompletableFuture<Void>> writes = new ArrayList<>();
+            int next = 0;
+            for (int b = 0; b < blocks; b++) {
+                while (next < blocks && generating.size() < window) {
+                    int index = next++;
+                    generating.add(CompletableFuture.supplyAsync(() -> generate(index), pool));
+                }
+                Block block = generating.poll().join();
+                block.shard = block.index % shards;
+                assignIds(block, nextIds[block.shard]);
+                accounts += block.accounts.size();
+                postings += block.postings.size();
+                if (files != null) {
+                    files.write(block, passwordHash);
+                } else {
+                    writing.acquire();
+                    writes.add(CompletableFuture.runAsync(() -> write(block, passwordHash), pool)
+                            .whenComplete((ignored, error) -> writing.release()));
+                }
+                if ((b + 1) % 20 == 0 || b + 1 == blocks) {
+                    log.info("Generated {} of {} blocks: {} accounts, {} transactions", b + 1, blocks, accounts, postings);
+                }
+            }
+            CompletableFuture.allOf(writes.toArray(CompletableFuture[]::new)).join();
+            if (files != null) {
+                files.finish();
+            } else {
+                for (int shard = 0; shard < shards; shard++) {
+                    int target = shard;
+                    shardService.runOnShard(target, () -> alignIdentities(nextIds[target]));
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+            if (files != null) {
+                files.close();
+            }
+        }
+        log.info("Generated {} customers, {} accounts and {} transactions in {} s", customers, accounts, postings,
+                TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start));
+        if (exit) {
+            System.exit(SpringApplication.exit(context, () -> 0));
+        }
+    }
+
+    // -----------------------------
+    // Generation (pure: depends only on the seed, the parameters and the block index)
+    // -----------------------------
+    private Block generate(int index) {
+        SplittableRandom random = new SplittableRandom(mix(seed * 0x9E3779B97F4A7C15L + index));
+        Block block = new Block(index);
+        long end = endDate.atStartOfDay().toEpochSecond(ZoneOffset.UTC);
+        long begin = endDate.minusYears(years).atStartOfDay().toEpochSecond(ZoneOffset.UTC);
+
+        long first = (long) index * blockSize;
+        for (long number = first; number < Math.min(customers, first + blockSize); number++) {
+            String street = STREETS[random.nextInt(STREETS.length)];
+            block.people.add(new Person(number,
+                    FIRST_NAMES[random.nextInt(FIRST_NAMES.length)],
+                    LAST_NAMES[random.nextInt(LAST_NAMES.length)],
+                    String.format("+91 9%09d", random.nextInt(1_000_000_000)),
+                    (1 + random.nextInt(250)) + " " + street + ", " + CITIES[random.nextInt(CITIES.length)]));
+            // 60% one account, 30% two, 10% three; each opened within two months of joining
+            double draw = random.nextDouble();
+            int count = draw < 0.6 ? 1 : draw < 0.9 ? 2 : 3;
+            long joined = begin + random.nextLong(Math.max(1, end - begin - 60 * DAY));
+            for (int k = 0; k < count; k++) {
+                String type = k == 0 || random.nextBoolean() ? "SAVINGS" : "CURRENT";
+                long opened = Math.min(end - DAY, joined + random.nextLong(60 * DAY));
+                block.accounts.add(new AccountPlan(block.people.size() - 1, type, opened));
+            }
+        }
+
+        int accountCount = block.accounts.size();
+        List<Event> events = new ArrayList<>();
+        for (int account = 0; account < accountCount; account++) {
+            long opened = block.accounts.get(account).openedSecond();
+            events.add(new Event(opened, events.size(), OPENING, account, -1, amount(random, 5_000, 1.0)));
+            double activity = Math.pow(1 - random.nextDouble(), -1 / PARETO_ALPHA) / PARETO_MEAN;
+            long count = Math.min((long) postingsPerAccount * MAX_ACTIVITY_FACTOR, Math.round(postingsPerAccount * activity));
+            for (long i = 0; i < count; i++) {
+                long second = daytime(random, opened + 1 + random.nextLong(Math.max(1, end - opened - 1)), end);
+                double kind = random.nextDouble();
+                if (kind < 0.35 || (kind >= 0.75 && accountCount == 1)) {
+                    events.add(new Event(second, events.size(), DEPOSIT, account, -1, amount(random, 2_000, 1.0)));
+                } else if (kind < 0.75) {
+                    events.add(new Event(second, events.size(), WITHDRAW, account, -1, amount(random, 1_500, 1.0)));
+                } else {
+                    // Receivers are skewed towards the block's first accounts: these are the hot ones
+                    int destination = (int) (accountCount * Math.pow(random.nextDouble(), 3));
+                    if (destination == account) {
+                        destination = (destination + 1) % accountCount;
+                    }
+                    events.add(new Event(second, events.size(), TRANSFER, account, destination, amount(random, 1_000, 1.2)));
+                }
+            }
+        }
+        events.sort(Comparator.comparingLong(Event::second).thenComparingInt(Event::sequence));
+
+        long[] balances = new long[accountCount];
+        boolean[] open = new boolean[accountCount];
+        for (Event event : events) {
+            int account = event.account();
+            long amount = event.amountMinor();
+            switch (event.kind()) {
+                case OPENING -> {
+                    open[account] = true;
+                    balances[account] += amount;
+                    block.postings.add(new Posting(account, event.second(), "OPENING_DEPOSIT", amount, "SUCCESS"));
+                }
+                case DEPOSIT -> {
+                    balances[account] += amount;
+                    block.postings.add(new Posting(account, event.second(), "DEPOSIT", amount, "SUCCESS"));
+                }
+                case WITHDRAW -> {
+                    boolean covered = balances[account] >= amount;
+                    if (covered) {
+                        balances[account] -= amount;
+                    }
+                    block.postings.add(new Posting(account, event.second(), "WITHDRAW", amount, covered ? "SUCCESS" : "FAILED"));
+                }
+                case TRANSFER -> {
+                    int destination = event.destination();
+                    if (!open[destination]) {
+                        // Receiver not opened yet at this time: becomes a deposit
+                        balances[account] += amount;
+                        block.postings.add(new Posting(account, event.second(), "DEPOSIT", amount, "SUCCESS"));
+                    } else if (balances[account] >= amount) {
+                        balances[account] -= amount;
+                        balances[destination] += amount;
+                        block.postings.add(new Posting(account, event.second(), "TRANSFER_SENT", amount, "SUCCESS"));
+                        block.postings.add(new Posting(destination, event.second(), "TRANSFER_RECEIVED", amount, "SUCCESS"));
+                    } else {
+                        block.postings.add(new Posting(account, event.second(), "TRANSFER_SENT", amount, "FAILED"));
+                    }
+                }
+                default -> throw new IllegalStateException("Unknown event kind " + event.kind());
+            }
+        }
+        block.balances = balances;
+        return block;
+    }
+
+    // Log-normal amount in minor units around `median` rupees, at least 1 rupee
+    private static long amount(SplittableRandom random, double median, double sigma) {
+        double gaussian = Math.sqrt(-2 * Math.log(1 - random.nextDouble())) * Math.cos(2 * Math.PI * random.nextDouble());
+        return Math.max(100, Math.round(median * Math.exp(sigma * gaussian) * 100));
+    }
+
+    // Same day, 85% of the time moved into 09:00-21:00
+    private static long daytime(SplittableRandom random, long second, long end) {
+        if (random.nextDouble() >= 0.85) {
+            return second;
+        }
+        long day = Math.floorDiv(second, DAY) * DAY;
+        return Math.min(end - 1, day + 9 * 3600 + random.nextLong(12 * 3600));
+    }
+
+    // SplitMix64 finalizer: unrelated streams for neighbouring block indexes
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private static void assignIds(Block block, long[] next) {
+        block.firstUserId = next[0];
+        block.firstCustomerId = next[1];
+        block.firstAccountId = next[2];
+        block.firstTransactionId = next[3];
+        next[0] += block.people.size();
+        next[1] += block.people.size();
+        next[2] += block.accounts.size();
+        next[3] += block.postings.size();
+    }
+
+    private String username(Person person) {
+        return usernamePrefix + person.number();
+    }
+
+    private static String name(Person person) {
+        return person.firstName() + " " + person.lastName();
+    }
+
+    private static LocalDateTime time(long second) {
+        return LocalDateTime.ofEpochSecond(second, 0, ZoneOffset.UTC);
+    }
+
+    // -----------------------------
+    // JDBC output
+    // -----------------------------
+
+    // Explicit ids, so they do not depend on which block commits first
+    private long[] firstFreeIds(int shard) {
+        return shardService.onShard(shard, () -> {
+            Integer clash = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users WHERE username = ?",
+                    Integer.class, usernamePrefix + "0");
+            if (clash != null && clash > 0) {
+                throw new IllegalStateException("Users named " + usernamePrefix + "N already exist; "
+                        + "set datagen.username-prefix or start from an empty database");
+            }
+            long[] next = new long[ID_TABLES.length];
+            for (int i = 0; i < ID_TABLES.length; i++) {
+                Long max = jdbcTemplate.queryForObject("SELECT MAX(" + ID_COLUMNS[i] + ") FROM " + ID_TABLES[i], Long.class);
+                next[i] = Math.max(ShardService.firstId(shard), max == null ? 1 : max + 1);
+            }
+            return next;
+        });
+    }
+
+    private void write(Block block, String passwordHash) {
+        shardService.runOnShard(block.shard, () -> transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.batchUpdate("INSERT INTO users (id, username, password, role, first_name, last_name, email, "
+                    + "phone, address) VALUES (?, ?, ?, 'ROLE_USER', ?, ?, ?, ?, ?)", block.people, batchSize, (ps, person) -> {
+                ps.setLong(1, block.firstUserId + person.number() % blockSize);
+                ps.setString(2, username(person));
+                ps.setString(3, passwordHash);
+                ps.setString(4, person.firstName());
+                ps.setString(5, person.lastName());
+                ps.setString(6, username(person) + "@example.test");
+                ps.setString(7, person.phone());
+                ps.setString(8, person.address());
+            });
+            jdbcTemplate.batchUpdate("INSERT INTO customers (customer_id, name, email, phone, address, user_id, data_version) "
+                    + "VALUES (?, ?, ?, ?, ?, ?, 0)", block.people, batchSize, (ps, person) -> {
+                ps.setLong(1, block.firstCustomerId + person.number() % blockSize);
+                ps.setString(2, name(person));
+                ps.setString(3, username(person) + "@example.test");
+                ps.setString(4, person.phone());
+                ps.setString(5, person.address());
+                ps.setLong(6, block.firstUserId + person.number() % blockSize);
+            });
+            List<Integer> accountIndexes = indexes(block.accounts.size());
+            jdbcTemplate.batchUpdate("INSERT INTO accounts (account_id, customer_id, account_type, balance) VALUES (?, ?, ?, ?)",
+                    accountIndexes, batchSize, (ps, account) -> {
+                        AccountPlan plan = block.accounts.get(account);
+                        ps.setLong(1, block.firstAccountId + account);
+                        ps.setLong(2, block.firstCustomerId + plan.customer());
+                        ps.setString(3, plan.type());
+                        ps.setBigDecimal(4, Money.ofMinor(block.balances[account]).toBigDecimal());
+                    });
+            List<Integer> postingIndexes = indexes(block.postings.size());
+            jdbcTemplate.batchUpdate("INSERT INTO transactions (transaction_id, account_id, transaction_type, amount, "
+                    + "timestamp, status) VALUES (?, ?, ?, ?, ?, ?)", postingIndexes, batchSize, (ps, index) -> {
+                Posting posting = block.postings.get(index);
+                ps.setLong(1, block.firstTransactionId + index);
+                ps.setLong(2, block.firstAccountId + posting.account());
+                ps.setString(3, posting.type());
+                ps.setBigDecimal(4, Money.ofMinor(posting.amountMinor()).toBigDecimal());
+                ps.setTimestamp(5, Timestamp.valueOf(time(posting.second())));
+                ps.setString(6, posting.status());
+            });
+        }));
+        if (shardService.isEnabled()) {
+            Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+            shardService.runOnShard(ShardService.DIRECTORY_SHARD, () -> jdbcTemplate.batchUpdate(
+                    "INSERT INTO user_shards (username, shard, created_at) VALUES (?, ?, ?)", block.people, batchSize,
+                    (ps, person) -> {
+                        ps.setString(1, username(person));
+                        ps.setInt(2, block.shard);
+                        ps.setTimestamp(3, now);
+                    }));
+        }
+    }
+
+    private static List<Integer> indexes(int size) {
+        List<Integer> indexes = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            indexes.add(i);
+        }
+        return indexes;
+    }
+
+    // MySQL moves AUTO_INCREMENT past explicit ids itself; other databases (H2) need their identities restarted
+    private void alignIdentities(long[] next) {
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            if (connection.getMetaData().getDatabaseProductName().toLowerCase().contains("mysql")) {
+                return null;
+            }
+            try (Statement statement = connection.createStatement()) {
+                for (int i = 0; i < ID_TABLES.length; i++) {
+                    statement.execute("alter table " + ID_TABLES[i] + " alter column " + ID_COLUMNS[i]
+                            + " restart with " + next[i]);
+                }
+            }
+            return null;
+        });
+    }
+
+    // -----------------------------
+    // CSV output
+    // -----------------------------
+    private final class CsvFiles implements AutoCloseable {
+        private final Path directory;
+        private final Map<String, BufferedWriter> writers = new LinkedHashMap<>();
+
+        CsvFiles(Path directory) throws IOException {
+            this.directory = directory;
+            Files.createDirectories(directory);
+            for (String table : ID_TABLES) {
+                writers.put(table, Files.newBufferedWriter(directory.resolve(table + ".csv"), StandardCharsets.UTF_8));
+            }
+        }
+
+        void write(Block block, String passwordHash) {
+            try {
+                BufferedWriter users = writers.get("users");
+                BufferedWriter customerRows = writers.get("customers");
+                for (Person person : block.people) {
+                    long userId = block.firstUserId + person.number() % blockSize;
+                    String email = username(person) + "@example.test";
+                    line(users, userId, username(person), passwordHash, "ROLE_USER", person.firstName(),
+                            person.lastName(), email, person.phone(), person.address());
+                    line(customerRows, block.firstCustomerId + person.number() % blockSize, name(person), email,
+                            person.phone(), person.address(), userId, 0);
+                }
+                BufferedWriter accountRows = writers.get("accounts");
+                for (int account = 0; account < block.accounts.size(); account++) {
+                    AccountPlan plan = block.accounts.get(account);
+                    line(accountRows, block.firstAccountId + account, block.firstCustomerId + plan.customer(),
+                            plan.type(), Money.ofMinor(block.balances[account]).toBigDecimal());
+                }
+                BufferedWriter transactionRows = writers.get("transactions");
+                for (int index = 0; index < block.postings.size(); index++) {
+                    Posting posting = block.postings.get(index);
+                    line(transactionRows, block.firstTransactionId + index, block.firstAccountId + posting.account(),
+                            posting.type(), Money.ofMinor(posting.amountMinor()).toBigDecimal(),
+                            CSV_TIME.format(time(posting.second())), posting.status());
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot write to " + directory, e);
+            }
+        }
+
+        void finish() throws IOException {
+            String columns = """
+                    users (id, username, password, role, first_name, last_name, email, phone, address)
+                    customers (customer_id, name, email, phone, address, user_id, data_version)
+                    accounts (account_id, customer_id, account_type, balance)
+                    transactions (transaction_id, account_id, transaction_type, amount, timestamp, status)""";
+            StringBuilder script = new StringBuilder("-- Load into an empty schema: mysql --local-infile=1 bank < load.sql\n"
+                    + "SET foreign_key_checks = 0;\nSET unique_checks = 0;\n");
+            for (String table : columns.split("\n")) {
+                String name = table.substring(0, table.indexOf(' '));
+                script.append("LOAD DATA LOCAL INFILE '").append(name).append(".csv' INTO TABLE ").append(name)
+                        .append(" CHARACTER SET utf8mb4 FIELDS TERMINATED BY ',' OPTIONALLY ENCLOSED BY '\"' ")
+                        .append("LINES TERMINATED BY '\\n' ").append(table.substring(table.indexOf(' ') + 1)).append(";\n");
+            }
+            script.append("SET unique_checks = 1;\nSET foreign_key_checks = 1;\n");
+            Files.writeString(directory.resolve("load.sql"), script, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public void close() throws IOException {
+            for (BufferedWriter writer : writers.values()) {
+                writer.close();
+            }
+        }
+
+        private static void line(BufferedWriter out, Object... values) throws IOException {
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    out.write(',');
+                }
+                String value = String.valueOf(values[i]);
+                if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0) {
+                    out.write('"');
+                    out.write(value.replace("\"", "\"\""));
+                    out.write('"');
+                } else {
+                    out.write(value);
+                }
+            }
+            out.write('\n');
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package service;
+
+import entities.RevokedToken;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import repository.RevokedTokenRepository;
+import util.BloomFilter;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Revocation of JWTs on logout, by their {@code jti} claim.
+ * <p>
+ * Revoked ids are stored in {@code revoked_tokens} (on shard 0) until the token would have expired.
+ * Every authenticated request asks {@link #isRevoked}, which first checks an in-memory Bloom filter
+ * of all unexpired revocations: a miss, the common case, answers without touching the database, and
+ * only a hit (a revoked token or a rare false positive) is confirmed against the table. The filter is
+ * rebuilt from the table every {@code revocation.rebuild-ms}, which also drops expired entries and picks
+ * up revocations made by other instances; until then those are only seen by the instance that made them.
+ */
+@Service
+public class TokenRevocationService {
+
+    private static final Logger log = LoggerFactory.getLogger(TokenRevocationService.class);
+
+    private final RevokedTokenRepository revokedTokenRepository;
+    private final ShardService shardService;
+    private final int expectedRevocations;
+    private final double falsePositiveRate;
+    private final int confirmedCacheSize;
+
+    private volatile BloomFilter filter;
+    // Revocations made here since the running rebuild started, re-added after it swaps in a new filter
+    private final Map<String, Long> recentlyRevoked = new ConcurrentHashMap<>();
+    // Table answers for filter hits, valid until the next rebuild
+    private volatile Map<String, Boolean> confirmed = new ConcurrentHashMap<>();
+    private volatile int filterSize;
+
+    private final Counter filterHits;
+    private final Counter lookups;
+
+    public TokenRevocationService(RevokedTokenRepository revokedTokenRepository,
+                                  ShardService shardService,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${revocation.expected-revocations:100000}") int expectedRevocations,
+                                  @Value("${revocation.false-positive-rate:0.01}") double falsePositiveRate,
+                                  @Value("${revocation.confirmed-cache-size:10000}") int confirmedCacheSize) {
+        this.revokedTokenRepository = revokedTokenRepository;
+        this.shardService = shardService;
+        this.expectedRevocations = expectedRevocations;
+        this.falsePositiveRate = falsePositiveRate;
+        this.confirmedCacheSize = confirmedCacheSize;
+        this.filter = new BloomFilter(expectedRevocations, falsePositiveRate);
+
+        this.filterHits = meterRegistry.counter("revocation.filter.hits");
+        this.lookups = meterRegistry.counter("revocation.lookups");
+        meterRegistry.gauge("revocation.filter.entries", this, service -> service.filterSize);
+    }
+
+    @PostConstruct
+    void load() {
+        rebuild();
+    }
+
+    /**
+     * Revokes a token until {@code expiresAt}. Takes effect on this instance immediately.
+     */
+    public void revoke(String tokenId, Date expiresAt) {
+        LocalDateTime expiry = LocalDateTime.ofInstant(expiresAt.toInstant(), ZoneId.systemDefault());
+        if (!expiry.isAfter(LocalDateTime.now())) {
+            return;
+        }
+        RevokedToken row = new RevokedToken();
+        row.setTokenId(tokenId);
+        row.setExpiresAt(expiry);
+        row.setRevokedAt(LocalDateTime.now());
+        // save() merges, so revoking the same token twice is harmless
+        shardService.onShard(ShardService.DIRECTORY_SHARD, () -> revokedTokenRepository.save(row));
+
+        recentlyRevoked.put(tokenId, System.currentTimeMillis());
+        filter.add(tokenId);
+        confirmed.put(tokenId, true);
+    }
+
+    /**
+     * False when the token is certainly not revoked; never touches the database, so it is safe on
+     * non-blocking threads. True means {@link #isRevoked} has to decide.
+     */
+    public boolean mayBeRevoked(String tokenId) {
+        if (tokenId == null || !filter.mightContain(tokenId)) {
+            return false;
+        }
+        Boolean known = confirmed.get(tokenId);
+        return known == null || known;
+    }
+
+    /**
+     * Whether the token with this {@code jti} was revoked. No database access unless the filter matches.
+     */
+    public boolean isRevoked(String tokenId) {
+        if (tokenId == null || !filter.mightContain(tokenId)) {
+            return false;
+        }
+        filterHits.increment();
+        Map<String, Boolean> answers = confirmed;
+        Boolean known = answers.get(tokenId);
+        if (known != null) {
+            return known;
+        }
+        lookups.increment();
+        boolean revoked;
+        try {
+            revoked = shardService.onShard(ShardService.DIRECTORY_SHARD,
+                    () -> revokedTokenRepository.isRevoked(tokenId, LocalDateTime.now()));
+        } catch (DataAccessException e) {
+            // Cannot confirm: a filter hit is most likely a real revocation, so fail closed
+            log.warn("Could not check token revocation: {}", e.getMessage());
+            return true;
+        }
+        if (answers.size() < confirmedCacheSize) {
+            answers.put(tokenId, revoked);
+        }
+        return revoked;
+    }
+
+    /**
+     * Replaces the filter with one built from the unexpired revocations, and deletes the expired ones.
+     */
+    @Scheduled(initialDelayString = "${revocation.rebuild-ms:15000}", fixedDelayString = "${revocation.rebuild-ms:15000}")
+    public void rebuild() {
+        long startedAt = System.currentTimeMillis();
+        List<String> ids;
+        try {
+            ids = shardService.onShard(ShardService.DIRECTORY_SHARD, () -> {
+                LocalDateTime now = LocalDateTime.now();
+                int purged = revokedTokenRepository.deleteExpired(now);
+                if (purged > 0) {
+                    log.info("Purged {} expired token revocations", purged);
+                }
+                return revokedTokenRepository.findUnexpiredIds(now);
+            });
+        } catch (DataAccessException e) {
+            // Keep the current filter: it only ever over-approximates
+            log.warn("Could not rebuild the token revocation filter: {}", e.getMessage());
+            return;
+        }
+
+        // Sized for twice the current load so the false positive rate holds until the next rebuild
+        BloomFilter rebuilt = new BloomFilter(Math.max(expectedRevocations, ids.size() * 2), falsePositiveRate);
+        ids.forEach(rebuilt::add);
+        recentlyRevoked.keySet().forEach(rebuilt::add);
+        filter = rebuilt;
+        confirmed = new ConcurrentHashMap<>();
+        filterSize = ids.size();
+        // Local revocations that raced the swap went into the old filter; anything older was committed
+        // before the query above and is already in the new one
+        recentlyRevoked.keySet().forEach(rebuilt::add);
+        recentlyRevoked.values().removeIf(revokedAt -> revokedAt < startedAt);
+    }
+}
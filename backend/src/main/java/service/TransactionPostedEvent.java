@@ -0,0 +1,34 @@
+package service;
+
+import entities.Account;
+import entities.Money;
+import entities.Transaction;
+
+import java.time.LocalDateTime;
+
+/**
+ * Published by {@link AccountServiceImpl} for every recorded transaction, carrying the
+ * account's balance right after it. Immutable, so listeners may hand it to other threads.
+ */
+public record TransactionPostedEvent(Long customerId,
+                                     Long accountId,
+                                     Money balance,
+                                     Long transactionId,
+                                     String transactionType,
+                                     Money amount,
+                                     LocalDateTime timestamp,
+                                     String status) {
+
+    public static TransactionPostedEvent of(Transaction transaction) {
+        Account account = transaction.getAccount();
+        return new TransactionPostedEvent(
+                account.getCustomer().getCustomerId(),
+                account.getAccountId(),
+                account.getBalance(),
+                transaction.getTransactionId(),
+                transaction.getTransactionType(),
+                transaction.getAmount(),
+                transaction.getTimestamp(),
+                transaction.getStatus());
+    }
+}
@@ -4,8 +4,10 @@ import entities.Customer;
 import entities.Transaction;
 import repository.TransactionRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -50,4 +52,14 @@ public class TransactionService {
     public List<Transaction> findByCustomer(Customer customer) {
         return transactionRepository.findByAccountCustomerOrderByTimestampDesc(customer);
     }
+
+    // Newest first, without loading the whole history
+    public List<Transaction> findRecentByCustomerId(Long customerId, int limit) {
+        return transactionRepository.findByAccountCustomerCustomerIdOrderByTimestampDescTransactionIdDesc(
+                customerId, PageRequest.of(0, limit));
+    }
+
+    public long countSinceByCustomerId(Long customerId, LocalDateTime since) {
+        return transactionRepository.countByAccountCustomerCustomerIdAndTimestampGreaterThanEqual(customerId, since);
+    }
 }
@@ -0,0 +1,295 @@
+package service;
+
+import dto.ClusterCreditRequest;
+import entities.AppliedCredit;
+import entities.Money;
+import entities.TransferSaga;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import repository.AppliedCreditRepository;
+import repository.TransferSagaRepository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Transfers in cluster or sharded mode. When both accounts are on this node and the same shard it
+ * is the ordinary single-transaction {@link AccountService#transfer}; otherwise a two-phase saga:
+ * <ol>
+ *     <li>debit the sender and log the saga as DEBITED, in one transaction on the sender's shard;</li>
+ *     <li>credit the receiver, on its shard and through its node; {@code applied_credits} records the saga id in
+ *         the credit's transaction, so it applies at most once however late a retry comes.</li>
+ * </ol>
+ * A credit the receiver refuses (unknown account, ...) is compensated by refunding the sender.
+ * A transfer sent with an {@code Idempotency-Key} stores the key's hash on its saga under a unique
+ * index, so a concurrent duplicate fails its debit and answers from the first saga instead.
+ * When the outcome is unknown (timeout, node down) the saga stays DEBITED and
+ * {@link #retryStalled} keeps retrying the credit; it never refunds on a guess, since the credit
+ * may already have happened.
+ */
+@Service
+public class TransferSagaService {
+
+    private static final Logger log = LoggerFactory.getLogger(TransferSagaService.class);
+    private static final String CREDIT_PATH = "/internal/cluster/credit";
+
+    private final AccountService accountService;
+    private final ClusterService clusterService;
+    private final ShardService shardService;
+    private final AppliedCreditRepository appliedCreditRepository;
+    private final TransferSagaRepository transferSagaRepository;
+    private final TransactionTemplate newTransaction;
+    private final TransactionTemplate outsideTransaction;
+    private final long retryDelayMs;
+    private final long idempotencyTtlHours;
+
+    public TransferSagaService(AccountService accountService,
+                               ClusterService clusterService,
+                               ShardService shardService,
+                               AppliedCreditRepository appliedCreditRepository,
+                               TransferSagaRepository transferSagaRepository,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${cluster.saga-retry-ms:10000}") long retryDelayMs,
+                               @Value("${idempotency.ttl-hours:24}") long idempotencyTtlHours) {
+        this.accountService = accountService;
+        this.clusterService = clusterService;
+        this.shardService = shardService;
+        this.appliedCreditRepository = appliedCreditRepository;
+        this.transferSagaRepository = transferSagaRepository;
+        // Saga steps commit on their own, even when called from a request's (idempotency) transaction
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        // The credit runs on another shard, where it must start its own outermost transaction
+        this.outsideTransaction = new TransactionTemplate(transactionManager);
+        this.outsideTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_NOT_SUPPORTED);
+        this.retryDelayMs = retryDelayMs;
+        this.idempotencyTtlHours = idempotencyTtlHours;
+    }
+
+    /**
+     * The saga key for a request's {@code Idempotency-Key}: fixed length, and per user like the key itself.
+     */
+    public static String idempotencyKey(String username, String key) {
+        return IdempotencyService.hash(username + '\n' + key);
+    }
+
+    /**
+     * True when the accounts are owned by different nodes or stored on different shards.
+     */
+    public boolean isSplit(Long fromAccountId, Long toAccountId) {
+        return clusterService.ownerOf(fromAccountId) != clusterService.ownerOf(toAccountId)
+                || shardService.shardOf(fromAccountId) != shardService.shardOf(toAccountId);
+    }
+
+    /**
+     * Moves {@code amount} and returns the message shown to the client. Must run on the sender's
+     * owner, with the sender's shard selected.
+     *
+     * @param idempotencyKey from {@link #idempotencyKey(String, String)}, or null
+     */
+    public String transfer(Long fromAccountId, Long toAccountId, Money amount, String idempotencyKey) {
+        if (!isSplit(fromAccountId, toAccountId)) {
+            accountService.transfer(fromAccountId, toAccountId, amount);
+            return "Transferred " + amount + " to " + toAccountId;
+        }
+
+        // Phase 1: debit locally; throws (nothing logged) on insufficient funds
+        TransferSaga saga;
+        try {
+            saga = newTransaction.execute(status -> {
+                if (idempotencyKey != null) {
+                    transferSagaRepository.releaseIdempotencyKey(idempotencyKey,
+                            LocalDateTime.now().minusHours(idempotencyTtlHours));
+                }
+                accountService.transferOut(fromAccountId, toAccountId, amount);
+                TransferSaga started = newSaga(fromAccountId, toAccountId, amount);
+                started.setIdempotencyKey(idempotencyKey);
+                return transferSagaRepository.saveAndFlush(started);
+            });
+        } catch (DataIntegrityViolationException e) {
+            if (idempotencyKey == null) {
+                throw e;
+            }
+            // A request with the same key started this transfer first; our debit rolled back with the insert
+            return answerFromSaga(idempotencyKey, fromAccountId, toAccountId, amount, e);
+        }
+
+        // Phase 2
+        if (credit(saga)) {
+            return "Transferred " + amount + " to " + toAccountId;
+        }
+        return "Transfer of " + amount + " to " + toAccountId + " is pending on node " + saga.getTargetNode();
+    }
+
+    private String answerFromSaga(String idempotencyKey, Long fromAccountId, Long toAccountId, Money amount,
+                                  DataIntegrityViolationException duplicate) {
+        TransferSaga first = newTransaction.execute(status -> transferSagaRepository.findByIdempotencyKey(idempotencyKey))
+                .orElseThrow(() -> duplicate);
+        if (!first.getFromAccountId().equals(fromAccountId) || !first.getToAccountId().equals(toAccountId)
+                || first.getAmount().compareTo(amount) != 0) {
+            throw new IllegalArgumentException(IdempotencyService.HEADER + " was already used for a different request");
+        }
+        return switch (first.getState()) {
+            case TransferSaga.COMPLETED -> "Transferred " + amount + " to " + toAccountId;
+            case TransferSaga.COMPENSATED -> throw new IllegalArgumentException(
+                    "Transfer of " + amount + " to " + toAccountId + " was refused and refunded");
+            default -> "Transfer of " + amount + " to " + toAccountId + " is pending on node " + first.getTargetNode();
+        };
+    }
+
+    /**
+     * Asks the receiver's node to credit.
+     *
+     * @return true once completed, false when the outcome is still unknown
+     * @throws IllegalArgumentException when the receiver refused and the sender was refunded
+     */
+    private boolean credit(TransferSaga saga) {
+        ClusterService.Node target = clusterService.node(saga.getTargetNode())
+                .orElseGet(() -> clusterService.ownerOf(saga.getToAccountId()));
+        ClusterCreditRequest request = new ClusterCreditRequest(saga.getId(), saga.getFromAccountId(),
+                saga.getToAccountId(), saga.getAmount());
+
+        ResponseEntity<?> response;
+        try {
+            response = target == clusterService.self()
+                    ? applyCredit(request)
+                    : clusterService.callInternal(target, CREDIT_PATH, request);
+        } catch (RuntimeException e) {
+            stalled(saga, "Credit on " + target + " failed: " + e.getMessage());
+            return false;
+        }
+
+        HttpStatusCode status = response.getStatusCode();
+        if (status.is2xxSuccessful()) {
+            newTransaction.executeWithoutResult(tx ->
+                    transferSagaRepository.finish(saga.getId(), TransferSaga.COMPLETED, LocalDateTime.now()));
+            return true;
+        }
+        if (isDefinitiveRefusal(status)) {
+            String error = response.getBody() instanceof Map<?, ?> body && body.get("error") != null
+                    ? String.valueOf(body.get("error")) : "Credit refused with " + status;
+            compensate(saga);
+            throw new IllegalArgumentException(error);
+        }
+        stalled(saga, "Credit on " + target + " answered " + status);
+        return false;
+    }
+
+    /**
+     * Second phase, on the receiver's node (called locally or from /internal/cluster/credit):
+     * credits the receiver on its shard, at most once per saga id.
+     */
+    public ResponseEntity<?> applyCredit(ClusterCreditRequest credit) {
+        // Shard first: the suspended scope must end (releasing anything it bound) before the shard switches back
+        return shardService.onShard(shardService.shardOf(credit.getToAccountId()), () -> outsideTransaction.execute(outside -> {
+            try {
+                return newTransaction.execute(status -> {
+                    if (appliedCreditRepository.existsById(credit.getSagaId())) {
+                        return credited(credit);
+                    }
+                    try {
+                        accountService.transferIn(credit.getToAccountId(), credit.getFromAccountId(), credit.getAmount());
+                    } catch (RuntimeException e) {
+                        // Nothing recorded, so a retry runs again (local rollback-only: no UnexpectedRollbackException)
+                        status.setRollbackOnly();
+                        return ResponseEntity.badRequest().body(Map.of("success", false, "error", String.valueOf(e.getMessage())));
+                    }
+                    // Same transaction as the credit: the row exists if and only if the money moved
+                    appliedCreditRepository.saveAndFlush(appliedCredit(credit));
+                    return credited(credit);
+                });
+            } catch (DataIntegrityViolationException e) {
+                // A concurrent attempt for this saga committed first; ours rolled back with the insert
+                return credited(credit);
+            }
+        }));
+    }
+
+    private static ResponseEntity<?> credited(ClusterCreditRequest credit) {
+        return ResponseEntity.ok(Map.of("success", true, "sagaId", credit.getSagaId()));
+    }
+
+    private static AppliedCredit appliedCredit(ClusterCreditRequest credit) {
+        AppliedCredit applied = new AppliedCredit();
+        applied.setSagaId(credit.getSagaId());
+        applied.setToAccountId(credit.getToAccountId());
+        applied.setAppliedAt(LocalDateTime.now());
+        return applied;
+    }
+
+    // 4xx means the credit did not happen and will not on retry; 409/429 mean "try again"
+    private static boolean isDefinitiveRefusal(HttpStatusCode status) {
+        return status.is4xxClientError() && status.value() != 409 && status.value() != 429;
+    }
+
+    private void compensate(TransferSaga saga) {
+        newTransaction.executeWithoutResult(tx -> {
+            // The state guard makes the refund happen once even if two threads get here
+            if (transferSagaRepository.finish(saga.getId(), TransferSaga.COMPENSATED, LocalDateTime.now()) == 1) {
+                accountService.reverseTransferOut(saga.getFromAccountId(), saga.getToAccountId(), saga.getAmount());
+            }
+        });
+        log.info("Transfer saga {} compensated", saga.getId());
+    }
+
+    private void stalled(TransferSaga saga, String error) {
+        log.warn("Transfer saga {} pending: {}", saga.getId(), error);
+        newTransaction.executeWithoutResult(tx -> transferSagaRepository.findById(saga.getId())
+                .filter(current -> TransferSaga.DEBITED.equals(current.getState()))
+                .ifPresent(current -> {
+                    current.setAttempts(current.getAttempts() + 1);
+                    current.setLastError(error.length() > 512 ? error.substring(0, 512) : error);
+                    current.setUpdatedAt(LocalDateTime.now());
+                    transferSagaRepository.save(current);
+                }));
+    }
+
+    // Sagas started here whose credit never got a definite answer; each shard logs its senders' sagas
+    @Scheduled(fixedDelayString = "${cluster.saga-retry-ms:10000}")
+    public void retryStalled() {
+        if (!clusterService.isEnabled() && !shardService.isEnabled()) {
+            return;
+        }
+        shardService.forEachShard(() -> {
+            List<TransferSaga> stalled = transferSagaRepository.findStalled(clusterService.self().name(),
+                    LocalDateTime.now().minusNanos(retryDelayMs * 1_000_000), PageRequest.of(0, 100));
+            for (TransferSaga saga : stalled) {
+                try {
+                    credit(saga);
+                } catch (IllegalArgumentException e) {
+                    // Refused and compensated
+                } catch (RuntimeException e) {
+                    log.warn("Retrying transfer saga {} failed", saga.getId(), e);
+                }
+            }
+        });
+    }
+
+    private TransferSaga newSaga(Long fromAccountId, Long toAccountId, Money amount) {
+        LocalDateTime now = LocalDateTime.now();
+        TransferSaga saga = new TransferSaga();
+        saga.setId(UUID.randomUUID().toString());
+        saga.setFromAccountId(fromAccountId);
+        saga.setToAccountId(toAccountId);
+        saga.setAmount(amount);
+        saga.setState(TransferSaga.DEBITED);
+        saga.setOriginNode(clusterService.self().name());
+        saga.setTargetNode(clusterService.ownerOf(toAccountId).name());
+        saga.setAttempts(1);
+        saga.setCreatedAt(now);
+        saga.setUpdatedAt(now);
+        return saga;
+    }
+}
@@ -17,11 +17,16 @@ public class UserServiceImpl implements UserService, UserDetailsService {
 
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
+    private final ChangeVersionService changeVersionService;
+    private final CustomerSearchService customerSearchService;
 
     @Autowired
-    public UserServiceImpl(UserRepository userRepository, PasswordEncoder passwordEncoder) {
+    public UserServiceImpl(UserRepository userRepository, PasswordEncoder passwordEncoder,
+                           ChangeVersionService changeVersionService, CustomerSearchService customerSearchService) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
+        this.changeVersionService = changeVersionService;
+        this.customerSearchService = customerSearchService;
     }
 
     @Override
@@ -56,7 +61,10 @@ public class UserServiceImpl implements UserService, UserDetailsService {
             existingUser.setPassword(passwordEncoder.encode(updatedUserData.getPassword()));
         }
 
-        return userRepository.save(existingUser);
+        User saved = userRepository.save(existingUser);
+        changeVersionService.bumpForUser(userId);
+        customerSearchService.userChanged(userId);
+        return saved;
     }
 
     // Spring Security uses this method during login
@@ -0,0 +1,29 @@
+package util;
+
+import org.springframework.security.core.AuthenticatedPrincipal;
+
+import java.util.List;
+
+/**
+ * The caller, as carried by the signed claims of their JWT. Controllers take it as a parameter
+ * (see config.BankPrincipalArgumentResolver) instead of looking the user and customer up again.
+ *
+ * @param customerId null for users without a customer profile (admins)
+ */
+public record BankPrincipal(Long userId, String username, Long customerId, List<String> roles) implements AuthenticatedPrincipal {
+
+    public BankPrincipal {
+        roles = List.copyOf(roles);
+    }
+
+    // Authentication.getName() still answers the username (a java.security.Principal would be
+    // claimed by MVC's built-in resolver and never reach ours)
+    @Override
+    public String getName() {
+        return username;
+    }
+
+    public boolean hasRole(String role) {
+        return roles.contains(role);
+    }
+}
@@ -0,0 +1,88 @@
+package util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Immutable consistent-hash ring. Each node is placed at {@code virtualNodes} points so keys
+ * spread evenly and adding or removing a node only moves about 1/n of them. Lookups are a
+ * binary search over a sorted {@code long[]}, with no allocation.
+ */
+public final class ConsistentHashRing<T> {
+
+    private final long[] points;
+    private final Object[] owners;
+    private final List<T> nodes;
+
+    public ConsistentHashRing(Collection<T> nodes, int virtualNodes) {
+        if (nodes.isEmpty()) {
+            throw new IllegalArgumentException("A hash ring needs at least one node");
+        }
+        this.nodes = List.copyOf(nodes);
+
+        int size = this.nodes.size() * virtualNodes;
+        long[] unsortedPoints = new long[size];
+        Integer[] order = new Integer[size];
+        int i = 0;
+        for (T node : this.nodes) {
+            for (int v = 0; v < virtualNodes; v++) {
+                unsortedPoints[i] = pointHash(node + "#" + v);
+                order[i] = i;
+                i++;
+            }
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(unsortedPoints[a], unsortedPoints[b]));
+
+        this.points = new long[size];
+        this.owners = new Object[size];
+        for (int j = 0; j < size; j++) {
+            points[j] = unsortedPoints[order[j]];
+            owners[j] = this.nodes.get(order[j] / virtualNodes);
+        }
+    }
+
+    /**
+     * The node owning {@code key}: the first point clockwise from the key's hash.
+     */
+    @SuppressWarnings("unchecked")
+    public T nodeFor(long key) {
+        int index = Arrays.binarySearch(points, mix(key));
+        if (index < 0) {
+            index = -index - 1;
+            if (index == points.length) {
+                index = 0;
+            }
+        }
+        return (T) owners[index];
+    }
+
+    public List<T> nodes() {
+        return nodes;
+    }
+
+    // Points come from MD5 so placement does not depend on the JVM (all nodes must agree)
+    private static long pointHash(String text) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(text.getBytes(StandardCharsets.UTF_8));
+            long hash = 0;
+            for (int i = 0; i < 8; i++) {
+                hash = (hash << 8) | (digest[i] & 0xff);
+            }
+            return hash;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // SplitMix64 finalizer: sequential ids land far apart on the ring
+    private static long mix(long key) {
+        long z = key + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,131 @@
+package util;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Adaptive concurrency limit driven by the latency gradient (in the style of Netflix's gradient2).
+ * <p>
+ * Latencies are averaged over short windows and compared with a slow moving average of past
+ * windows. While recent latency stays within {@code tolerance} times that baseline the limit grows
+ * by about its square root per window; once requests start to queue, latency rises and the limit
+ * shrinks in proportion (by at most half per window). Windows in which less than half the limit was
+ * used do not grow it, so an idle service does not drift to {@code maxLimit}.
+ * <p>
+ * {@link #tryAcquire} and {@link #release} are lock free; one caller at a time recomputes the limit
+ * when a window closes.
+ */
+public final class GradientLimiter {
+
+    // The baseline follows about this many windows
+    private static final double BASELINE_WINDOWS = 20;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private final double smoothing;
+    private final long windowNanos;
+    private final int minWindowSamples;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger peakInFlight = new AtomicInteger();
+    private final LongAdder windowLatencySum = new LongAdder();
+    private final LongAdder windowSamples = new LongAdder();
+    private final AtomicBoolean updating = new AtomicBoolean();
+    private volatile long windowEnd;
+    private volatile double limit;
+    private double baselineNanos;   // guarded by updating
+
+    public GradientLimiter(int initialLimit, int minLimit, int maxLimit, double tolerance, double smoothing,
+                           long windowMs, int minWindowSamples) {
+        if (minLimit < 1 || maxLimit < minLimit) {
+            throw new IllegalArgumentException("Limits must satisfy 1 <= min <= max");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.tolerance = tolerance;
+        this.smoothing = smoothing;
+        this.windowNanos = windowMs * 1_000_000;
+        this.minWindowSamples = minWindowSamples;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+        this.windowEnd = System.nanoTime() + windowNanos;
+    }
+
+    /**
+     * Takes a slot if fewer than {@link #getLimit()} are in use; a caller that gets true must {@link #release}.
+     */
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= (int) limit) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                peakInFlight.accumulateAndGet(current + 1, Math::max);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Returns a slot.
+     *
+     * @param latencyNanos how long the work took, or a negative value when it should not be sampled
+     */
+    public void release(long latencyNanos) {
+        inFlight.decrementAndGet();
+        if (latencyNanos < 0) {
+            return;
+        }
+        windowLatencySum.add(latencyNanos);
+        windowSamples.increment();
+
+        long now = System.nanoTime();
+        if (now - windowEnd >= 0 && windowSamples.sum() >= minWindowSamples && updating.compareAndSet(false, true)) {
+            try {
+                windowEnd = now + windowNanos;
+                update();
+            } finally {
+                updating.set(false);
+            }
+        }
+    }
+
+    private void update() {
+        long samples = windowSamples.sumThenReset();
+        long sum = windowLatencySum.sumThenReset();
+        int peak = peakInFlight.getAndSet(inFlight.get());
+        if (samples == 0) {
+            return;
+        }
+        double recent = (double) sum / samples;
+
+        if (baselineNanos == 0) {
+            baselineNanos = recent;
+        } else {
+            baselineNanos += (recent - baselineNanos) / BASELINE_WINDOWS;
+            // Recover quickly when load drops after a long stretch of queueing inflated the baseline
+            if (baselineNanos > 2 * recent) {
+                baselineNanos *= 0.95;
+            }
+        }
+
+        double current = limit;
+        double gradient = Math.max(0.5, Math.min(1.0, tolerance * baselineNanos / recent));
+        if (gradient >= 1.0 && peak < current / 2) {
+            return;
+        }
+        double target = current * gradient + Math.sqrt(current);
+        double next = current * (1 - smoothing) + target * smoothing;
+        limit = Math.max(minLimit, Math.min(maxLimit, next));
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+}
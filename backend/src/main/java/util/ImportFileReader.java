@@ -0,0 +1,169 @@
+package util;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streams the records of an import file, one per line: CSV with a header line, or NDJSON (one
+ * JSON object per line). Lines are numbered from 1, not counting a CSV header, and each yields
+ * exactly one record so that a line count is a resumable position. A line that cannot be parsed
+ * becomes a record carrying an error; a blank line becomes an empty record.
+ */
+public final class ImportFileReader implements Closeable {
+
+    public static final String CSV = "csv";
+    public static final String NDJSON = "ndjson";
+
+    public record Record(long line, Map<String, String> fields, String error) {
+        public boolean isBlank() {
+            return error == null && fields.isEmpty();
+        }
+    }
+
+    private final BufferedReader reader;
+    private final String format;
+    private final ObjectMapper objectMapper;
+    private final List<String> header;
+    private long line;
+
+    public ImportFileReader(Path file, String format, ObjectMapper objectMapper) throws IOException {
+        if (!CSV.equals(format) && !NDJSON.equals(format)) {
+            throw new IllegalArgumentException("Unsupported import format: " + format);
+        }
+        this.reader = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+        this.format = format;
+        this.objectMapper = objectMapper;
+        if (CSV.equals(format)) {
+            String headerLine = reader.readLine();
+            if (headerLine == null) {
+                throw new IllegalArgumentException("CSV import has no header line");
+            }
+            this.header = parseCsvLine(stripBom(headerLine)).stream().map(String::trim).toList();
+        } else {
+            this.header = List.of();
+        }
+    }
+
+    /**
+     * Data lines in the file (excluding a CSV header).
+     */
+    public static long countLines(Path file, String format) throws IOException {
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            long count = 0;
+            while (in.readLine() != null) {
+                count++;
+            }
+            return CSV.equals(format) ? Math.max(0, count - 1) : count;
+        }
+    }
+
+    public void skip(long lines) throws IOException {
+        while (line < lines && reader.readLine() != null) {
+            line++;
+        }
+    }
+
+    /**
+     * The next record, or null at the end of the file.
+     */
+    public Record next() throws IOException {
+        String text = reader.readLine();
+        if (text == null) {
+            return null;
+        }
+        line++;
+        if (line == 1 && NDJSON.equals(format)) {
+            text = stripBom(text);
+        }
+        if (text.isBlank()) {
+            return new Record(line, Map.of(), null);
+        }
+        try {
+            return new Record(line, CSV.equals(format) ? csvRecord(text) : jsonRecord(text), null);
+        } catch (IllegalArgumentException | JsonProcessingException e) {
+            return new Record(line, Map.of(), "Line " + line + " is malformed: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private Map<String, String> csvRecord(String text) {
+        List<String> values = parseCsvLine(text);
+        if (values.size() > header.size()) {
+            throw new IllegalArgumentException(values.size() + " fields but the header has " + header.size());
+        }
+        Map<String, String> fields = new LinkedHashMap<>();
+        for (int i = 0; i < values.size(); i++) {
+            String value = values.get(i).trim();
+            if (!value.isEmpty()) {
+                fields.put(header.get(i), value);
+            }
+        }
+        return fields;
+    }
+
+    private Map<String, String> jsonRecord(String text) throws JsonProcessingException {
+        JsonNode node = objectMapper.readTree(text);
+        if (!node.isObject()) {
+            throw new IllegalArgumentException("expected a JSON object");
+        }
+        Map<String, String> fields = new LinkedHashMap<>();
+        node.fields().forEachRemaining(field -> {
+            if (!field.getValue().isNull()) {
+                fields.put(field.getKey(), field.getValue().asText());
+            }
+        });
+        return fields;
+    }
+
+    // RFC 4180 fields on a single line: commas, "quoted, fields" and "" escapes
+    static List<String> parseCsvLine(String text) {
+        List<String> values = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < text.length() && text.charAt(i + 1) == '"') {
+                    value.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    value.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(value.toString());
+                value.setLength(0);
+            } else {
+                value.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("unterminated quoted field");
+        }
+        values.add(value.toString());
+        return values;
+    }
+
+    private static String stripBom(String text) {
+        return !text.isEmpty() && text.charAt(0) == '\uFEFF' ? text.substring(1) : text;
+    }
+}
@@ -0,0 +1,192 @@
+package util;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Keyword scorer for short messages: every word found in a trie adds its per-intent weights, and
+ * the best intent wins if it scores at least {@code minScore} and leads the next one by
+ * {@code minMargin}. Weights may be negative (words that suggest the message needs a real answer).
+ * <p>
+ * Words are the runs of ASCII letters and digits, lower-cased. Apostrophes are dropped, so "what's"
+ * reads as "whats"; anything else separates words. A keyword ending in {@code *} also matches every longer word
+ * starting with it; an exact keyword wins over a prefix one. Classifying walks the trie while scanning
+ * the text, without building strings. Immutable once built, so safe to share.
+ */
+public final class IntentClassifier<I> {
+
+    private static final int ALPHABET = 36;
+
+    private final List<I> intents;
+    private final Node root;
+    private final double minScore;
+    private final double minMargin;
+    private final int maxWords;
+
+    public record Match<I>(I intent, double score) {
+    }
+
+    private IntentClassifier(Builder<I> builder) {
+        this.intents = List.copyOf(builder.intents);
+        this.root = builder.root;
+        this.minScore = builder.minScore;
+        this.minMargin = builder.minMargin;
+        this.maxWords = builder.maxWords;
+    }
+
+    public static <I> Builder<I> builder(List<I> intents) {
+        return new Builder<>(intents);
+    }
+
+    /**
+     * @return the recognized intent, or empty when no intent is clearly ahead (or the text has more
+     * than {@code maxWords} words)
+     */
+    public Optional<Match<I>> classify(CharSequence text) {
+        double[] scores = new double[intents.size()];
+        int words = 0;
+        Node node = root;
+        Node prefix = null;
+        boolean inWord = false;
+        for (int i = 0, length = text.length(); i <= length; i++) {
+            if (i < length && isApostrophe(text.charAt(i))) {
+                continue;
+            }
+            int slot = i < length ? slot(text.charAt(i)) : -1;
+            if (slot >= 0) {
+                inWord = true;
+                if (node != null) {
+                    node = node.children[slot];
+                    if (node != null && node.prefixWeights != null) {
+                        prefix = node;
+                    }
+                }
+            } else if (inWord) {
+                if (++words > maxWords) {
+                    return Optional.empty();
+                }
+                double[] weights = node != null && node.exactWeights != null ? node.exactWeights
+                        : prefix != null ? prefix.prefixWeights : null;
+                if (weights != null) {
+                    for (int k = 0; k < scores.length; k++) {
+                        scores[k] += weights[k];
+                    }
+                }
+                node = root;
+                prefix = null;
+                inWord = false;
+            }
+        }
+
+        int best = 0;
+        for (int k = 1; k < scores.length; k++) {
+            if (scores[k] > scores[best]) {
+                best = k;
+            }
+        }
+        double runnerUp = 0;
+        for (int k = 0; k < scores.length; k++) {
+            if (k != best) {
+                runnerUp = Math.max(runnerUp, scores[k]);
+            }
+        }
+        if (scores.length == 0 || scores[best] < minScore || scores[best] - runnerUp < minMargin) {
+            return Optional.empty();
+        }
+        return Optional.of(new Match<>(intents.get(best), scores[best]));
+    }
+
+    // a-z -> 0..25, 0-9 -> 26..35 (upper case folded); -1 separates words
+    private static int slot(char c) {
+        if (c >= 'a' && c <= 'z') {
+            return c - 'a';
+        }
+        if (c >= 'A' && c <= 'Z') {
+            return c - 'A';
+        }
+        if (c >= '0' && c <= '9') {
+            return 26 + c - '0';
+        }
+        return -1;
+    }
+
+    private static boolean isApostrophe(char c) {
+        return c == '\'' || c == '\u2019';
+    }
+
+    private static final class Node {
+        final Node[] children = new Node[ALPHABET];
+        double[] exactWeights;
+        double[] prefixWeights;
+    }
+
+    public static final class Builder<I> {
+        private final List<I> intents;
+        private final Node root = new Node();
+        private double minScore = 1;
+        private double minMargin = 0;
+        private int maxWords = Integer.MAX_VALUE;
+
+        private Builder(List<I> intents) {
+            this.intents = intents;
+        }
+
+        /**
+         * Adds {@code weight} to {@code intent} for {@code word} ("transact*" for a prefix). Repeat
+         * for a word that counts towards several intents.
+         */
+        public Builder<I> keyword(String word, I intent, double weight) {
+            int index = intents.indexOf(intent);
+            if (index < 0) {
+                throw new IllegalArgumentException("Unknown intent: " + intent);
+            }
+            boolean isPrefix = word.endsWith("*");
+            String letters = isPrefix ? word.substring(0, word.length() - 1) : word;
+            if (letters.isEmpty()) {
+                throw new IllegalArgumentException("Empty keyword");
+            }
+            Node node = root;
+            for (int i = 0; i < letters.length(); i++) {
+                int slot = slot(letters.charAt(i));
+                if (slot < 0) {
+                    throw new IllegalArgumentException("Keywords are single words of letters and digits: " + word);
+                }
+                if (node.children[slot] == null) {
+                    node.children[slot] = new Node();
+                }
+                node = node.children[slot];
+            }
+            if (isPrefix) {
+                node.prefixWeights = add(node.prefixWeights, index, weight);
+            } else {
+                node.exactWeights = add(node.exactWeights, index, weight);
+            }
+            return this;
+        }
+
+        public Builder<I> minScore(double minScore) {
+            this.minScore = minScore;
+            return this;
+        }
+
+        public Builder<I> minMargin(double minMargin) {
+            this.minMargin = minMargin;
+            return this;
+        }
+
+        public Builder<I> maxWords(int maxWords) {
+            this.maxWords = maxWords;
+            return this;
+        }
+
+        public IntentClassifier<I> build() {
+            return new IntentClassifier<>(this);
+        }
+
+        private double[] add(double[] weights, int index, double weight) {
+            double[] result = weights != null ? weights : new double[intents.size()];
+            result[index] += weight;
+            return result;
+        }
+    }
+}
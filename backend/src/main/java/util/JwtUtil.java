@@ -2,12 +2,14 @@ package util;
 
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
-import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.security.Key;
 import java.util.Base64;
 import java.util.Date;
+import java.util.List;
+import java.util.UUID;
 import java.util.function.Function;
 
 @Component
@@ -19,19 +21,67 @@ public class JwtUtil {
 
     private static final long EXPIRATION_TIME = 1000 * 60 * 60 * 10; // 10 hours
 
+    // Claims describing the caller, so requests need no user/customer lookup
+    public static final String USER_ID_CLAIM = "uid";
+    public static final String CUSTOMER_ID_CLAIM = "cid";
+    public static final String ROLES_CLAIM = "roles";
+
+    // Claims older than this are re-read from the database and a fresh token is handed back
+    @Value("${jwt.claims-max-age-ms:900000}")
+    private long claimsMaxAgeMs;
+
     // ✅ Generate JWT token
-    public String generateToken(String username) {
-        return Jwts.builder()
-                .setSubject(username)
+    public String generateToken(BankPrincipal principal) {
+        return build(principal, UUID.randomUUID().toString(),   // jti, so the token can be revoked on logout
+                new Date(System.currentTimeMillis() + EXPIRATION_TIME));
+    }
+
+    // ✅ Same token id and expiry as the old token (a refresh neither extends the session nor escapes a logout)
+    public String refreshToken(BankPrincipal principal, Claims previous) {
+        String tokenId = previous.getId() != null ? previous.getId() : UUID.randomUUID().toString();
+        return build(principal, tokenId, previous.getExpiration());
+    }
+
+    private String build(BankPrincipal principal, String tokenId, Date expiration) {
+        JwtBuilder builder = Jwts.builder()
+                .setSubject(principal.username())
+                .setId(tokenId)
+                .claim(USER_ID_CLAIM, principal.userId())
+                .claim(ROLES_CLAIM, principal.roles())
                 .setIssuedAt(new Date(System.currentTimeMillis()))
-                .setExpiration(new Date(System.currentTimeMillis() + EXPIRATION_TIME))
-                .signWith(KEY, SignatureAlgorithm.HS256)
-                .compact();
+                .setExpiration(expiration);
+        if (principal.customerId() != null) {
+            builder.claim(CUSTOMER_ID_CLAIM, principal.customerId());
+        }
+        return builder.signWith(KEY, SignatureAlgorithm.HS256).compact();
     }
 
-    // ✅ Extract username
-    public String extractUsername(String token) {
-        return extractClaim(token, Claims::getSubject);
+    // ✅ Verify signature and expiry once and return every claim (throws JwtException otherwise)
+    public Claims parseClaims(String token) {
+        return extractAllClaims(token);
+    }
+
+    // ✅ The caller described by the claims; null for tokens issued before the claims existed
+    public BankPrincipal principalFrom(Claims claims) {
+        Number userId = claims.get(USER_ID_CLAIM, Number.class);
+        List<?> roles = claims.get(ROLES_CLAIM, List.class);
+        if (userId == null || roles == null) {
+            return null;
+        }
+        Number customerId = claims.get(CUSTOMER_ID_CLAIM, Number.class);
+        return new BankPrincipal(userId.longValue(), claims.getSubject(),
+                customerId != null ? customerId.longValue() : null,
+                roles.stream().map(String::valueOf).toList());
+    }
+
+    public boolean isStale(Claims claims) {
+        Date issuedAt = claims.getIssuedAt();
+        return issuedAt == null || System.currentTimeMillis() - issuedAt.getTime() > claimsMaxAgeMs;
+    }
+
+    // ✅ Extract token id (jti); null for tokens issued before it was added
+    public String extractTokenId(String token) {
+        return extractClaim(token, Claims::getId);
     }
 
     // ✅ Extract expiration
@@ -51,18 +101,4 @@ public class JwtUtil {
                 .parseClaimsJws(token)
                 .getBody();
     }
-
-    private boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
-    }
-
-    // ✅ Validate JWT token
-    public boolean validateToken(String token, UserDetails userDetails) {
-        try {
-            final String username = extractUsername(token);
-            return username.equals(userDetails.getUsername()) && !isTokenExpired(token);
-        } catch (JwtException | IllegalArgumentException e) {
-            return false;
-        }
-    }
 }
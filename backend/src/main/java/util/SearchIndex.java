@@ -0,0 +1,482 @@
+package util;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory full-text index over documents with a long id, for type-ahead search.
+ * <p>
+ * Every token is kept in a sorted map to its ids (a sorted {@code long[]}), so a query term matches
+ * all tokens it is a prefix of with one range scan. Tokens from word fields (names) are also posted
+ * under their bigrams; a term of four or more characters then also matches words within one edit
+ * (two from eight characters), found by bigram overlap and confirmed by edit distance. Keys (e-mail,
+ * phone, username) are only prefix-matched, which keeps the bigram table to the small vocabulary of names.
+ * <p>
+ * All terms of a query must match. Candidates come from the most selective term; the other terms
+ * are checked against each candidate's own tokens. Per term a document scores 3 for an exact token,
+ * 2 for a prefix and 1 for a typo; hits are ranked by total score, then id. Reads share a lock and
+ * writes are incremental; a bulk load into a fresh index is appended in id order and costs no shifting.
+ */
+public final class SearchIndex<D> {
+
+    private static final int EXACT = 3;
+    private static final int PREFIX = 2;
+    private static final int FUZZY = 1;
+
+    /** Deepest offset a search pages to; ranking keeps offset + limit hits in memory. */
+    public static final int MAX_OFFSET = 10_000;
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    public record Hit<D>(long id, D document, int score) {
+    }
+
+    public record Page<D>(long total, List<Hit<D>> hits) {
+    }
+
+    private record Entry<D>(D document, String[] words, String[] keys) {
+    }
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Entry<D>> entries = new HashMap<>();
+    private final NavigableMap<String, Postings> postings = new TreeMap<>();
+    private final Map<String, Set<String>> grams = new HashMap<>();
+    private final Set<String> fuzzyWords = new HashSet<>();
+
+    /**
+     * Adds or replaces a document. Word fields are split into words (prefix and typo matching);
+     * keys are indexed whole (prefix matching). Null values are ignored.
+     */
+    public void put(long id, D document, Collection<String> wordFields, Collection<String> keyValues) {
+        Set<String> words = new LinkedHashSet<>();
+        for (String field : wordFields) {
+            words.addAll(split(field));
+        }
+        Set<String> keys = new LinkedHashSet<>();
+        for (String value : keyValues) {
+            String key = normalize(value);
+            if (!key.isEmpty()) {
+                keys.add(key);
+            }
+        }
+        keys.removeAll(words);
+        Entry<D> entry = new Entry<>(document, words.toArray(String[]::new), keys.toArray(String[]::new));
+
+        lock.writeLock().lock();
+        try {
+            Entry<D> previous = entries.put(id, entry);
+            if (previous != null) {
+                unpost(id, previous);
+            }
+            for (String word : entry.words) {
+                post(word, id, true);
+            }
+            for (String key : entry.keys) {
+                post(key, id, false);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            Entry<D> previous = entries.remove(id);
+            if (previous != null) {
+                unpost(id, previous);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Documents matching every whitespace-separated term of {@code query}, best first.
+     *
+     * @throws IllegalArgumentException if {@code offset} is outside 0..{@link #MAX_OFFSET}
+     */
+    public Page<D> search(String query, long offset, int limit) {
+        if (offset < 0 || offset > MAX_OFFSET || limit < 0) {
+            throw new IllegalArgumentException("offset must be 0.." + MAX_OFFSET + " and limit >= 0");
+        }
+        List<String> terms = WHITESPACE.splitAsStream(normalize(query)).filter(term -> !term.isEmpty())
+                .distinct().toList();
+        if (terms.isEmpty()) {
+            return new Page<>(0, List.of());
+        }
+
+        lock.readLock().lock();
+        try {
+            // Longest first: it is usually the most selective, and bounds the estimates after it
+            String driver = terms.get(0);
+            long fewest = Long.MAX_VALUE;
+            for (String term : terms.stream().sorted(Comparator.comparingInt(String::length).reversed()).toList()) {
+                long estimate = estimate(term, fewest);
+                if (estimate < fewest) {
+                    fewest = estimate;
+                    driver = term;
+                }
+            }
+
+            Comparator<Hit<D>> ranking = Comparator.<Hit<D>>comparingInt(Hit::score)
+                    .thenComparing(Hit::id, Comparator.reverseOrder());
+            int keep = (int) Math.min(offset + limit, Integer.MAX_VALUE);
+            Scores candidates = candidates(driver, fewest);
+            PriorityQueue<Hit<D>> top = new PriorityQueue<>(Math.max(1, Math.min(keep, candidates.size)), ranking);
+            long total = 0;
+            for (int slot = 0; slot < candidates.ids.length; slot++) {
+                int score = candidates.scores[slot];
+                if (score == 0) {
+                    continue;
+                }
+                long id = candidates.ids[slot];
+                if (terms.size() > 1) {
+                    Entry<D> entry = entries.get(id);
+                    for (String term : terms) {
+                        if (term != driver) {
+                            int termScore = score(term, entry);
+                            if (termScore == 0) {
+                                score = 0;
+                                break;
+                            }
+                            score += termScore;
+                        }
+                    }
+                    if (score == 0) {
+                        continue;
+                    }
+                }
+                total++;
+                // Documents are attached to the page's hits only
+                if (top.size() < keep) {
+                    top.add(new Hit<>(id, null, score));
+                } else if (keep > 0 && (score > top.peek().score() || score == top.peek().score() && id < top.peek().id())) {
+                    top.poll();
+                    top.add(new Hit<>(id, null, score));
+                }
+            }
+
+            List<Hit<D>> ranked = new ArrayList<>(top);
+            ranked.sort(ranking.reversed());
+            List<Hit<D>> page = new ArrayList<>();
+            for (int i = (int) offset; i < ranked.size(); i++) {
+                Hit<D> hit = ranked.get(i);
+                page.add(new Hit<>(hit.id(), entries.get(hit.id()).document, hit.score()));
+            }
+            return new Page<>(total, page);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // -----------------------------
+    // Matching
+    // -----------------------------
+
+    // Documents under the term's prefix range, stopping once it is no better than the best so far
+    private long estimate(String term, long bound) {
+        long count = 0;
+        for (Postings ids : prefixRange(term).values()) {
+            count += ids.size;
+            if (count >= bound) {
+                break;
+            }
+        }
+        return count;
+    }
+
+    private Scores candidates(String term, long expected) {
+        Scores scores = new Scores(expected);
+        prefixRange(term).forEach((token, ids) -> {
+            int score = token.equals(term) ? EXACT : PREFIX;
+            for (int i = 0; i < ids.size; i++) {
+                scores.raise(ids.ids[i], score);
+            }
+        });
+        for (String word : similarWords(term)) {
+            Postings ids = postings.get(word);
+            for (int i = 0; i < ids.size; i++) {
+                scores.raise(ids.ids[i], FUZZY);
+            }
+        }
+        return scores;
+    }
+
+    private int score(String term, Entry<D> entry) {
+        int best = 0;
+        int edits = maxEdits(term);
+        for (String word : entry.words) {
+            if (word.startsWith(term)) {
+                if (word.length() == term.length()) {
+                    return EXACT;
+                }
+                best = PREFIX;
+            } else if (best == 0 && edits > 0 && withinEdits(term, word, edits)) {
+                best = FUZZY;
+            }
+        }
+        for (String key : entry.keys) {
+            if (key.startsWith(term)) {
+                if (key.length() == term.length()) {
+                    return EXACT;
+                }
+                best = PREFIX;
+            }
+        }
+        return best;
+    }
+
+    private NavigableMap<String, Postings> prefixRange(String term) {
+        return postings.subMap(term, true, term + Character.MAX_VALUE, false);
+    }
+
+    // Words within the term's edit budget that it is not already a prefix of
+    private List<String> similarWords(String term) {
+        int edits = maxEdits(term);
+        if (edits == 0) {
+            return List.of();
+        }
+        Map<String, Integer> shared = new HashMap<>();
+        for (String gram : bigrams(term)) {
+            for (String word : grams.getOrDefault(gram, Set.of())) {
+                shared.merge(word, 1, Integer::sum);
+            }
+        }
+        // An edit changes at most two of a word's bigrams, a swap of neighbours three
+        int needed = Math.max(1, term.length() + 1 - 3 * edits);
+        List<String> similar = new ArrayList<>();
+        shared.forEach((word, count) -> {
+            if (count >= needed && !word.startsWith(term) && postings.containsKey(word)
+                    && withinEdits(term, word, edits)) {
+                similar.add(word);
+            }
+        });
+        return similar;
+    }
+
+    // Numbers are looked up, not misspelt: no typo matching once a term has a digit
+    private static int maxEdits(String term) {
+        if (term.length() < 4 || term.chars().anyMatch(Character::isDigit)) {
+            return 0;
+        }
+        return term.length() < 8 ? 1 : 2;
+    }
+
+    // Optimal string alignment distance (adjacent swaps count once), abandoned past the budget
+    static boolean withinEdits(String a, String b, int budget) {
+        if (Math.abs(a.length() - b.length()) > budget) {
+            return false;
+        }
+        int[] before = new int[b.length() + 1];
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = i;
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                int distance = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    distance = Math.min(distance, before[j - 2] + 1);
+                }
+                current[j] = distance;
+                rowMin = Math.min(rowMin, distance);
+            }
+            if (rowMin > budget) {
+                return false;
+            }
+            int[] recycled = before;
+            before = previous;
+            previous = current;
+            current = recycled;
+        }
+        return previous[b.length()] <= budget;
+    }
+
+    // -----------------------------
+    // Postings
+    // -----------------------------
+    private void post(String token, long id, boolean word) {
+        Postings ids = postings.get(token);
+        if (ids == null) {
+            ids = new Postings();
+            postings.put(token, ids);
+        }
+        ids.add(id);
+        // The same token may already be posted, but only as a key of other documents
+        if (word && fuzzyWords.add(token)) {
+            for (String gram : bigrams(token)) {
+                grams.computeIfAbsent(gram, g -> new HashSet<>()).add(token);
+            }
+        }
+    }
+
+    private void unpost(long id, Entry<D> entry) {
+        for (String token : entry.words) {
+            unpost(token, id);
+        }
+        for (String token : entry.keys) {
+            unpost(token, id);
+        }
+    }
+
+    private void unpost(String token, long id) {
+        Postings ids = postings.get(token);
+        if (ids == null || !ids.remove(id) || ids.size > 0) {
+            return;
+        }
+        postings.remove(token);
+        if (!fuzzyWords.remove(token)) {
+            return;
+        }
+        for (String gram : bigrams(token)) {
+            Set<String> words = grams.get(gram);
+            if (words != null && words.remove(token) && words.isEmpty()) {
+                grams.remove(gram);
+            }
+        }
+    }
+
+    // "^j", "jo", "oh", "hn", "n$" for "john"
+    private static List<String> bigrams(String token) {
+        String padded = "^" + token + "$";
+        List<String> result = new ArrayList<>(padded.length() - 1);
+        for (int i = 0; i + 2 <= padded.length(); i++) {
+            result.add(padded.substring(i, i + 2));
+        }
+        return result;
+    }
+
+    /**
+     * Sorted, duplicate-free ids sharing one token.
+     */
+    private static final class Postings {
+        long[] ids = new long[1];
+        int size;
+
+        void add(long id) {
+            // Ids usually arrive in ascending order, so this is normally an append
+            int at = size > 0 && ids[size - 1] < id ? size : Arrays.binarySearch(ids, 0, size, id);
+            if (at < 0) {
+                at = -at - 1;
+            } else if (at < size) {
+                return;
+            }
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            System.arraycopy(ids, at, ids, at + 1, size - at);
+            ids[at] = id;
+            size++;
+        }
+
+        boolean remove(long id) {
+            int at = Arrays.binarySearch(ids, 0, size, id);
+            if (at < 0) {
+                return false;
+            }
+            System.arraycopy(ids, at + 1, ids, at, size - at - 1);
+            size--;
+            return true;
+        }
+    }
+
+    /**
+     * Open-addressing id -> best score of one term, without boxing; a zero score is an empty slot.
+     */
+    private static final class Scores {
+        long[] ids;
+        int[] scores;
+        int size;
+
+        Scores(long expected) {
+            int capacity = Integer.highestOneBit((int) Math.min(1 << 29, Math.max(32, expected * 2)) - 1) << 1;
+            ids = new long[capacity];
+            scores = new int[capacity];
+        }
+
+        void raise(long id, int score) {
+            int mask = ids.length - 1;
+            long hash = id * 0x9E3779B97F4A7C15L;
+            int slot = (int) (hash ^ (hash >>> 32)) & mask;
+            while (scores[slot] != 0 && ids[slot] != id) {
+                slot = (slot + 1) & mask;
+            }
+            if (scores[slot] == 0) {
+                ids[slot] = id;
+                scores[slot] = score;
+                if (++size * 2 > ids.length) {
+                    grow();
+                }
+            } else if (score > scores[slot]) {
+                scores[slot] = score;
+            }
+        }
+
+        private void grow() {
+            long[] oldIds = ids;
+            int[] oldScores = scores;
+            ids = new long[oldIds.length * 2];
+            scores = new int[oldIds.length * 2];
+            size = 0;
+            for (int i = 0; i < oldIds.length; i++) {
+                if (oldScores[i] != 0) {
+                    raise(oldIds[i], oldScores[i]);
+                }
+            }
+        }
+    }
+
+    // -----------------------------
+    // Text
+    // -----------------------------
+
+    /**
+     * Lower case without accents, so "José" and "jose" index alike.
+     */
+    public static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        if (text.chars().allMatch(c -> c < 0x80)) {
+            return text.toLowerCase(Locale.ROOT).trim();
+        }
+        return MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("")
+                .toLowerCase(Locale.ROOT).trim();
+    }
+
+    private static List<String> split(String field) {
+        return SEPARATORS.splitAsStream(normalize(field)).filter(part -> !part.isEmpty()).toList();
+    }
+}
@@ -0,0 +1,268 @@
+package util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Bounded, expiring cache keyed on text that also finds near-duplicate keys.
+ * <p>
+ * Keys are normalized first ({@link #normalize}: lower case, punctuation dropped, whitespace collapsed),
+ * so "What is KYC?" and "what is kyc" are the same entry. A lookup that misses the exact key looks for a
+ * stored key whose character 4-gram sets are at least {@code similarity} alike (Jaccard), estimated with a
+ * 64-value MinHash signature. Candidates come from locality-sensitive hashing: the signature is cut into
+ * 16 bands of 4 values, and only keys sharing a whole band with the query are compared, so a lookup
+ * never scans the cache.
+ * <p>
+ * Holds at most {@code maxEntries}, evicting the least recently used; entries expire {@code ttlMillis}
+ * after they were stored. All methods are synchronized; each call is a few microseconds.
+ */
+public final class SimilarityCache<V> {
+
+    private static final int SHINGLE = 4;
+    private static final int BANDS = 16;
+    private static final int ROWS = 4;
+    private static final int HASHES = BANDS * ROWS;
+    private static final long[] SEEDS = new long[HASHES];
+
+    static {
+        long seed = 0x2545F4914F6CDD1DL;
+        for (int i = 0; i < HASHES; i++) {
+            seed = mix(seed + 0x9E3779B97F4A7C15L);
+            SEEDS[i] = seed;
+        }
+    }
+
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final double similarity;
+    private final LinkedHashMap<String, Entry<V>> entries;
+    // (band, band hash) -> entries with that band
+    private final Map<Long, Set<Entry<V>>> buckets = new HashMap<>();
+
+    public record Hit<V>(V value, boolean exact) {
+    }
+
+    public record Stored<V>(String key, V value, long expiresAtMillis) {
+    }
+
+    private static final class Entry<V> {
+        final String key;
+        final long[] signature;
+        final long[] bandKeys;
+        final V value;
+        final long expiresAtMillis;
+
+        Entry(String key, long[] signature, V value, long expiresAtMillis) {
+            this.key = key;
+            this.signature = signature;
+            this.bandKeys = bandKeys(signature);
+            this.value = value;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+    }
+
+    public SimilarityCache(int maxEntries, long ttlMillis, double similarity) {
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlMillis;
+        this.similarity = similarity;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry<V>> eldest) {
+                if (size() > SimilarityCache.this.maxEntries) {
+                    unindex(eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Lower case; letters and digits are kept, apostrophes dropped ("what's" is "whats"), and every other
+     * run of characters becomes one space.
+     */
+    public static String normalize(String text) {
+        StringBuilder normalized = new StringBuilder(text.length());
+        boolean space = true;
+        for (int i = 0; i < text.length(); i++) {
+            char c = Character.toLowerCase(text.charAt(i));
+            if (c == '\'' || c == '\u2019') {
+                continue;
+            }
+            if (Character.isLetterOrDigit(c)) {
+                normalized.append(c);
+                space = false;
+            } else if (!space) {
+                normalized.append(' ');
+                space = true;
+            }
+        }
+        int end = normalized.length();
+        return end > 0 && normalized.charAt(end - 1) == ' ' ? normalized.substring(0, end - 1) : normalized.toString();
+    }
+
+    /**
+     * The value stored under {@code text}, or else under the most similar key above the threshold.
+     */
+    public synchronized Optional<Hit<V>> get(String text) {
+        String key = normalize(text);
+        if (key.isEmpty()) {
+            return Optional.empty();
+        }
+        long now = System.currentTimeMillis();
+        Entry<V> exact = entries.get(key);
+        if (exact != null) {
+            if (exact.expiresAtMillis > now) {
+                return Optional.of(new Hit<>(exact.value, true));
+            }
+            remove(exact);
+        }
+
+        long[] signature = signature(key);
+        Entry<V> best = null;
+        double bestSimilarity = similarity;
+        List<Entry<V>> expired = new ArrayList<>();
+        Set<Entry<V>> seen = new HashSet<>();
+        for (long bandKey : bandKeys(signature)) {
+            Set<Entry<V>> bucket = buckets.get(bandKey);
+            if (bucket == null) {
+                continue;
+            }
+            for (Entry<V> candidate : bucket) {
+                if (!seen.add(candidate)) {
+                    continue;
+                }
+                if (candidate.expiresAtMillis <= now) {
+                    expired.add(candidate);
+                    continue;
+                }
+                double estimate = agreement(signature, candidate.signature);
+                if (estimate >= bestSimilarity) {
+                    best = candidate;
+                    bestSimilarity = estimate;
+                }
+            }
+        }
+        expired.forEach(this::remove);
+        if (best == null) {
+            return Optional.empty();
+        }
+        entries.get(best.key); // counts as a use for eviction
+        return Optional.of(new Hit<>(best.value, false));
+    }
+
+    public void put(String text, V value) {
+        put(text, value, System.currentTimeMillis() + ttlMillis);
+    }
+
+    /**
+     * Stores with an explicit expiry (for entries restored from disk); already expired entries are ignored.
+     */
+    public synchronized void put(String text, V value, long expiresAtMillis) {
+        String key = normalize(text);
+        if (key.isEmpty() || expiresAtMillis <= System.currentTimeMillis()) {
+            return;
+        }
+        Entry<V> previous = entries.remove(key);
+        if (previous != null) {
+            unindex(previous);
+        }
+        Entry<V> entry = new Entry<>(key, signature(key), value, expiresAtMillis);
+        for (long bandKey : entry.bandKeys) {
+            buckets.computeIfAbsent(bandKey, k -> new HashSet<>()).add(entry);
+        }
+        entries.put(key, entry);
+    }
+
+    /**
+     * Unexpired entries, least recently used first.
+     */
+    public synchronized List<Stored<V>> entries() {
+        long now = System.currentTimeMillis();
+        List<Stored<V>> result = new ArrayList<>(entries.size());
+        for (Entry<V> entry : entries.values()) {
+            if (entry.expiresAtMillis > now) {
+                result.add(new Stored<>(entry.key, entry.value, entry.expiresAtMillis));
+            }
+        }
+        return result;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private void remove(Entry<V> entry) {
+        entries.remove(entry.key);
+        unindex(entry);
+    }
+
+    private void unindex(Entry<V> entry) {
+        for (long bandKey : entry.bandKeys) {
+            Set<Entry<V>> bucket = buckets.get(bandKey);
+            if (bucket != null && bucket.remove(entry) && bucket.isEmpty()) {
+                buckets.remove(bandKey);
+            }
+        }
+    }
+
+    // -----------------------------
+    // MinHash
+    // -----------------------------
+
+    // Minimum of each seeded hash over the key's character 4-grams (the whole key if shorter)
+    private static long[] signature(String key) {
+        long[] signature = new long[HASHES];
+        Arrays.fill(signature, Long.MAX_VALUE);
+        int shingles = Math.max(1, key.length() - SHINGLE + 1);
+        for (int start = 0; start < shingles; start++) {
+            long hash = 0xCBF29CE484222325L;
+            for (int i = start, end = Math.min(key.length(), start + SHINGLE); i < end; i++) {
+                hash = (hash ^ key.charAt(i)) * 0x100000001B3L;
+            }
+            for (int h = 0; h < HASHES; h++) {
+                long value = mix(hash ^ SEEDS[h]);
+                if (value < signature[h]) {
+                    signature[h] = value;
+                }
+            }
+        }
+        return signature;
+    }
+
+    private static long[] bandKeys(long[] signature) {
+        long[] keys = new long[BANDS];
+        for (int band = 0; band < BANDS; band++) {
+            long hash = band;
+            for (int row = 0; row < ROWS; row++) {
+                hash = mix(hash * 31 + signature[band * ROWS + row]);
+            }
+            keys[band] = hash;
+        }
+        return keys;
+    }
+
+    private static double agreement(long[] a, long[] b) {
+        int same = 0;
+        for (int i = 0; i < HASHES; i++) {
+            if (a[i] == b[i]) {
+                same++;
+            }
+        }
+        return (double) same / HASHES;
+    }
+
+    // SplitMix64 finalizer
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
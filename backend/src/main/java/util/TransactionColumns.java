@@ -0,0 +1,335 @@
+package util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Column-oriented, append-only copy of transactions for aggregation.
+ * <p>
+ * Rows live in segments of {@link #SEGMENT_ROWS}, one primitive array per column: transaction ids,
+ * amounts in minor units, timestamps as {@code int} seconds from the segment's first row (frame of
+ * reference), and transaction type and status as one-byte dictionary codes. Each segment keeps its
+ * time range, so a query over every customer skips segments outside its window, and the segments it
+ * reads are scanned in parallel with plain predicate loops over the arrays.
+ * <p>
+ * A query for one customer reads only that customer's rows instead, through a per-customer list of
+ * row positions, on the calling thread. With that index a row costs 26 bytes.
+ * <p>
+ * Appends are serialized; a segment publishes its row count after the row is written, so readers
+ * never lock. Appending a transaction id already present is a no-op (deliveries may repeat).
+ */
+public final class TransactionColumns {
+
+    private static final int SEGMENT_BITS = 16;
+    public static final int SEGMENT_ROWS = 1 << SEGMENT_BITS;
+    // Row positions are ints: segment index above SEGMENT_BITS, row below
+    private static final int MAX_SEGMENTS = 1 << (31 - SEGMENT_BITS);
+    public static final long ANY_CUSTOMER = -1;
+
+    private final Dictionary types = new Dictionary();
+    private final Dictionary statuses = new Dictionary();
+    private final LongHashSet ids = new LongHashSet();
+    private final Map<Long, RowList> customerRows = new ConcurrentHashMap<>();
+    private volatile Segment[] segments = new Segment[0];
+
+    /**
+     * @return false if the transaction was already stored
+     */
+    public synchronized boolean append(long transactionId, long customerId, long epochSecond, long amountMinor,
+                                       String type, String status) {
+        Segment[] current = segments;
+        Segment last = current.length == 0 ? null : current[current.length - 1];
+        boolean newSegment = last == null || last.size == SEGMENT_ROWS || !last.fits(epochSecond);
+        if (newSegment && current.length == MAX_SEGMENTS) {
+            throw new IllegalStateException("More than " + MAX_SEGMENTS + " segments");
+        }
+        if (!ids.add(transactionId)) {
+            return false;
+        }
+        if (newSegment) {
+            last = new Segment(epochSecond);
+            current = Arrays.copyOf(current, current.length + 1);
+            current[current.length - 1] = last;
+            segments = current;
+        }
+        int row = last.add(transactionId, epochSecond, amountMinor, types.code(type), statuses.code(status));
+        // After the row and its segment are published, so a reader that sees the position can read the row
+        customerRows.computeIfAbsent(customerId, id -> new RowList())
+                .add((current.length - 1) << SEGMENT_BITS | row);
+        return true;
+    }
+
+    public long rows() {
+        long rows = 0;
+        for (Segment segment : segments) {
+            rows += segment.size;
+        }
+        return rows;
+    }
+
+    public int segmentCount() {
+        return segments.length;
+    }
+
+    // -----------------------------
+    // Aggregation
+    // -----------------------------
+
+    /**
+     * Count and sum per bucket and transaction type, over rows with {@code status} (null for any)
+     * of {@code customerId} (or {@link #ANY_CUSTOMER}). Bucket {@code b} covers
+     * {@code [bounds[b], bounds[b + 1])} in epoch seconds.
+     */
+    public Totals aggregate(long customerId, String status, long[] bounds) {
+        int buckets = bounds.length - 1;
+        int statusCode = status == null ? -1 : statuses.find(status);
+        List<String> typeNames = types.names();
+        if (buckets <= 0 || (status != null && statusCode < 0)) {
+            return new Totals(typeNames, Math.max(buckets, 0), new long[0], new long[0]);
+        }
+        // Types added after this snapshot have codes >= width; their rows are left out
+        int width = typeNames.size();
+        long from = bounds[0];
+        long to = bounds[buckets];
+        if (customerId != ANY_CUSTOMER) {
+            long[][] totals = aggregateCustomer(customerId, statusCode, bounds, width);
+            return new Totals(typeNames, buckets, totals[0], totals[1]);
+        }
+
+        long[][] merged = Arrays.stream(segments).parallel()
+                .filter(segment -> segment.maxSecond >= from && segment.minSecond < to)
+                .map(segment -> segment.aggregate(statusCode, bounds, width))
+                .reduce((a, b) -> {
+                    for (int i = 0; i < a[0].length; i++) {
+                        a[0][i] += b[0][i];
+                        a[1][i] += b[1][i];
+                    }
+                    return a;
+                })
+                .orElseGet(() -> new long[][]{new long[buckets * width], new long[buckets * width]});
+        return new Totals(typeNames, buckets, merged[0], merged[1]);
+    }
+
+    // Only the customer's own rows, in append order
+    private long[][] aggregateCustomer(long customerId, int statusCode, long[] bounds, int width) {
+        int buckets = bounds.length - 1;
+        long[] counts = new long[buckets * width];
+        long[] sums = new long[buckets * width];
+        RowList rows = customerRows.get(customerId);
+        if (rows == null) {
+            return new long[][]{counts, sums};
+        }
+        // Size first: every position below it refers to a published segment and row
+        int size = rows.size;
+        int[] positions = rows.positions;
+        Segment[] current = segments;
+        long from = bounds[0];
+        long to = bounds[buckets];
+        for (int i = 0; i < size; i++) {
+            int position = positions[i];
+            Segment segment = current[position >>> SEGMENT_BITS];
+            int row = position & (SEGMENT_ROWS - 1);
+            int type = segment.types[row];
+            long second = segment.baseSecond + segment.seconds[row];
+            if (type >= width || second < from || second >= to
+                    || (statusCode >= 0 && segment.statuses[row] != statusCode)) {
+                continue;
+            }
+            int found = Arrays.binarySearch(bounds, second);
+            int bucket = found >= 0 ? found : -found - 2;
+            int cell = bucket * width + type;
+            counts[cell]++;
+            sums[cell] += segment.amounts[row];
+        }
+        return new long[][]{counts, sums};
+    }
+
+    /**
+     * Aggregation result: {@code counts[bucket * types.size() + type]}, likewise {@code sums} in minor units.
+     */
+    public record Totals(List<String> types, int buckets, long[] counts, long[] sums) {
+
+        public long count(int bucket, int type) {
+            return counts.length == 0 ? 0 : counts[bucket * types.size() + type];
+        }
+
+        public long sum(int bucket, int type) {
+            return sums.length == 0 ? 0 : sums[bucket * types.size() + type];
+        }
+    }
+
+    // -----------------------------
+    // Segments
+    // -----------------------------
+    private static final class Segment {
+        final long baseSecond;
+        final long[] transactionIds = new long[SEGMENT_ROWS];
+        final long[] amounts = new long[SEGMENT_ROWS];
+        final int[] seconds = new int[SEGMENT_ROWS];
+        final byte[] types = new byte[SEGMENT_ROWS];
+        final byte[] statuses = new byte[SEGMENT_ROWS];
+        volatile int size;
+        volatile long minSecond = Long.MAX_VALUE;
+        volatile long maxSecond = Long.MIN_VALUE;
+
+        Segment(long baseSecond) {
+            this.baseSecond = baseSecond;
+        }
+
+        boolean fits(long epochSecond) {
+            long offset = epochSecond - baseSecond;
+            return offset >= Integer.MIN_VALUE && offset <= Integer.MAX_VALUE;
+        }
+
+        // Returns the row written
+        int add(long transactionId, long epochSecond, long amount, byte type, byte status) {
+            int row = size;
+            transactionIds[row] = transactionId;
+            amounts[row] = amount;
+            seconds[row] = (int) (epochSecond - baseSecond);
+            types[row] = type;
+            statuses[row] = status;
+            // Widen the range before the row becomes visible
+            if (epochSecond < minSecond) {
+                minSecond = epochSecond;
+            }
+            if (epochSecond > maxSecond) {
+                maxSecond = epochSecond;
+            }
+            size = row + 1;
+            return row;
+        }
+
+        // One pass per bucket the segment overlaps, each a branch-light loop over the columns
+        long[][] aggregate(int statusCode, long[] bounds, int width) {
+            int buckets = bounds.length - 1;
+            long[] counts = new long[buckets * width];
+            long[] sums = new long[buckets * width];
+            int rows = size;
+            for (int bucket = 0; bucket < buckets; bucket++) {
+                if (bounds[bucket + 1] <= minSecond || bounds[bucket] > maxSecond) {
+                    continue;
+                }
+                int lo = (int) Math.max(Integer.MIN_VALUE, bounds[bucket] - baseSecond);
+                int hi = (int) Math.min(Integer.MAX_VALUE, bounds[bucket + 1] - baseSecond);
+                int offset = bucket * width;
+                for (int row = 0; row < rows; row++) {
+                    int second = seconds[row];
+                    int type = types[row];
+                    if (second >= lo && second < hi && type < width
+                            && (statusCode < 0 || statuses[row] == statusCode)) {
+                        int cell = offset + type;
+                        counts[cell]++;
+                        sums[cell] += amounts[row];
+                    }
+                }
+            }
+            return new long[][]{counts, sums};
+        }
+    }
+
+    /**
+     * Growable list of row positions with one writer (under the append lock) and lock-free readers:
+     * a reader that reads {@code size} first sees every position below it.
+     */
+    private static final class RowList {
+        volatile int[] positions = new int[8];
+        volatile int size;
+
+        void add(int position) {
+            int[] current = positions;
+            int n = size;
+            if (n == current.length) {
+                current = Arrays.copyOf(current, n * 2);
+            }
+            current[n] = position;
+            positions = current;
+            size = n + 1;
+        }
+    }
+
+    /**
+     * Up to 127 distinct strings, each stored as a one-byte code.
+     */
+    private static final class Dictionary {
+        private volatile List<String> names = List.of();
+
+        synchronized byte code(String name) {
+            int code = find(name);
+            if (code >= 0) {
+                return (byte) code;
+            }
+            if (names.size() == Byte.MAX_VALUE) {
+                throw new IllegalStateException("More than " + Byte.MAX_VALUE + " distinct values in a dictionary column");
+            }
+            List<String> grown = new ArrayList<>(names);
+            grown.add(name);
+            names = List.copyOf(grown);
+            return (byte) (grown.size() - 1);
+        }
+
+        int find(String name) {
+            return names.indexOf(name);
+        }
+
+        List<String> names() {
+            return names;
+        }
+    }
+
+    /**
+     * Open-addressing set of longs (no boxing), for the transaction ids already stored.
+     */
+    private static final class LongHashSet {
+        private static final long EMPTY = Long.MIN_VALUE;
+
+        private long[] slots = newSlots(1 << 10);
+        private int size;
+
+        boolean add(long value) {
+            if ((size + 1) * 2 > slots.length) {
+                resize(slots.length * 2);
+            }
+            int slot = find(slots, value);
+            if (slots[slot] == value) {
+                return false;
+            }
+            slots[slot] = value;
+            size++;
+            return true;
+        }
+
+        private void resize(int capacity) {
+            long[] old = slots;
+            slots = newSlots(capacity);
+            for (long value : old) {
+                if (value != EMPTY) {
+                    slots[find(slots, value)] = value;
+                }
+            }
+        }
+
+        private static int find(long[] slots, long value) {
+            int mask = slots.length - 1;
+            int slot = home(value, mask);
+            while (slots[slot] != EMPTY && slots[slot] != value) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        private static int home(long value, int mask) {
+            long hash = value * 0x9E3779B97F4A7C15L;
+            return (int) (hash ^ (hash >>> 32)) & mask;
+        }
+
+        private static long[] newSlots(int capacity) {
+            long[] slots = new long[capacity];
+            Arrays.fill(slots, EMPTY);
+            return slots;
+        }
+    }
+}
@@ -0,0 +1,14 @@
+-- Month-end statement runs (service.StatementService). Created on every shard, used on shard 0 only.
+
+CREATE TABLE statement_runs (
+    period           VARCHAR(7)   NOT NULL,
+    status           VARCHAR(16)  NOT NULL,
+    node             VARCHAR(64)  NOT NULL,
+    last_customer_id BIGINT       NOT NULL,
+    statements       BIGINT       NOT NULL,
+    transactions     BIGINT       NOT NULL,
+    last_error       VARCHAR(512),
+    created_at       DATETIME(6)  NOT NULL,
+    updated_at       DATETIME(6)  NOT NULL,
+    PRIMARY KEY (period)
+) ENGINE = InnoDB;
@@ -0,0 +1,16 @@
+-- End-of-day balances for point-in-time queries (service.BalanceHistoryService), on every shard.
+-- Only days with successful postings get a row; the progress row records the last day written.
+
+CREATE TABLE balance_checkpoints (
+    account_id   BIGINT         NOT NULL,
+    balance_date DATE           NOT NULL,
+    balance      DECIMAL(38, 2) NOT NULL,
+    PRIMARY KEY (account_id, balance_date)
+) ENGINE = InnoDB;
+
+CREATE TABLE balance_checkpoint_progress (
+    id                   INT         NOT NULL,
+    checkpointed_through DATE        NOT NULL,
+    updated_at           DATETIME(6) NOT NULL,
+    PRIMARY KEY (id)
+) ENGINE = InnoDB;
@@ -0,0 +1,8 @@
+-- Saga credits applied on this shard (service.TransferSagaService), kept so a late retry never credits twice.
+
+CREATE TABLE applied_credits (
+    saga_id       VARCHAR(36) NOT NULL,
+    to_account_id BIGINT      NOT NULL,
+    applied_at    DATETIME(6) NOT NULL,
+    PRIMARY KEY (saga_id)
+) ENGINE = InnoDB;
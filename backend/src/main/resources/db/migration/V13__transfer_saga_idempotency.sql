@@ -0,0 +1,6 @@
+-- Idempotency-Key of the request that started a split transfer (service.TransferSagaService), hashed with
+-- the username. Unique, so a second request with the same key fails its debit instead of moving money again.
+
+ALTER TABLE transfer_sagas ADD COLUMN idempotency_key VARCHAR(64);
+
+CREATE UNIQUE INDEX uk_transfer_sagas_idempotency_key ON transfer_sagas (idempotency_key);
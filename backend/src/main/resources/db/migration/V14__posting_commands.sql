@@ -0,0 +1,20 @@
+-- Async postings (service.PostingCommandQueue). Inserted with the request's Idempotency-Key and completed in the
+-- posting's transaction, so a command answered with 202 survives a restart and runs once.
+
+CREATE TABLE posting_commands (
+    id              VARCHAR(101)   NOT NULL,
+    node            VARCHAR(64)    NOT NULL,
+    username        VARCHAR(255)   NOT NULL,
+    command_type    VARCHAR(16)    NOT NULL,
+    account_id      BIGINT         NOT NULL,
+    to_account_id   BIGINT,
+    amount          DECIMAL(38, 2) NOT NULL,
+    idempotency_key VARCHAR(64)    NOT NULL,
+    status          VARCHAR(16)    NOT NULL,
+    message         VARCHAR(512),
+    created_at      DATETIME(6)    NOT NULL,
+    completed_at    DATETIME(6),
+    PRIMARY KEY (id)
+) ENGINE = InnoDB;
+
+CREATE INDEX idx_posting_commands_status_node ON posting_commands (status, node, created_at);
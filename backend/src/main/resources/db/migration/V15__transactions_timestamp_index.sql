@@ -0,0 +1,4 @@
+-- Transactions by time alone, for the analytics reload (service.SpendingAnalyticsService), which reads
+-- every posting after a cutoff; idx_transactions_account_timestamp cannot serve that without a full scan.
+
+CREATE INDEX idx_transactions_timestamp ON transactions (timestamp);
@@ -0,0 +1,24 @@
+-- One-time backfill for the ledger reconciliation (service.LedgerReconciliationService), on every shard.
+-- Accounts opened before starting balances were booked as OPENING_DEPOSIT transactions hold money no
+-- transaction explains. Each such account gets an OPENING_DEPOSIT for the part of its balance its
+-- successful postings do not account for, dated just before its first posting (or now, if it has none).
+-- Accounts whose postings explain more than their balance get nothing and still show as mismatches.
+
+INSERT INTO transactions (account_id, transaction_type, amount, timestamp, status)
+SELECT a.account_id,
+       'OPENING_DEPOSIT',
+       a.balance - COALESCE(SUM(CASE
+           WHEN t.transaction_type IN ('DEPOSIT', 'TRANSFER_RECEIVED', 'TRANSFER_REVERSED') THEN t.amount
+           WHEN t.transaction_type IN ('WITHDRAW', 'TRANSFER_SENT') THEN -t.amount
+           ELSE 0 END), 0),
+       COALESCE(TIMESTAMPADD(MICROSECOND, -1, MIN(t.timestamp)), CURRENT_TIMESTAMP(6)),
+       'SUCCESS'
+FROM accounts a
+LEFT JOIN transactions t ON t.account_id = a.account_id AND t.status = 'SUCCESS'
+WHERE NOT EXISTS (SELECT 1 FROM transactions o
+                  WHERE o.account_id = a.account_id AND o.transaction_type = 'OPENING_DEPOSIT')
+GROUP BY a.account_id, a.balance
+HAVING a.balance - COALESCE(SUM(CASE
+           WHEN t.transaction_type IN ('DEPOSIT', 'TRANSFER_RECEIVED', 'TRANSFER_REVERSED') THEN t.amount
+           WHEN t.transaction_type IN ('WITHDRAW', 'TRANSFER_SENT') THEN -t.amount
+           ELSE 0 END), 0) > 0;
@@ -0,0 +1,56 @@
+-- Baseline schema matching the JPA entities in the `entities` package.
+-- Existing databases created by ddl-auto=update are baselined at V1 and skip this script.
+
+CREATE TABLE users (
+    id          BIGINT       NOT NULL AUTO_INCREMENT,
+    username    VARCHAR(255) NOT NULL,
+    password    VARCHAR(255) NOT NULL,
+    role        VARCHAR(255) NOT NULL,
+    first_name  VARCHAR(255),
+    last_name   VARCHAR(255),
+    email       VARCHAR(255),
+    phone       VARCHAR(255),
+    address     VARCHAR(255),
+    PRIMARY KEY (id),
+    CONSTRAINT uk_users_username UNIQUE (username),
+    CONSTRAINT uk_users_email UNIQUE (email)
+) ENGINE = InnoDB;
+
+CREATE TABLE customers (
+    customer_id BIGINT       NOT NULL AUTO_INCREMENT,
+    name        VARCHAR(255) NOT NULL,
+    email       VARCHAR(255) NOT NULL,
+    phone       VARCHAR(255),
+    address     VARCHAR(255),
+    user_id     BIGINT       NOT NULL,
+    PRIMARY KEY (customer_id),
+    CONSTRAINT uk_customers_email UNIQUE (email),
+    CONSTRAINT uk_customers_user UNIQUE (user_id),
+    CONSTRAINT fk_customers_user FOREIGN KEY (user_id) REFERENCES users (id)
+) ENGINE = InnoDB;
+
+CREATE TABLE accounts (
+    account_id   BIGINT         NOT NULL AUTO_INCREMENT,
+    customer_id  BIGINT         NOT NULL,
+    account_type VARCHAR(255)   NOT NULL,
+    balance      DECIMAL(38, 2) NOT NULL,
+    PRIMARY KEY (account_id),
+    CONSTRAINT fk_accounts_customer FOREIGN KEY (customer_id) REFERENCES customers (customer_id)
+) ENGINE = InnoDB;
+
+CREATE TABLE transactions (
+    transaction_id         BIGINT         NOT NULL AUTO_INCREMENT,
+    account_id             BIGINT,
+    source_account_id      BIGINT,
+    destination_account_id BIGINT,
+    transaction_type       VARCHAR(255)   NOT NULL,
+    amount                 DECIMAL(38, 2) NOT NULL,
+    timestamp              DATETIME(6)    NOT NULL,
+    status                 VARCHAR(255)   NOT NULL,
+    PRIMARY KEY (transaction_id),
+    CONSTRAINT fk_transactions_account FOREIGN KEY (account_id) REFERENCES accounts (account_id),
+    CONSTRAINT fk_transactions_source FOREIGN KEY (source_account_id) REFERENCES accounts (account_id),
+    CONSTRAINT fk_transactions_destination FOREIGN KEY (destination_account_id) REFERENCES accounts (account_id)
+) ENGINE = InnoDB;
+
+CREATE INDEX idx_transactions_account_timestamp ON transactions (account_id, timestamp);
@@ -0,0 +1,2 @@
+-- Per-customer change counter behind the ETags of /api/profile, /api/accounts and /api/transactions/history
+ALTER TABLE customers ADD COLUMN data_version BIGINT NOT NULL DEFAULT 0;
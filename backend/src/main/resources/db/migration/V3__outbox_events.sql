@@ -0,0 +1,16 @@
+-- Transactional outbox: written with each posting, drained by service.OutboxDispatcher.
+
+CREATE TABLE outbox_events (
+    id              BIGINT      NOT NULL AUTO_INCREMENT,
+    event_type      VARCHAR(64) NOT NULL,
+    aggregate_id    BIGINT,
+    customer_id     BIGINT,
+    payload         TEXT        NOT NULL,
+    created_at      DATETIME(6) NOT NULL,
+    status          VARCHAR(16) NOT NULL,
+    attempts        INT         NOT NULL,
+    next_attempt_at DATETIME(6) NOT NULL,
+    PRIMARY KEY (id)
+) ENGINE = InnoDB;
+
+CREATE INDEX idx_outbox_status_next_attempt ON outbox_events (status, next_attempt_at, id);
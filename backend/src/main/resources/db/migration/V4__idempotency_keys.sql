@@ -0,0 +1,15 @@
+-- Stored responses for requests sent with an Idempotency-Key header (service.IdempotencyService).
+
+CREATE TABLE idempotency_keys (
+    id            BIGINT       NOT NULL AUTO_INCREMENT,
+    username      VARCHAR(255) NOT NULL,
+    idem_key      VARCHAR(255) NOT NULL,
+    request_hash  VARCHAR(64)  NOT NULL,
+    status_code   INT          NOT NULL,
+    response_body TEXT,
+    created_at    DATETIME(6)  NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_idempotency_user_key UNIQUE (username, idem_key)
+) ENGINE = InnoDB;
+
+CREATE INDEX idx_idempotency_created_at ON idempotency_keys (created_at);
@@ -0,0 +1,18 @@
+-- Cross-node transfer log for cluster mode (service.TransferSagaService).
+
+CREATE TABLE transfer_sagas (
+    id              VARCHAR(36)    NOT NULL,
+    from_account_id BIGINT         NOT NULL,
+    to_account_id   BIGINT         NOT NULL,
+    amount          DECIMAL(38, 2) NOT NULL,
+    state           VARCHAR(16)    NOT NULL,
+    origin_node     VARCHAR(64)    NOT NULL,
+    target_node     VARCHAR(64)    NOT NULL,
+    attempts        INT            NOT NULL,
+    last_error      VARCHAR(512),
+    created_at      DATETIME(6)    NOT NULL,
+    updated_at      DATETIME(6)    NOT NULL,
+    PRIMARY KEY (id)
+) ENGINE = InnoDB;
+
+CREATE INDEX idx_transfer_sagas_origin_state ON transfer_sagas (origin_node, state, updated_at);
@@ -0,0 +1,8 @@
+-- Shard directory (service.ShardService). Created on every shard, used on shard 0 only.
+
+CREATE TABLE user_shards (
+    username   VARCHAR(255) NOT NULL,
+    shard      INT          NOT NULL,
+    created_at DATETIME(6)  NOT NULL,
+    PRIMARY KEY (username)
+) ENGINE = InnoDB;
@@ -0,0 +1,10 @@
+-- Logged-out JWTs (service.TokenRevocationService). Created on every shard, used on shard 0 only.
+
+CREATE TABLE revoked_tokens (
+    token_id   VARCHAR(36) NOT NULL,
+    expires_at DATETIME(6) NOT NULL,
+    revoked_at DATETIME(6) NOT NULL,
+    PRIMARY KEY (token_id)
+) ENGINE = InnoDB;
+
+CREATE INDEX idx_revoked_tokens_expires_at ON revoked_tokens (expires_at);
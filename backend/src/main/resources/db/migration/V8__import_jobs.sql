@@ -0,0 +1,18 @@
+-- Bulk customer imports (service.BulkImportService). Created on every shard, used on shard 0 only.
+
+CREATE TABLE import_jobs (
+    id          VARCHAR(36)  NOT NULL,
+    file_name   VARCHAR(255) NOT NULL,
+    format      VARCHAR(16)  NOT NULL,
+    status      VARCHAR(16)  NOT NULL,
+    node        VARCHAR(64)  NOT NULL,
+    total_lines BIGINT       NOT NULL,
+    lines_done  BIGINT       NOT NULL,
+    imported    BIGINT       NOT NULL,
+    skipped     BIGINT       NOT NULL,
+    failed      BIGINT       NOT NULL,
+    last_error  VARCHAR(512),
+    created_at  DATETIME(6)  NOT NULL,
+    updated_at  DATETIME(6)  NOT NULL,
+    PRIMARY KEY (id)
+) ENGINE = InnoDB;
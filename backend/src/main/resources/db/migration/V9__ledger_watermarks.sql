@@ -0,0 +1,12 @@
+-- Ledger reconciliation progress per account (service.LedgerReconciliationService), on every shard.
+
+CREATE TABLE ledger_watermarks (
+    account_id          BIGINT         NOT NULL,
+    last_transaction_id BIGINT         NOT NULL,
+    ledger_balance      DECIMAL(38, 2) NOT NULL,
+    difference          DECIMAL(38, 2) NOT NULL,
+    checked_at          DATETIME(6)    NOT NULL,
+    PRIMARY KEY (account_id)
+) ENGINE = InnoDB;
+
+CREATE INDEX idx_ledger_watermarks_difference ON ledger_watermarks (difference);
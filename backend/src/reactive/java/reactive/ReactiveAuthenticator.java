@@ -0,0 +1,70 @@
+package reactive;
+
+import io.jsonwebtoken.Claims;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import service.AuthService;
+import service.TokenRevocationService;
+import util.BankPrincipal;
+import util.JwtUtil;
+
+import java.util.concurrent.Callable;
+
+/**
+ * The JWT checks of config.JwtAuthFilter for the reactive endpoints. The common case (valid signature,
+ * no revocation filter hit, fresh claims) is pure CPU on the event loop. The rare cases that need the
+ * database (a revocation filter hit, claims missing or stale) run on the bounded elastic scheduler.
+ * Unlike the filter, stale claims are not answered with a refreshed token; the MVC port does that.
+ */
+@Component
+public class ReactiveAuthenticator {
+
+    private final JwtUtil jwtUtil;
+    private final AuthService authService;
+    private final TokenRevocationService tokenRevocationService;
+
+    public ReactiveAuthenticator(JwtUtil jwtUtil, AuthService authService,
+                                 TokenRevocationService tokenRevocationService) {
+        this.jwtUtil = jwtUtil;
+        this.authService = authService;
+        this.tokenRevocationService = tokenRevocationService;
+    }
+
+    /**
+     * The caller of the request; empty when the token is missing, invalid or revoked.
+     */
+    public Mono<BankPrincipal> authenticate(ServerRequest request) {
+        String header = request.headers().firstHeader(HttpHeaders.AUTHORIZATION);
+        if (header == null || !header.startsWith("Bearer ")) {
+            return Mono.empty();
+        }
+        Claims claims;
+        try {
+            claims = jwtUtil.parseClaims(header.substring(7));
+        } catch (Exception e) {
+            return Mono.empty();
+        }
+        if (claims.getSubject() == null) {
+            return Mono.empty();
+        }
+        Mono<Boolean> revoked = tokenRevocationService.mayBeRevoked(claims.getId())
+                ? blocking(() -> tokenRevocationService.isRevoked(claims.getId()))
+                : Mono.just(false);
+        return revoked.flatMap(isRevoked -> isRevoked ? Mono.empty() : principal(claims));
+    }
+
+    private Mono<BankPrincipal> principal(Claims claims) {
+        BankPrincipal principal = jwtUtil.principalFrom(claims);
+        if (principal != null && !jwtUtil.isStale(claims)) {
+            return Mono.just(principal);
+        }
+        return blocking(() -> authService.loadPrincipal(claims.getSubject()).orElse(null));
+    }
+
+    private static <T> Mono<T> blocking(Callable<T> call) {
+        return Mono.fromCallable(call).subscribeOn(Schedulers.boundedElastic());
+    }
+}
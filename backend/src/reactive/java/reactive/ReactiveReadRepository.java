@@ -0,0 +1,169 @@
+package reactive;
+
+import api.DashboardApiController;
+import entities.Money;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.pool.PoolMetrics;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import io.r2dbc.spi.Row;
+import io.r2dbc.spi.Statement;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * The queries behind the reactive read endpoints, over R2DBC. A pooled connection is held only while
+ * a query's rows are streaming, and no thread waits for the database: rows are pushed to the caller as
+ * the driver decodes them. The views match the MVC endpoints field for field.
+ */
+@Component
+@ConditionalOnProperty(name = "reactive.enabled", havingValue = "true", matchIfMissing = true)
+public class ReactiveReadRepository {
+
+    private static final String HISTORY = """
+            SELECT t.transaction_id, t.transaction_type, t.amount, t.status, t.timestamp, t.account_id
+            FROM transactions t JOIN accounts a ON a.account_id = t.account_id
+            WHERE a.customer_id = ?
+            ORDER BY t.timestamp DESC""";
+
+    // One round trip: balances per type plus the recent postings count
+    private static final String SUMMARY = """
+            SELECT COALESCE(SUM(balance), 0),
+                   COALESCE(SUM(CASE WHEN UPPER(account_type) = 'SAVINGS' THEN balance END), 0),
+                   COALESCE(SUM(CASE WHEN UPPER(account_type) = 'CURRENT' THEN balance END), 0),
+                   COUNT(*),
+                   (SELECT COUNT(*) FROM transactions t JOIN accounts r ON r.account_id = t.account_id
+                    WHERE r.customer_id = ? AND t.timestamp >= ?)
+            FROM accounts WHERE customer_id = ?""";
+
+    private static final String PROFILE = """
+            SELECT id, username, first_name, last_name, email, phone, address, role
+            FROM users WHERE username = ?""";
+
+    private final ConnectionPool connectionPool;
+    // MySQL takes ? markers; H2 and PostgreSQL want $1, $2, ...
+    private final boolean numberedMarkers;
+
+    // Not a ConnectionFactory bean: one would make Boot skip the JDBC DataSource the rest of the app uses
+    public ReactiveReadRepository(MeterRegistry meterRegistry,
+                                  @Value("${reactive.r2dbc.url}") String url,
+                                  @Value("${reactive.r2dbc.username:}") String username,
+                                  @Value("${reactive.r2dbc.password:}") String password,
+                                  @Value("${reactive.r2dbc.pool-size:10}") int poolSize) {
+        if (url.isBlank()) {
+            throw new IllegalStateException("Set reactive.r2dbc.url (SPRING_R2DBC_URL), e.g. r2dbc:mysql://localhost:3306/bank");
+        }
+        ConnectionFactoryOptions options = ConnectionFactoryOptions.parse(url).mutate()
+                .option(ConnectionFactoryOptions.USER, username)
+                .option(ConnectionFactoryOptions.PASSWORD, password)
+                .build();
+        ConnectionFactory connectionFactory = ConnectionFactories.get(options);
+        this.connectionPool = new ConnectionPool(ConnectionPoolConfiguration.builder(connectionFactory)
+                .initialSize(Math.min(2, poolSize))
+                .maxSize(poolSize)
+                .maxIdleTime(Duration.ofMinutes(30))
+                .build());
+        String database = connectionFactory.getMetadata().getName();
+        this.numberedMarkers = !database.contains("MySQL") && !database.contains("MariaDB");
+        connectionPool.getMetrics().ifPresent(metrics -> {
+            Gauge.builder("r2dbc.pool.acquired", metrics, PoolMetrics::acquiredSize)
+                    .description("R2DBC connections in use").register(meterRegistry);
+            Gauge.builder("r2dbc.pool.idle", metrics, PoolMetrics::idleSize).register(meterRegistry);
+            Gauge.builder("r2dbc.pool.pending", metrics, PoolMetrics::pendingAcquireSize)
+                    .description("Queries waiting for an R2DBC connection").register(meterRegistry);
+        });
+    }
+
+    /**
+     * The customer's postings, newest first, streamed row by row.
+     */
+    public Flux<Map<String, Object>> history(Long customerId) {
+        return query(HISTORY, row -> {
+            Map<String, Object> view = new LinkedHashMap<>();
+            view.put("id", row.get(0, Long.class));
+            view.put("type", row.get(1, String.class));
+            view.put("amount", Money.of(row.get(2, BigDecimal.class)));
+            view.put("status", row.get(3, String.class));
+            view.put("timestamp", row.get(4, LocalDateTime.class));
+            view.put("accountId", row.get(5, Long.class));
+            return view;
+        }, customerId);
+    }
+
+    public Mono<Map<String, Object>> summary(Long customerId, LocalDateTime recentSince) {
+        return query(SUMMARY, row -> DashboardApiController.summary(
+                Money.of(row.get(0, BigDecimal.class)),
+                Money.of(row.get(1, BigDecimal.class)),
+                Money.of(row.get(2, BigDecimal.class)),
+                row.get(3, Long.class).intValue(),
+                row.get(4, Long.class)), customerId, recentSince, customerId).next();
+    }
+
+    public Mono<Map<String, Object>> profile(String username) {
+        return query(PROFILE, row -> {
+            // HashMap: profile fields are optional and Map.of rejects nulls
+            Map<String, Object> profile = new HashMap<>();
+            profile.put("id", row.get(0, Long.class));
+            profile.put("username", row.get(1, String.class));
+            profile.put("firstName", row.get(2, String.class));
+            profile.put("lastName", row.get(3, String.class));
+            profile.put("email", row.get(4, String.class));
+            profile.put("phone", row.get(5, String.class));
+            profile.put("address", row.get(6, String.class));
+            profile.put("role", row.get(7, String.class));
+            return profile;
+        }, username).next();
+    }
+
+    // customers.data_version, the counter behind the ETags (see service.ChangeVersionService)
+    public Mono<Long> dataVersion(Long customerId) {
+        return query("SELECT data_version FROM customers WHERE customer_id = ?",
+                row -> row.get(0, Long.class), customerId).next().defaultIfEmpty(0L);
+    }
+
+    private <T> Flux<T> query(String sql, Function<Row, T> mapper, Object... parameters) {
+        return Flux.usingWhen(connectionPool.create(), connection -> {
+            Statement statement = connection.createStatement(numberedMarkers ? numbered(sql) : sql);
+            for (int i = 0; i < parameters.length; i++) {
+                statement.bind(i, parameters[i]);
+            }
+            return Flux.from(statement.execute()).flatMap(result -> result.map((row, metadata) -> mapper.apply(row)));
+        }, Connection::close);
+    }
+
+    @PreDestroy
+    void close() {
+        connectionPool.dispose();
+    }
+
+    private static String numbered(String sql) {
+        StringBuilder numbered = new StringBuilder(sql.length() + 8);
+        int marker = 0;
+        for (int i = 0; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            if (c == '?') {
+                numbered.append('$').append(++marker);
+            } else {
+                numbered.append(c);
+            }
+        }
+        return numbered.toString();
+    }
+}
@@ -0,0 +1,203 @@
+package reactive;
+
+import api.DashboardApiController;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import entities.Money;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.server.reactive.ReactorHttpHandlerAdapter;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.HandlerStrategies;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import service.ChangeVersionService;
+import service.ShardService;
+import util.BankPrincipal;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Non-blocking copies of the read-heavy endpoints, served by Reactor Netty on {@code reactive.port}
+ * next to the servlet app, which keeps every write:
+ * <ul>
+ *   <li>{@code GET /api/transactions/history}: a JSON array, or one JSON object per line with
+ *       {@code Accept: application/x-ndjson}; rows are written as the database returns them</li>
+ *   <li>{@code GET /api/dashboard/summary}</li>
+ *   <li>{@code GET /api/profile}</li>
+ * </ul>
+ * Same bearer tokens, response bodies and ETags as the MVC endpoints. A request holds neither a thread
+ * nor a connection while it waits: a few event-loop threads serve every client, and R2DBC connections
+ * ({@code reactive.r2dbc.pool-size}) are held only while rows stream.
+ * <p>
+ * Reads go to the one database behind {@code reactive.r2dbc.url}, so sharding is not supported.
+ */
+@Component
+@ConditionalOnProperty(name = "reactive.enabled", havingValue = "true", matchIfMissing = true)
+public class ReactiveReadServer implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(ReactiveReadServer.class);
+
+    private final ReactiveReadRepository repository;
+    private final ReactiveAuthenticator authenticator;
+    private final ObjectMapper objectMapper;
+    private final ShardService shardService;
+    private final String host;
+    private final int port;
+
+    private volatile DisposableServer server;
+
+    public ReactiveReadServer(ReactiveReadRepository repository,
+                              ReactiveAuthenticator authenticator,
+                              ObjectMapper objectMapper,
+                              ShardService shardService,
+                              @Value("${reactive.host:0.0.0.0}") String host,
+                              @Value("${reactive.port:8081}") int port) {
+        this.repository = repository;
+        this.authenticator = authenticator;
+        this.objectMapper = objectMapper;
+        this.shardService = shardService;
+        this.host = host;
+        this.port = port;
+    }
+
+    RouterFunction<ServerResponse> routes() {
+        return RouterFunctions.route()
+                .GET("/api/transactions/history", this::history)
+                .GET("/api/dashboard/summary", this::summary)
+                .GET("/api/profile", this::profile)
+                .build();
+    }
+
+    // ✅ Newest first, streamed; 304 when the If-None-Match ETag is still current
+    private Mono<ServerResponse> history(ServerRequest request) {
+        return authenticated(request, principal -> {
+            Long customerId = principal.customerId();
+            if (customerId == null) {
+                return ServerResponse.ok().contentType(MediaType.APPLICATION_JSON).bodyValue(List.of());
+            }
+            MediaType type = request.headers().accept().contains(MediaType.APPLICATION_NDJSON)
+                    ? MediaType.APPLICATION_NDJSON : MediaType.APPLICATION_JSON;
+            return conditional(request, "history", customerId, response -> response.contentType(type)
+                    .body(repository.history(customerId), Map.class));
+        });
+    }
+
+    // ✅ Balances per account type and recent postings, as DashboardApiController
+    private Mono<ServerResponse> summary(ServerRequest request) {
+        return authenticated(request, principal -> {
+            Long customerId = principal.customerId();
+            if (customerId == null) {
+                return ServerResponse.ok().contentType(MediaType.APPLICATION_JSON).bodyValue(
+                        DashboardApiController.summary(Money.ZERO, Money.ZERO, Money.ZERO, 0, 0));
+            }
+            LocalDate today = LocalDate.now();
+            return conditional(request, "summary-" + today, customerId, response -> response
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(repository.summary(customerId, today.minusDays(DashboardApiController.RECENT_DAYS).atStartOfDay()),
+                            Map.class));
+        });
+    }
+
+    // ✅ The caller's profile
+    private Mono<ServerResponse> profile(ServerRequest request) {
+        return authenticated(request, principal -> {
+            Function<ServerResponse.BodyBuilder, Mono<ServerResponse>> body = response -> repository
+                    .profile(principal.username())
+                    .flatMap(profile -> response.contentType(MediaType.APPLICATION_JSON).bodyValue(profile))
+                    .switchIfEmpty(error(HttpStatus.NOT_FOUND, "User not found"));
+            Long customerId = principal.customerId();
+            return customerId == null ? body.apply(ServerResponse.ok()) : conditional(request, "profile", customerId, body);
+        });
+    }
+
+    private Mono<ServerResponse> authenticated(ServerRequest request,
+                                               Function<BankPrincipal, Mono<ServerResponse>> handler) {
+        return authenticator.authenticate(request)
+                .flatMap(handler)
+                .switchIfEmpty(Mono.defer(() -> error(HttpStatus.UNAUTHORIZED, "Unauthorized: Please log in first.")));
+    }
+
+    // 304 when If-None-Match carries the current ETag, else the body with the ETag
+    private Mono<ServerResponse> conditional(ServerRequest request, String resource, Long customerId,
+                                             Function<ServerResponse.BodyBuilder, Mono<ServerResponse>> body) {
+        return repository.dataVersion(customerId).flatMap(version -> {
+            String etag = ChangeVersionService.etag(resource, customerId, version);
+            CacheControl cacheControl = CacheControl.noCache().cachePrivate();
+            if (matches(request.headers().header(HttpHeaders.IF_NONE_MATCH), etag)) {
+                return ServerResponse.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(cacheControl).build();
+            }
+            return body.apply(ServerResponse.ok().eTag(etag).cacheControl(cacheControl));
+        });
+    }
+
+    private static boolean matches(List<String> ifNoneMatch, String etag) {
+        for (String header : ifNoneMatch) {
+            for (String tag : header.split(",")) {
+                String candidate = tag.trim();
+                if (candidate.equals("*") || candidate.equals(etag) || candidate.equals("W/" + etag)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static Mono<ServerResponse> error(HttpStatus status, String message) {
+        return ServerResponse.status(status).contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(Map.of("success", false, "error", message));
+    }
+
+    // -----------------------------
+    // Lifecycle
+    // -----------------------------
+    @Override
+    public void start() {
+        if (shardService.isEnabled()) {
+            throw new IllegalStateException("The reactive read endpoints do not support sharding; set reactive.enabled=false");
+        }
+        // The app's ObjectMapper, so Money and dates are written exactly as on the MVC port
+        HandlerStrategies strategies = HandlerStrategies.builder().codecs(codecs -> {
+            codecs.defaultCodecs().jackson2JsonEncoder(new Jackson2JsonEncoder(objectMapper));
+            codecs.defaultCodecs().jackson2JsonDecoder(new Jackson2JsonDecoder(objectMapper));
+        }).build();
+        ReactorHttpHandlerAdapter adapter = new ReactorHttpHandlerAdapter(RouterFunctions.toHttpHandler(routes(), strategies));
+        server = HttpServer.create()
+                .host(host)
+                .port(port)
+                .metrics(true, Function.identity())
+                .handle(adapter)
+                .bindNow();
+        log.info("Reactive read endpoints listening on {}:{}", host, server.port());
+    }
+
+    @Override
+    public void stop() {
+        DisposableServer running = server;
+        if (running != null) {
+            running.disposeNow();
+            server = null;
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return server != null;
+    }
+}
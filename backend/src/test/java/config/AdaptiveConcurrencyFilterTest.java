@@ -0,0 +1,81 @@
+package config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveConcurrencyFilterTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final AdaptiveConcurrencyFilter filter =
+            new AdaptiveConcurrencyFilter(registry, 20, 4, 200, 1.5, 0.2, 1000, 10);
+
+    private double inFlight(String group) {
+        return registry.get("concurrency.in-flight").tag("group", group).gauge().value();
+    }
+
+    private static MockHttpServletRequest request(String method, String path) {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, path);
+        request.setServletPath(path);
+        request.setAsyncSupported(true);
+        return request;
+    }
+
+    private static final FilterChain START_ASYNC = (request, response) -> request.startAsync();
+
+    @Test
+    void synchronousRequestsReleaseWhenTheHandlerReturns() throws Exception {
+        filter.doFilter(request("POST", "/api/transactions/deposit"), new MockHttpServletResponse(),
+                (request, response) -> assertEquals(1, inFlight("postings")));
+        assertEquals(0, inFlight("postings"));
+    }
+
+    @Test
+    void failingRequestsRelease() {
+        assertThrows(IOException.class, () -> filter.doFilter(request("GET", "/api/accounts"),
+                new MockHttpServletResponse(), (request, response) -> {
+                    throw new IOException("broken pipe");
+                }));
+        assertEquals(0, inFlight("reads"));
+    }
+
+    @Test
+    void asyncRequestsHoldTheirSlotUntilComplete() throws Exception {
+        MockHttpServletRequest request = request("POST", "/api/chat");
+        filter.doFilter(request, new MockHttpServletResponse(), START_ASYNC);
+        assertEquals(1, inFlight("chat"));
+
+        ((MockAsyncContext) request.getAsyncContext()).complete();
+        assertEquals(0, inFlight("chat"));
+    }
+
+    @Test
+    void timeoutThenCompleteReleasesOnce() throws Exception {
+        MockHttpServletRequest first = request("POST", "/api/chat");
+        MockHttpServletRequest second = request("POST", "/api/chat");
+        filter.doFilter(first, new MockHttpServletResponse(), START_ASYNC);
+        filter.doFilter(second, new MockHttpServletResponse(), START_ASYNC);
+        assertEquals(2, inFlight("chat"));
+
+        AsyncContext context = first.getAsyncContext();
+        for (AsyncListener listener : ((MockAsyncContext) context).getListeners()) {
+            listener.onTimeout(new AsyncEvent(context));
+        }
+        assertEquals(1, inFlight("chat"));
+        ((MockAsyncContext) context).complete();
+        assertEquals(1, inFlight("chat"));
+
+        ((MockAsyncContext) second.getAsyncContext()).complete();
+        assertEquals(0, inFlight("chat"));
+    }
+}
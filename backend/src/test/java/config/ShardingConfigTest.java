@@ -0,0 +1,156 @@
+package config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.transaction.PlatformTransactionManager;
+import repository.UserShardRepository;
+import service.ShardService;
+import util.ShardContext;
+
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+// Three in-memory H2 shards in MySQL mode, migrated by ShardingConfig as on startup
+class ShardingConfigTest {
+
+    private static final String[] URLS = {
+            "jdbc:h2:mem:sharding-test-0;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+            "jdbc:h2:mem:sharding-test-1;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+            "jdbc:h2:mem:sharding-test-2;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1"
+    };
+
+    private final List<ShardRoutingDataSource> opened = new ArrayList<>();
+    private final ShardService shardService = new ShardService(true, URLS, mock(UserShardRepository.class),
+            mock(EntityManagerFactory.class), mock(PlatformTransactionManager.class));
+
+    private ShardRoutingDataSource routing() throws Exception {
+        DataSourceProperties properties = new DataSourceProperties();
+        properties.setDriverClassName("org.h2.Driver");
+        properties.setUsername("sa");
+        properties.setPassword("");
+        properties.afterPropertiesSet();
+        ShardRoutingDataSource routing = new ShardingConfig().dataSource(properties, URLS, 2,
+                new String[]{"classpath:db/migration"});
+        opened.add(routing);
+        return routing;
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        ShardContext.clear();
+        for (ShardRoutingDataSource routing : opened) {
+            routing.destroy();
+        }
+    }
+
+    // Through the router, so the shard comes from ShardContext
+    private static long insertUser(ShardRoutingDataSource routing, int shard, String username) throws SQLException {
+        ShardContext.set(shard);
+        try (Connection connection = routing.getConnection();
+             PreparedStatement insert = connection.prepareStatement(
+                     "insert into users (username, password, role) values (?, 'x', 'ROLE_USER')",
+                     Statement.RETURN_GENERATED_KEYS)) {
+            insert.setString(1, username);
+            insert.executeUpdate();
+            try (ResultSet keys = insert.getGeneratedKeys()) {
+                assertTrue(keys.next());
+                return keys.getLong(1);
+            }
+        } finally {
+            ShardContext.clear();
+        }
+    }
+
+    private static int countUsers(ShardRoutingDataSource routing, int shard, String username) throws SQLException {
+        try (Connection connection = routing.shard(shard).getConnection();
+             PreparedStatement query = connection.prepareStatement("select count(*) from users where username = ?")) {
+            query.setString(1, username);
+            try (ResultSet count = query.executeQuery()) {
+                count.next();
+                return count.getInt(1);
+            }
+        }
+    }
+
+    @Test
+    void eachShardAllocatesIdsFromItsOwnRange() throws Exception {
+        ShardRoutingDataSource routing = routing();
+        assertEquals(3, routing.shardCount());
+
+        for (int shard = 0; shard < URLS.length; shard++) {
+            long id = insertUser(routing, shard, "range-" + shard);
+            assertTrue(id >= ShardService.firstId(shard) && id < ShardService.firstId(shard + 1),
+                    "shard " + shard + " gave id " + id);
+            assertEquals(shard, shardService.shardOf(id));
+        }
+    }
+
+    @Test
+    void routesByShardContext() throws Exception {
+        ShardRoutingDataSource routing = routing();
+        insertUser(routing, 2, "routed");
+
+        assertEquals(0, countUsers(routing, 0, "routed"));
+        assertEquals(0, countUsers(routing, 1, "routed"));
+        assertEquals(1, countUsers(routing, 2, "routed"));
+
+        // No context: shard 0
+        try (Connection connection = routing.getConnection()) {
+            assertTrue(connection.getMetaData().getURL().contains("sharding-test-0"));
+        }
+    }
+
+    @Test
+    void migratingAgainKeepsTheRanges() throws Exception {
+        long first = insertUser(routing(), 1, "before-restart");
+        long second = insertUser(routing(), 1, "after-restart");
+
+        assertEquals(1, shardService.shardOf(first));
+        assertTrue(second > first, first + " then " + second);
+    }
+
+    @Test
+    void shardOfMapsUnknownIdsToShardZero() {
+        assertEquals(0, shardService.shardOf(null));
+        assertEquals(0, shardService.shardOf(-5L));
+        assertEquals(0, shardService.shardOf(42L));
+        assertEquals(2, shardService.shardOf(ShardService.firstId(2) + 7));
+        assertEquals(0, shardService.shardOf(ShardService.firstId(3)));
+    }
+
+    @Test
+    void destroyClosesEveryShardPool() throws Exception {
+        ShardRoutingDataSource routing = routing();
+        routing.destroy();
+        for (int shard = 0; shard < URLS.length; shard++) {
+            assertTrue(((HikariDataSource) routing.shard(shard)).isClosed());
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void closingTheProfiledDataSourceClosesEveryShardPool() throws Exception {
+        ShardRoutingDataSource routing = routing();
+        Object profiled = JdbcProfilerConfig.profilingDataSourcePostProcessor(mock(ObjectProvider.class))
+                .postProcessAfterInitialization(routing, "dataSource");
+
+        assertNotSame(routing, profiled);
+        ((Closeable) profiled).close();
+        for (int shard = 0; shard < URLS.length; shard++) {
+            assertTrue(((HikariDataSource) routing.shard(shard)).isClosed());
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package entities;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MoneyTest {
+
+    @Test
+    void parsesPlainDecimals() {
+        assertEquals(1250, Money.parse("12.5").getMinorUnits());
+        assertEquals(1250, Money.parse("12.50").getMinorUnits());
+        assertEquals(-1205, Money.parse("-12.05").getMinorUnits());
+        assertEquals(1200, Money.parse("+12").getMinorUnits());
+        assertEquals(50, Money.parse(".5").getMinorUnits());
+        assertEquals(1200, Money.parse("12.").getMinorUnits());
+        // Trailing zeros past the scale are not extra precision
+        assertEquals(1250, Money.parse("12.5000").getMinorUnits());
+    }
+
+    @Test
+    void parsesExponentsThroughTheSlowPath() {
+        assertEquals(Money.ofMajor(100), Money.parse("1e2"));
+        assertEquals(Money.ofMinor(15), Money.parse("1.5E-1"));
+    }
+
+    @Test
+    void rejectsMalformedAndOverPreciseAmounts() {
+        assertThrows(IllegalArgumentException.class, () -> Money.parse(""));
+        assertThrows(IllegalArgumentException.class, () -> Money.parse("-"));
+        assertThrows(IllegalArgumentException.class, () -> Money.parse("."));
+        assertThrows(IllegalArgumentException.class, () -> Money.parse("1.2.3"));
+        assertThrows(IllegalArgumentException.class, () -> Money.parse("12a"));
+        assertThrows(IllegalArgumentException.class, () -> Money.parse("0.001"));
+        assertThrows(IllegalArgumentException.class, () -> Money.of(new BigDecimal("0.125")));
+    }
+
+    @Test
+    void parseDetectsOverflow() {
+        assertEquals(Long.MAX_VALUE, Money.parse("92233720368547758.07").getMinorUnits());
+        assertThrows(ArithmeticException.class, () -> Money.parse("92233720368547758.08"));
+        assertThrows(ArithmeticException.class, () -> Money.parse("99999999999999999999"));
+        assertThrows(ArithmeticException.class, () -> Money.ofMajor(Long.MAX_VALUE / 10));
+        assertThrows(IllegalArgumentException.class, () -> Money.of(new BigDecimal("1e30")));
+    }
+
+    @Test
+    void arithmeticDetectsOverflow() {
+        Money max = Money.ofMinor(Long.MAX_VALUE);
+        assertThrows(ArithmeticException.class, () -> max.plus(Money.ofMinor(1)));
+        assertThrows(ArithmeticException.class, () -> Money.ofMinor(Long.MIN_VALUE).minus(Money.ofMinor(1)));
+        assertThrows(ArithmeticException.class, () -> Money.ofMinor(Long.MIN_VALUE).negate());
+        assertEquals(Money.ofMinor(Long.MAX_VALUE - 1), max.minus(Money.ofMinor(1)));
+    }
+
+    @Test
+    void formatsWithTwoDecimals() {
+        assertEquals("12.50", Money.parse("12.5").toString());
+        assertEquals("-0.05", Money.ofMinor(-5).toString());
+        assertEquals("0.00", Money.ZERO.toString());
+        assertEquals("-92233720368547758.08", Money.ofMinor(Long.MIN_VALUE).toString());
+        assertEquals(new BigDecimal("12.50"), Money.parse("12.5").toBigDecimal());
+    }
+
+    @Test
+    void roundTripsThroughJson() throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+        assertEquals("12.50", mapper.writeValueAsString(Money.parse("12.5")));
+        assertEquals(Money.ofMinor(1250), mapper.readValue("12.5", Money.class));
+        assertEquals(Money.ofMajor(12), mapper.readValue("12", Money.class));
+        assertEquals(Money.ofMinor(1250), mapper.readValue("\"12.50\"", Money.class));
+        assertThrows(Exception.class, () -> mapper.readValue("12.345", Money.class));
+    }
+}
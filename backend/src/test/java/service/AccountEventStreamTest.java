@@ -0,0 +1,50 @@
+package service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class AccountEventStreamTest {
+
+    private final TokenRevocationService revocations = mock(TokenRevocationService.class);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final AccountEventStream stream = new AccountEventStream(registry, revocations, 64, 8, 25_000, 1);
+
+    @AfterEach
+    void tearDown() {
+        stream.shutdown();
+    }
+
+    private static Date inMinutes(long minutes) {
+        return new Date(System.currentTimeMillis() + minutes * 60_000);
+    }
+
+    @Test
+    void timesOutWhenTheTokenExpires() {
+        SseEmitter emitter = stream.subscribe(7L, "jti-1", inMinutes(30));
+
+        long timeout = emitter.getTimeout();
+        assertTrue(timeout > 29 * 60_000 && timeout <= 30 * 60_000, timeout + " ms");
+        assertEquals(1, stream.subscribe(7L, "jti-2", new Date(System.currentTimeMillis() - 1000)).getTimeout());
+    }
+
+    @Test
+    void aHeartbeatClosesStreamsOfRevokedTokens() {
+        stream.subscribe(7L, "jti-1", inMinutes(30));
+        stream.subscribe(7L, "jti-2", inMinutes(30));
+        stream.heartbeat();
+        assertEquals(2, stream.connectionCount());
+
+        when(revocations.isRevoked("jti-1")).thenReturn(true);
+        stream.heartbeat();
+
+        assertEquals(1, stream.connectionCount());
+        assertEquals(1, registry.get("stream.disconnects").tag("reason", "token-revoked").counter().count());
+    }
+}
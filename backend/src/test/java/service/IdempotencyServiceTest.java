@@ -0,0 +1,127 @@
+package service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import entities.IdempotencyKey;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import repository.IdempotencyKeyRepository;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class IdempotencyServiceTest {
+
+    private static final Map<String, Object> BODY = Map.of("accountId", 7, "amount", "10.00");
+
+    private final IdempotencyKeyRepository repository = mock(IdempotencyKeyRepository.class);
+    private final AtomicInteger runs = new AtomicInteger();
+    private IdempotencyService idempotency;
+
+    @BeforeEach
+    void setUp() {
+        idempotency = fresh();
+        when(repository.saveAndFlush(any())).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    private ResponseEntity<?> deposit() {
+        return idempotency.execute("alice", "key-1", "POST", "/api/transactions/deposit", BODY, () -> {
+            runs.incrementAndGet();
+            return ResponseEntity.ok(Map.of("success", true, "run", runs.get()));
+        });
+    }
+
+    // The row a first deposit stored, dated hoursAgo hours back
+    private IdempotencyKey storedRow(long hoursAgo) {
+        assertNull(deposit().getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+        ArgumentCaptor<IdempotencyKey> saved = ArgumentCaptor.forClass(IdempotencyKey.class);
+        verify(repository).saveAndFlush(saved.capture());
+        IdempotencyKey row = saved.getValue();
+        row.setCreatedAt(LocalDateTime.now().minusHours(hoursAgo));
+        return row;
+    }
+
+    private IdempotencyService fresh() {
+        // Same repository, empty in-memory cache: as after a restart or on another instance
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenAnswer(invocation -> new SimpleTransactionStatus());
+        return new IdempotencyService(repository, mock(ShardService.class), new ObjectMapper(), transactionManager,
+                new SimpleMeterRegistry(), 100, 1000, 24);
+    }
+
+    @Test
+    void replaysACurrentKeyWithoutRunningAgain() {
+        IdempotencyKey row = storedRow(1);
+        when(repository.findByUsernameAndKey("alice", "key-1")).thenReturn(Optional.of(row));
+        idempotency = fresh();
+
+        ResponseEntity<?> retry = deposit();
+
+        assertEquals("true", retry.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    void runsAgainOverAnExpiredButUnpurgedKey() {
+        IdempotencyKey row = storedRow(25);
+        row.setId(41L);
+        when(repository.findByUsernameAndKey("alice", "key-1")).thenReturn(Optional.of(row));
+        idempotency = fresh();
+
+        ResponseEntity<?> again = deposit();
+
+        assertNull(again.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+        assertEquals(2, runs.get());
+        verify(repository).deleteExpired(eq(41L), any());
+    }
+
+    @Test
+    void aLostRaceNeverReplaysAnExpiredKey() {
+        IdempotencyKey row = storedRow(25);
+        when(repository.findByUsernameAndKey("alice", "key-1")).thenReturn(Optional.empty())
+                .thenReturn(Optional.of(row));
+        DataIntegrityViolationException duplicate = new DataIntegrityViolationException("duplicate key");
+        when(repository.saveAndFlush(any())).thenThrow(duplicate);
+        idempotency = fresh();
+
+        assertSame(duplicate, assertThrows(DataIntegrityViolationException.class, this::deposit));
+    }
+
+    @Test
+    void aConcurrentDuplicateWaitsAndGetsTheSameResponse() throws Exception {
+        AtomicReference<ResponseEntity<?>> second = new AtomicReference<>();
+        Thread duplicate = new Thread(() -> second.set(deposit()));
+        ResponseEntity<?> first = idempotency.execute("alice", "key-1", "POST", "/api/transactions/deposit", BODY, () -> {
+            runs.incrementAndGet();
+            // Finish only once the duplicate is blocked waiting for this run
+            duplicate.start();
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (duplicate.getState() != Thread.State.TIMED_WAITING && System.nanoTime() < deadline) {
+                Thread.onSpinWait();
+            }
+            return ResponseEntity.ok(Map.of("success", true, "run", runs.get()));
+        });
+        duplicate.join(5000);
+
+        assertEquals(1, runs.get());
+        assertNull(first.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+        assertEquals("true", second.get().getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+        assertEquals(first.getStatusCode(), second.get().getStatusCode());
+        assertEquals(first.getBody(), second.get().getBody());
+        verify(repository).saveAndFlush(any());
+    }
+}
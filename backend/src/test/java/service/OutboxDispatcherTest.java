@@ -0,0 +1,96 @@
+package service;
+
+import entities.OutboxEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import repository.OutboxEventRepository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class OutboxDispatcherTest {
+
+    private final OutboxEventRepository repository = mock(OutboxEventRepository.class);
+
+    // Fails every delivery that contains the poison event
+    private static final class RecordingSink implements OutboxSink {
+        final long poisonId;
+        final List<Long> delivered = new ArrayList<>();
+
+        RecordingSink(long poisonId) {
+            this.poisonId = poisonId;
+        }
+
+        @Override
+        public String name() {
+            return "test";
+        }
+
+        @Override
+        public void deliver(List<OutboxEvent> events) {
+            if (events.stream().anyMatch(event -> event.getId() == poisonId)) {
+                throw new IllegalStateException("poison");
+            }
+            events.forEach(event -> delivered.add(event.getId()));
+        }
+    }
+
+    private OutboxDispatcher dispatcher(OutboxSink sink, int maxAttempts) {
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        return new OutboxDispatcher(repository, List.of(sink), mock(ShardService.class), transactionManager,
+                new SimpleMeterRegistry(), 200, 20, maxAttempts, 1000);
+    }
+
+    private static List<OutboxEvent> events(int count) {
+        return LongStream.rangeClosed(1, count).mapToObj(id -> {
+            OutboxEvent event = new OutboxEvent();
+            event.setId(id);
+            event.setEventType("TRANSACTION_POSTED");
+            event.setStatus(OutboxEvent.PENDING);
+            event.setCreatedAt(LocalDateTime.now());
+            event.setNextAttemptAt(LocalDateTime.now());
+            return event;
+        }).toList();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void failingEventDoesNotHoldBackTheRestOfTheBatch() {
+        List<OutboxEvent> batch = events(8);
+        when(repository.claimBatch(any(), any())).thenReturn(batch);
+        RecordingSink sink = new RecordingSink(5);
+
+        assertEquals(8, dispatcher(sink, 10).dispatchBatch());
+
+        assertEquals(List.of(1L, 2L, 3L, 4L, 6L, 7L, 8L), sink.delivered.stream().sorted().toList());
+        verify(repository).deleteAllInBatch(argThat(deleted ->
+                ((List<OutboxEvent>) deleted).stream().noneMatch(event -> event.getId() == 5)
+                        && ((List<OutboxEvent>) deleted).size() == 7));
+
+        OutboxEvent poison = batch.get(4);
+        assertEquals(1, poison.getAttempts());
+        assertEquals(OutboxEvent.PENDING, poison.getStatus());
+        assertTrue(poison.getNextAttemptAt().isAfter(LocalDateTime.now()));
+        assertTrue(batch.stream().filter(event -> event != poison).allMatch(event -> event.getAttempts() == 0));
+    }
+
+    @Test
+    void failingEventIsParkedAfterMaxAttempts() {
+        List<OutboxEvent> batch = events(3);
+        when(repository.claimBatch(any(), any())).thenReturn(batch);
+
+        dispatcher(new RecordingSink(2), 1).dispatchBatch();
+
+        assertEquals(OutboxEvent.FAILED, batch.get(1).getStatus());
+        assertEquals(OutboxEvent.PENDING, batch.get(0).getStatus());
+    }
+}
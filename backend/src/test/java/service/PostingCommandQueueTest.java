@@ -0,0 +1,157 @@
+package service;
+
+import entities.Money;
+import entities.PostingCommandRecord;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import repository.PostingCommandRecordRepository;
+import repository.UserShardRepository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class PostingCommandQueueTest {
+
+    private final AccountService accountService = mock(AccountService.class);
+    private final PostingCommandRecordRepository records = mock(PostingCommandRecordRepository.class);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private PostingCommandQueue queue;
+
+    private PostingCommandQueue start(int workers) {
+        when(transactionManager.getTransaction(any())).thenAnswer(invocation -> new SimpleTransactionStatus());
+        ShardService shards = new ShardService(false, new String[0], mock(UserShardRepository.class),
+                mock(EntityManagerFactory.class), transactionManager);
+        ClusterService cluster = new ClusterService(false, "", "", "", 128, 1000, 1000);
+        queue = new PostingCommandQueue(accountService, mock(TransferSagaService.class), cluster, shards,
+                mock(AccountEventStream.class), mock(ChangeVersionService.class), records, transactionManager,
+                registry, 100, workers, 50, 600_000, 30_000);
+        queue.start();
+        return queue;
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        queue.stop();
+    }
+
+    private double depth() {
+        return registry.get("commands.queue.depth").gauge().value();
+    }
+
+    // Submits inside a request transaction and ends it with the given outcome
+    private PostingCommand submitInTransaction(int outcome) {
+        PostingCommand command = PostingCommand.deposit(7L, Money.ofMajor(10));
+        TransactionSynchronizationManager.initSynchronization();
+        assertTrue(queue.submit(command, "alice"));
+        assertEquals(0, depth());
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        synchronizations.forEach(synchronization -> synchronization.afterCompletion(outcome));
+        return command;
+    }
+
+    private static PostingCommandRecord stored(PostingCommand command, PostingCommand.Status status, String message) {
+        PostingCommandRecord record = command.toRecord("local");
+        record.setStatus(status.name());
+        record.setMessage(message);
+        record.setCompletedAt(status == PostingCommand.Status.QUEUED ? null : LocalDateTime.now());
+        return record;
+    }
+
+    @Test
+    void storesTheCommandAndQueuesItOnlyOnceTheRequestCommits() {
+        start(0);
+        PostingCommand command = submitInTransaction(TransactionSynchronization.STATUS_COMMITTED);
+
+        assertEquals(1, depth());
+        verify(records).save(argThat(record -> record.getId().equals(command.getId())
+                && record.getStatus().equals("QUEUED") && record.getIdempotencyKey() != null));
+        assertSame(command, queue.find(command.getId(), "alice").orElseThrow());
+        assertTrue(queue.find(command.getId(), "bob").isEmpty());
+    }
+
+    @Test
+    void aRolledBackRequestQueuesNothing() {
+        start(0);
+        PostingCommand command = submitInTransaction(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        assertEquals(0, depth());
+        assertTrue(queue.find(command.getId(), "alice").isEmpty());
+    }
+
+    @Test
+    void findsCompletedCommandsInTheTable() {
+        start(0);
+        PostingCommand command = PostingCommand.deposit(7L, Money.ofMajor(10)).submittedBy("alice", null);
+        when(records.findById(command.getId()))
+                .thenReturn(Optional.of(stored(command, PostingCommand.Status.SUCCEEDED, "Deposited 10.00")));
+
+        PostingCommand found = queue.find(command.getId(), "alice").orElseThrow();
+        assertEquals(PostingCommand.Status.SUCCEEDED, found.getStatus());
+        assertEquals("Deposited 10.00", found.getMessage());
+    }
+
+    @Test
+    void queuesStoredCommandsAgainOnce() {
+        start(0);
+        PostingCommand command = PostingCommand.deposit(7L, Money.ofMajor(10)).submittedBy("alice", null);
+        command.withIdempotencyKey("k");
+        when(records.findQueued(eq("local"), any(), any()))
+                .thenReturn(List.of(stored(command, PostingCommand.Status.QUEUED, null)));
+
+        queue.recoverQueued();
+        queue.recoverQueued();
+
+        assertEquals(1, depth());
+        assertEquals(PostingCommand.Status.QUEUED, queue.find(command.getId(), "alice").orElseThrow().getStatus());
+    }
+
+    @Test
+    void completesInThePostingsTransaction() throws Exception {
+        when(records.complete(anyString(), anyString(), any(), any())).thenReturn(1);
+        start(1);
+        PostingCommand command = PostingCommand.deposit(7L, Money.ofMajor(10));
+        assertTrue(queue.submit(command, "alice"));
+
+        PostingCommand done = command.getCompletion().get(5, TimeUnit.SECONDS);
+        assertEquals(PostingCommand.Status.SUCCEEDED, done.getStatus());
+        verify(accountService).deposit(7L, Money.ofMajor(10));
+        verify(records).complete(eq(command.getId()), eq("SUCCEEDED"), eq("Deposited 10.00"), any());
+        verify(transactionManager).commit(any());
+    }
+
+    @Test
+    void aSecondRunRollsBackAndReportsTheFirst() throws Exception {
+        // The stored row is no longer QUEUED: another run completed it
+        when(records.complete(anyString(), anyString(), any(), any())).thenReturn(0);
+        start(1);
+        PostingCommand command = PostingCommand.deposit(7L, Money.ofMajor(10));
+        when(records.findById(anyString())).thenAnswer(invocation ->
+                Optional.of(stored(command, PostingCommand.Status.SUCCEEDED, "Deposited 10.00")));
+        assertTrue(queue.submit(command, "alice"));
+
+        PostingCommand done = command.getCompletion().get(5, TimeUnit.SECONDS);
+        assertEquals(PostingCommand.Status.SUCCEEDED, done.getStatus());
+        assertEquals("Deposited 10.00", done.getMessage());
+        verify(transactionManager).rollback(any());
+        verify(transactionManager, never()).commit(any());
+    }
+}
@@ -0,0 +1,29 @@
+package service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.YearMonth;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpendingAnalyticsServiceTest {
+
+    private static SpendingAnalyticsService.TypeTotal total(long minor) {
+        return new SpendingAnalyticsService.TypeTotal(1, minor);
+    }
+
+    @Test
+    void netsReversalsAgainstSpendingAndLeavesOpeningDepositsOut() {
+        SpendingAnalyticsService.Month month = new SpendingAnalyticsService.Month(YearMonth.of(2024, 5), Map.of(
+                "OPENING_DEPOSIT", total(100_000),
+                "DEPOSIT", total(5_000),
+                "TRANSFER_RECEIVED", total(2_500),
+                "WITHDRAW", total(1_000),
+                "TRANSFER_SENT", total(4_000),
+                "TRANSFER_REVERSED", total(4_000)));
+
+        assertEquals(1_000, month.spentMinor());
+        assertEquals(7_500, month.receivedMinor());
+    }
+}
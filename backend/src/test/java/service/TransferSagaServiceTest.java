@@ -0,0 +1,225 @@
+package service;
+
+import dto.ClusterCreditRequest;
+import entities.AppliedCredit;
+import entities.Money;
+import entities.TransferSaga;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.web.client.ResourceAccessException;
+import repository.AppliedCreditRepository;
+import repository.TransferSagaRepository;
+import repository.UserShardRepository;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class TransferSagaServiceTest {
+
+    private static final Money AMOUNT = Money.ofMajor(25);
+
+    // Node "a" (this one) with a peer "b" whose answers the test scripts instead of calling HTTP
+    private static final class StubbedPeerCluster extends ClusterService {
+        final Deque<Supplier<ResponseEntity<Map>>> answers = new ArrayDeque<>();
+        final List<ClusterCreditRequest> calls = new ArrayList<>();
+
+        StubbedPeerCluster() {
+            super(true, "a", "a=http://node-a,b=http://node-b", "secret", 128, 1000, 1000);
+        }
+
+        @Override
+        public ResponseEntity<Map> callInternal(Node node, String path, Object body) {
+            assertEquals("b", node.name());
+            calls.add((ClusterCreditRequest) body);
+            return answers.removeFirst().get();
+        }
+    }
+
+    private final AccountService accountService = mock(AccountService.class);
+    private final TransferSagaRepository sagaRepository = mock(TransferSagaRepository.class);
+    private final AppliedCreditRepository appliedCreditRepository = mock(AppliedCreditRepository.class);
+    private final StubbedPeerCluster cluster = new StubbedPeerCluster();
+    private PlatformTransactionManager transactionManager;
+    private TransferSagaService sagas;
+    private TransferSaga saved;
+    private Long local;
+    private Long remote;
+
+    @BeforeEach
+    void setUp() {
+        transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenAnswer(invocation -> new SimpleTransactionStatus());
+        ShardService shards = new ShardService(false, new String[0], mock(UserShardRepository.class),
+                mock(EntityManagerFactory.class), transactionManager);
+        sagas = new TransferSagaService(accountService, cluster, shards, appliedCreditRepository, sagaRepository,
+                transactionManager, 0, 24);
+
+        when(sagaRepository.saveAndFlush(any())).thenAnswer(invocation -> {
+            saved = invocation.getArgument(0);
+            return saved;
+        });
+        when(sagaRepository.findById(anyString())).thenAnswer(invocation -> Optional.ofNullable(saved));
+        when(sagaRepository.finish(anyString(), anyString(), any())).thenAnswer(invocation -> {
+            if (!TransferSaga.DEBITED.equals(saved.getState())) {
+                return 0;
+            }
+            saved.setState(invocation.getArgument(1));
+            return 1;
+        });
+
+        for (long id = 1; local == null || remote == null; id++) {
+            if (cluster.isLocal(id)) {
+                local = local == null ? id : local;
+            } else {
+                remote = remote == null ? id : remote;
+            }
+        }
+    }
+
+    @Test
+    void completesWhenThePeerCredits() {
+        cluster.answers.add(() -> ResponseEntity.ok(Map.of("success", true)));
+
+        assertEquals("Transferred 25.00 to " + remote, sagas.transfer(local, remote, AMOUNT, null));
+
+        verify(accountService).transferOut(local, remote, AMOUNT);
+        assertEquals(TransferSaga.COMPLETED, saved.getState());
+        assertEquals(saved.getId(), cluster.calls.get(0).getSagaId());
+        verify(accountService, never()).reverseTransferOut(any(), any(), any());
+    }
+
+    @Test
+    void refundsTheSenderWhenThePeerRefuses() {
+        cluster.answers.add(() -> ResponseEntity.badRequest().body(Map.of("success", false, "error", "Receiver account not found")));
+
+        IllegalArgumentException refused = assertThrows(IllegalArgumentException.class,
+                () -> sagas.transfer(local, remote, AMOUNT, null));
+
+        assertEquals("Receiver account not found", refused.getMessage());
+        assertEquals(TransferSaga.COMPENSATED, saved.getState());
+        verify(accountService).reverseTransferOut(local, remote, AMOUNT);
+    }
+
+    @Test
+    void retriesAnUnknownOutcomeWithoutRefunding() {
+        cluster.answers.add(() -> {
+            throw new ResourceAccessException("Read timed out");
+        });
+        cluster.answers.add(() -> ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build());
+        cluster.answers.add(() -> ResponseEntity.ok(Map.of("success", true)));
+
+        assertTrue(sagas.transfer(local, remote, AMOUNT, null).contains("is pending on node b"));
+        assertEquals(TransferSaga.DEBITED, saved.getState());
+        assertEquals(2, saved.getAttempts());
+
+        when(sagaRepository.findStalled(eq("a"), any(), any())).thenAnswer(invocation ->
+                TransferSaga.DEBITED.equals(saved.getState()) ? List.of(saved) : List.of());
+        sagas.retryStalled();
+        assertEquals(TransferSaga.DEBITED, saved.getState());
+        assertEquals(3, saved.getAttempts());
+
+        sagas.retryStalled();
+        assertEquals(TransferSaga.COMPLETED, saved.getState());
+        // Every attempt carried the same saga id, which is what the receiver deduplicates on
+        assertEquals(3, cluster.calls.size());
+        assertTrue(cluster.calls.stream().allMatch(call -> call.getSagaId().equals(saved.getId())));
+        verify(accountService, never()).reverseTransferOut(any(), any(), any());
+    }
+
+    @Test
+    void storesTheIdempotencyKeyOnTheSaga() {
+        cluster.answers.add(() -> ResponseEntity.ok(Map.of("success", true)));
+        String key = TransferSagaService.idempotencyKey("alice", "key-1");
+
+        sagas.transfer(local, remote, AMOUNT, key);
+
+        assertEquals(key, saved.getIdempotencyKey());
+        assertNotEquals(key, TransferSagaService.idempotencyKey("bob", "key-1"));
+        verify(sagaRepository).releaseIdempotencyKey(eq(key), any());
+    }
+
+    @Test
+    void aConcurrentDuplicateRollsBackItsDebitAndAnswersFromTheFirstSaga() {
+        // The first request with the key committed its saga (completed); ours then fails on the unique key
+        String key = TransferSagaService.idempotencyKey("alice", "key-1");
+        TransferSaga first = new TransferSaga();
+        first.setFromAccountId(local);
+        first.setToAccountId(remote);
+        first.setAmount(AMOUNT);
+        first.setState(TransferSaga.COMPLETED);
+        first.setTargetNode("b");
+        when(sagaRepository.saveAndFlush(any())).thenThrow(new DataIntegrityViolationException("uk_transfer_sagas_idempotency_key"));
+        when(sagaRepository.findByIdempotencyKey(key)).thenReturn(Optional.of(first));
+
+        assertEquals("Transferred 25.00 to " + remote, sagas.transfer(local, remote, AMOUNT, key));
+
+        // Our debit ran inside the phase-1 transaction, which rolled back rather than committed
+        verify(accountService).transferOut(local, remote, AMOUNT);
+        verify(transactionManager).rollback(any());
+        assertTrue(cluster.calls.isEmpty());
+
+        first.setState(TransferSaga.DEBITED);
+        assertTrue(sagas.transfer(local, remote, AMOUNT, key).contains("is pending on node b"));
+        first.setState(TransferSaga.COMPENSATED);
+        assertThrows(IllegalArgumentException.class, () -> sagas.transfer(local, remote, AMOUNT, key));
+        IllegalArgumentException reused = assertThrows(IllegalArgumentException.class,
+                () -> sagas.transfer(local, remote, Money.ofMajor(26), key));
+        assertTrue(reused.getMessage().contains("different request"));
+        verify(accountService, never()).reverseTransferOut(any(), any(), any());
+    }
+
+    @Test
+    void aDuplicateSagaWithoutAKeyIsAnError() {
+        when(sagaRepository.saveAndFlush(any())).thenThrow(new DataIntegrityViolationException("duplicate"));
+
+        assertThrows(DataIntegrityViolationException.class, () -> sagas.transfer(local, remote, AMOUNT, null));
+    }
+
+    @Test
+    void receiverCreditsAtMostOncePerSaga() {
+        ClusterCreditRequest credit = new ClusterCreditRequest("saga-1", local, remote, AMOUNT);
+        when(appliedCreditRepository.existsById("saga-1")).thenReturn(false, true);
+
+        assertEquals(HttpStatus.OK, sagas.applyCredit(credit).getStatusCode());
+        assertEquals(HttpStatus.OK, sagas.applyCredit(credit).getStatusCode());
+
+        verify(accountService, times(1)).transferIn(remote, local, AMOUNT);
+        verify(appliedCreditRepository, times(1)).saveAndFlush(argThat((AppliedCredit applied) ->
+                applied.getSagaId().equals("saga-1") && applied.getToAccountId().equals(remote)));
+    }
+
+    @Test
+    void receiverAnswersOkWhenAConcurrentAttemptWon() {
+        ClusterCreditRequest credit = new ClusterCreditRequest("saga-2", local, remote, AMOUNT);
+        when(appliedCreditRepository.saveAndFlush(any())).thenThrow(new DataIntegrityViolationException("duplicate key"));
+
+        assertEquals(HttpStatus.OK, sagas.applyCredit(credit).getStatusCode());
+    }
+
+    @Test
+    void receiverRefusalRecordsNothing() {
+        ClusterCreditRequest credit = new ClusterCreditRequest("saga-3", local, remote, AMOUNT);
+        doThrow(new IllegalArgumentException("Receiver account not found"))
+                .when(accountService).transferIn(remote, local, AMOUNT);
+
+        assertEquals(HttpStatus.BAD_REQUEST, sagas.applyCredit(credit).getStatusCode());
+        verify(appliedCreditRepository, never()).saveAndFlush(any());
+    }
+}
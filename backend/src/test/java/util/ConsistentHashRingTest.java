@@ -0,0 +1,61 @@
+package util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConsistentHashRingTest {
+
+    private static final int KEYS = 100_000;
+
+    @Test
+    void placementIsDeterministic() {
+        ConsistentHashRing<String> a = new ConsistentHashRing<>(List.of("node-a", "node-b", "node-c"), 128);
+        ConsistentHashRing<String> b = new ConsistentHashRing<>(List.of("node-c", "node-a", "node-b"), 128);
+        for (long key = 0; key < 10_000; key++) {
+            assertEquals(a.nodeFor(key), b.nodeFor(key));
+        }
+    }
+
+    @Test
+    void spreadsSequentialKeysEvenly() {
+        ConsistentHashRing<String> ring = new ConsistentHashRing<>(List.of("node-a", "node-b", "node-c", "node-d"), 128);
+        Map<String, Integer> counts = new HashMap<>();
+        for (long key = 1; key <= KEYS; key++) {
+            counts.merge(ring.nodeFor(key), 1, Integer::sum);
+        }
+        assertEquals(4, counts.size());
+        for (int count : counts.values()) {
+            // Within 25% of a fair quarter
+            assertTrue(Math.abs(count - KEYS / 4) < KEYS / 16, counts.toString());
+        }
+    }
+
+    @Test
+    void addingANodeOnlyMovesKeysToIt() {
+        ConsistentHashRing<String> before = new ConsistentHashRing<>(List.of("node-a", "node-b", "node-c"), 128);
+        ConsistentHashRing<String> after = new ConsistentHashRing<>(List.of("node-a", "node-b", "node-c", "node-d"), 128);
+        int moved = 0;
+        for (long key = 1; key <= KEYS; key++) {
+            String owner = after.nodeFor(key);
+            if (!owner.equals(before.nodeFor(key))) {
+                assertEquals("node-d", owner);
+                moved++;
+            }
+        }
+        // About a quarter of the keys
+        assertTrue(moved > KEYS / 6 && moved < KEYS / 3, "moved " + moved);
+    }
+
+    @Test
+    void singleNodeOwnsEverything() {
+        ConsistentHashRing<String> ring = new ConsistentHashRing<>(List.of("only"), 1);
+        assertEquals("only", ring.nodeFor(Long.MIN_VALUE));
+        assertEquals("only", ring.nodeFor(Long.MAX_VALUE));
+        assertThrows(IllegalArgumentException.class, () -> new ConsistentHashRing<>(List.of(), 128));
+    }
+}
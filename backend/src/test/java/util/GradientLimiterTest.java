@@ -0,0 +1,100 @@
+package util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GradientLimiterTest {
+
+    private static final long MS = 1_000_000;
+
+    // Zero-length windows with one sample each, so every release recomputes the limit
+    private static GradientLimiter limiter(int initial, int min, int max) {
+        return new GradientLimiter(initial, min, max, 1.5, 0.2, 0, 1);
+    }
+
+    // Fills every slot, then completes them all with the same latency
+    private static void saturate(GradientLimiter limiter, long latencyNanos) {
+        int acquired = 0;
+        while (limiter.tryAcquire()) {
+            acquired++;
+        }
+        for (int i = 0; i < acquired; i++) {
+            limiter.release(latencyNanos);
+        }
+    }
+
+    private static void once(GradientLimiter limiter, long latencyNanos) {
+        assertTrue(limiter.tryAcquire());
+        limiter.release(latencyNanos);
+    }
+
+    @Test
+    void admitsUpToTheLimit() {
+        GradientLimiter limiter = limiter(3, 1, 10);
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+        assertEquals(3, limiter.getInFlight());
+
+        limiter.release(-1);
+        assertEquals(2, limiter.getInFlight());
+        assertTrue(limiter.tryAcquire());
+    }
+
+    @Test
+    void growsWhileLatencyHoldsAndStopsAtTheMaximum() {
+        GradientLimiter limiter = limiter(10, 1, 50);
+        for (int i = 0; i < 5; i++) {
+            saturate(limiter, 5 * MS);
+        }
+        assertTrue(limiter.getLimit() > 10, "limit " + limiter.getLimit());
+
+        for (int i = 0; i < 100; i++) {
+            saturate(limiter, 5 * MS);
+        }
+        assertEquals(50, limiter.getLimit());
+    }
+
+    @Test
+    void shrinksWhenLatencyRisesAndStopsAtTheMinimum() {
+        GradientLimiter limiter = limiter(100, 5, 200);
+        once(limiter, MS);
+        int before = limiter.getLimit();
+
+        // Queueing: latency ten times the baseline
+        for (int i = 0; i < 3; i++) {
+            once(limiter, 10 * MS);
+        }
+        int after = limiter.getLimit();
+        assertTrue(after < before, before + " -> " + after);
+        // At most half per update
+        assertTrue(after >= before / 8, before + " -> " + after);
+
+        // No smoothing: the limit halves (plus its square root) while latency keeps climbing
+        GradientLimiter small = new GradientLimiter(8, 5, 10, 1.5, 1.0, 0, 1);
+        once(small, MS);
+        for (int i = 1; i <= 10; i++) {
+            once(small, (MS << i));
+            assertTrue(small.getLimit() >= 5);
+        }
+        assertEquals(5, small.getLimit());
+    }
+
+    @Test
+    void doesNotGrowWhenMostlyIdle() {
+        GradientLimiter limiter = limiter(20, 1, 100);
+        for (int i = 0; i < 50; i++) {
+            once(limiter, 5 * MS);
+        }
+        assertEquals(20, limiter.getLimit());
+    }
+
+    @Test
+    void rejectsInvalidBounds() {
+        assertThrows(IllegalArgumentException.class, () -> limiter(10, 0, 10));
+        assertThrows(IllegalArgumentException.class, () -> limiter(10, 5, 4));
+        assertEquals(4, limiter(100, 1, 4).getLimit());
+    }
+}
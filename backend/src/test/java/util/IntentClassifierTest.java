@@ -0,0 +1,111 @@
+package util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IntentClassifierTest {
+
+    private static IntentClassifier.Builder<String> builder() {
+        return IntentClassifier.builder(List.of("balance", "history"));
+    }
+
+    private static Optional<String> intent(IntentClassifier<String> classifier, String text) {
+        return classifier.classify(text).map(IntentClassifier.Match::intent);
+    }
+
+    @Test
+    void prefixKeywordsMatchLongerWordsAndExactOnesDoNot() {
+        IntentClassifier<String> classifier = builder()
+                .keyword("balance*", "balance", 3)
+                .keyword("bal", "balance", 2)
+                .minScore(2)
+                .build();
+
+        assertEquals(3, classifier.classify("balance").orElseThrow().score());
+        assertEquals(3, classifier.classify("Balances?").orElseThrow().score());
+        assertEquals(2, classifier.classify("bal").orElseThrow().score());
+        // "bal" is exact only, and "balan" is shorter than the prefix
+        assertTrue(classifier.classify("bald").isEmpty());
+        assertTrue(classifier.classify("balan").isEmpty());
+    }
+
+    @Test
+    void anExactKeywordWinsOverAPrefixOne() {
+        IntentClassifier<String> classifier = builder()
+                .keyword("trans*", "history", 3)
+                .keyword("transfer", "balance", 3)
+                .build();
+
+        assertEquals(Optional.of("balance"), intent(classifier, "transfer"));
+        assertEquals(Optional.of("history"), intent(classifier, "transactions"));
+        assertEquals(Optional.of("history"), intent(classifier, "transfers"));
+    }
+
+    @Test
+    void negativeWeightsPullAnIntentBelowTheMinimum() {
+        IntentClassifier<String> classifier = builder()
+                .keyword("balance", "balance", 3)
+                .keyword("why", "balance", -2)
+                .minScore(2.5)
+                .build();
+
+        assertEquals(Optional.of("balance"), intent(classifier, "my balance"));
+        assertTrue(classifier.classify("why is my balance low").isEmpty());
+    }
+
+    @Test
+    void needsALeadOfTheMinimumMargin() {
+        IntentClassifier<String> classifier = builder()
+                .keyword("balance", "balance", 3)
+                .keyword("history", "history", 3)
+                .keyword("statement", "history", 1)
+                .minMargin(1)
+                .build();
+
+        assertTrue(classifier.classify("balance history").isEmpty());
+        assertEquals(Optional.of("history"), intent(classifier, "balance history statement"));
+
+        IntentClassifier<String> noMargin = builder()
+                .keyword("balance", "balance", 3)
+                .keyword("history", "history", 3)
+                .build();
+        // Without a margin a tie goes to the intent listed first
+        assertEquals(Optional.of("balance"), intent(noMargin, "balance history"));
+    }
+
+    @Test
+    void textLongerThanMaxWordsIsNotClassified() {
+        IntentClassifier<String> classifier = builder()
+                .keyword("balance", "balance", 3)
+                .maxWords(3)
+                .build();
+
+        assertEquals(Optional.of("balance"), intent(classifier, "what's my balance"));
+        assertTrue(classifier.classify("what is my balance").isEmpty());
+    }
+
+    @Test
+    void apostrophesAreDroppedInsideWords() {
+        IntentClassifier<String> classifier = builder()
+                .keyword("whats", "balance", 3)
+                .keyword("s", "history", 3)
+                .build();
+
+        assertEquals(Optional.of("balance"), intent(classifier, "What's"));
+        assertEquals(Optional.of("balance"), intent(classifier, "What’s"));
+        assertEquals(Optional.of("balance"), intent(classifier, "whats"));
+        assertEquals(Optional.of("history"), intent(classifier, "what ' s"));
+    }
+
+    @Test
+    void rejectsKeywordsThatCannotMatch() {
+        IntentClassifier.Builder<String> builder = builder();
+        assertThrows(IllegalArgumentException.class, () -> builder.keyword("what's", "balance", 1));
+        assertThrows(IllegalArgumentException.class, () -> builder.keyword("*", "balance", 1));
+        assertThrows(IllegalArgumentException.class, () -> builder.keyword("balance", "loans", 1));
+    }
+}
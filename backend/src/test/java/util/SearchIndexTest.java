@@ -0,0 +1,108 @@
+package util;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SearchIndexTest {
+
+    private SearchIndex<String> index;
+
+    private void put(long id, String name, String username, String email) {
+        index.put(id, name, List.of(name), Arrays.asList(username, email));
+    }
+
+    private List<Long> ids(String query) {
+        return index.search(query, 0, 100).hits().stream().map(SearchIndex.Hit::id).toList();
+    }
+
+    @BeforeEach
+    void setUp() {
+        index = new SearchIndex<>();
+        put(1, "John Smith", "jsmith", "john.smith@example.com");
+        put(2, "Johanna Smithers", "jo", "johanna@example.com");
+        put(3, "José Álvarez", "jalvarez", "jose@example.com");
+        put(4, "Christopher Johnson", "cjohnson", "chris@example.com");
+    }
+
+    @Test
+    void matchesWordPrefixesAndKeyPrefixes() {
+        assertEquals(List.of(1L, 2L), ids("smith"));
+        assertEquals(List.of(4L), ids("cjoh"));
+        assertEquals(List.of(2L), ids("johanna@"));
+        assertEquals(List.of(), ids("xyz"));
+    }
+
+    @Test
+    void requiresEveryTerm() {
+        assertEquals(List.of(1L), ids("john smith"));
+        assertEquals(List.of(2L), ids("jo smithers"));
+        assertEquals(List.of(), ids("john alvarez"));
+    }
+
+    @Test
+    void ranksExactThenPrefixThenTypo() {
+        List<SearchIndex.Hit<String>> hits = index.search("john", 0, 10).hits();
+        assertEquals(1L, hits.get(0).id());
+        assertEquals(3, hits.get(0).score());
+        assertTrue(hits.stream().skip(1).allMatch(hit -> hit.score() < 3));
+
+        SearchIndex.Hit<String> typo = index.search("smiht", 0, 10).hits().get(0);
+        assertEquals(1, typo.score());
+    }
+
+    @Test
+    void toleratesTyposInLongerNameWordsOnly() {
+        assertTrue(ids("smiht").contains(1L));
+        assertTrue(ids("christohper").contains(4L));
+        // Under four letters a term is only a prefix
+        assertEquals(List.of(), ids("jpn"));
+        // Keys are never fuzzy
+        assertEquals(List.of(), ids("jsmiht"));
+    }
+
+    @Test
+    void ignoresCaseAndAccents() {
+        assertEquals(List.of(3L), ids("JOSE alvarez"));
+        assertEquals(List.of(3L), ids("álv"));
+        assertEquals("jose", SearchIndex.normalize(" José "));
+    }
+
+    @Test
+    void replacesAndRemovesDocuments() {
+        put(1, "John Doe", "jdoe", "john.doe@example.com");
+        assertEquals(List.of(2L), ids("smith"));
+        assertEquals(List.of(1L), ids("doe"));
+
+        index.remove(1);
+        assertEquals(List.of(), ids("doe"));
+        assertEquals(3, index.size());
+    }
+
+    @Test
+    void pagesThroughHits() {
+        for (long id = 10; id < 35; id++) {
+            put(id, "Pat Lee " + id, "user" + id, null);
+        }
+        SearchIndex.Page<String> page = index.search("pat", 10, 10);
+        assertEquals(25, page.total());
+        assertEquals(10, page.hits().size());
+        assertEquals(20L, page.hits().get(0).id());
+        assertEquals(5, index.search("pat", 20, 10).hits().size());
+        assertEquals(0, index.search("   ", 0, 10).total());
+    }
+
+    @Test
+    void rejectsOffsetsPastTheCap() {
+        put(10, "Pat Lee", "pat", null);
+        assertEquals(0, index.search("pat", SearchIndex.MAX_OFFSET, 100).hits().size());
+        assertThrows(IllegalArgumentException.class, () -> index.search("pat", SearchIndex.MAX_OFFSET + 1, 10));
+        // An int page * size that overflowed to a negative offset
+        assertThrows(IllegalArgumentException.class, () -> index.search("pat", 50_000 * 50_000, 10));
+        assertThrows(IllegalArgumentException.class, () -> index.search("pat", 50_000L * 50_000, 10));
+    }
+}
@@ -0,0 +1,85 @@
+package util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SimilarityCacheTest {
+
+    private static final long HOUR = 3_600_000;
+
+    @Test
+    void normalizesCasePunctuationAndWhitespace() {
+        assertEquals("whats kyc", SimilarityCache.normalize("  What's   KYC?! "));
+        assertEquals("whats kyc", SimilarityCache.normalize("what’s kyc"));
+        assertEquals("", SimilarityCache.normalize("?!"));
+    }
+
+    @Test
+    void exactHitAfterNormalization() {
+        SimilarityCache<String> cache = new SimilarityCache<>(100, HOUR, 0.8);
+        cache.put("What is KYC?", "answer");
+
+        Optional<SimilarityCache.Hit<String>> hit = cache.get("what is kyc");
+        assertTrue(hit.isPresent());
+        assertTrue(hit.get().exact());
+        assertEquals("answer", hit.get().value());
+    }
+
+    @Test
+    void findsNearDuplicatesButNotUnrelatedText() {
+        SimilarityCache<String> cache = new SimilarityCache<>(100, HOUR, 0.8);
+        cache.put("How do I reset my online banking password?", "reset");
+        cache.put("What is the interest rate on a savings account?", "rates");
+
+        Optional<SimilarityCache.Hit<String>> near = cache.get("how do i reset my online banking password please");
+        assertTrue(near.isPresent());
+        assertFalse(near.get().exact());
+        assertEquals("reset", near.get().value());
+
+        assertEquals(Optional.of("rates"),
+                cache.get("what is the interest rate on a savings accounts").map(SimilarityCache.Hit::value));
+        assertTrue(cache.get("How do I close my account?").isEmpty());
+        assertTrue(cache.get("").isEmpty());
+    }
+
+    @Test
+    void evictsTheLeastRecentlyUsed() {
+        SimilarityCache<String> cache = new SimilarityCache<>(2, HOUR, 0.8);
+        cache.put("first question about cards", "1");
+        cache.put("second question about loans", "2");
+        cache.get("first question about cards");
+        cache.put("third question about transfers", "3");
+
+        assertEquals(2, cache.size());
+        assertTrue(cache.get("second question about loans").isEmpty());
+        assertEquals(List.of("first question about cards", "third question about transfers"),
+                cache.entries().stream().map(SimilarityCache.Stored::key).toList());
+    }
+
+    @Test
+    void expiredEntriesAreNotReturned() throws InterruptedException {
+        SimilarityCache<String> cache = new SimilarityCache<>(100, HOUR, 0.8);
+        cache.put("already expired", "x", System.currentTimeMillis() - 1);
+        assertEquals(0, cache.size());
+
+        cache.put("expires very soon", "y", System.currentTimeMillis() + 20);
+        Thread.sleep(50);
+        assertTrue(cache.get("expires very soon").isEmpty());
+        assertTrue(cache.get("expires very soon indeed").isEmpty());
+        assertTrue(cache.entries().isEmpty());
+    }
+
+    @Test
+    void replacingAKeyDropsTheOldValue() {
+        SimilarityCache<String> cache = new SimilarityCache<>(100, HOUR, 0.8);
+        cache.put("opening hours", "old");
+        cache.put("Opening hours!", "new");
+
+        assertEquals(1, cache.size());
+        assertEquals("new", cache.get("opening hours").orElseThrow().value());
+    }
+}
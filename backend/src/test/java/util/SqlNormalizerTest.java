@@ -0,0 +1,45 @@
+package util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SqlNormalizerTest {
+
+    @Test
+    void replacesLiteralsWithPlaceholders() {
+        assertEquals("select * from users where id = ? and name = ?",
+                SqlNormalizer.normalize("select * from users where id = 42 and name = 'O''Brien'"));
+        assertEquals("update accounts set balance = ? where account_id = ?",
+                SqlNormalizer.normalize("update accounts set balance = -12.50 where account_id = 7"));
+    }
+
+    @Test
+    void keepsDigitsInsideIdentifiers() {
+        assertEquals("select t1.col_2 from table3 t1 where t1.x = ?",
+                SqlNormalizer.normalize("select t1.col_2 from table3 t1 where t1.x = 9"));
+    }
+
+    @Test
+    void squeezesWhitespace() {
+        assertEquals("select a from t where b = ?",
+                SqlNormalizer.normalize("  select a\n\tfrom   t\r\n where b = ?  "));
+    }
+
+    @Test
+    void collapsesInListsAndMultiRowValues() {
+        assertEquals("select * from t where id in (?...)",
+                SqlNormalizer.normalize("select * from t where id in (1, 2, 3)"));
+        assertEquals(SqlNormalizer.normalize("select * from t where id in (?, ?)"),
+                SqlNormalizer.normalize("select * from t where id in (?, ?, ?, ?, ?)"));
+        assertEquals("select * from t where id in (?)",
+                SqlNormalizer.normalize("select * from t where id in (5)"));
+        assertEquals("insert into t (a, b) values (?...)",
+                SqlNormalizer.normalize("insert into t (a, b) values (1, 'x'), (2, 'y'), (3, 'z')"));
+    }
+
+    @Test
+    void nullIsEmpty() {
+        assertEquals("", SqlNormalizer.normalize(null));
+    }
+}
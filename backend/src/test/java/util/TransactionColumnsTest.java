@@ -0,0 +1,118 @@
+package util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransactionColumnsTest {
+
+    private static final long DAY = 86_400;
+    private static final long T0 = 1_700_000_000;
+    // Three one-day buckets
+    private static final long[] BOUNDS = {T0, T0 + DAY, T0 + 2 * DAY, T0 + 3 * DAY};
+
+    private static int type(TransactionColumns.Totals totals, String name) {
+        return totals.types().indexOf(name);
+    }
+
+    @Test
+    void bucketsByTimeAndType() {
+        TransactionColumns columns = new TransactionColumns();
+        columns.append(1, 10, T0, 1_000, "PAYMENT", "SUCCESS");
+        columns.append(2, 10, T0 + DAY - 1, 500, "PAYMENT", "SUCCESS");
+        columns.append(3, 10, T0 + DAY, 250, "TRANSFER", "SUCCESS");
+        columns.append(4, 10, T0 + 3 * DAY, 99, "PAYMENT", "SUCCESS");
+        columns.append(5, 10, T0 - 1, 99, "PAYMENT", "SUCCESS");
+
+        for (long customer : new long[]{10, TransactionColumns.ANY_CUSTOMER}) {
+            TransactionColumns.Totals totals = columns.aggregate(customer, "SUCCESS", BOUNDS);
+            int payment = type(totals, "PAYMENT");
+            int transfer = type(totals, "TRANSFER");
+            assertEquals(2, totals.count(0, payment));
+            assertEquals(1_500, totals.sum(0, payment));
+            assertEquals(1, totals.count(1, transfer));
+            assertEquals(250, totals.sum(1, transfer));
+            assertEquals(0, totals.count(1, payment));
+            assertEquals(0, totals.count(2, payment));
+        }
+    }
+
+    @Test
+    void filtersByCustomerAndStatus() {
+        TransactionColumns columns = new TransactionColumns();
+        columns.append(1, 10, T0, 100, "PAYMENT", "SUCCESS");
+        columns.append(2, 11, T0, 200, "PAYMENT", "SUCCESS");
+        columns.append(3, 10, T0, 400, "PAYMENT", "FAILED");
+
+        TransactionColumns.Totals own = columns.aggregate(10, "SUCCESS", BOUNDS);
+        assertEquals(100, own.sum(0, type(own, "PAYMENT")));
+        TransactionColumns.Totals anyStatus = columns.aggregate(10, null, BOUNDS);
+        assertEquals(500, anyStatus.sum(0, type(anyStatus, "PAYMENT")));
+        TransactionColumns.Totals everyone = columns.aggregate(TransactionColumns.ANY_CUSTOMER, "SUCCESS", BOUNDS);
+        assertEquals(300, everyone.sum(0, type(everyone, "PAYMENT")));
+
+        assertEquals(0, columns.aggregate(12, "SUCCESS", BOUNDS).sum(0, 0));
+        assertEquals(0, columns.aggregate(10, "PENDING", BOUNDS).counts().length);
+    }
+
+    @Test
+    void ignoresDuplicateTransactionIds() {
+        TransactionColumns columns = new TransactionColumns();
+        assertTrue(columns.append(1, 10, T0, 100, "PAYMENT", "SUCCESS"));
+        assertFalse(columns.append(1, 10, T0, 100, "PAYMENT", "SUCCESS"));
+
+        assertEquals(1, columns.rows());
+        TransactionColumns.Totals totals = columns.aggregate(10, "SUCCESS", BOUNDS);
+        assertEquals(1, totals.count(0, type(totals, "PAYMENT")));
+    }
+
+    @Test
+    void customerQueriesSpanSegments() {
+        TransactionColumns columns = new TransactionColumns();
+        int rows = TransactionColumns.SEGMENT_ROWS + 10;
+        for (int i = 0; i < rows; i++) {
+            columns.append(i, i % 2, T0 + i % DAY, 1, "PAYMENT", "SUCCESS");
+        }
+        assertEquals(2, columns.segmentCount());
+
+        TransactionColumns.Totals odd = columns.aggregate(1, "SUCCESS", BOUNDS);
+        assertEquals(rows / 2, odd.count(0, type(odd, "PAYMENT")));
+        TransactionColumns.Totals all = columns.aggregate(TransactionColumns.ANY_CUSTOMER, "SUCCESS", BOUNDS);
+        assertEquals(rows, all.count(0, type(all, "PAYMENT")));
+    }
+
+    @Test
+    void typesAddedDuringAQueryAreLeftOut() throws InterruptedException {
+        TransactionColumns columns = new TransactionColumns();
+        columns.append(0, 10, T0, 1, "PAYMENT", "SUCCESS");
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread writer = new Thread(() -> {
+            for (int i = 1; i <= 100; i++) {
+                columns.append(i, 10, T0, 1, "TYPE-" + i, "SUCCESS");
+            }
+        });
+        writer.start();
+        while (writer.isAlive()) {
+            try {
+                for (long customer : new long[]{10, TransactionColumns.ANY_CUSTOMER}) {
+                    TransactionColumns.Totals totals = columns.aggregate(customer, "SUCCESS", BOUNDS);
+                    long counted = 0;
+                    for (int type = 0; type < totals.types().size(); type++) {
+                        counted += totals.count(0, type);
+                    }
+                    // One row per type; the newest type may be in the snapshot before its row is
+                    int size = totals.types().size();
+                    assertTrue(counted == size || counted == size - 1, counted + " rows, " + size + " types");
+                }
+            } catch (Throwable t) {
+                failure.compareAndSet(null, t);
+            }
+        }
+        writer.join();
+        assertNull(failure.get());
+        assertEquals(List.of("PAYMENT", "TYPE-1"), columns.aggregate(10, null, BOUNDS).types().subList(0, 2));
+    }
+}
@@ -41,10 +41,13 @@ export function ChatBot() {
     setIsLoading(true);
 
     try {
+      // Signed-in users get balance and transaction answers from their own accounts
+      const token = localStorage.getItem('banking-token');
       const response = await fetch('http://localhost:8080/api/chat', {
         method: 'POST',
         headers: {
           'Content-Type': 'application/json',
+          ...(token ? { Authorization: `Bearer ${token}` } : {}),
         },
         body: JSON.stringify({ message: userMessage }),
       });
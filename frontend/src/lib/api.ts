@@ -46,6 +46,12 @@ async function apiRequest(endpoint: string, options: any = {}): Promise<any> {
   const res = await fetch(url, config);
   const text = await res.text();
 
+  // The backend re-signs tokens whose claims went stale; keep the newest one
+  const refreshedToken = res.headers.get("X-Refreshed-Token");
+  if (refreshedToken) {
+    localStorage.setItem("banking-token", refreshedToken);
+  }
+
   let payload: any = text;
   try {
     payload = text ? JSON.parse(text) : null;
@@ -143,6 +149,34 @@ export const transactionApi = {
   getHistory: () => apiRequest("/api/transactions/history"),
 };
 
+// -----------------------------------------------------------
+// LIVE EVENTS (server-sent events; replaces polling)
+// -----------------------------------------------------------
+export type AccountEventHandlers = {
+  onTransaction?: (tx: any) => void;
+  onBalance?: (update: { accountId: number; balance: number }) => void;
+};
+
+/**
+ * Opens the account event stream. EventSource reconnects on its own;
+ * call the returned function to close it.
+ */
+export function subscribeToAccountEvents(handlers: AccountEventHandlers): () => void {
+  const token = localStorage.getItem("banking-token");
+  if (!token) return () => {};
+
+  const source = new EventSource(
+    `${API_BASE_URL}/api/stream?access_token=${encodeURIComponent(token)}`
+  );
+  source.addEventListener("transaction", (e) =>
+    handlers.onTransaction?.(JSON.parse((e as MessageEvent).data))
+  );
+  source.addEventListener("balance", (e) =>
+    handlers.onBalance?.(JSON.parse((e as MessageEvent).data))
+  );
+  return () => source.close();
+}
+
 // -----------------------------------------------------------
 // PROFILE API
 // -----------------------------------------------------------